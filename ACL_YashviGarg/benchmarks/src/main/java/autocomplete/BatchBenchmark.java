@@ -0,0 +1,110 @@
+package autocomplete;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Compares completing a batch of prefixes one call at a time with
+ * {@link ACLImplementation#completeAll}. A batch mixes Zipf-distributed
+ * prefixes of three to five letters, so popular stems repeat and nest
+ * as they do in real request batches.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms2g", "-Xmx2g"})
+public class BatchBenchmark {
+
+    /**
+     * Shortest prefix length in a batch.
+     */
+    private static final int MIN_LENGTH = 3;
+
+    /**
+     * Longest prefix length in a batch.
+     */
+    private static final int MAX_LENGTH = 5;
+
+    /**
+     * Number of prefixes in a batch.
+     */
+    @Param({"1000"})
+    private int batchSize;
+
+    /**
+     * The Trie under test.
+     */
+    private ACLImplementation acl;
+
+    /**
+     * The batch of prefixes.
+     */
+    private List<String> batch;
+
+    /**
+     * Builds the Trie and the batch once per fork.
+     */
+    @Setup(Level.Trial)
+    public void setUp() {
+        acl = new ACLImplementation();
+        batch = new ArrayList<>();
+        for (int length = MIN_LENGTH; length <= MAX_LENGTH; length++) {
+            String[] prefixes = Workloads.zipfPrefixes(length);
+            int share = batchSize / (MAX_LENGTH - MIN_LENGTH + 1);
+            batch.addAll(Arrays.asList(prefixes).subList(0, share));
+        }
+    }
+
+    /**
+     * Baseline: one {@code getWordsWithPrefix} call per prefix.
+     *
+     * @return the completions.
+     */
+    @Benchmark
+    public List<List<String>> perPrefix() {
+        List<List<String>> results = new ArrayList<>(batch.size());
+        for (String prefix : batch) {
+            results.add(acl.getWordsWithPrefix(prefix));
+        }
+        return results;
+    }
+
+    /**
+     * One shared pass over the Trie.
+     *
+     * @return the completions.
+     */
+    @Benchmark
+    public Map<String, List<String>> completeAll() {
+        return acl.completeAll(batch);
+    }
+
+    /**
+     * One shared pass, with first letters fanned out over the common
+     * pool.
+     *
+     * @return the completions.
+     */
+    @Benchmark
+    public Map<String, List<String>> completeAllParallel() {
+        return acl.completeAll(batch, ForkJoinPool.commonPool());
+    }
+}
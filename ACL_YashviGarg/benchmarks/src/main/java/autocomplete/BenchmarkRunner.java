@@ -0,0 +1,40 @@
+package autocomplete;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Entry point of the benchmark jar. Accepts the usual JMH command line
+ * and always adds the GC profiler, so every run reports the allocation
+ * rate ({@code gc.alloc.rate.norm}) next to the timings.
+ */
+public final class BenchmarkRunner {
+
+    /**
+     * Private constructor to prevent instantiation of this utility class.
+     */
+    private BenchmarkRunner() {
+        throw new UnsupportedOperationException(
+            "BenchmarkRunner class cannot be instantiated."
+        );
+    }
+
+    /**
+     * Runs the benchmarks selected on the command line.
+     *
+     * @param args JMH command line arguments, e.g. a benchmark regex.
+     * @throws RunnerException if a benchmark fails.
+     * @throws CommandLineOptionException if the arguments are invalid.
+     */
+    public static void main(final String[] args)
+        throws RunnerException, CommandLineOptionException {
+        new Runner(new OptionsBuilder()
+            .parent(new CommandLineOptions(args))
+            .addProfiler(GCProfiler.class)
+            .build()).run();
+    }
+}
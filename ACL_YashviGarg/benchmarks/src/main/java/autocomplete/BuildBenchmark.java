@@ -0,0 +1,76 @@
+package autocomplete;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures building the Trie from the default dictionary
+ * (370,105 words). Each invocation is a full build, so the benchmarks
+ * run in single-shot mode with a fresh heap per fork.
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(value = 2, jvmArgsAppend = {"-Xms2g", "-Xmx2g"})
+public class BuildBenchmark {
+
+    /**
+     * Sequential build through a {@code BufferedReader}.
+     *
+     * @return the root node, so the build is not optimized away.
+     */
+    @Benchmark
+    public TrieNode buildSequential() {
+        return TrieFileBuilder.buildTrieFromFile(Constants.DEFAULT_DICTIONARY);
+    }
+
+    /**
+     * Parallel build on the common fork-join pool.
+     *
+     * @return the root node, so the build is not optimized away.
+     */
+    @Benchmark
+    public TrieNode buildParallel() {
+        return TrieFileBuilder.buildTrieFromFileParallel(
+            Constants.DEFAULT_DICTIONARY);
+    }
+
+    /**
+     * Sequential build followed by packing into a {@link CompactTrie}.
+     *
+     * @return the compact trie, so the build is not optimized away.
+     */
+    @Benchmark
+    public CompactTrie buildCompact() {
+        return TrieFileBuilder.buildCompactTrieFromFile(
+            Constants.DEFAULT_DICTIONARY);
+    }
+
+    /**
+     * Sequential build followed by the suffix and infix index.
+     *
+     * @return the index, so the build is not optimized away.
+     */
+    @Benchmark
+    public SubstringIndex buildSubstringIndex() {
+        return TrieFileBuilder.buildSubstringIndexFromFile(
+            Constants.DEFAULT_DICTIONARY);
+    }
+
+    /**
+     * One-pass build of the minimal word graph, without a Trie.
+     *
+     * @return the word graph, so the build is not optimized away.
+     */
+    @Benchmark
+    public Dawg buildDawg() {
+        return TrieFileBuilder.buildDawgFromFile(Constants.DEFAULT_DICTIONARY);
+    }
+}
@@ -0,0 +1,121 @@
+package autocomplete;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures {@link ConcurrentACLImplementation} with three reader threads
+ * completing prefixes while one writer toggles popular words, so read
+ * latency is reported under live updates.
+ */
+@State(Scope.Group)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms2g", "-Xmx2g"})
+public class ConcurrentWorkloadBenchmark {
+
+    /**
+     * Length of the prefixes typed by readers.
+     */
+    private static final int PREFIX_LENGTH = 3;
+
+    /**
+     * The Trie shared by readers and the writer.
+     */
+    private ConcurrentACLImplementation acl;
+
+    /**
+     * Zipf-distributed words toggled by the writer.
+     */
+    private String[] words;
+
+    /**
+     * Zipf-distributed prefixes completed by readers.
+     */
+    private String[] prefixes;
+
+    /**
+     * Builds the Trie and streams once per fork.
+     */
+    @Setup(Level.Trial)
+    public void setUp() {
+        acl = new ConcurrentACLImplementation(Constants.DEFAULT_DICTIONARY);
+        words = Workloads.zipfWords();
+        prefixes = Workloads.zipfPrefixes(PREFIX_LENGTH);
+    }
+
+    /**
+     * Reader side: visits every completion of a prefix.
+     *
+     * @param cursor the position of this thread in the stream.
+     * @return the number of completions.
+     */
+    @Benchmark
+    @Group("readWrite")
+    @GroupThreads(3)
+    public int read(final Cursor cursor) {
+        int[] count = new int[1];
+        acl.forEachCompletion(prefixes[cursor.next()], (chars, length) -> {
+            count[0]++;
+            return true;
+        });
+        return count[0];
+    }
+
+    /**
+     * Writer side: removes a popular word if present, inserts it
+     * otherwise.
+     *
+     * @param cursor the position of this thread in the stream.
+     * @return whether the word was present before the write.
+     */
+    @Benchmark
+    @Group("readWrite")
+    @GroupThreads(1)
+    public boolean write(final Cursor cursor) {
+        String word = words[cursor.next()];
+        boolean present = acl.search(word);
+        if (present) {
+            acl.remove(word);
+        } else {
+            acl.insert(word);
+        }
+        return present;
+    }
+
+    /**
+     * The position of one thread in the query streams.
+     */
+    @State(Scope.Thread)
+    public static class Cursor {
+
+        /**
+         * The current position.
+         */
+        private int position;
+
+        /**
+         * Advances the position.
+         *
+         * @return the next position, wrapping around.
+         */
+        int next() {
+            position = (position + 1) & (Workloads.STREAM_SIZE - 1);
+            return position;
+        }
+    }
+}
@@ -0,0 +1,239 @@
+package autocomplete;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures {@link DurableDictionary}: restarting after a long run of
+ * edits compared with rebuilding from the text dictionary and repeating
+ * them, and the rate of durable inserts with one and with four writers
+ * sharing group commits.
+ */
+@State(Scope.Benchmark)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = {"-Xms2g", "-Xmx2g"})
+public class DurabilityBenchmark {
+
+    /**
+     * Number of logged edits in the restarted directory, about a day of
+     * live updates.
+     */
+    private static final int EDITS = 100_000;
+
+    /**
+     * One edit in this many is a removal; the others set a weight.
+     */
+    private static final int REMOVE_EVERY = 3;
+
+    /**
+     * The directory holding the snapshot and the log of edits.
+     */
+    private Path directory;
+
+    /**
+     * Zipf-distributed words edited by the log.
+     */
+    private String[] words;
+
+    /**
+     * Creates a directory from the default dictionary and appends the
+     * edits to its log.
+     *
+     * @throws IOException if the directory cannot be written.
+     */
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        words = Workloads.zipfWords();
+        directory = Files.createTempDirectory("durable");
+        new DurableDictionary(directory.toString(),
+            Constants.DEFAULT_DICTIONARY).close();
+        try (MutationLog log = MutationLog.open(
+            directory.resolve(DurableDictionary.LOG_FILE))) {
+            for (int i = 0; i < EDITS; i++) {
+                if (i % REMOVE_EVERY == 0) {
+                    log.append(MutationLog.REMOVE, word(i), 0);
+                } else {
+                    log.append(MutationLog.PUT, word(i), i);
+                }
+            }
+        }
+    }
+
+    /**
+     * Deletes the directory.
+     *
+     * @throws IOException if it cannot be deleted.
+     */
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        deleteRecursively(directory);
+    }
+
+    /**
+     * Returns the word of an edit.
+     *
+     * @param edit the number of the edit.
+     * @return the word.
+     */
+    private String word(final int edit) {
+        return words[edit & (Workloads.STREAM_SIZE - 1)];
+    }
+
+    /**
+     * Opens the directory: maps and unpacks the snapshot, then replays
+     * the log.
+     *
+     * @return the number of words, so the work is not optimized away.
+     * @throws IOException if the log cannot be closed.
+     */
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    public int restart() throws IOException {
+        try (DurableDictionary dict =
+            new DurableDictionary(directory.toString(), null)) {
+            return dict.size();
+        }
+    }
+
+    /**
+     * The alternative without a log: rebuild from the text dictionary
+     * and repeat every edit.
+     *
+     * @return the number of words, so the work is not optimized away.
+     */
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    public int rebuildAndReapply() {
+        ACLImplementation acl = new ACLImplementation();
+        for (int i = 0; i < EDITS; i++) {
+            if (i % REMOVE_EVERY == 0) {
+                acl.remove(word(i));
+            } else {
+                acl.insert(word(i), i);
+            }
+        }
+        return acl.countWithPrefix("");
+    }
+
+    /**
+     * Durable inserts from a single writer; each waits for its own
+     * {@code fsync}.
+     *
+     * @param writer the dictionary being written.
+     * @param cursor the position of this thread in the word stream.
+     */
+    @Benchmark
+    @BenchmarkMode(Mode.Throughput)
+    @Threads(1)
+    public void insertOneWriter(final Writer writer, final Cursor cursor) {
+        writer.dict.insert(words[cursor.next()], cursor.position);
+    }
+
+    /**
+     * Durable inserts from four writers, which share group commits.
+     *
+     * @param writer the dictionary being written.
+     * @param cursor the position of this thread in the word stream.
+     */
+    @Benchmark
+    @BenchmarkMode(Mode.Throughput)
+    @Threads(4)
+    public void insertFourWriters(final Writer writer, final Cursor cursor) {
+        writer.dict.insert(words[cursor.next()], cursor.position);
+    }
+
+    /**
+     * Deletes a directory and everything in it.
+     *
+     * @param dir the directory.
+     * @throws IOException if a file cannot be deleted.
+     */
+    static void deleteRecursively(final Path dir) throws IOException {
+        try (Stream<Path> paths = Files.walk(dir)) {
+            for (Path path : (Iterable<Path>) paths
+                .sorted(Comparator.reverseOrder())::iterator) {
+                Files.delete(path);
+            }
+        }
+    }
+
+    /**
+     * An empty dictionary receiving durable inserts.
+     */
+    @State(Scope.Benchmark)
+    public static class Writer {
+
+        /**
+         * The directory of the dictionary.
+         */
+        private Path directory;
+
+        /**
+         * The dictionary.
+         */
+        private DurableDictionary dict;
+
+        /**
+         * Opens an empty dictionary in a new directory.
+         *
+         * @throws IOException if the directory cannot be created.
+         */
+        @Setup(Level.Trial)
+        public void setUp() throws IOException {
+            directory = Files.createTempDirectory("durable-writes");
+            dict = new DurableDictionary(directory.toString(), null);
+        }
+
+        /**
+         * Closes the dictionary and deletes its directory.
+         *
+         * @throws IOException if the directory cannot be deleted.
+         */
+        @TearDown(Level.Trial)
+        public void tearDown() throws IOException {
+            dict.close();
+            deleteRecursively(directory);
+        }
+    }
+
+    /**
+     * The position of one thread in the word stream.
+     */
+    @State(Scope.Thread)
+    public static class Cursor {
+
+        /**
+         * The current position.
+         */
+        private int position;
+
+        /**
+         * Advances the position.
+         *
+         * @return the next position, wrapping around.
+         */
+        int next() {
+            position = (position + 1) & (Workloads.STREAM_SIZE - 1);
+            return position;
+        }
+    }
+}
@@ -0,0 +1,131 @@
+package autocomplete;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures what {@link TrieMetrics} adds to the read paths. Compare the
+ * scores of {@code sampleInterval=0}, where no metrics are attached and
+ * queries skip the clock entirely, with the sampled intervals: 1 times
+ * and records every query, 16 is the default.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms2g", "-Xmx2g"})
+public class MetricsBenchmark {
+
+    /**
+     * Number of completions requested from the top-K search.
+     */
+    private static final int TOP_K = 10;
+
+    /**
+     * Length of the queried prefixes; long enough that the queries are
+     * as cheap as they get, which makes the overhead most visible.
+     */
+    private static final int PREFIX_LENGTH = 5;
+
+    /**
+     * The sample interval of the metrics, or 0 for no metrics.
+     */
+    @Param({"0", "1", "16"})
+    private int sampleInterval;
+
+    /**
+     * The Trie under test.
+     */
+    private ACLImplementation acl;
+
+    /**
+     * Zipf-distributed whole words for the search benchmark.
+     */
+    private String[] words;
+
+    /**
+     * Zipf-distributed prefixes.
+     */
+    private String[] prefixes;
+
+    /**
+     * Position in the query streams.
+     */
+    private int next;
+
+    /**
+     * Builds the Trie and query streams once per fork.
+     */
+    @Setup(Level.Trial)
+    public void setUp() {
+        acl = new ACLImplementation();
+        if (sampleInterval > 0) {
+            acl.setMetrics(new TrieMetrics(sampleInterval));
+        }
+        words = Workloads.zipfWords();
+        prefixes = Workloads.zipfPrefixes(PREFIX_LENGTH);
+    }
+
+    /**
+     * Advances the query streams.
+     *
+     * @return the next position, wrapping around.
+     */
+    private int nextIndex() {
+        next = (next + 1) & (Workloads.STREAM_SIZE - 1);
+        return next;
+    }
+
+    /**
+     * Exact-match lookup, the cheapest query.
+     *
+     * @return whether the word was found.
+     */
+    @Benchmark
+    public boolean search() {
+        return acl.search(words[nextIndex()]);
+    }
+
+    /**
+     * Full listing of a prefix.
+     *
+     * @return the completions.
+     */
+    @Benchmark
+    public List<String> wordsWithPrefix() {
+        return acl.getWordsWithPrefix(prefixes[nextIndex()]);
+    }
+
+    /**
+     * Best-first top-K search.
+     *
+     * @return the completions.
+     */
+    @Benchmark
+    public List<String> topCompletions() {
+        return acl.getTopCompletions(prefixes[nextIndex()], TOP_K);
+    }
+
+    /**
+     * Constant-time completion count.
+     *
+     * @return the number of completions.
+     */
+    @Benchmark
+    public int countWithPrefix() {
+        return acl.countWithPrefix(prefixes[nextIndex()]);
+    }
+}
@@ -0,0 +1,111 @@
+package autocomplete;
+
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures read traffic interleaved with dictionary updates on one
+ * thread. Every write toggles a popular word: it is removed if present
+ * and inserted back otherwise, so the dictionary keeps its size while
+ * {@code remove} and {@code insert} are exercised on the hot part of the
+ * Trie.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms2g", "-Xmx2g"})
+public class MixedWorkloadBenchmark {
+
+    /**
+     * Number of completions requested by a read.
+     */
+    private static final int TOP_K = 10;
+
+    /**
+     * Length of the prefixes typed by readers.
+     */
+    private static final int PREFIX_LENGTH = 3;
+
+    /**
+     * Percentage of operations that are writes in {@link #mixed}.
+     */
+    @Param({"1", "10", "50"})
+    private int writePercent;
+
+    /**
+     * The single-threaded Trie used by {@link #mixed}.
+     */
+    private ACLImplementation acl;
+
+    /**
+     * Zipf-distributed words toggled by writes.
+     */
+    private String[] words;
+
+    /**
+     * Zipf-distributed prefixes completed by reads.
+     */
+    private String[] prefixes;
+
+    /**
+     * For each position, whether {@link #mixed} writes or reads.
+     */
+    private boolean[] isWrite;
+
+    /**
+     * Position in the query streams.
+     */
+    private int nextRead;
+
+    /**
+     * Builds the Trie and streams once per fork.
+     */
+    @Setup(Level.Trial)
+    public void setUp() {
+        acl = new ACLImplementation();
+        words = Workloads.zipfWords();
+        prefixes = Workloads.zipfPrefixes(PREFIX_LENGTH);
+        isWrite = new boolean[Workloads.STREAM_SIZE];
+        Random random = new Random(Workloads.SEED);
+        for (int i = 0; i < isWrite.length; i++) {
+            isWrite[i] = random.nextInt(100) < writePercent;
+        }
+    }
+
+    /**
+     * One operation of a single-threaded mix of top-K reads and
+     * remove/insert writes.
+     *
+     * @return the completions of a read, or {@code null} after a write.
+     */
+    @Benchmark
+    public List<String> mixed() {
+        int i = (nextRead + 1) & (Workloads.STREAM_SIZE - 1);
+        nextRead = i;
+        if (isWrite[i]) {
+            String word = words[i];
+            if (acl.search(word)) {
+                acl.remove(word);
+            } else {
+                acl.insert(word);
+            }
+            return null;
+        }
+        return acl.getTopCompletions(prefixes[i], TOP_K);
+    }
+}
@@ -0,0 +1,275 @@
+package autocomplete;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Measures the read paths on the default dictionary with Zipf-distributed
+ * words and prefixes. Short prefixes have huge result sets, so
+ * {@code prefixLength} shows how the cost of a completion grows with its
+ * fan-out.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms2g", "-Xmx2g"})
+public class QueryBenchmark {
+
+    /**
+     * Number of completions requested from the top-K search.
+     */
+    private static final int TOP_K = 10;
+
+    /**
+     * Length of the queried prefixes.
+     */
+    @Param({"1", "2", "3", "5"})
+    private int prefixLength;
+
+    /**
+     * The mutable Trie under test.
+     */
+    private ACLImplementation acl;
+
+    /**
+     * The read-only engine built from the same dictionary.
+     */
+    private CompactTrie compactTrie;
+
+    /**
+     * The path-compressed engine built from the same dictionary.
+     */
+    private RadixTrie radixTrie;
+
+    /**
+     * The suffix and infix index built from the same dictionary.
+     */
+    private SubstringIndex substringIndex;
+
+    /**
+     * The minimal word graph built from the same dictionary.
+     */
+    private Dawg dawg;
+
+    /**
+     * Every word of the dictionary, for the scanning baseline.
+     */
+    private List<String> dictionary;
+
+    /**
+     * The last {@link #prefixLength} letters of Zipf-distributed words.
+     */
+    private String[] suffixes;
+
+    /**
+     * Zipf-distributed whole words for the search benchmarks.
+     */
+    private String[] words;
+
+    /**
+     * Zipf-distributed prefixes of {@link #prefixLength} letters.
+     */
+    private String[] prefixes;
+
+    /**
+     * Position in the query streams.
+     */
+    private int next;
+
+    /**
+     * Builds the engines and query streams once per fork.
+     */
+    @Setup(Level.Trial)
+    public void setUp() {
+        acl = new ACLImplementation();
+        compactTrie = acl.toCompactTrie();
+        radixTrie = acl.toRadixTrie();
+        dawg = acl.toDawg();
+        words = Workloads.zipfWords();
+        prefixes = Workloads.zipfPrefixes(prefixLength);
+        substringIndex = acl.toSubstringIndex();
+        dictionary = acl.getWordsWithPrefix("");
+        suffixes = new String[words.length];
+        for (int i = 0; i < words.length; i++) {
+            suffixes[i] = words[i].substring(
+                Math.max(0, words[i].length() - prefixLength));
+        }
+    }
+
+    /**
+     * Advances the query streams.
+     *
+     * @return the next position, wrapping around.
+     */
+    private int nextIndex() {
+        next = (next + 1) & (Workloads.STREAM_SIZE - 1);
+        return next;
+    }
+
+    /**
+     * Exact-match lookup of a popular word.
+     *
+     * @return whether the word was found.
+     */
+    @Benchmark
+    public boolean search() {
+        return acl.search(words[nextIndex()]);
+    }
+
+    /**
+     * Exact-match lookup on the compact engine.
+     *
+     * @return whether the word was found.
+     */
+    @Benchmark
+    public boolean searchCompact() {
+        return compactTrie.search(words[nextIndex()]);
+    }
+
+    /**
+     * Exact-match lookup on the radix engine.
+     *
+     * @return whether the word was found.
+     */
+    @Benchmark
+    public boolean searchRadix() {
+        return radixTrie.search(words[nextIndex()]);
+    }
+
+    /**
+     * Exact-match lookup on the minimal word graph.
+     *
+     * @return whether the word was found.
+     */
+    @Benchmark
+    public boolean searchDawg() {
+        return dawg.search(words[nextIndex()]);
+    }
+
+    /**
+     * Full prefix listing into a new list.
+     *
+     * @return the completions.
+     */
+    @Benchmark
+    public List<String> wordsWithPrefix() {
+        return acl.getWordsWithPrefix(prefixes[nextIndex()]);
+    }
+
+    /**
+     * Full prefix listing on the compact engine.
+     *
+     * @return the completions.
+     */
+    @Benchmark
+    public List<String> wordsWithPrefixCompact() {
+        return compactTrie.getWordsWithPrefix(prefixes[nextIndex()]);
+    }
+
+    /**
+     * Full prefix listing on the radix engine.
+     *
+     * @return the completions.
+     */
+    @Benchmark
+    public List<String> wordsWithPrefixRadix() {
+        return radixTrie.getWordsWithPrefix(prefixes[nextIndex()]);
+    }
+
+    /**
+     * Full prefix listing on the minimal word graph.
+     *
+     * @return the completions.
+     */
+    @Benchmark
+    public List<String> wordsWithPrefixDawg() {
+        return dawg.getWordsWithPrefix(prefixes[nextIndex()]);
+    }
+
+    /**
+     * Visits every completion without materializing strings.
+     *
+     * @param blackhole sink for the visited lengths.
+     */
+    @Benchmark
+    public void forEachCompletion(final Blackhole blackhole) {
+        acl.forEachCompletion(prefixes[nextIndex()], (chars, length) -> {
+            blackhole.consume(length);
+            return true;
+        });
+    }
+
+    /**
+     * Best-first search for the heaviest completions.
+     *
+     * @return the completions.
+     */
+    @Benchmark
+    public List<String> topCompletions() {
+        return acl.getTopCompletions(prefixes[nextIndex()], TOP_K);
+    }
+
+    /**
+     * Typo-tolerant completion within one edit.
+     *
+     * @return the completions.
+     */
+    @Benchmark
+    public List<String> fuzzyCompletions() {
+        return acl.getFuzzyCompletions(prefixes[nextIndex()], 1, TOP_K);
+    }
+
+    /**
+     * Words ending with a popular word's last letters.
+     *
+     * @return the matching words.
+     */
+    @Benchmark
+    public List<String> wordsWithSuffix() {
+        return substringIndex.getWordsWithSuffix(suffixes[nextIndex()]);
+    }
+
+    /**
+     * Words containing a popular prefix anywhere.
+     *
+     * @return the matching words.
+     */
+    @Benchmark
+    public List<String> wordsContaining() {
+        return substringIndex.getWordsContaining(prefixes[nextIndex()]);
+    }
+
+    /**
+     * Words containing a popular prefix, found by filtering the whole
+     * dictionary as callers had to before the index.
+     *
+     * @return the matching words.
+     */
+    @Benchmark
+    public List<String> wordsContainingScan() {
+        String infix = prefixes[nextIndex()];
+        List<String> result = new ArrayList<>();
+        for (String word : dictionary) {
+            if (word.contains(infix)) {
+                result.add(word);
+            }
+        }
+        return result;
+    }
+}
@@ -0,0 +1,137 @@
+package autocomplete;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures the round-trip latency of a {@code COMPLETE} request to a
+ * {@link CompletionServer} over loopback, the cost a script pays per
+ * query once the dictionary is resident. Prefixes follow the Zipf
+ * stream used by the other benchmarks, and each request asks for at
+ * most ten completions, as an interactive client would.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms2g", "-Xmx2g"})
+public class ServerBenchmark {
+
+    /**
+     * Largest response expected for a limited request.
+     */
+    private static final int RESPONSE_BUFFER_SIZE = 1 << 16;
+
+    /**
+     * Length of the requested prefixes.
+     */
+    @Param({"3"})
+    private int prefixLength;
+
+    /**
+     * The server under test.
+     */
+    private CompletionServer server;
+
+    /**
+     * The thread running the server's event loop.
+     */
+    private Thread serverThread;
+
+    /**
+     * The client connection.
+     */
+    private SocketChannel client;
+
+    /**
+     * The encoded requests, cycled through.
+     */
+    private ByteBuffer[] requests;
+
+    /**
+     * Buffer receiving the responses.
+     */
+    private final ByteBuffer response =
+        ByteBuffer.allocateDirect(RESPONSE_BUFFER_SIZE);
+
+    /**
+     * Position in the request stream.
+     */
+    private int next;
+
+    /**
+     * Starts the server and connects to it once per fork.
+     *
+     * @throws IOException if the connection fails.
+     */
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        server = new CompletionServer(new ACLImplementation(), 0);
+        serverThread = new Thread(server, "completion-server");
+        serverThread.start();
+        client = SocketChannel.open(new InetSocketAddress(
+            InetAddress.getLoopbackAddress(), server.getPort()));
+        client.socket().setTcpNoDelay(true);
+        String[] prefixes = Workloads.zipfPrefixes(prefixLength);
+        requests = new ByteBuffer[prefixes.length];
+        for (int i = 0; i < prefixes.length; i++) {
+            byte[] line = ("COMPLETE " + prefixes[i] + " 10\n")
+                .getBytes(StandardCharsets.US_ASCII);
+            requests[i] = ByteBuffer.allocateDirect(line.length).put(line);
+        }
+    }
+
+    /**
+     * Closes the connection and stops the server.
+     *
+     * @throws Exception if the server thread does not stop.
+     */
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        client.close();
+        server.close();
+        serverThread.join();
+    }
+
+    /**
+     * Sends one request and waits for the complete response line.
+     *
+     * @return the length of the response.
+     * @throws IOException if the connection fails.
+     */
+    @Benchmark
+    public int complete() throws IOException {
+        ByteBuffer request = requests[next];
+        next = (next + 1) & (requests.length - 1);
+        request.clear();
+        while (request.hasRemaining()) {
+            client.write(request);
+        }
+        response.clear();
+        do {
+            if (client.read(response) < 0) {
+                throw new IOException("Server closed the connection.");
+            }
+        } while (response.get(response.position() - 1) != '\n');
+        return response.position();
+    }
+}
@@ -0,0 +1,171 @@
+package autocomplete;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Compares a {@link ShardedACLImplementation} with a single
+ * {@link ACLImplementation} on the default dictionary: building and
+ * reloading, listing the completions of one-letter prefixes, which span
+ * a shard or more, and ranking the completions of Zipf-distributed
+ * two-letter prefixes, which stay within one shard.
+ */
+@State(Scope.Benchmark)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = {"-Xms2g", "-Xmx2g"})
+public class ShardedBenchmark {
+
+    /**
+     * Number of shards, one per core on a typical server.
+     */
+    private static final int SHARDS = 8;
+
+    /**
+     * Number of completions requested from the top-K search.
+     */
+    private static final int TOP_K = 10;
+
+    /**
+     * Length of the ranked prefixes.
+     */
+    private static final int PREFIX_LENGTH = 2;
+
+    /**
+     * The single Trie.
+     */
+    private ACLImplementation acl;
+
+    /**
+     * The sharded dictionary.
+     */
+    private ShardedACLImplementation sharded;
+
+    /**
+     * Zipf-distributed two-letter prefixes.
+     */
+    private String[] prefixes;
+
+    /**
+     * Zipf-distributed one-letter prefixes.
+     */
+    private String[] letters;
+
+    /**
+     * Position in the query streams.
+     */
+    private int next;
+
+    /**
+     * Builds both dictionaries and the query streams once per fork.
+     */
+    @Setup(Level.Trial)
+    public void setUp() {
+        acl = new ACLImplementation();
+        sharded = ShardedACLImplementation.build(
+            Constants.DEFAULT_DICTIONARY, SHARDS);
+        prefixes = Workloads.zipfPrefixes(PREFIX_LENGTH);
+        letters = Workloads.zipfPrefixes(1);
+    }
+
+    /**
+     * Advances the query streams.
+     *
+     * @return the next position, wrapping around.
+     */
+    private int nextIndex() {
+        next = (next + 1) & (Workloads.STREAM_SIZE - 1);
+        return next;
+    }
+
+    /**
+     * Parallel build of a single Trie.
+     *
+     * @return the dictionary, so the build is not optimized away.
+     */
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    public TrieNode buildSingle() {
+        return TrieFileBuilder.buildTrieFromFileParallel(
+            Constants.DEFAULT_DICTIONARY);
+    }
+
+    /**
+     * Build of all shards, in parallel.
+     *
+     * @return the dictionary, so the build is not optimized away.
+     */
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    public ShardedACLImplementation buildSharded() {
+        return ShardedACLImplementation.build(
+            Constants.DEFAULT_DICTIONARY, SHARDS);
+    }
+
+    /**
+     * Rebuild of one shard, the cost of refreshing one range of words.
+     *
+     * @return the shard, so the build is not optimized away.
+     */
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    public ACLImplementation buildOneShard() {
+        return ShardedACLImplementation.buildShard(
+            Constants.DEFAULT_DICTIONARY, sharded.getBoundaries(), 0);
+    }
+
+    /**
+     * Lists the completions of a one-letter prefix in the single Trie.
+     *
+     * @return the number of completions.
+     */
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    public int wordsWithLetterSingle() {
+        return acl.getWordsWithPrefix(letters[nextIndex()]).size();
+    }
+
+    /**
+     * Lists the completions of a one-letter prefix in the shards.
+     *
+     * @return the number of completions.
+     */
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    public int wordsWithLetterSharded() {
+        return sharded.getWordsWithPrefix(letters[nextIndex()]).size();
+    }
+
+    /**
+     * Ranks the completions of a two-letter prefix in the single Trie.
+     *
+     * @return the number of completions.
+     */
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    public int topCompletionsSingle() {
+        return acl.getTopCompletions(prefixes[nextIndex()], TOP_K).size();
+    }
+
+    /**
+     * Ranks the completions of a two-letter prefix in the shards.
+     *
+     * @return the number of completions.
+     */
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    public int topCompletionsSharded() {
+        return sharded.getTopCompletions(prefixes[nextIndex()], TOP_K).size();
+    }
+}
@@ -0,0 +1,121 @@
+package autocomplete;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+/**
+ * Shared inputs for the benchmarks: the words of the default dictionary
+ * and Zipf-distributed query streams drawn from them.
+ * <p>
+ * Real autocomplete traffic is heavily skewed, so queries are drawn with
+ * a Zipf distribution over a shuffled universe: the most popular key is
+ * asked about twice as often as the second, three times as often as the
+ * third, and so on. The shuffle keeps the popular keys spread over the
+ * alphabet instead of clustered under 'a'. All streams are seeded, so
+ * every run measures the same queries.
+ * </p>
+ */
+final class Workloads {
+
+    /**
+     * Seed of every generated stream.
+     */
+    static final long SEED = 6510L;
+
+    /**
+     * Zipf exponent; 1.0 is the classic distribution of query logs.
+     */
+    static final double ZIPF_EXPONENT = 1.0;
+
+    /**
+     * Number of queries in a generated stream. A power of two, so the
+     * benchmarks can wrap around with a mask.
+     */
+    static final int STREAM_SIZE = 1 << 16;
+
+    /**
+     * The words of the default dictionary, loaded once per JVM.
+     */
+    private static List<String> dictionaryWords;
+
+    /**
+     * Private constructor to prevent instantiation of this utility class.
+     */
+    private Workloads() {
+        throw new UnsupportedOperationException(
+            "Workloads class cannot be instantiated."
+        );
+    }
+
+    /**
+     * Returns all words of the default dictionary in lexicographic order.
+     *
+     * @return the dictionary words.
+     */
+    static synchronized List<String> dictionaryWords() {
+        if (dictionaryWords == null) {
+            dictionaryWords = Collections.unmodifiableList(
+                TrieFileBuilder.buildCompactTrieFromFile(
+                    Constants.DEFAULT_DICTIONARY).getWordsWithPrefix(""));
+        }
+        return dictionaryWords;
+    }
+
+    /**
+     * Draws a stream of whole dictionary words.
+     *
+     * @return {@link #STREAM_SIZE} Zipf-distributed words.
+     */
+    static String[] zipfWords() {
+        return zipfSample(new ArrayList<>(dictionaryWords()));
+    }
+
+    /**
+     * Draws a stream of prefixes of one length. Only prefixes that occur
+     * in the dictionary are used, so every query has completions.
+     *
+     * @param length the prefix length.
+     * @return {@link #STREAM_SIZE} Zipf-distributed prefixes.
+     */
+    static String[] zipfPrefixes(final int length) {
+        Set<String> prefixes = new LinkedHashSet<>();
+        for (String word : dictionaryWords()) {
+            if (word.length() >= length) {
+                prefixes.add(word.substring(0, length));
+            }
+        }
+        return zipfSample(new ArrayList<>(prefixes));
+    }
+
+    /**
+     * Shuffles a universe and draws a Zipf-distributed stream from it.
+     *
+     * @param universe the keys to draw from; shuffled in place.
+     * @return {@link #STREAM_SIZE} keys.
+     */
+    private static String[] zipfSample(final List<String> universe) {
+        Random random = new Random(SEED);
+        Collections.shuffle(universe, random);
+        double[] cumulative = new double[universe.size()];
+        double total = 0;
+        for (int rank = 0; rank < cumulative.length; rank++) {
+            total += 1.0 / Math.pow(rank + 1, ZIPF_EXPONENT);
+            cumulative[rank] = total;
+        }
+        String[] stream = new String[STREAM_SIZE];
+        for (int i = 0; i < stream.length; i++) {
+            double target = random.nextDouble() * total;
+            int rank = Arrays.binarySearch(cumulative, target);
+            if (rank < 0) {
+                rank = -rank - 1;
+            }
+            stream[i] = universe.get(Math.min(rank, universe.size() - 1));
+        }
+        return stream;
+    }
+}
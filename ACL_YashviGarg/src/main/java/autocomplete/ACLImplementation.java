@@ -3,11 +3,23 @@
  */
 package autocomplete;
 
-import static autocomplete.Constants.ALPHABET_SIZE;
+import static autocomplete.Constants.DEFAULT_WORD_WEIGHT;
 
+import java.io.InputStream;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
 import java.util.List;
-import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 /**
  * Implementation of an Auto-Completion Library (ACL) using a
@@ -15,19 +27,55 @@ import java.util.Locale;
  * search for words, retrieve words by prefix, and remove
  * words from the Trie.
  */
-public class ACLImplementation {
+public class ACLImplementation implements AutoCompleteIndex {
+    /**
+     * The start time of a query that is not measured.
+     */
+    private static final long NOT_TIMED = Long.MIN_VALUE;
+
     /**
      * The root node of the Trie data structure.
      */
      private final TrieNode root;
 
+    /**
+     * The optional cache of prefix query results, or {@code null}.
+     */
+    private PrefixCache cache;
+
+    /**
+     * The index answering suffix and infix queries, or {@code null} until
+     * the first such query or {@link #buildSubstringIndex()}.
+     */
+    private LiveSubstringIndex substringIndex;
+
+    /**
+     * The metrics receiving query measurements; {@link
+     * AutoCompleteMetrics#NOOP} when the instance is not instrumented.
+     */
+    private AutoCompleteMetrics metrics = AutoCompleteMetrics.NOOP;
+
+    /**
+     * The sample interval of {@link #metrics} minus one; a query is
+     * measured when these bits of a random number are all zero.
+     */
+    private int sampleMask;
+
+    /**
+     * The time the constructor took to load the dictionary, in
+     * nanoseconds.
+     */
+    private final long buildNanos;
+
     /**
      * Constructs an ACLImplementation with a default dictionary.
      * It loads words from a predefined dictionary file into the
      * Trie for immediate use.
      */
     public ACLImplementation() {
+        long start = System.nanoTime();
         root = TrieFileBuilder.buildTrieFromFile(Constants.DEFAULT_DICTIONARY);
+        buildNanos = System.nanoTime() - start;
     }
 
     /**
@@ -45,6 +93,7 @@ public class ACLImplementation {
         final String dictionaryPath,
         final boolean replace
     ) {
+        long start = System.nanoTime();
         if (replace) {
             this.root = TrieFileBuilder.buildTrieFromFile(dictionaryPath);
         } else {
@@ -53,46 +102,556 @@ public class ACLImplementation {
                 dictionaryPath
             );
         }
+        buildNanos = System.nanoTime() - start;
+    }
+
+    /**
+     * Constructs an ACLImplementation with a specific dictionary loaded
+     * in lenient mode: malformed lines are passed to a listener with
+     * their line numbers and skipped, instead of failing the load.
+     *
+     * @param dictionaryPath The path to the dictionary file to load.
+     * @param replace If true, the existing Trie is replaced by the
+     *                new dictionary; if false, the words from the
+     *                new dictionary are appended to the existing Trie.
+     * @param listener the listener receiving malformed lines, or
+     *                 {@code null} to fail on the first one.
+     */
+    public ACLImplementation(
+        final String dictionaryPath,
+        final boolean replace,
+        final InvalidLineListener listener
+    ) {
+        long start = System.nanoTime();
+        TrieNode node = new TrieNode();
+        if (!replace) {
+            node = TrieFileBuilder.buildTrieFromFile(
+                Constants.DEFAULT_DICTIONARY);
+        }
+        this.root = TrieFileBuilder.appendTrieFromFile(
+            node, dictionaryPath, listener);
+        buildNanos = System.nanoTime() - start;
+    }
+
+    /**
+     * Constructs an ACLImplementation with a dictionary read from a
+     * stream, such as standard input. Gzip-compressed input is
+     * decompressed on the fly.
+     *
+     * @param dictionary the stream holding the dictionary; it is read to
+     *                   its end but not closed.
+     * @param replace If true, the existing Trie is replaced by the
+     *                new dictionary; if false, the words from the
+     *                new dictionary are appended to the existing Trie.
+     */
+    public ACLImplementation(
+        final InputStream dictionary,
+        final boolean replace
+    ) {
+        long start = System.nanoTime();
+        TrieNode node = new TrieNode();
+        if (!replace) {
+            node = TrieFileBuilder.buildTrieFromFile(
+                Constants.DEFAULT_DICTIONARY);
+        }
+        this.root = TrieFileBuilder.appendTrieFromStream(node, dictionary);
+        buildNanos = System.nanoTime() - start;
+    }
+
+    /**
+     * Constructs an ACLImplementation with a dictionary read from a
+     * stream in lenient mode: malformed lines are passed to a listener
+     * with their line numbers and skipped, instead of failing the load.
+     *
+     * @param dictionary the stream holding the dictionary; it is read to
+     *                   its end but not closed.
+     * @param replace If true, the existing Trie is replaced by the
+     *                new dictionary; if false, the words from the
+     *                new dictionary are appended to the existing Trie.
+     * @param listener the listener receiving malformed lines, or
+     *                 {@code null} to fail on the first one.
+     */
+    public ACLImplementation(
+        final InputStream dictionary,
+        final boolean replace,
+        final InvalidLineListener listener
+    ) {
+        long start = System.nanoTime();
+        TrieNode node = new TrieNode();
+        if (!replace) {
+            node = TrieFileBuilder.buildTrieFromFile(
+                Constants.DEFAULT_DICTIONARY);
+        }
+        this.root = TrieFileBuilder.appendTrieFromStream(
+            node, dictionary, listener);
+        buildNanos = System.nanoTime() - start;
+    }
+
+    /**
+     * Constructs an ACLImplementation with a specific dictionary, parsing
+     * and building the Trie on several threads. The resulting Trie is the
+     * same as with {@link #ACLImplementation(String, boolean)}.
+     *
+     * @param dictionaryPath The path to the dictionary file to load.
+     * @param replace If true, the existing Trie is replaced by the
+     *                new dictionary; if false, the words from the
+     *                new dictionary are appended to the existing Trie.
+     * @param pool the fork-join pool that builds the Trie.
+     */
+    public ACLImplementation(
+        final String dictionaryPath,
+        final boolean replace,
+        final ForkJoinPool pool
+    ) {
+        long start = System.nanoTime();
+        TrieNode node = new TrieNode();
+        if (!replace) {
+            node = TrieFileBuilder.appendTrieFromFileParallel(
+                node, Constants.DEFAULT_DICTIONARY, pool);
+        }
+        this.root = TrieFileBuilder.appendTrieFromFileParallel(
+            node, dictionaryPath, pool);
+        buildNanos = System.nanoTime() - start;
+    }
+
+    /**
+     * Constructs an ACLImplementation over an existing Trie. The Trie is
+     * used as is, not copied.
+     *
+     * @param trieRoot the root node of the Trie.
+     */
+    ACLImplementation(final TrieNode trieRoot) {
+        this.root = trieRoot;
+        this.buildNanos = 0;
+    }
+
+    /**
+     * Copies the nodes on the path of a word that are not fresh yet, so
+     * that the word can then be inserted into or removed from the
+     * returned Trie without changing the original one. Nodes off the
+     * path are shared by both Tries. Fresh nodes belong to the new Trie
+     * alone and are reused as they are, so a batch of changes copies each
+     * shared node at most once.
+     *
+     * @param trieNode the root node of the Trie to change.
+     * @param word the word whose path is copied. The word is
+     * automatically converted to lowercase.
+     * @param fresh the nodes that belong to the new Trie alone; the
+     * copies are added to it. An empty set copies the whole path.
+     * @return the root node of the new Trie.
+     */
+    static TrieNode copyPath(
+        final TrieNode trieNode,
+        final String word,
+        final Set<TrieNode> fresh
+    ) {
+        String lWord = Alphabet.fold(word);
+        TrieNode newRoot = trieNode;
+        if (!fresh.contains(trieNode)) {
+            newRoot = trieNode.copy();
+            fresh.add(newRoot);
+        }
+        TrieNode node = newRoot;
+        for (int i = 0; i < lWord.length(); i++) {
+            int index = Alphabet.index(lWord.charAt(i));
+            TrieNode child = node.getChild(index);
+            if (child == null) {
+                // The rest of the path is created fresh by insert
+                break;
+            }
+            if (!fresh.contains(child)) {
+                child = child.copy();
+                fresh.add(child);
+                node.setChild(index, child);
+            }
+            node = child;
+        }
+        return newRoot;
+    }
+
+    /**
+     * Adds the nodes on the path of a word to a set of fresh nodes, so
+     * that nodes just created by {@link #insert(TrieNode, String)} are not
+     * copied by a later {@link #copyPath(TrieNode, String, Set)}.
+     *
+     * @param trieNode the root node of the new Trie.
+     * @param word the word whose path is added. The word is
+     * automatically converted to lowercase.
+     * @param fresh the nodes that belong to the new Trie alone.
+     */
+    static void markFresh(
+        final TrieNode trieNode,
+        final String word,
+        final Set<TrieNode> fresh
+    ) {
+        String lWord = Alphabet.fold(word);
+        TrieNode node = trieNode;
+        for (int i = 0; i < lWord.length() && node != null; i++) {
+            node = node.getChild(Alphabet.index(lWord.charAt(i)));
+            if (node != null) {
+                fresh.add(node);
+            }
+        }
     }
 
     /**
-     * Inserts a word into the Trie.
+     * Inserts a word into the Trie. If the word is new it receives
+     * {@link Constants#DEFAULT_WORD_WEIGHT}; an existing word keeps
+     * its current weight.
      *
      * @param word the word to insert into the Trie. The word is automatically
      * converted to lowercase before insertion.
+     * @throws IllegalArgumentException if the word contains anything but
+     * letters.
      */
     public void insert(final String word) {
-        TrieNode node = root;
-        String lWord = word.toLowerCase(Locale.ENGLISH);
-        for (char ch : lWord.toCharArray()) {
-            int index = ch - 'a';
-            if (node.getChildNode()[index] == null) {
-                node.getChildNode()[index] = new TrieNode();
+        int words = root.getWordCount();
+        insert(root, word);
+        invalidate(word, words);
+    }
+
+    /**
+     * Inserts a word into the Trie with the given ranking weight. If the
+     * word already exists its weight is replaced.
+     *
+     * @param word the word to insert into the Trie. The word is automatically
+     * converted to lowercase before insertion.
+     * @param weight the non-negative ranking weight of the word, e.g. its
+     * query-log frequency.
+     * @throws IllegalArgumentException if the word contains anything but
+     * letters, or {@code weight} is negative.
+     */
+    public void insert(final String word, final long weight) {
+        int words = root.getWordCount();
+        insert(root, word, weight);
+        invalidate(word, words);
+    }
+
+    /**
+     * Puts a cache in front of {@link #getWordsWithPrefix} and
+     * {@link #getTopCompletions}, or removes it. Inserting or removing a
+     * word through this instance invalidates the cached results of the
+     * prefixes of that word.
+     *
+     * @param prefixCache the cache to use, or {@code null} to disable
+     * caching. Any results it already holds are dropped.
+     */
+    public void setPrefixCache(final PrefixCache prefixCache) {
+        if (prefixCache != null) {
+            prefixCache.clear();
+        }
+        this.cache = prefixCache;
+    }
+
+    /**
+     * Sends measurements of the queries of this instance to the given
+     * metrics, or stops measuring them. The time the constructor took to
+     * load the dictionary and the current size of the Trie are recorded
+     * as a build right away; counting the nodes walks the whole Trie.
+     * <p>
+     * {@link #search}, {@link #getWordsWithPrefix},
+     * {@link #getTopCompletions}, {@link #getFuzzyCompletions},
+     * {@link #countWithPrefix} and {@link #completeAll} are measured,
+     * including the answers served from a {@link PrefixCache}, one in
+     * {@link AutoCompleteMetrics#getSampleInterval()} at random.
+     * </p>
+     *
+     * @param queryMetrics the metrics to record to, or {@code null} or
+     * {@link AutoCompleteMetrics#NOOP} to stop measuring.
+     * @throws IllegalArgumentException if the sample interval of the
+     * metrics is not a positive power of two.
+     */
+    public void setMetrics(final AutoCompleteMetrics queryMetrics) {
+        if (queryMetrics == null
+            || queryMetrics == AutoCompleteMetrics.NOOP) {
+            this.metrics = AutoCompleteMetrics.NOOP;
+            return;
+        }
+        int interval = queryMetrics.getSampleInterval();
+        if (interval <= 0 || Integer.bitCount(interval) != 1) {
+            throw new IllegalArgumentException(
+                "Sample interval must be a positive power of two: "
+                + interval);
+        }
+        queryMetrics.recordBuild(buildNanos, root.getWordCount(),
+            CompactTrie.countNodesAndWords(root)[0]);
+        this.sampleMask = interval - 1;
+        this.metrics = queryMetrics;
+    }
+
+    /**
+     * Returns the metrics receiving the measurements of this instance.
+     *
+     * @return the metrics, {@link AutoCompleteMetrics#NOOP} if queries are
+     * not measured.
+     */
+    public AutoCompleteMetrics getMetrics() {
+        return metrics;
+    }
+
+    /**
+     * Reads the clock at the start of a query if queries are measured and
+     * this query is sampled.
+     *
+     * @return the start time, or {@link #NOT_TIMED}.
+     */
+    private long startQuery() {
+        if (metrics == AutoCompleteMetrics.NOOP) {
+            return NOT_TIMED;
+        }
+        if (sampleMask != 0
+            && (ThreadLocalRandom.current().nextInt() & sampleMask) != 0) {
+            return NOT_TIMED;
+        }
+        return System.nanoTime();
+    }
+
+    /**
+     * Records a query started with {@link #startQuery}.
+     *
+     * @param query the kind of query.
+     * @param start the start time, or {@link #NOT_TIMED} to record
+     * nothing.
+     * @param node the node the query was answered from, or {@code null}.
+     * @param results the number of words returned.
+     */
+    private void endQuery(
+        final AutoCompleteMetrics.Query query,
+        final long start,
+        final TrieNode node,
+        final int results
+    ) {
+        if (start == NOT_TIMED) {
+            return;
+        }
+        long nanos = System.nanoTime() - start;
+        int subtreeSize = 0;
+        if (node != null) {
+            subtreeSize = node.getWordCount();
+        }
+        metrics.recordQuery(query, nanos, subtreeSize, results);
+    }
+
+    /**
+     * Drops the cached results a change to a word can affect, and passes
+     * an added or removed word on to the substring index.
+     *
+     * @param word the inserted or removed word.
+     * @param wordsBefore the number of words before the change.
+     */
+    private void invalidate(final String word, final int wordsBefore) {
+        int wordsAfter = root.getWordCount();
+        if (substringIndex != null && wordsAfter != wordsBefore) {
+            if (wordsAfter > wordsBefore) {
+                substringIndex.added(Alphabet.fold(word));
+            } else {
+                substringIndex.removed(Alphabet.fold(word));
             }
-            node = node.getChildNode()[index];
         }
-        node.setWordEnd(true);
+        if (cache != null) {
+            cache.invalidate(Alphabet.fold(word));
+        }
     }
 
     /**
-     * Inserts a word into the Trie.
+     * Inserts a word into the Trie. If the word is new it receives
+     * {@link Constants#DEFAULT_WORD_WEIGHT}; an existing word keeps
+     * its current weight.
      *
      * @param word the word to insert into the Trie. The word is automatically
      * converted to lowercase before insertion.
      * @param trieNode The root node of the Trie where the word will begin
      * to be inserted
+     * @throws IllegalArgumentException if the word contains anything but
+     * letters.
      */
     public static void insert(final TrieNode trieNode, final String word) {
+        insertWord(trieNode, word, DEFAULT_WORD_WEIGHT, true);
+    }
+
+    /**
+     * Inserts a word into the Trie with the given ranking weight. If the
+     * word already exists its weight is replaced.
+     *
+     * @param trieNode The root node of the Trie where the word will begin
+     * to be inserted
+     * @param word the word to insert into the Trie. The word is automatically
+     * converted to lowercase before insertion.
+     * @param weight the non-negative ranking weight of the word.
+     * @throws IllegalArgumentException if the word contains anything but
+     * letters, or {@code weight} is negative.
+     */
+    public static void insert(
+        final TrieNode trieNode,
+        final String word,
+        final long weight
+    ) {
+        insertWord(trieNode, word, weight, false);
+    }
+
+    /**
+     * Validates and folds a word, then inserts it.
+     *
+     * @param trieNode the root node of the Trie.
+     * @param word the word to insert.
+     * @param weight the weight to assign to the word.
+     * @param keepExistingWeight if {@code true} and the word already
+     * exists, its current weight is left unchanged.
+     */
+    private static void insertWord(
+        final TrieNode trieNode,
+        final String word,
+        final long weight,
+        final boolean keepExistingWeight
+    ) {
+        if (weight < 0) {
+            throw new IllegalArgumentException(
+                "Word weight must not be negative: " + weight);
+        }
+        String lWord = Alphabet.fold(word);
+        if (!Alphabet.isWord(lWord)) {
+            throw new IllegalArgumentException(
+                "Words must contain only letters: " + word);
+        }
+        insertFolded(trieNode, lWord, weight, keepExistingWeight);
+    }
+
+    /**
+     * Inserts a word that is already folded and holds only letters, with
+     * the given ranking weight. Bulk loaders that validate and fold
+     * words themselves use this to skip doing it twice. If the word
+     * already exists its weight is replaced.
+     *
+     * @param trieNode the root node of the Trie.
+     * @param word the folded word; it is not kept.
+     * @param weight the non-negative ranking weight of the word.
+     */
+    static void insertFolded(
+        final TrieNode trieNode,
+        final CharSequence word,
+        final long weight
+    ) {
+        insertFolded(trieNode, word, weight, false);
+    }
+
+    /**
+     * Inserts a folded word and keeps the cached subtree maximum weights
+     * on the path from the root up to date.
+     *
+     * @param trieNode the root node of the Trie.
+     * @param lWord the folded word.
+     * @param weight the weight to assign to the word.
+     * @param keepExistingWeight if {@code true} and the word already
+     * exists, its current weight is left unchanged.
+     */
+    private static void insertFolded(
+        final TrieNode trieNode,
+        final CharSequence lWord,
+        final long weight,
+        final boolean keepExistingWeight
+    ) {
         TrieNode node = trieNode;
-        String lWord = word.toLowerCase(Locale.ENGLISH);
-        for (char ch : lWord.toCharArray()) {
-            int index = ch - 'a';
-            if (node.getChildNode()[index] == null) {
-                node.getChildNode()[index] = new TrieNode();
+        for (int i = 0; i < lWord.length(); i++) {
+            int index = Alphabet.index(lWord.charAt(i));
+            TrieNode child = node.getChild(index);
+            if (child == null) {
+                child = new TrieNode();
+                node.setChild(index, child);
             }
-            node = node.getChildNode()[index];
+            node = child;
         }
+        boolean existed = node.isWordEnd();
+        if (existed && keepExistingWeight) {
+            return;
+        }
+        long oldWeight = node.getWeight();
         node.setWordEnd(true);
+        node.setWeight(weight);
+
+        if (existed && weight < oldWeight) {
+            refreshMaxWeights(trieNode, lWord, 0);
+            return;
+        }
+        // The weight only grew, so raising the cached maximum along the
+        // path is enough; a new word also adds one to each count on it.
+        int addedWords = 1;
+        if (existed) {
+            addedWords = 0;
+        }
+        node = trieNode;
+        raiseAggregates(node, weight, addedWords);
+        for (int i = 0; i < lWord.length(); i++) {
+            node = node.getChild(Alphabet.index(lWord.charAt(i)));
+            raiseAggregates(node, weight, addedWords);
+        }
+    }
+
+    /**
+     * Updates the cached subtree summary of a node for a word inserted
+     * below it: raises the maximum weight if the given weight is larger
+     * and adds to the word count.
+     *
+     * @param node the node to update.
+     * @param weight the weight of a word in the node's subtree.
+     * @param addedWords the number of new words, 0 if the word already
+     * existed.
+     */
+    static void raiseAggregates(
+        final TrieNode node,
+        final long weight,
+        final int addedWords
+    ) {
+        if (weight > node.getMaxWeight()) {
+            node.setMaxWeight(weight);
+        }
+        node.setWordCount(node.getWordCount() + addedWords);
+    }
+
+    /**
+     * Recomputes the cached subtree maximum weights along the path of a
+     * word, bottom-up. Used when a weight along the path may have shrunk.
+     *
+     * @param node the current TrieNode being processed.
+     * @param word the lowercase word whose path is refreshed.
+     * @param depth the current depth of recursion.
+     */
+    private static void refreshMaxWeights(
+        final TrieNode node,
+        final CharSequence word,
+        final int depth
+    ) {
+        if (depth < word.length()) {
+            TrieNode child =
+                node.getChild(Alphabet.index(word.charAt(depth)));
+            if (child != null) {
+                refreshMaxWeights(child, word, depth + 1);
+            }
+        }
+        recomputeAggregates(node);
+    }
+
+    /**
+     * Recomputes the cached subtree summary of a node (its largest word
+     * weight and its word count) from the node itself and its children,
+     * whose summaries must already be up to date.
+     *
+     * @param node the node to update.
+     */
+    static void recomputeAggregates(final TrieNode node) {
+        long max = 0;
+        int count = 0;
+        if (node.isWordEnd()) {
+            max = node.getWeight();
+            count = 1;
+        }
+        for (int i = node.nextChildIndex(0); i >= 0;
+             i = node.nextChildIndex(i + 1)) {
+            TrieNode child = node.getChild(i);
+            max = Math.max(max, child.getMaxWeight());
+            count += child.getWordCount();
+        }
+        node.setMaxWeight(max);
+        node.setWordCount(count);
     }
 
     /**
@@ -104,17 +663,35 @@ public class ACLImplementation {
      * is marked as a complete word;
      * {@code false} otherwise.
      */
+    @Override
     public boolean search(final String word) {
-        TrieNode node = root;
-        String lWord = word.toLowerCase(Locale.ENGLISH);
-        for (char ch : lWord.toCharArray()) {
-            int index = ch - 'a';
-            if (node.getChildNode()[index] == null) {
-                return false;
+        long start = startQuery();
+        TrieNode node = findNode(word);
+        boolean found = node != null && node.isWordEnd();
+        if (start != NOT_TIMED) {
+            int results = 0;
+            if (found) {
+                results = 1;
             }
-            node = node.getChildNode()[index];
+            endQuery(AutoCompleteMetrics.Query.SEARCH, start, node, results);
+        }
+        return found;
+    }
+
+    /**
+     * Returns the ranking weight of a word, for callers that merge the
+     * top completions of several Tries.
+     *
+     * @param word the word. The word is automatically converted to
+     * lowercase before searching.
+     * @return the weight, or -1 if the word is not in the Trie.
+     */
+    long getWeight(final String word) {
+        TrieNode node = findNode(word);
+        if (node == null || !node.isWordEnd()) {
+            return -1;
         }
-        return node.isWordEnd();
+        return node.getWeight();
     }
 
     /**
@@ -125,49 +702,620 @@ public class ACLImplementation {
      * @return a list of words that start with the given prefix.
      * If no words match, returns an empty list.
      */
+    @Override
     public List<String> getWordsWithPrefix(final String prefix) {
-        TrieNode node = root;
-        String word = prefix.toLowerCase(Locale.ENGLISH);
-        for (char ch : word.toCharArray()) {
-            int index = ch - 'a';
-            if (node.getChildNode()[index] == null) {
-                // Prefix not found
-                return new ArrayList<>();
+        long start = startQuery();
+        List<String> result = wordsWithPrefix(prefix);
+        if (start != NOT_TIMED) {
+            // Every word below the prefix node is returned
+            metrics.recordQuery(AutoCompleteMetrics.Query.PREFIX,
+                System.nanoTime() - start, result.size(), result.size());
+        }
+        return result;
+    }
+
+    /**
+     * Runs {@link #getWordsWithPrefix}, through the cache if there is one.
+     *
+     * @param prefix the prefix to search for.
+     * @return a list of words that start with the given prefix.
+     */
+    private List<String> wordsWithPrefix(final String prefix) {
+        String key = null;
+        if (cache != null) {
+            key = Alphabet.fold(prefix);
+            List<String> cached = cache.getWords(key);
+            if (cached != null) {
+                return new ArrayList<>(cached);
+            }
+        }
+        List<String> result = new ArrayList<>();
+        forEachCompletion(prefix, (chars, length) ->
+            result.add(new String(chars, 0, length)));
+        if (key != null) {
+            cache.putWords(key, List.copyOf(result));
+        }
+        return result;
+    }
+
+    /**
+     * Passes every word in the Trie that starts with a given prefix to a
+     * consumer, in lexicographic order. The traversal shares one character
+     * buffer and allocates nothing per visited node.
+     *
+     * @param prefix the prefix to search for. The prefix is automatically
+     * converted to lowercase before searching.
+     * @param consumer the consumer receiving each completion; returning
+     * {@code false} stops the traversal.
+     */
+    @Override
+    public void forEachCompletion(
+        final CharSequence prefix,
+        final CompletionConsumer consumer
+    ) {
+        CharSequence key = Alphabet.normalize(prefix);
+        TrieNode node = findNode(root, key);
+        if (node == null) {
+            // Prefix not found
+            return;
+        }
+        collectWords(node, new WordBuffer(key), key.length(), consumer);
+    }
+
+    /**
+     * Retrieves the {@code k} highest-weighted words that start with a
+     * given prefix. The search is best-first: each node caches the largest
+     * weight in its subtree, so only the branches that can still contribute
+     * to the result are expanded and the walk stops after {@code k} words.
+     *
+     * @param prefix the prefix to search for. The prefix is automatically
+     * converted to lowercase before searching.
+     * @param k the maximum number of words to return.
+     * @return up to {@code k} words ordered by descending weight; words
+     * with equal weight are ordered lexicographically.
+     * @throws IllegalArgumentException if {@code k} is negative.
+     */
+    public List<String> getTopCompletions(final String prefix, final int k) {
+        if (k < 0) {
+            throw new IllegalArgumentException(
+                "Number of completions must not be negative: " + k);
+        }
+        long start = startQuery();
+        String word = Alphabet.fold(prefix);
+        List<String> result;
+        if (cache == null) {
+            result = computeTopCompletions(word, k);
+        } else {
+            List<String> cached = cache.getTop(word, k);
+            if (cached == null) {
+                cached = List.copyOf(computeTopCompletions(word, k));
+                cache.putTop(word, k, cached);
             }
-            node = node.getChildNode()[index];
+            result = new ArrayList<>(cached);
+        }
+        if (start != NOT_TIMED) {
+            long nanos = System.nanoTime() - start;
+            metrics.recordQuery(AutoCompleteMetrics.Query.TOP, nanos,
+                countWords(word), result.size());
         }
+        return result;
+    }
 
+    /**
+     * Runs the best-first search behind {@link #getTopCompletions}.
+     *
+     * @param word the lowercase prefix.
+     * @param k the maximum number of words to return.
+     * @return at most {@code k} words, heaviest first.
+     */
+    private List<String> computeTopCompletions(final String word, final int k) {
         List<String> result = new ArrayList<>();
-        collectWords(node, word, result);
+        TrieNode node = findNode(word);
+        if (node == null || k == 0) {
+            return result;
+        }
+
+        PriorityQueue<Candidate> queue = new PriorityQueue<>();
+        queue.add(new Candidate(node.getMaxWeight(), node, word));
+        while (!queue.isEmpty() && result.size() < k) {
+            Candidate candidate = queue.poll();
+            TrieNode current = candidate.node;
+            if (current == null) {
+                result.add(candidate.word);
+                continue;
+            }
+            if (current.isWordEnd()) {
+                queue.add(new Candidate(
+                    current.getWeight(), null, candidate.word));
+            }
+            for (int i = current.nextChildIndex(0); i >= 0;
+                 i = current.nextChildIndex(i + 1)) {
+                TrieNode child = current.getChild(i);
+                queue.add(new Candidate(
+                    child.getMaxWeight(),
+                    child,
+                    candidate.word + Alphabet.letter(i)));
+            }
+        }
         return result;
     }
 
     /**
-     * Recursively collects all words starting from a
-     * given TrieNode.
+     * Retrieves the words that start with each prefix of a batch in one
+     * pass over the Trie. The prefixes are sorted so that each descent
+     * resumes where the previous prefix's path branches off, and the
+     * completions of a prefix that extends another prefix of the batch
+     * are copied from that prefix's completions instead of collected
+     * again.
+     *
+     * @param prefixes the prefixes to complete. Each prefix is
+     * automatically converted to lowercase before searching.
+     * @return the completions of each distinct prefix, as returned by
+     * {@link #getWordsWithPrefix}, in the iteration order of
+     * {@code prefixes}.
+     */
+    @Override
+    public Map<String, List<String>> completeAll(
+        final Collection<String> prefixes
+    ) {
+        long start = startQuery();
+        Map<String, List<String>> results =
+            BatchCompletion.completeAll(root, prefixes, null);
+        endBatch(start, results);
+        return results;
+    }
+
+    /**
+     * Retrieves the words that start with each prefix of a batch, like
+     * {@link #completeAll(Collection)}, completing prefixes with
+     * different first letters in parallel. Must not run concurrently
+     * with updates to this instance.
+     *
+     * @param prefixes the prefixes to complete. Each prefix is
+     * automatically converted to lowercase before searching.
+     * @param pool the fork-join pool that completes the prefixes.
+     * @return the completions of each distinct prefix, in the iteration
+     * order of {@code prefixes}.
+     */
+    public Map<String, List<String>> completeAll(
+        final Collection<String> prefixes,
+        final ForkJoinPool pool
+    ) {
+        long start = startQuery();
+        Map<String, List<String>> results = BatchCompletion.completeAll(
+            root, prefixes, Objects.requireNonNull(pool));
+        endBatch(start, results);
+        return results;
+    }
+
+    /**
+     * Records a batch started with {@link #startQuery}.
+     *
+     * @param start the start time, or {@link #NOT_TIMED} to record
+     * nothing.
+     * @param results the completions of the batch.
+     */
+    private void endBatch(
+        final long start,
+        final Map<String, List<String>> results
+    ) {
+        if (start == NOT_TIMED) {
+            return;
+        }
+        long nanos = System.nanoTime() - start;
+        int words = 0;
+        for (List<String> completions : results.values()) {
+            words += completions.size();
+        }
+        metrics.recordQuery(AutoCompleteMetrics.Query.BATCH, nanos, 0, words);
+    }
+
+    /**
+     * Counts the words that start with a given prefix, in time
+     * proportional to the length of the prefix.
+     *
+     * @param prefix the prefix to count. The prefix is automatically
+     * converted to lowercase before searching.
+     * @return the number of words starting with the prefix.
+     */
+    public int countWithPrefix(final String prefix) {
+        long start = startQuery();
+        int count = countWords(prefix);
+        if (start != NOT_TIMED) {
+            metrics.recordQuery(AutoCompleteMetrics.Query.COUNT,
+                System.nanoTime() - start, count, count);
+        }
+        return count;
+    }
+
+    /**
+     * Counts the words that start with a given prefix.
+     *
+     * @param prefix the prefix to count.
+     * @return the number of words starting with the prefix.
+     */
+    private int countWords(final String prefix) {
+        TrieNode node = findNode(prefix);
+        if (node == null) {
+            return 0;
+        }
+        return node.getWordCount();
+    }
+
+    /**
+     * Retrieves the completion of a prefix at a given position in
+     * lexicographic order, without enumerating the completions before
+     * it. Each level of the descent skips whole subtrees by their word
+     * counts, so the cost is proportional to the length of the result.
+     *
+     * @param prefix the prefix to complete. The prefix is automatically
+     * converted to lowercase before searching.
+     * @param index the zero-based position of the completion, as in
+     * {@link #getWordsWithPrefix}.
+     * @return the completion at that position.
+     * @throws IndexOutOfBoundsException if {@code index} is negative or
+     * not less than {@link #countWithPrefix}.
+     */
+    public String getCompletionAt(final String prefix, final int index) {
+        String lPrefix = Alphabet.fold(prefix);
+        TrieNode node = findNode(lPrefix);
+        if (node == null || index < 0 || index >= node.getWordCount()) {
+            throw new IndexOutOfBoundsException("Completion index " + index
+                + " out of range for prefix '" + prefix + "'");
+        }
+        StringBuilder word = new StringBuilder(lPrefix);
+        int remaining = index;
+        while (true) {
+            if (node.isWordEnd()) {
+                if (remaining == 0) {
+                    return word.toString();
+                }
+                remaining--;
+            }
+            for (int i = node.nextChildIndex(0); i >= 0;
+                 i = node.nextChildIndex(i + 1)) {
+                TrieNode child = node.getChild(i);
+                if (remaining < child.getWordCount()) {
+                    word.append(Alphabet.letter(i));
+                    node = child;
+                    break;
+                }
+                remaining -= child.getWordCount();
+            }
+        }
+    }
+
+    /**
+     * Counts the completions of a prefix that sort before a given word,
+     * which is the position of the word in
+     * {@link #getWordsWithPrefix} if it is a completion, or the position
+     * it would be inserted at otherwise. The inverse of
+     * {@link #getCompletionAt}, in time proportional to the length of
+     * the word.
+     *
+     * @param prefix the prefix whose completions are ranked. The prefix
+     * is automatically converted to lowercase before searching.
+     * @param word the word to rank. The word is automatically converted
+     * to lowercase before searching.
+     * @return the number of completions of the prefix that are
+     * lexicographically smaller than the word.
+     */
+    public int getCompletionRank(final String prefix, final String word) {
+        String lPrefix = Alphabet.fold(prefix);
+        String lWord = Alphabet.fold(word);
+        TrieNode node = findNode(lPrefix);
+        if (node == null) {
+            return 0;
+        }
+        if (!lWord.startsWith(lPrefix)) {
+            // Either every completion sorts after the word or none does
+            if (lWord.compareTo(lPrefix) < 0) {
+                return 0;
+            }
+            return node.getWordCount();
+        }
+        int rank = 0;
+        for (int depth = lPrefix.length(); depth < lWord.length(); depth++) {
+            // The word at this node is a proper prefix of lWord
+            if (node.isWordEnd()) {
+                rank++;
+            }
+            char ch = lWord.charAt(depth);
+            int before = Alphabet.lowerBound(ch);
+            for (int i = node.nextChildIndex(0); i >= 0 && i < before;
+                 i = node.nextChildIndex(i + 1)) {
+                rank += node.getChild(i).getWordCount();
+            }
+            node = node.getChild(Alphabet.index(ch));
+            if (node == null) {
+                break;
+            }
+        }
+        return rank;
+    }
+
+    /**
+     * Returns a lazy iterator over the words that start with a given
+     * prefix, in lexicographic order. Words are found one at a time as
+     * the iterator advances, so memory use does not grow with the number
+     * of matches.
+     *
+     * @param prefix the prefix to search for. The prefix is automatically
+     * converted to lowercase before searching.
+     * @return an iterator over the completions.
+     */
+    public Iterator<String> completionIterator(final String prefix) {
+        String lPrefix = Alphabet.fold(prefix);
+        return new CompletionIterator(findNode(lPrefix), lPrefix, null);
+    }
+
+    /**
+     * Returns a lazy, sequential stream of the words that start with a
+     * given prefix, in lexicographic order. Short-circuiting operations
+     * such as {@code limit} stop the traversal early.
+     *
+     * @param prefix the prefix to search for. The prefix is automatically
+     * converted to lowercase before searching.
+     * @return a stream of the completions.
+     */
+    public Stream<String> streamCompletions(final String prefix) {
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(
+            completionIterator(prefix),
+            Spliterator.ORDERED | Spliterator.DISTINCT
+                | Spliterator.SORTED | Spliterator.NONNULL), false);
+    }
+
+    /**
+     * Retrieves one page of the words that start with a given prefix, in
+     * lexicographic order. The first page is requested with a
+     * {@code null} cursor; each following page with the cursor of the
+     * previous one. A page resumes right after the last word of the
+     * previous page by following that word down the Trie, so fetching a
+     * page costs the same no matter how many pages came before it.
+     *
+     * @param prefix the prefix to search for. The prefix is automatically
+     * converted to lowercase before searching.
+     * @param cursor the cursor returned with the previous page, or
+     * {@code null} for the first page.
+     * @param pageSize the maximum number of words on the page.
+     * @return the page, with the cursor of the next page if more words
+     * follow.
+     * @throws IllegalArgumentException if {@code pageSize} is not
+     * positive or the cursor is malformed or belongs to another prefix.
+     */
+    public CompletionPage getCompletionPage(
+        final String prefix,
+        final String cursor,
+        final int pageSize
+    ) {
+        if (pageSize <= 0) {
+            throw new IllegalArgumentException(
+                "Page size must be positive: " + pageSize);
+        }
+        String lPrefix = Alphabet.fold(prefix);
+        String after = null;
+        if (cursor != null) {
+            after = CompletionPage.decodeCursor(cursor);
+            if (!after.startsWith(lPrefix) || !Alphabet.isWord(after)) {
+                throw new IllegalArgumentException(
+                    "Cursor does not belong to prefix '" + prefix + "'");
+            }
+        }
+        TrieNode node = findNode(lPrefix);
+        Iterator<String> words = new CompletionIterator(node, lPrefix, after);
+        int capacity = 0;
+        if (node != null) {
+            // The page size may stand for "everything"
+            capacity = Math.min(pageSize, node.getWordCount());
+        }
+        List<String> page = new ArrayList<>(capacity);
+        while (page.size() < pageSize && words.hasNext()) {
+            page.add(words.next());
+        }
+        String nextCursor = null;
+        if (words.hasNext()) {
+            nextCursor = CompletionPage.encodeCursor(page.get(pageSize - 1));
+        }
+        return new CompletionPage(page, nextCursor);
+    }
+
+    /**
+     * Retrieves the best completions of a possibly mistyped prefix. A word
+     * matches if some prefix of it is within {@code maxEdits} insertions,
+     * deletions, substitutions and swaps of adjacent letters of the given
+     * prefix, so "recieve" completes to "receive" and "received".
+     *
+     * @param prefix the prefix to complete. The prefix is automatically
+     * converted to lowercase before searching.
+     * @param maxEdits the maximum edit distance, typically 1 or 2. Larger
+     * bounds match most of the dictionary for short prefixes.
+     * @param k the maximum number of words to return.
+     * @return at most {@code k} words, closest first; words at the same
+     * distance are ordered by descending weight, then lexicographically.
+     * @throws IllegalArgumentException if {@code maxEdits} or {@code k}
+     * is negative.
+     */
+    public List<String> getFuzzyCompletions(
+        final String prefix,
+        final int maxEdits,
+        final int k
+    ) {
+        if (maxEdits < 0) {
+            throw new IllegalArgumentException(
+                "Edit distance must not be negative: " + maxEdits);
+        }
+        if (k < 0) {
+            throw new IllegalArgumentException(
+                "Number of completions must not be negative: " + k);
+        }
+        long start = startQuery();
+        List<String> result = FuzzySearch.topCompletions(
+            root, Alphabet.fold(prefix), maxEdits, k);
+        endQuery(AutoCompleteMetrics.Query.FUZZY, start, null, result.size());
+        return result;
+    }
+
+    /**
+     * Retrieves the words that end with a given suffix, in time
+     * proportional to the length of the suffix plus the number of
+     * matches. The {@link SubstringIndex} behind it is built by the
+     * first such query, unless {@link #buildSubstringIndex()} built it
+     * earlier. From then on inserted and removed words are reflected at
+     * once; a mutation rebuilds the index only after many others, see
+     * {@link LiveSubstringIndex}.
+     *
+     * @param suffix the suffix to search for. The suffix is automatically
+     * converted to lowercase before searching.
+     * @return the words ending with the suffix, in lexicographic order.
+     */
+    public List<String> getWordsWithSuffix(final String suffix) {
+        return substringIndex().getWordsWithSuffix(suffix);
+    }
+
+    /**
+     * Retrieves the words that contain a given string anywhere, using the
+     * same index as {@link #getWordsWithSuffix}.
+     *
+     * @param infix the string to search for. It is automatically
+     * converted to lowercase before searching.
+     * @return the words containing the string, in lexicographic order.
+     */
+    public List<String> getWordsContaining(final String infix) {
+        return substringIndex().getWordsContaining(infix);
+    }
+
+    /**
+     * Builds the index answering {@link #getWordsWithSuffix} and
+     * {@link #getWordsContaining} now, so that the first such query does
+     * not pay for it. On the default dictionary this takes about half a
+     * second and 40 MB, which is why loading a dictionary does not do it.
+     * Calling it again has no effect.
+     */
+    public void buildSubstringIndex() {
+        substringIndex();
+    }
+
+    /**
+     * Returns the index of the current words, building it on first use.
+     *
+     * @return the index.
+     */
+    LiveSubstringIndex substringIndex() {
+        LiveSubstringIndex index = substringIndex;
+        if (index == null) {
+            index = new LiveSubstringIndex(root);
+            substringIndex = index;
+        }
+        return index;
+    }
+
+    /**
+     * Packs the current contents of the Trie into a read-only
+     * {@link CompactTrie}. Later changes to this instance are not
+     * reflected in the returned copy.
+     *
+     * @return a compact, read-only copy of the Trie.
+     */
+    public CompactTrie toCompactTrie() {
+        return CompactTrie.fromTrie(root);
+    }
+
+    /**
+     * Copies the current contents of the Trie into a path-compressed
+     * {@link RadixTrie}. Later changes to this instance are not
+     * reflected in the returned copy.
+     *
+     * @return a radix copy of the Trie.
+     */
+    public RadixTrie toRadixTrie() {
+        return RadixTrie.fromTrie(root);
+    }
+
+    /**
+     * Builds a {@link SubstringIndex} of the current contents of the
+     * Trie. Later changes to this instance are not reflected in it.
+     *
+     * @return an index of the words ending with or containing a string.
+     */
+    public SubstringIndex toSubstringIndex() {
+        return SubstringIndex.fromTrie(root);
+    }
+
+    /**
+     * Builds a minimal {@link Dawg} of the current contents of the Trie.
+     * Later changes to this instance are not reflected in it, and weights
+     * are not kept.
+     *
+     * @return a word graph holding the same words.
+     */
+    public Dawg toDawg() {
+        return Dawg.fromTrie(root);
+    }
+
+    /**
+     * Follows the path of a word from the root, folding each character
+     * to lowercase on the way.
+     *
+     * @param word the word or prefix to follow; non-ASCII input is
+     * normalized first.
+     * @return the node at the end of the path, or {@code null} if the
+     * path does not exist.
+     */
+    private TrieNode findNode(final CharSequence word) {
+        return findNode(root, Alphabet.normalize(word));
+    }
+
+    /**
+     * Follows the path of a word from a given node, folding each
+     * character to lowercase on the way.
+     *
+     * @param start the node to start from.
+     * @param word the word or prefix to follow.
+     * @return the node at the end of the path, or {@code null} if the
+     * path does not exist.
+     */
+    private static TrieNode findNode(
+        final TrieNode start,
+        final CharSequence word
+    ) {
+        TrieNode node = start;
+        for (int i = 0; i < word.length() && node != null; i++) {
+            node = node.getChild(
+                Alphabet.index(Character.toLowerCase(word.charAt(i))));
+        }
+        return node;
+    }
+
+    /**
+     * Recursively passes all words starting from a given TrieNode to a
+     * consumer.
      *
      * @param node the starting TrieNode.
-     * @param currentWord the current word being formed.
-     * @param result the list to store the collected words.
+     * @param buffer the buffer holding the path to the node.
+     * @param length the length of the path to the node.
+     * @param consumer the consumer receiving each word.
+     * @return {@code false} if the consumer stopped the traversal;
+     * {@code true} otherwise.
      */
-    private void collectWords(
+    private boolean collectWords(
         final TrieNode node,
-        final String currentWord,
-        final List<String> result
+        final WordBuffer buffer,
+        final int length,
+        final CompletionConsumer consumer
     ) {
-        if (node.isWordEnd()) {
-            result.add(currentWord);
+        if (node.isWordEnd() && !buffer.emit(consumer, length)) {
+            return false;
         }
 
-        for (int i = 0; i < ALPHABET_SIZE; i++) {
-            if (node.getChildNode()[i] != null) {
-                char nextChar = (char) ('a' + i);
-                collectWords(
-                    node.getChildNode()[i],
-                    currentWord + nextChar,
-                    result);
+        for (int i = node.nextChildIndex(0); i >= 0;
+             i = node.nextChildIndex(i + 1)) {
+            buffer.set(length, Alphabet.letter(i));
+            if (!collectWords(node.getChild(i), buffer, length + 1,
+                consumer)) {
+                return false;
             }
         }
+        return true;
     }
 
     /**
@@ -178,12 +1326,27 @@ public class ACLImplementation {
      * exist, no action is taken.
      */
     public void remove(final String word) {
-        String wordLowerCase = word.toLowerCase(Locale.ENGLISH);
-        if (!search(wordLowerCase)) {
+        int words = root.getWordCount();
+        remove(root, word);
+        invalidate(word, words);
+    }
+
+    /**
+     * Removes a word from the Trie rooted at the given node.
+     *
+     * @param trieNode the root node of the Trie.
+     * @param word the word to remove. The word is automatically
+     * converted to lowercase before removal. If the word does not
+     * exist, no action is taken.
+     */
+    static void remove(final TrieNode trieNode, final String word) {
+        String wordLowerCase = Alphabet.fold(word);
+        TrieNode node = findNode(trieNode, wordLowerCase);
+        if (node == null || !node.isWordEnd()) {
             // Word does not exist, so no removal needed
             return;
         }
-        removeHelper(root, wordLowerCase, 0);
+        removeHelper(trieNode, wordLowerCase, 0);
     }
 
     /**
@@ -197,7 +1360,7 @@ public class ACLImplementation {
      * @return {@code true} if the current node can
      * be deleted; {@code false} otherwise.
      */
-    private boolean removeHelper(
+    private static boolean removeHelper(
         final TrieNode node,
         final String word,
         final int depth
@@ -213,22 +1376,28 @@ public class ACLImplementation {
                 return false;
             }
             node.setWordEnd(false);
+            node.setWeight(0);
+            recomputeAggregates(node);
 
             // Check if the node is now a leaf (no children)
             return isEmptyNode(node);
         }
 
         // Recur for the next character
-        int index = word.charAt(depth) - 'a';
+        int index = Alphabet.index(word.charAt(depth));
         boolean shouldDeleteCurrentNode = removeHelper(
-            node.getChildNode()[index],
+            node.getChild(index),
             word,
             depth + 1);
 
         if (shouldDeleteCurrentNode) {
             // Remove the child reference
-            node.getChildNode()[index] = null;
+            node.setChild(index, null);
+        }
+        // The removed word may have been the heaviest in this subtree
+        recomputeAggregates(node);
 
+        if (shouldDeleteCurrentNode) {
             // Return true if the current node is now a leaf
             // and not the end of another word
             return isEmptyNode(node) && !node.isWordEnd();
@@ -243,12 +1412,91 @@ public class ACLImplementation {
      * @return {@code true} if the node has no
      * children; {@code false} otherwise.
      */
-    private boolean isEmptyNode(final TrieNode node) {
-        for (TrieNode child : node.getChildNode()) {
-            if (child != null) {
-                return false;
+    private static boolean isEmptyNode(final TrieNode node) {
+        return node.getChildCount() == 0;
+    }
+
+    /**
+     * An entry in the best-first top-K search: either a subtree still to
+     * be expanded or a finished word ready to be emitted.
+     */
+    private static final class Candidate implements Comparable<Candidate> {
+
+        /**
+         * The weight used for ordering: the subtree maximum for a
+         * subtree entry, or the word weight for a finished word.
+         */
+        private final long priority;
+
+        /**
+         * The subtree root to expand, or {@code null} for a finished word.
+         */
+        private final TrieNode node;
+
+        /**
+         * The word, or the prefix leading to {@link #node}.
+         */
+        private final String word;
+
+        /**
+         * Constructs a new search candidate.
+         *
+         * @param candidatePriority the ordering weight.
+         * @param candidateNode the subtree to expand, or {@code null}.
+         * @param candidateWord the word or prefix of the candidate.
+         */
+        Candidate(
+            final long candidatePriority,
+            final TrieNode candidateNode,
+            final String candidateWord
+        ) {
+            this.priority = candidatePriority;
+            this.node = candidateNode;
+            this.word = candidateWord;
+        }
+
+        /**
+         * Orders candidates by descending weight, then lexicographically.
+         * A finished word comes before a subtree with the same prefix,
+         * since every other word in that subtree is longer.
+         *
+         * @param other the candidate to compare with.
+         * @return a negative number if this candidate should be polled
+         * first, a positive number if {@code other} should, else zero.
+         */
+        @Override
+        public int compareTo(final Candidate other) {
+            int byPriority = Long.compare(other.priority, priority);
+            if (byPriority != 0) {
+                return byPriority;
             }
+            int byWord = word.compareTo(other.word);
+            if (byWord != 0) {
+                return byWord;
+            }
+            return Boolean.compare(node != null, other.node != null);
+        }
+
+        /**
+         * Checks equality consistently with {@link #compareTo(Candidate)}.
+         *
+         * @param obj the object to compare with.
+         * @return {@code true} if both candidates have the same ordering key.
+         */
+        @Override
+        public boolean equals(final Object obj) {
+            return obj instanceof Candidate
+                && compareTo((Candidate) obj) == 0;
+        }
+
+        /**
+         * Computes a hash code consistent with {@link #equals(Object)}.
+         *
+         * @return the hash code of this candidate.
+         */
+        @Override
+        public int hashCode() {
+            return Objects.hash(priority, word, node != null);
         }
-        return true;
     }
 }
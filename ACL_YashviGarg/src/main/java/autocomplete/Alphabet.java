@@ -0,0 +1,188 @@
+package autocomplete;
+
+import static autocomplete.Constants.ALPHABET_SIZE;
+
+import java.text.Normalizer;
+import java.util.Locale;
+
+/**
+ * Maps the letters of words to the child indices of Trie nodes and
+ * brings words into the form stored in the Trie.
+ *
+ * <p>Words may contain any letter of the Basic Multilingual Plane,
+ * together with combining marks. Every word is normalized to NFC and
+ * lower-cased once, when it is inserted, loaded or queried, so
+ * {@code "Élan"}, {@code "élan"} and {@code "élan"} are the same
+ * word. Pure ASCII words skip the normalizer.</p>
+ *
+ * <p>The letters {@code 'a'} to {@code 'z'} keep the child indices 0 to
+ * 25, which fit the packed and dense child layouts of {@link TrieNode};
+ * every other letter uses its character code as its index and is kept
+ * in a sorted side array. Characters that are not letters have no index
+ * and can never lead to a child. The mapping preserves character order,
+ * so completions stay in lexicographic order, and it does not depend on
+ * the dictionary, so snapshots and copies of a Trie need no table of
+ * their own.</p>
+ */
+final class Alphabet {
+
+    /**
+     * The largest ASCII character.
+     */
+    private static final char MAX_ASCII = '\u007f';
+
+    /**
+     * The index returned for characters that are not letters. No child
+     * is ever stored under it.
+     */
+    static final int NONE = -1;
+
+    /**
+     * Private constructor to prevent instantiation of this utility class.
+     */
+    private Alphabet() {
+        throw new UnsupportedOperationException(
+            "Alphabet class cannot be instantiated."
+        );
+    }
+
+    /**
+     * Returns the child index of a lowercase letter.
+     *
+     * @param letter the letter.
+     * @return the child index of the letter, or {@link #NONE} if the
+     * character is not a letter of a stored word.
+     */
+    static int index(final char letter) {
+        if (letter >= 'a' && letter <= 'z') {
+            return letter - 'a';
+        }
+        if (!isLetter(letter)) {
+            return NONE;
+        }
+        return letter;
+    }
+
+    /**
+     * Returns the smallest child index whose letter does not sort before
+     * a character. Children below this index sort before the character,
+     * even if the character itself is not a letter.
+     *
+     * @param ch the lowercase character.
+     * @return the index of the letter, or the first index after the
+     * character if it is not a letter.
+     */
+    static int lowerBound(final char ch) {
+        int index = index(ch);
+        if (index != NONE) {
+            return index;
+        }
+        if (ch < 'a') {
+            return 0;
+        }
+        if (ch <= MAX_ASCII) {
+            return ALPHABET_SIZE;
+        }
+        return ch;
+    }
+
+    /**
+     * Returns the letter of a child index.
+     *
+     * @param index a child index.
+     * @return the letter the index stands for.
+     */
+    static char letter(final int index) {
+        if (index < ALPHABET_SIZE) {
+            return (char) ('a' + index);
+        }
+        return (char) index;
+    }
+
+    /**
+     * Checks whether an index is the child index of a letter.
+     *
+     * @param index the index to check.
+     * @return {@code true} if some letter maps to the index.
+     */
+    static boolean isIndex(final int index) {
+        if (index < ALPHABET_SIZE) {
+            return index >= 0;
+        }
+        return index > MAX_ASCII && index <= Character.MAX_VALUE
+            && isLetter((char) index);
+    }
+
+    /**
+     * Checks whether a character may appear in a stored word.
+     *
+     * @param ch the character to check.
+     * @return {@code true} for {@code 'a'} to {@code 'z'} and for
+     * non-ASCII letters and combining marks.
+     */
+    static boolean isLetter(final char ch) {
+        if (ch <= MAX_ASCII) {
+            return ch >= 'a' && ch <= 'z';
+        }
+        switch (Character.getType(ch)) {
+            case Character.NON_SPACING_MARK:
+            case Character.COMBINING_SPACING_MARK:
+            case Character.ENCLOSING_MARK:
+                return true;
+            default:
+                return Character.isLetter(ch);
+        }
+    }
+
+    /**
+     * Brings a word or prefix into the form stored in the Trie: NFC
+     * normalized and lower-cased.
+     *
+     * @param word the word to fold.
+     * @return the folded word; the word itself if it is already folded
+     * lowercase ASCII.
+     */
+    static String fold(final String word) {
+        String lower = word.toLowerCase(Locale.ROOT);
+        for (int i = 0; i < lower.length(); i++) {
+            if (lower.charAt(i) > MAX_ASCII) {
+                return Normalizer.normalize(lower, Normalizer.Form.NFC);
+            }
+        }
+        return lower;
+    }
+
+    /**
+     * Prepares a query for a character-by-character walk down the Trie.
+     * ASCII text is returned unchanged, since the walk folds ASCII case
+     * itself; other text is folded with {@link #fold(String)}, which may
+     * change its length.
+     *
+     * @param text the word or prefix of a query.
+     * @return the text to walk.
+     */
+    static CharSequence normalize(final CharSequence text) {
+        for (int i = 0; i < text.length(); i++) {
+            if (text.charAt(i) > MAX_ASCII) {
+                return fold(text.toString());
+            }
+        }
+        return text;
+    }
+
+    /**
+     * Checks whether a folded word consists only of letters.
+     *
+     * @param folded the word, as returned by {@link #fold(String)}.
+     * @return {@code true} if every character may appear in a stored
+     * word.
+     */
+    static boolean isWord(final String folded) {
+        for (int i = 0; i < folded.length(); i++) {
+            if (!isLetter(folded.charAt(i))) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
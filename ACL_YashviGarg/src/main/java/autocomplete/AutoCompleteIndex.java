@@ -0,0 +1,70 @@
+package autocomplete;
+
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The read-side contract shared by the auto-completion engines in this
+ * package. {@link ACLImplementation} is the mutable, general-purpose
+ * engine; other implementations trade mutability for a smaller or
+ * faster representation of the same dictionary.
+ */
+public interface AutoCompleteIndex {
+
+    /**
+     * Searches for a complete word.
+     *
+     * @param word the word to search for. The word is
+     * automatically converted to lowercase before searching.
+     * @return {@code true} if the word exists; {@code false} otherwise.
+     */
+    boolean search(String word);
+
+    /**
+     * Retrieves all words that start with a given prefix, in
+     * lexicographic order.
+     *
+     * @param prefix the prefix to search for. The prefix is automatically
+     * converted to lowercase before searching.
+     * @return a list of words that start with the given prefix.
+     * If no words match, returns an empty list.
+     */
+    List<String> getWordsWithPrefix(String prefix);
+
+    /**
+     * Passes every word that starts with a given prefix to a consumer,
+     * in lexicographic order, without creating a {@link String} per
+     * word. The traversal stops early when the consumer returns
+     * {@code false}.
+     *
+     * @param prefix the prefix to search for. The prefix is automatically
+     * converted to lowercase before searching.
+     * @param consumer the consumer receiving each completion.
+     */
+    void forEachCompletion(CharSequence prefix, CompletionConsumer consumer);
+
+    /**
+     * Retrieves the words that start with each prefix of a batch. The
+     * default implementation completes the prefixes one at a time;
+     * engines may share work between prefixes with common stems.
+     *
+     * @param prefixes the prefixes to complete. Each prefix is
+     * automatically converted to lowercase before searching.
+     * @return the completions of each distinct prefix, as returned by
+     * {@link #getWordsWithPrefix}, in the iteration order of
+     * {@code prefixes}.
+     */
+    default Map<String, List<String>> completeAll(
+        final Collection<String> prefixes
+    ) {
+        Map<String, List<String>> completions = new LinkedHashMap<>();
+        for (String prefix : prefixes) {
+            if (!completions.containsKey(prefix)) {
+                completions.put(prefix, getWordsWithPrefix(prefix));
+            }
+        }
+        return completions;
+    }
+}
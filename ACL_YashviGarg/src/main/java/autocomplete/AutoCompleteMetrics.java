@@ -0,0 +1,104 @@
+package autocomplete;
+
+/**
+ * Receives measurements from an instrumented {@link ACLImplementation}:
+ * the latency and size of each query, and the cost of building the Trie.
+ * Implement it to forward the measurements to a metrics system of your
+ * choice, or use {@link TrieMetrics}, which keeps counters and latency
+ * histograms and publishes them over JMX.
+ * <p>
+ * Methods are called on the querying thread, so implementations must be
+ * thread-safe and should return quickly. The default methods ignore
+ * their measurements; {@link #NOOP} ignores all of them and lets an
+ * instance skip its timing altogether.
+ * </p>
+ * <p>
+ * Reading the clock can cost as much as a short query, so queries may
+ * be sampled: with a {@link #getSampleInterval() sample interval} of
+ * {@code n}, each query is measured and recorded with probability
+ * {@code 1/n}, and the metrics scale their counts by {@code n}.
+ * </p>
+ */
+public interface AutoCompleteMetrics {
+
+    /**
+     * Metrics that record nothing. An instance using them does not read
+     * the clock, so uninstrumented queries cost next to nothing extra.
+     */
+    AutoCompleteMetrics NOOP = new AutoCompleteMetrics() { };
+
+    /**
+     * The kinds of query that are measured.
+     */
+    enum Query {
+        /**
+         * {@link ACLImplementation#search}.
+         */
+        SEARCH,
+        /**
+         * {@link ACLImplementation#getWordsWithPrefix}.
+         */
+        PREFIX,
+        /**
+         * {@link ACLImplementation#getTopCompletions}.
+         */
+        TOP,
+        /**
+         * {@link ACLImplementation#getFuzzyCompletions}.
+         */
+        FUZZY,
+        /**
+         * {@link ACLImplementation#countWithPrefix}.
+         */
+        COUNT,
+        /**
+         * One batch of {@link ACLImplementation#completeAll}.
+         */
+        BATCH
+    }
+
+    /**
+     * Returns how many queries each recorded query stands for. An
+     * instrumented {@link ACLImplementation} reads it once, when the
+     * metrics are attached.
+     *
+     * @return a power of two; 1, the default, to record every query.
+     */
+    default int getSampleInterval() {
+        return 1;
+    }
+
+    /**
+     * Records one completed query.
+     *
+     * @param query the kind of query.
+     * @param nanos the time the query took, in nanoseconds.
+     * @param subtreeSize the number of words below the node of the queried
+     * word or prefix, i.e. the size of the subtree the query was answered
+     * from; 0 if there is no such node, or for fuzzy queries and batches,
+     * which are not answered from a single subtree.
+     * @param results the number of words returned; for searches, 1 if the
+     * word was found and 0 otherwise.
+     */
+    default void recordQuery(
+        final Query query,
+        final long nanos,
+        final int subtreeSize,
+        final int results
+    ) {
+    }
+
+    /**
+     * Records the building of a Trie.
+     *
+     * @param nanos the time the dictionary took to load, in nanoseconds.
+     * @param words the number of words in the Trie.
+     * @param nodes the number of nodes in the Trie, including the root.
+     */
+    default void recordBuild(
+        final long nanos,
+        final int words,
+        final int nodes
+    ) {
+    }
+}
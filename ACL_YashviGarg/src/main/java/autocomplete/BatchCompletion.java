@@ -0,0 +1,328 @@
+package autocomplete;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Completes a batch of prefixes in one pass over a Trie.
+ * <p>
+ * The prefixes are sorted, so consecutive prefixes share their longest
+ * common stem and each descent resumes from the node where the previous
+ * prefix's path branches off instead of from the root. When a prefix
+ * extends an earlier prefix of the batch, its completions are a
+ * contiguous slice of the earlier prefix's completions; the slice is
+ * located with the subtree word counts and copied instead of walking the
+ * subtree again. Prefixes with different first letters share nothing,
+ * so they can be completed on separate threads.
+ * </p>
+ */
+final class BatchCompletion {
+
+    /**
+     * Private constructor to prevent instantiation of this utility class.
+     */
+    private BatchCompletion() {
+        throw new UnsupportedOperationException(
+            "BatchCompletion class cannot be instantiated."
+        );
+    }
+
+    /**
+     * Completes every prefix of a batch.
+     *
+     * @param root the root node of the Trie.
+     * @param prefixes the prefixes to complete, in any case and order,
+     * possibly with duplicates.
+     * @param pool the pool that completes the groups of prefixes with
+     * different first letters, or {@code null} to run on the calling
+     * thread.
+     * @return the completions of each distinct prefix, in the iteration
+     * order of {@code prefixes}.
+     * @throws RuntimeException If a worker failed or the wait was
+     * interrupted.
+     */
+    static Map<String, List<String>> completeAll(
+        final TrieNode root,
+        final Collection<String> prefixes,
+        final ForkJoinPool pool
+    ) {
+        TreeSet<String> sorted = new TreeSet<>();
+        for (String prefix : prefixes) {
+            sorted.add(Alphabet.fold(prefix));
+        }
+        Map<String, List<String>> byLowercase = new HashMap<>();
+        if (pool == null) {
+            completeGroup(root, new ArrayList<>(sorted), byLowercase);
+        } else {
+            List<Callable<Map<String, List<String>>>> tasks =
+                new ArrayList<>();
+            for (List<String> group : groupByFirstLetter(sorted)) {
+                tasks.add(() -> {
+                    Map<String, List<String>> results = new HashMap<>();
+                    completeGroup(root, group, results);
+                    return results;
+                });
+            }
+            for (Map<String, List<String>> results
+                : TrieFileBuilder.invokeAll(pool, tasks)) {
+                byLowercase.putAll(results);
+            }
+        }
+
+        Map<String, List<String>> completions = new LinkedHashMap<>();
+        Set<String> handedOut = new HashSet<>();
+        for (String prefix : prefixes) {
+            if (completions.containsKey(prefix)) {
+                continue;
+            }
+            String lowercase = Alphabet.fold(prefix);
+            List<String> words = byLowercase.get(lowercase);
+            if (!handedOut.add(lowercase)) {
+                // Prefixes differing only in case get their own copies
+                words = new ArrayList<>(words);
+            }
+            completions.put(prefix, words);
+        }
+        return completions;
+    }
+
+    /**
+     * Splits sorted prefixes into runs with the same first letter.
+     *
+     * @param sorted the sorted, distinct, lowercase prefixes.
+     * @return the runs, each still sorted.
+     */
+    private static List<List<String>> groupByFirstLetter(
+        final TreeSet<String> sorted
+    ) {
+        List<List<String>> groups = new ArrayList<>();
+        List<String> group = null;
+        char letter = 0;
+        for (String prefix : sorted) {
+            char first = 0;
+            if (!prefix.isEmpty()) {
+                first = prefix.charAt(0);
+            }
+            if (group == null || first != letter) {
+                group = new ArrayList<>();
+                groups.add(group);
+                letter = first;
+            }
+            group.add(prefix);
+        }
+        return groups;
+    }
+
+    /**
+     * Completes sorted prefixes, sharing descents and nested results.
+     *
+     * @param root the root node of the Trie.
+     * @param group the sorted, distinct, lowercase prefixes.
+     * @param results receives the completions of each prefix.
+     */
+    private static void completeGroup(
+        final TrieNode root,
+        final List<String> group,
+        final Map<String, List<String>> results
+    ) {
+        // path.get(d) is the node after d letters of the previous prefix
+        List<TrieNode> path = new ArrayList<>();
+        path.add(root);
+        String previous = "";
+        Deque<Completed> enclosing = new ArrayDeque<>();
+        for (String prefix : group) {
+            while (!enclosing.isEmpty()
+                && !prefix.startsWith(enclosing.peek().prefix)) {
+                enclosing.pop();
+            }
+            int depth = Math.min(
+                commonPrefixLength(previous, prefix), path.size() - 1);
+            TrieNode node = path.get(depth);
+            while (depth < prefix.length() && node != null) {
+                node = node.getChild(Alphabet.index(prefix.charAt(depth)));
+                depth++;
+                if (node != null) {
+                    setPathNode(path, depth, node);
+                }
+            }
+            trimPath(path, depth, node);
+            previous = prefix;
+
+            if (node == null) {
+                results.put(prefix, List.of());
+                continue;
+            }
+            List<String> words;
+            if (enclosing.isEmpty()) {
+                words = new ArrayList<>(node.getWordCount());
+                collect(node, new WordBuffer(prefix), prefix.length(), words);
+            } else {
+                Completed outer = enclosing.peek();
+                int offset = rankWithin(outer, prefix);
+                words = new ArrayList<>(outer.words.subList(
+                    offset, offset + node.getWordCount()));
+            }
+            results.put(prefix, words);
+            enclosing.push(new Completed(prefix, node, words));
+        }
+    }
+
+    /**
+     * Recursively appends the words below a node to a list, in
+     * lexicographic order.
+     *
+     * @param node the current node.
+     * @param buffer the buffer holding the path to the node.
+     * @param length the length of the path to the node.
+     * @param words the list receiving the words.
+     */
+    private static void collect(
+        final TrieNode node,
+        final WordBuffer buffer,
+        final int length,
+        final List<String> words
+    ) {
+        if (node.isWordEnd()) {
+            words.add(buffer.word(length));
+        }
+        for (int i = node.nextChildIndex(0); i >= 0;
+             i = node.nextChildIndex(i + 1)) {
+            buffer.set(length, Alphabet.letter(i));
+            collect(node.getChild(i), buffer, length + 1, words);
+        }
+    }
+
+    /**
+     * Records the node reached after a number of letters.
+     *
+     * @param path the nodes along the current prefix.
+     * @param depth the number of letters consumed.
+     * @param node the node reached.
+     */
+    private static void setPathNode(
+        final List<TrieNode> path,
+        final int depth,
+        final TrieNode node
+    ) {
+        if (depth < path.size()) {
+            path.set(depth, node);
+        } else {
+            path.add(node);
+        }
+    }
+
+    /**
+     * Drops path entries that do not belong to the current prefix.
+     *
+     * @param path the nodes along the current prefix.
+     * @param depth the number of letters consumed.
+     * @param node the last node reached, or {@code null} if the path
+     * broke off at {@code depth}.
+     */
+    private static void trimPath(
+        final List<TrieNode> path,
+        final int depth,
+        final TrieNode node
+    ) {
+        int keep = depth + 1;
+        if (node == null) {
+            keep = depth;
+        }
+        while (path.size() > keep) {
+            path.remove(path.size() - 1);
+        }
+    }
+
+    /**
+     * Computes the length of the common prefix of two strings.
+     *
+     * @param a the first string.
+     * @param b the second string.
+     * @return the number of leading characters both strings share.
+     */
+    private static int commonPrefixLength(final String a, final String b) {
+        int length = Math.min(a.length(), b.length());
+        int i = 0;
+        while (i < length && a.charAt(i) == b.charAt(i)) {
+            i++;
+        }
+        return i;
+    }
+
+    /**
+     * Counts the completions of an enclosing prefix that sort before a
+     * longer prefix, which is where the longer prefix's completions
+     * start in the enclosing prefix's list.
+     *
+     * @param outer the enclosing prefix and its completions.
+     * @param prefix a prefix starting with {@code outer.prefix} that
+     * exists in the Trie.
+     * @return the offset of the first completion of {@code prefix}.
+     */
+    private static int rankWithin(final Completed outer, final String prefix) {
+        int rank = 0;
+        TrieNode node = outer.node;
+        for (int depth = outer.prefix.length(); depth < prefix.length();
+             depth++) {
+            if (node.isWordEnd()) {
+                rank++;
+            }
+            int index = Alphabet.index(prefix.charAt(depth));
+            for (int i = node.nextChildIndex(0); i >= 0 && i < index;
+                 i = node.nextChildIndex(i + 1)) {
+                rank += node.getChild(i).getWordCount();
+            }
+            node = node.getChild(index);
+        }
+        return rank;
+    }
+
+    /**
+     * A completed prefix that later prefixes of the batch may extend.
+     */
+    private static final class Completed {
+
+        /**
+         * The lowercase prefix.
+         */
+        private final String prefix;
+
+        /**
+         * The node of the prefix.
+         */
+        private final TrieNode node;
+
+        /**
+         * The completions of the prefix.
+         */
+        private final List<String> words;
+
+        /**
+         * Constructs a completed prefix.
+         *
+         * @param completedPrefix the lowercase prefix.
+         * @param prefixNode the node of the prefix.
+         * @param completions the completions of the prefix.
+         */
+        Completed(
+            final String completedPrefix,
+            final TrieNode prefixNode,
+            final List<String> completions
+        ) {
+            this.prefix = completedPrefix;
+            this.node = prefixNode;
+            this.words = completions;
+        }
+    }
+}
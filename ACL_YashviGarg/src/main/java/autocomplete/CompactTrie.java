@@ -0,0 +1,566 @@
+package autocomplete;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.IntBuffer;
+import java.nio.LongBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+
+/**
+ * A read-only, array-packed representation of a Trie.
+ * <p>
+ * Nodes are numbered in breadth-first order, which places the children
+ * of every node in one contiguous run of ids. Each node therefore only
+ * needs the id of its first child, the character on its incoming edge
+ * and one bit marking the end of a word, instead of a
+ * {@link TrieNode} object with an array of child references. The
+ * structure cannot be modified; build a new one from an updated
+ * {@link TrieNode} graph instead.
+ * </p>
+ * <p>
+ * The packed arrays can be written to a binary snapshot file with
+ * {@link #writeSnapshot(String)} and memory-mapped back with
+ * {@link #mapSnapshot(String)}. A mapped Trie answers queries straight
+ * from the mapped file, so loading it costs no parsing and several
+ * processes mapping the same file share one copy in the page cache.
+ * </p>
+ */
+public final class CompactTrie implements AutoCompleteIndex {
+
+    /**
+     * The id of the root node.
+     */
+    private static final int ROOT = 0;
+
+    /**
+     * Magic number at the start of a snapshot file ("ACLT").
+     */
+    private static final int SNAPSHOT_MAGIC = 0x41434C54;
+
+    /**
+     * Version of the snapshot file layout.
+     */
+    private static final int SNAPSHOT_VERSION = 1;
+
+    /**
+     * Byte offset of the snapshot format version in the header.
+     */
+    private static final int VERSION_OFFSET = Integer.BYTES;
+
+    /**
+     * Byte offset of the node count in the header.
+     */
+    private static final int NODE_COUNT_OFFSET = 2 * Integer.BYTES;
+
+    /**
+     * Byte offset of the word count in the header.
+     */
+    private static final int WORD_COUNT_OFFSET = 3 * Integer.BYTES;
+
+    /**
+     * Size in bytes of the snapshot header: magic, version, node count
+     * and word count.
+     */
+    private static final int HEADER_BYTES = 4 * Integer.BYTES;
+
+    /**
+     * Snapshot section holding the first-child offsets.
+     */
+    private static final int CHILD_SECTION = 0;
+
+    /**
+     * Snapshot section holding the edge labels.
+     */
+    private static final int LABEL_SECTION = 1;
+
+    /**
+     * Snapshot section holding the word-end bits.
+     */
+    private static final int WORD_END_SECTION = 2;
+
+    /**
+     * Snapshot section holding the word weights.
+     */
+    private static final int WEIGHT_SECTION = 3;
+
+    /**
+     * Number of bits addressed by one word of {@link #wordEndBits}.
+     */
+    private static final int BITS_PER_WORD = Long.SIZE;
+
+    /**
+     * The children of node {@code i} are the nodes with ids in
+     * {@code [firstChild[i], firstChild[i + 1])}. The buffer has one
+     * extra trailing entry so the range is defined for the last node.
+     */
+    private final IntBuffer firstChild;
+
+    /**
+     * The character on the edge leading into each node. The entry for
+     * the root is unused.
+     */
+    private final CharBuffer labels;
+
+    /**
+     * One bit per node, set for the nodes at which a word ends.
+     */
+    private final LongBuffer wordEndBits;
+
+    /**
+     * The weight of every word, in the order of their node ids.
+     */
+    private final LongBuffer weights;
+
+    /**
+     * Constructs a CompactTrie from its packed buffers.
+     *
+     * @param childStarts the first-child offsets, one per node plus one.
+     * @param edgeLabels the incoming edge character of each node.
+     * @param wordEnds the word-end bit set, one bit per node.
+     * @param wordWeights the weight of each word in node id order.
+     */
+    private CompactTrie(
+        final IntBuffer childStarts,
+        final CharBuffer edgeLabels,
+        final LongBuffer wordEnds,
+        final LongBuffer wordWeights
+    ) {
+        this.firstChild = childStarts;
+        this.labels = edgeLabels;
+        this.wordEndBits = wordEnds;
+        this.weights = wordWeights;
+    }
+
+    /**
+     * Packs the Trie rooted at the given node into a CompactTrie.
+     * The source graph is not modified and can be discarded afterwards.
+     *
+     * @param root the root node of the Trie to pack.
+     * @return a read-only copy of the Trie.
+     */
+    public static CompactTrie fromTrie(final TrieNode root) {
+        int[] counts = countNodesAndWords(root);
+        int nodeCount = counts[0];
+        int[] childStarts = new int[nodeCount + 1];
+        char[] edgeLabels = new char[nodeCount];
+        long[] wordEnds = new long[bitWords(nodeCount)];
+        long[] wordWeights = new long[counts[1]];
+
+        // Breadth-first numbering: a node's children are appended to the
+        // queue together, so they receive consecutive ids.
+        Deque<TrieNode> queue = new ArrayDeque<>();
+        queue.add(root);
+        int id = 0;
+        int nextId = 1;
+        int wordId = 0;
+        while (!queue.isEmpty()) {
+            TrieNode node = queue.poll();
+            if (node.isWordEnd()) {
+                wordEnds[id / BITS_PER_WORD] |= 1L << id;
+                wordWeights[wordId++] = node.getWeight();
+            }
+            childStarts[id] = nextId;
+            for (int i = node.nextChildIndex(0); i >= 0;
+                 i = node.nextChildIndex(i + 1)) {
+                edgeLabels[nextId] = Alphabet.letter(i);
+                queue.add(node.getChild(i));
+                nextId++;
+            }
+            id++;
+        }
+        childStarts[nodeCount] = nextId;
+        return new CompactTrie(
+            IntBuffer.wrap(childStarts),
+            CharBuffer.wrap(edgeLabels),
+            LongBuffer.wrap(wordEnds),
+            LongBuffer.wrap(wordWeights));
+    }
+
+    /**
+     * Memory-maps a snapshot file written by {@link #writeSnapshot(String)}.
+     * The file is not read up front; its pages are loaded by the
+     * operating system as queries touch them.
+     *
+     * @param snapshotPath the path of the snapshot file.
+     * @return a CompactTrie answering queries from the mapped file.
+     * @throws RuntimeException If the file cannot be read or is not a
+     * valid snapshot.
+     */
+    public static CompactTrie mapSnapshot(final String snapshotPath) {
+        ByteBuffer buffer;
+        try (FileChannel channel = FileChannel.open(
+            Paths.get(snapshotPath), StandardOpenOption.READ)
+        ) {
+            buffer = channel.map(
+                FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        } catch (IOException e) {
+            throw new RuntimeException(
+                "Error reading snapshot: " + snapshotPath);
+        }
+
+        if (buffer.capacity() < HEADER_BYTES
+            || buffer.getInt(0) != SNAPSHOT_MAGIC) {
+            throw new RuntimeException("Not a snapshot file: " + snapshotPath);
+        }
+        if (buffer.getInt(VERSION_OFFSET) != SNAPSHOT_VERSION) {
+            throw new RuntimeException(
+                "Unsupported snapshot version: " + snapshotPath);
+        }
+        int nodeCount = buffer.getInt(NODE_COUNT_OFFSET);
+        int wordCount = buffer.getInt(WORD_COUNT_OFFSET);
+        boolean valid = nodeCount >= 1 && wordCount >= 0
+            && wordCount <= nodeCount;
+        int[] offsets = null;
+        if (valid) {
+            offsets = sectionOffsets(nodeCount, wordCount);
+            valid = buffer.capacity() == offsets[offsets.length - 1];
+        }
+        if (!valid) {
+            throw new RuntimeException(
+                "Corrupt snapshot file: " + snapshotPath);
+        }
+        return new CompactTrie(
+            section(buffer, offsets, CHILD_SECTION).asIntBuffer()
+                .limit(nodeCount + 1),
+            section(buffer, offsets, LABEL_SECTION).asCharBuffer()
+                .limit(nodeCount),
+            section(buffer, offsets, WORD_END_SECTION).asLongBuffer(),
+            section(buffer, offsets, WEIGHT_SECTION).asLongBuffer());
+    }
+
+    /**
+     * Writes this Trie to a binary snapshot file that can be loaded with
+     * {@link #mapSnapshot(String)}. The file is written next to the
+     * target and then moved into place, so processes that already
+     * mapped an older snapshot at the same path are not affected.
+     *
+     * @param snapshotPath the path of the snapshot file to write.
+     * @throws RuntimeException If the file cannot be written.
+     */
+    public void writeSnapshot(final String snapshotPath) {
+        int nodeCount = nodeCount();
+        int wordCount = weights.limit();
+        int[] offsets = sectionOffsets(nodeCount, wordCount);
+        ByteBuffer buffer =
+            ByteBuffer.allocate(offsets[offsets.length - 1]);
+        buffer.putInt(SNAPSHOT_MAGIC)
+            .putInt(SNAPSHOT_VERSION)
+            .putInt(nodeCount)
+            .putInt(wordCount);
+        section(buffer, offsets, CHILD_SECTION).asIntBuffer()
+            .put(firstChild.duplicate().rewind());
+        section(buffer, offsets, LABEL_SECTION).asCharBuffer()
+            .put(labels.duplicate().rewind());
+        section(buffer, offsets, WORD_END_SECTION).asLongBuffer()
+            .put(wordEndBits.duplicate().rewind());
+        section(buffer, offsets, WEIGHT_SECTION).asLongBuffer()
+            .put(weights.duplicate().rewind());
+
+        Path target = Paths.get(snapshotPath).toAbsolutePath();
+        Path temp = target.resolveSibling(target.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(temp,
+            StandardOpenOption.CREATE,
+            StandardOpenOption.TRUNCATE_EXISTING,
+            StandardOpenOption.WRITE)
+        ) {
+            buffer.rewind();
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            channel.force(true);
+        } catch (IOException e) {
+            throw new RuntimeException(
+                "Error writing snapshot: " + snapshotPath);
+        }
+        try {
+            Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING,
+                StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            throw new RuntimeException(
+                "Error writing snapshot: " + snapshotPath);
+        }
+    }
+
+    /**
+     * Computes the byte offsets of the snapshot sections. Every section
+     * starts on an 8-byte boundary.
+     *
+     * @param nodeCount the number of nodes.
+     * @param wordCount the number of words.
+     * @return the start offsets of the first-child, label, word-end and
+     * weight sections, followed by the total file size.
+     */
+    private static int[] sectionOffsets(
+        final int nodeCount,
+        final int wordCount
+    ) {
+        long[] sizes = {
+            ((long) nodeCount + 1) * Integer.BYTES,
+            (long) nodeCount * Character.BYTES,
+            (long) bitWords(nodeCount) * Long.BYTES,
+            (long) wordCount * Long.BYTES,
+        };
+        int[] offsets = new int[sizes.length + 1];
+        long offset = HEADER_BYTES;
+        for (int i = 0; i < sizes.length; i++) {
+            offsets[i] = (int) offset;
+            offset = align(offset + sizes[i]);
+        }
+        if (offset > Integer.MAX_VALUE) {
+            throw new RuntimeException("Trie too large for a snapshot.");
+        }
+        offsets[sizes.length] = (int) offset;
+        return offsets;
+    }
+
+    /**
+     * Returns a view of one snapshot section, including the padding
+     * that aligns the next section.
+     *
+     * @param buffer the whole snapshot.
+     * @param offsets the section offsets from {@link #sectionOffsets}.
+     * @param section the index of the section.
+     * @return a buffer covering exactly the section.
+     */
+    private static ByteBuffer section(
+        final ByteBuffer buffer,
+        final int[] offsets,
+        final int section
+    ) {
+        return buffer.slice(
+            offsets[section],
+            offsets[section + 1] - offsets[section]);
+    }
+
+    /**
+     * Rounds a byte offset up to the next multiple of 8.
+     *
+     * @param offset the offset to align.
+     * @return the aligned offset.
+     */
+    private static long align(final long offset) {
+        return (offset + Long.BYTES - 1) & -Long.BYTES;
+    }
+
+    /**
+     * Computes the number of longs needed to hold one bit per node.
+     *
+     * @param nodeCount the number of nodes.
+     * @return the number of longs.
+     */
+    private static int bitWords(final int nodeCount) {
+        return (nodeCount + BITS_PER_WORD - 1) / BITS_PER_WORD;
+    }
+
+    /**
+     * Counts the nodes and words of the Trie rooted at the given node.
+     *
+     * @param root the root node of the Trie.
+     * @return the number of nodes, including the root, followed by the
+     * number of words.
+     */
+    static int[] countNodesAndWords(final TrieNode root) {
+        int nodes = 0;
+        int words = 0;
+        Deque<TrieNode> stack = new ArrayDeque<>();
+        stack.push(root);
+        while (!stack.isEmpty()) {
+            TrieNode node = stack.pop();
+            nodes++;
+            if (node.isWordEnd()) {
+                words++;
+            }
+            for (int i = node.nextChildIndex(0); i >= 0;
+                 i = node.nextChildIndex(i + 1)) {
+                stack.push(node.getChild(i));
+            }
+        }
+        return new int[] {nodes, words};
+    }
+
+    /**
+     * Unpacks this Trie into a modifiable {@link TrieNode} graph with the
+     * same words and weights. The cached word counts and maximum weights
+     * are filled in bottom-up with
+     * {@link ACLImplementation#recomputeAggregates(TrieNode)}; since
+     * children always have larger ids than their parent, one backward
+     * pass over the ids suffices.
+     *
+     * @return the root node of the unpacked Trie.
+     */
+    TrieNode toTrie() {
+        int nodeCount = nodeCount();
+        TrieNode[] nodes = new TrieNode[nodeCount];
+        for (int id = 0; id < nodeCount; id++) {
+            nodes[id] = new TrieNode();
+        }
+        int wordId = 0;
+        for (int id = 0; id < nodeCount; id++) {
+            if (isWordEnd(id)) {
+                nodes[id].setWordEnd(true);
+                nodes[id].setWeight(weights.get(wordId++));
+            }
+            for (int child = firstChild.get(id);
+                 child < firstChild.get(id + 1); child++) {
+                nodes[id].setChild(
+                    Alphabet.index(labels.get(child)), nodes[child]);
+            }
+        }
+        for (int id = nodeCount - 1; id >= 0; id--) {
+            ACLImplementation.recomputeAggregates(nodes[id]);
+        }
+        return nodes[ROOT];
+    }
+
+    /**
+     * Returns the number of nodes in this Trie, including the root.
+     *
+     * @return the node count.
+     */
+    public int nodeCount() {
+        return labels.limit();
+    }
+
+    /**
+     * Searches for a complete word in the Trie.
+     *
+     * @param word the word to search for. The word is
+     * automatically converted to lowercase before searching.
+     * @return {@code true} if the word exists in the Trie;
+     * {@code false} otherwise.
+     */
+    @Override
+    public boolean search(final String word) {
+        int node = findNode(word);
+        return node >= 0 && isWordEnd(node);
+    }
+
+    /**
+     * Retrieves all words in the Trie that start with a given prefix.
+     *
+     * @param prefix the prefix to search for. The prefix is automatically
+     * converted to lowercase before searching.
+     * @return a list of words that start with the given prefix, in
+     * lexicographic order. If no words match, returns an empty list.
+     */
+    @Override
+    public List<String> getWordsWithPrefix(final String prefix) {
+        List<String> result = new ArrayList<>();
+        forEachCompletion(prefix, (chars, length) ->
+            result.add(new String(chars, 0, length)));
+        return result;
+    }
+
+    /**
+     * Passes every word in the Trie that starts with a given prefix to a
+     * consumer, in lexicographic order, without allocating per visited
+     * node.
+     *
+     * @param prefix the prefix to search for. The prefix is automatically
+     * converted to lowercase before searching.
+     * @param consumer the consumer receiving each completion; returning
+     * {@code false} stops the traversal.
+     */
+    @Override
+    public void forEachCompletion(
+        final CharSequence prefix,
+        final CompletionConsumer consumer
+    ) {
+        CharSequence key = Alphabet.normalize(prefix);
+        int node = findNode(key);
+        if (node >= 0) {
+            collectWords(node, new WordBuffer(key), key.length(), consumer);
+        }
+    }
+
+    /**
+     * Checks whether a word ends at a node.
+     *
+     * @param node the id of the node.
+     * @return {@code true} if the node's word-end bit is set.
+     */
+    private boolean isWordEnd(final int node) {
+        return (wordEndBits.get(node / BITS_PER_WORD) & (1L << node)) != 0;
+    }
+
+    /**
+     * Follows the path of a word from the root, folding each character
+     * to lowercase on the way.
+     *
+     * @param word the word or prefix to follow; non-ASCII input is
+     * normalized first.
+     * @return the id of the node at the end of the path, or {@code -1}
+     * if the path does not exist.
+     */
+    private int findNode(final CharSequence word) {
+        CharSequence key = Alphabet.normalize(word);
+        int node = ROOT;
+        for (int i = 0; i < key.length() && node >= 0; i++) {
+            node = findChild(node, Character.toLowerCase(key.charAt(i)));
+        }
+        return node;
+    }
+
+    /**
+     * Finds the child of a node reached over the given character.
+     * Children are stored in ascending label order, so the scan can stop
+     * as soon as it passes the character.
+     *
+     * @param node the id of the parent node.
+     * @param ch the edge character.
+     * @return the id of the child, or {@code -1} if there is none.
+     */
+    private int findChild(final int node, final char ch) {
+        int end = firstChild.get(node + 1);
+        for (int child = firstChild.get(node); child < end; child++) {
+            char label = labels.get(child);
+            if (label == ch) {
+                return child;
+            }
+            if (label > ch) {
+                break;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Recursively passes all words below a node to a consumer, in
+     * lexicographic order.
+     *
+     * @param node the id of the starting node.
+     * @param buffer the buffer holding the path to the node.
+     * @param length the length of the path to the node.
+     * @param consumer the consumer receiving each word.
+     * @return {@code false} if the consumer stopped the traversal;
+     * {@code true} otherwise.
+     */
+    private boolean collectWords(
+        final int node,
+        final WordBuffer buffer,
+        final int length,
+        final CompletionConsumer consumer
+    ) {
+        if (isWordEnd(node) && !buffer.emit(consumer, length)) {
+            return false;
+        }
+        int end = firstChild.get(node + 1);
+        for (int child = firstChild.get(node); child < end; child++) {
+            buffer.set(length, labels.get(child));
+            if (!collectWords(child, buffer, length + 1, consumer)) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,26 @@
+package autocomplete;
+
+/**
+ * Receives the completions of a prefix one at a time, without a
+ * {@link String} being created for each of them.
+ * <p>
+ * The characters of a completion are passed in a buffer that the
+ * engine reuses for the whole traversal: it is only valid during the
+ * call and must not be kept or modified. Copy the characters, e.g. with
+ * {@code new String(chars, 0, length)}, to retain a completion.
+ * </p>
+ */
+@FunctionalInterface
+public interface CompletionConsumer {
+
+    /**
+     * Accepts one completion.
+     *
+     * @param chars the buffer holding the completion in its first
+     * {@code length} characters.
+     * @param length the length of the completion.
+     * @return {@code true} to continue with the next completion,
+     * {@code false} to stop the traversal.
+     */
+    boolean accept(char[] chars, int length);
+}
@@ -0,0 +1,194 @@
+package autocomplete;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * A lazy, lexicographically ordered iterator over the words below a Trie
+ * node.
+ * <p>
+ * The iterator keeps only the current path: one node and one next child
+ * index per level, plus the characters of the path. Its memory therefore
+ * depends on the length of the longest word, not on the number of
+ * matches. It can also start right after a given word, which is how
+ * {@link ACLImplementation#getCompletionPage} resumes from a cursor
+ * without revisiting earlier pages.
+ * </p>
+ * <p>
+ * The iterator reads the live Trie. Words inserted or removed after it
+ * was created are seen if they lie ahead of the current position.
+ * </p>
+ */
+final class CompletionIterator implements Iterator<String> {
+
+    /**
+     * Initial number of stack levels.
+     */
+    private static final int INITIAL_DEPTH = 16;
+
+    /**
+     * Marks a level whose node has not been checked for a word end yet.
+     */
+    private static final int UNVISITED = -1;
+
+    /**
+     * The characters of the current path, starting with the prefix.
+     */
+    private final WordBuffer path;
+
+    /**
+     * The length of the prefix.
+     */
+    private final int prefixLength;
+
+    /**
+     * The node at each level below the prefix node (level 0).
+     */
+    private TrieNode[] nodes = new TrieNode[INITIAL_DEPTH];
+
+    /**
+     * The next child index to try at each level, or {@link #UNVISITED}.
+     */
+    private int[] nextIndex = new int[INITIAL_DEPTH];
+
+    /**
+     * The current level, or -1 once the iteration is exhausted.
+     */
+    private int depth;
+
+    /**
+     * The word to return next, or {@code null} if not yet computed.
+     */
+    private String next;
+
+    /**
+     * Constructs an iterator over the words below a node.
+     *
+     * @param start the node of the prefix, or {@code null} if the prefix
+     * does not exist.
+     * @param prefix the lowercase prefix leading to {@code start}.
+     * @param after the word after which to start, or {@code null} to
+     * start at the beginning. Must start with {@code prefix}.
+     */
+    CompletionIterator(
+        final TrieNode start,
+        final String prefix,
+        final String after
+    ) {
+        this.path = new WordBuffer(prefix);
+        this.prefixLength = prefix.length();
+        if (start == null) {
+            depth = -1;
+            return;
+        }
+        nodes[0] = start;
+        nextIndex[0] = UNVISITED;
+        depth = 0;
+        if (after != null) {
+            seekPast(after);
+        }
+    }
+
+    /**
+     * Positions the iterator right after a word: follows the word as far
+     * as it exists in the Trie and marks everything up to it as visited.
+     * The word itself need not exist any more.
+     *
+     * @param after the lowercase word, starting with the prefix.
+     */
+    private void seekPast(final String after) {
+        nextIndex[0] = 0;
+        for (int i = prefixLength; i < after.length(); i++) {
+            char ch = after.charAt(i);
+            int index = Alphabet.index(ch);
+            if (index == Alphabet.NONE) {
+                // Children from this index on sort after the word
+                nextIndex[depth] = Alphabet.lowerBound(ch);
+                return;
+            }
+            // Later siblings of the path come after the word
+            nextIndex[depth] = index + 1;
+            TrieNode child = nodes[depth].getChild(index);
+            if (child == null) {
+                return;
+            }
+            push(child, index);
+            nextIndex[depth] = 0;
+        }
+    }
+
+    /**
+     * Descends to a child, growing the stack if needed.
+     *
+     * @param child the child node.
+     * @param index the letter index of the child.
+     */
+    private void push(final TrieNode child, final int index) {
+        path.set(prefixLength + depth, Alphabet.letter(index));
+        depth++;
+        if (depth == nodes.length) {
+            nodes = Arrays.copyOf(nodes, 2 * nodes.length);
+            nextIndex = Arrays.copyOf(nextIndex, 2 * nextIndex.length);
+        }
+        nodes[depth] = child;
+        nextIndex[depth] = UNVISITED;
+    }
+
+    /**
+     * Advances in preorder to the next word end.
+     *
+     * @return the next word, or {@code null} if there is none.
+     */
+    private String advance() {
+        while (depth >= 0) {
+            TrieNode node = nodes[depth];
+            int from = nextIndex[depth];
+            if (from == UNVISITED) {
+                nextIndex[depth] = 0;
+                if (node.isWordEnd()) {
+                    return path.word(prefixLength + depth);
+                }
+                continue;
+            }
+            int index = node.nextChildIndex(from);
+            if (index < 0) {
+                nodes[depth] = null;
+                depth--;
+                continue;
+            }
+            nextIndex[depth] = index + 1;
+            push(node.getChild(index), index);
+        }
+        return null;
+    }
+
+    /**
+     * Checks whether another word follows.
+     *
+     * @return {@code true} if {@link #next()} returns a word.
+     */
+    @Override
+    public boolean hasNext() {
+        if (next == null) {
+            next = advance();
+        }
+        return next != null;
+    }
+
+    /**
+     * Returns the next word in lexicographic order.
+     *
+     * @return the next word.
+     * @throws NoSuchElementException if there are no more words.
+     */
+    @Override
+    public String next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        String word = next;
+        next = null;
+        return word;
+    }
+}
@@ -0,0 +1,96 @@
+package autocomplete;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.List;
+
+/**
+ * One page of prefix completions, returned by
+ * {@link ACLImplementation#getCompletionPage}.
+ * <p>
+ * The cursor of a page is an opaque token. Passing it back to
+ * {@link ACLImplementation#getCompletionPage} with the same prefix
+ * returns the next page, continuing right after the last word of this
+ * page without collecting the earlier pages again. Cursors stay valid
+ * when words are inserted or removed in between, even if the last word
+ * itself was removed.
+ * </p>
+ */
+public final class CompletionPage {
+
+    /**
+     * The words of this page.
+     */
+    private final List<String> words;
+
+    /**
+     * The cursor of the next page, or {@code null} on the last page.
+     */
+    private final String nextCursor;
+
+    /**
+     * Constructs a page.
+     *
+     * @param pageWords the words of this page.
+     * @param cursor the cursor of the next page, or {@code null}.
+     */
+    CompletionPage(final List<String> pageWords, final String cursor) {
+        this.words = List.copyOf(pageWords);
+        this.nextCursor = cursor;
+    }
+
+    /**
+     * Returns the words of this page in lexicographic order.
+     *
+     * @return an unmodifiable list of words.
+     */
+    public List<String> getWords() {
+        return words;
+    }
+
+    /**
+     * Returns the cursor to pass back for the next page.
+     *
+     * @return the cursor, or {@code null} if this is the last page.
+     */
+    public String getNextCursor() {
+        return nextCursor;
+    }
+
+    /**
+     * Checks whether more words follow this page.
+     *
+     * @return {@code true} if {@link #getNextCursor()} is not
+     * {@code null}.
+     */
+    public boolean hasMore() {
+        return nextCursor != null;
+    }
+
+    /**
+     * Encodes the last word of a page as a cursor.
+     *
+     * @param lastWord the last word of the page.
+     * @return the cursor.
+     */
+    static String encodeCursor(final String lastWord) {
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(
+            lastWord.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Decodes a cursor back into the last word of the previous page.
+     *
+     * @param cursor the cursor.
+     * @return the last word of the previous page.
+     * @throws IllegalArgumentException if the cursor is malformed.
+     */
+    static String decodeCursor(final String cursor) {
+        try {
+            return new String(Base64.getUrlDecoder().decode(cursor),
+                StandardCharsets.UTF_8);
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Invalid cursor: " + cursor);
+        }
+    }
+}
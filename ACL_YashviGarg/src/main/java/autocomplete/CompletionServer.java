@@ -0,0 +1,645 @@
+package autocomplete;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedSelectorException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.Iterator;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.regex.Pattern;
+
+/**
+ * A non-blocking server answering completion requests for a resident
+ * {@link AutoCompleteIndex} over a loopback socket.
+ *
+ * <p>One thread multiplexes every connection with a {@link Selector}.
+ * The protocol is line based; each request is one line and is answered
+ * by one line, in order, so clients may pipeline requests:</p>
+ * <ul>
+ *   <li>{@code COMPLETE <prefix> [<limit>]} answers {@code OK} followed
+ *   by the completions of the prefix in lexicographic order, separated
+ *   by spaces, at most {@code limit} of them, or at most
+ *   {@value #DEFAULT_LIMIT} if no limit is given.</li>
+ *   <li>{@code SEARCH <word>} answers {@code OK true} or
+ *   {@code OK false}.</li>
+ * </ul>
+ * <p>The words of a request are separated by one or more spaces. A
+ * prefix or word cannot be left out; the empty prefix, which matches
+ * every word, is written as {@value #EMPTY_ARGUMENT}, as in
+ * {@code COMPLETE "" 10}.</p>
+ * <p>Requests and responses are UTF-8 encoded. Malformed requests are
+ * answered with {@code ERR <message>}. A
+ * request longer than the read buffer is answered with an error and
+ * the connection is closed.</p>
+ *
+ * <p>A connection whose client does not read its responses stops being
+ * served once {@value #MAX_PENDING_OUTPUT} bytes of them are pending.
+ * Its further requests wait, unread, until the output has drained, so
+ * a connection never buffers more than that plus one response.</p>
+ *
+ * <p>ASCII completions are written straight from the traversal buffer
+ * into the connection's output buffer, so answering a request allocates
+ * no strings per completion.</p>
+ */
+public final class CompletionServer implements Closeable, Runnable {
+
+    /**
+     * The maximum number of completions of a {@code COMPLETE} request
+     * without a limit.
+     */
+    public static final int DEFAULT_LIMIT = 1000;
+
+    /**
+     * The token standing for an empty prefix or word in a request.
+     */
+    public static final String EMPTY_ARGUMENT = "\"\"";
+
+    /**
+     * Separates the words of a request line.
+     */
+    private static final Pattern SEPARATOR = Pattern.compile(" +");
+
+    /**
+     * Pending output, in bytes, above which a connection's requests are
+     * no longer answered until the output has been written.
+     */
+    private static final int MAX_PENDING_OUTPUT = 64 * 1024;
+
+    /**
+     * Size of each connection's read buffer, which bounds the length of
+     * a request line.
+     */
+    private static final int READ_BUFFER_SIZE = 4096;
+
+    /**
+     * Initial size of each connection's output buffer; it grows for
+     * large responses.
+     */
+    private static final int WRITE_BUFFER_SIZE = 8192;
+
+    /**
+     * The largest character encoded as a single byte in UTF-8.
+     */
+    private static final char MAX_ASCII = '\u007f';
+
+    /**
+     * Command returning the completions of a prefix.
+     */
+    private static final String COMPLETE = "COMPLETE";
+
+    /**
+     * Command checking whether a word is in the dictionary.
+     */
+    private static final String SEARCH = "SEARCH";
+
+    /**
+     * Number of words in a {@code COMPLETE} request that has a limit.
+     */
+    private static final int COMPLETE_WITH_LIMIT = 3;
+
+    /**
+     * The index answering the requests.
+     */
+    private final AutoCompleteIndex index;
+
+    /**
+     * The selector multiplexing the listening socket and connections.
+     */
+    private final Selector selector;
+
+    /**
+     * The listening socket.
+     */
+    private final ServerSocketChannel serverChannel;
+
+    /**
+     * Writes completions into the output buffer of the connection being
+     * served. The event loop is single-threaded, so one instance is
+     * shared by all connections.
+     */
+    private final ResponseWriter responseWriter = new ResponseWriter();
+
+    /**
+     * Whether {@link #run()} has been entered or the server has been
+     * closed before it ran.
+     */
+    private final AtomicBoolean started = new AtomicBoolean();
+
+    /**
+     * Cleared by {@link #close()} to stop the event loop.
+     */
+    private volatile boolean running = true;
+
+    /**
+     * Opens a server on a loopback port. Requests are not answered until
+     * {@link #run()} is called.
+     *
+     * @param completionIndex the index answering the requests.
+     * @param port the port to listen on, or {@code 0} for any free port.
+     * @throws IllegalArgumentException if the port is out of range.
+     * @throws RuntimeException if the socket cannot be opened.
+     */
+    public CompletionServer(
+        final AutoCompleteIndex completionIndex,
+        final int port
+    ) {
+        InetSocketAddress address =
+            new InetSocketAddress(InetAddress.getLoopbackAddress(), port);
+        this.index = completionIndex;
+        try {
+            selector = Selector.open();
+            serverChannel = ServerSocketChannel.open();
+        } catch (IOException e) {
+            throw new RuntimeException(
+                "Unable to open server socket: " + e.getMessage());
+        }
+        try {
+            serverChannel.bind(address);
+            serverChannel.configureBlocking(false);
+            serverChannel.register(selector, SelectionKey.OP_ACCEPT);
+        } catch (IOException e) {
+            releaseResources();
+            throw new RuntimeException(
+                "Unable to listen on port " + port + ": " + e.getMessage());
+        }
+    }
+
+    /**
+     * Returns the port the server listens on.
+     *
+     * @return the local port.
+     */
+    public int getPort() {
+        return serverChannel.socket().getLocalPort();
+    }
+
+    /**
+     * Runs the event loop on the calling thread until {@link #close()}
+     * is called.
+     *
+     * @throws IllegalStateException if the server is already running or
+     * has been closed.
+     * @throws RuntimeException if waiting for socket events fails.
+     */
+    @Override
+    public void run() {
+        if (!started.compareAndSet(false, true)) {
+            throw new IllegalStateException(
+                "Server already started or closed.");
+        }
+        try {
+            while (running) {
+                selector.select();
+                Iterator<SelectionKey> keys =
+                    selector.selectedKeys().iterator();
+                while (running && keys.hasNext()) {
+                    SelectionKey key = keys.next();
+                    keys.remove();
+                    handle(key);
+                }
+            }
+        } catch (ClosedSelectorException e) {
+            // Closed while waiting; nothing left to serve.
+        } catch (IOException e) {
+            throw new RuntimeException(
+                "Server stopped unexpectedly: " + e.getMessage());
+        } finally {
+            releaseResources();
+        }
+    }
+
+    /**
+     * Stops the server and closes the listening socket and every open
+     * connection. Requests that have not been answered yet are dropped.
+     */
+    @Override
+    public void close() {
+        running = false;
+        if (started.compareAndSet(false, true)) {
+            releaseResources();
+        } else {
+            selector.wakeup();
+        }
+    }
+
+    /**
+     * Handles a ready key: accepts a connection, or flushes pending
+     * output and reads new requests. A connection failing with an I/O
+     * error is closed without affecting the others.
+     *
+     * @param key the ready key.
+     * @throws IOException if accepting a connection fails.
+     */
+    private void handle(final SelectionKey key) throws IOException {
+        if (!key.isValid()) {
+            return;
+        }
+        if (key.isAcceptable()) {
+            accept();
+            return;
+        }
+        Connection connection = (Connection) key.attachment();
+        try {
+            if (key.isWritable()) {
+                flush(key, connection);
+                if (key.isValid() && connection.backlog
+                    && connection.out.position() == 0) {
+                    serve(key, connection);
+                }
+            }
+            if (key.isValid() && key.isReadable()) {
+                read(key, connection);
+            }
+        } catch (IOException e) {
+            closeConnection(key);
+        }
+    }
+
+    /**
+     * Accepts a pending connection and registers it for reading.
+     *
+     * @throws IOException if the connection cannot be configured.
+     */
+    private void accept() throws IOException {
+        SocketChannel channel = serverChannel.accept();
+        if (channel == null) {
+            return;
+        }
+        channel.configureBlocking(false);
+        channel.socket().setTcpNoDelay(true);
+        channel.register(selector, SelectionKey.OP_READ,
+            new Connection(channel));
+    }
+
+    /**
+     * Reads from a connection, then answers its requests and writes the
+     * responses.
+     *
+     * @param key the connection's key.
+     * @param connection the connection state.
+     * @throws IOException if reading or writing fails.
+     */
+    private void read(
+        final SelectionKey key,
+        final Connection connection
+    ) throws IOException {
+        if (connection.channel.read(connection.in) < 0) {
+            closeConnection(key);
+            return;
+        }
+        serve(key, connection);
+    }
+
+    /**
+     * Answers the buffered requests of a connection and writes the
+     * responses, for as long as the client keeps reading them.
+     *
+     * @param key the connection's key.
+     * @param connection the connection state.
+     * @throws IOException if writing fails.
+     */
+    private void serve(
+        final SelectionKey key,
+        final Connection connection
+    ) throws IOException {
+        do {
+            answerBuffered(connection);
+            flush(key, connection);
+        } while (key.isValid() && connection.backlog
+            && connection.out.position() == 0);
+    }
+
+    /**
+     * Answers the complete request lines in a connection's read buffer,
+     * stopping early once too much output is pending.
+     *
+     * @param connection the connection state.
+     */
+    private void answerBuffered(final Connection connection) {
+        ByteBuffer in = connection.in;
+        in.flip();
+        byte[] bytes = in.array();
+        int start = in.position();
+        connection.backlog = false;
+        for (int i = start; i < in.limit(); i++) {
+            if (bytes[i] == '\n') {
+                if (connection.out.position() >= MAX_PENDING_OUTPUT) {
+                    connection.backlog = true;
+                    break;
+                }
+                answer(connection, bytes, start, i);
+                start = i + 1;
+            }
+        }
+        in.position(start);
+        in.compact();
+        if (!in.hasRemaining() && !connection.backlog) {
+            in.clear();
+            writeError(connection, "request too long");
+            connection.closing = true;
+        }
+    }
+
+    /**
+     * Writes pending output to a connection. While output remains, the
+     * connection is watched for writability instead of readability, so
+     * a slow reader cannot make the server buffer without bound. A
+     * buffer grown by a large response is released once it is empty.
+     *
+     * @param key the connection's key.
+     * @param connection the connection state.
+     * @throws IOException if writing fails.
+     */
+    private void flush(
+        final SelectionKey key,
+        final Connection connection
+    ) throws IOException {
+        ByteBuffer out = connection.out;
+        out.flip();
+        connection.channel.write(out);
+        out.compact();
+        if (out.position() == 0 && out.capacity() > MAX_PENDING_OUTPUT) {
+            connection.out = ByteBuffer.allocate(WRITE_BUFFER_SIZE);
+        }
+        if (out.position() > 0) {
+            key.interestOps(SelectionKey.OP_WRITE);
+        } else if (connection.closing) {
+            closeConnection(key);
+        } else {
+            key.interestOps(SelectionKey.OP_READ);
+        }
+    }
+
+    /**
+     * Answers one request line.
+     *
+     * @param connection the connection the request came from.
+     * @param bytes the bytes holding the request.
+     * @param from the index of the first byte of the line.
+     * @param to the index of the line's terminating newline.
+     */
+    private void answer(
+        final Connection connection,
+        final byte[] bytes,
+        final int from,
+        final int to
+    ) {
+        int end = to;
+        if (end > from && bytes[end - 1] == '\r') {
+            end--;
+        }
+        String[] parts = SEPARATOR.split(new String(bytes, from, end - from,
+            StandardCharsets.UTF_8).trim());
+        switch (parts[0]) {
+            case COMPLETE:
+                if (parts.length == 2 || parts.length == COMPLETE_WITH_LIMIT) {
+                    complete(connection, parts);
+                    return;
+                }
+                break;
+            case SEARCH:
+                if (parts.length == 2) {
+                    writeText(connection,
+                        "OK " + index.search(argument(parts[1])));
+                    writeByte(connection, '\n');
+                    return;
+                }
+                break;
+            default:
+                writeError(connection, "unknown command '" + parts[0] + "'");
+                return;
+        }
+        writeError(connection, "wrong number of arguments for "
+            + parts[0]);
+    }
+
+    /**
+     * Reads a prefix or word of a request.
+     *
+     * @param token the word of the request line.
+     * @return the prefix or word; empty for {@value #EMPTY_ARGUMENT}.
+     */
+    static String argument(final String token) {
+        if (EMPTY_ARGUMENT.equals(token)) {
+            return "";
+        }
+        return token;
+    }
+
+    /**
+     * Answers a {@code COMPLETE} request.
+     *
+     * @param connection the connection the request came from.
+     * @param parts the command, the prefix and the optional limit.
+     */
+    private void complete(final Connection connection, final String[] parts) {
+        int limit = DEFAULT_LIMIT;
+        if (parts.length > 2) {
+            try {
+                limit = Integer.parseInt(parts[2]);
+            } catch (NumberFormatException e) {
+                limit = -1;
+            }
+            if (limit < 0) {
+                writeError(connection, "invalid limit '" + parts[2] + "'");
+                return;
+            }
+        }
+        writeText(connection, "OK");
+        if (limit > 0) {
+            responseWriter.start(connection, limit);
+            index.forEachCompletion(argument(parts[1]), responseWriter);
+        }
+        writeByte(connection, '\n');
+    }
+
+    /**
+     * Writes an error response line.
+     *
+     * @param connection the connection to answer.
+     * @param message the error message.
+     */
+    private static void writeError(
+        final Connection connection,
+        final String message
+    ) {
+        writeText(connection, "ERR " + message);
+        writeByte(connection, '\n');
+    }
+
+    /**
+     * Appends the UTF-8 form of a string to a connection's output.
+     *
+     * @param connection the connection to answer.
+     * @param text the text to append.
+     */
+    private static void writeText(
+        final Connection connection,
+        final String text
+    ) {
+        byte[] bytes = text.getBytes(StandardCharsets.UTF_8);
+        connection.reserve(bytes.length).put(bytes);
+    }
+
+    /**
+     * Appends one byte to a connection's output.
+     *
+     * @param connection the connection to answer.
+     * @param value the byte to append.
+     */
+    private static void writeByte(final Connection connection,
+        final char value) {
+        connection.reserve(1).put((byte) value);
+    }
+
+    /**
+     * Closes a connection and cancels its key.
+     *
+     * @param key the connection's key.
+     */
+    private static void closeConnection(final SelectionKey key) {
+        key.cancel();
+        try {
+            key.channel().close();
+        } catch (IOException e) {
+            // The connection is gone either way.
+        }
+    }
+
+    /**
+     * Closes every open connection, the listening socket and the
+     * selector.
+     */
+    private void releaseResources() {
+        try {
+            for (SelectionKey key : selector.keys()) {
+                closeConnection(key);
+            }
+        } catch (ClosedSelectorException e) {
+            // Already released.
+        }
+        try {
+            serverChannel.close();
+            selector.close();
+        } catch (IOException e) {
+            // Nothing more can be released.
+        }
+    }
+
+    /**
+     * The buffers and state of one client connection.
+     */
+    private static final class Connection {
+
+        /**
+         * The connection's socket.
+         */
+        private final SocketChannel channel;
+
+        /**
+         * Bytes read but not yet answered, in write mode.
+         */
+        private final ByteBuffer in = ByteBuffer.allocate(READ_BUFFER_SIZE);
+
+        /**
+         * Response bytes not yet written, in write mode.
+         */
+        private ByteBuffer out = ByteBuffer.allocate(WRITE_BUFFER_SIZE);
+
+        /**
+         * Whether the connection is closed once its output is flushed.
+         */
+        private boolean closing;
+
+        /**
+         * Whether complete requests wait in {@link #in} until the
+         * pending output has been written.
+         */
+        private boolean backlog;
+
+        /**
+         * Constructs the state of a new connection.
+         *
+         * @param socketChannel the connection's socket.
+         */
+        Connection(final SocketChannel socketChannel) {
+            this.channel = socketChannel;
+        }
+
+        /**
+         * Makes room for a number of bytes in the output buffer.
+         *
+         * @param length the number of bytes about to be written.
+         * @return the output buffer.
+         */
+        ByteBuffer reserve(final int length) {
+            if (out.remaining() < length) {
+                ByteBuffer grown = ByteBuffer.allocate(
+                    Math.max(2 * out.capacity(), out.position() + length));
+                out.flip();
+                grown.put(out);
+                out = grown;
+            }
+            return out;
+        }
+    }
+
+    /**
+     * Appends completions to a connection's output, each preceded by a
+     * space, until a limit is reached.
+     */
+    private static final class ResponseWriter implements CompletionConsumer {
+
+        /**
+         * The connection being answered.
+         */
+        private Connection connection;
+
+        /**
+         * The number of completions that may still be written.
+         */
+        private int remaining;
+
+        /**
+         * Prepares the writer for a new response.
+         *
+         * @param target the connection being answered.
+         * @param limit the maximum number of completions to write.
+         */
+        void start(final Connection target, final int limit) {
+            this.connection = target;
+            this.remaining = limit;
+        }
+
+        /**
+         * Appends one completion to the response.
+         *
+         * @param chars the buffer holding the completion.
+         * @param length the length of the completion.
+         * @return {@code true} while the limit has not been reached.
+         */
+        @Override
+        public boolean accept(final char[] chars, final int length) {
+            remaining--;
+            for (int i = 0; i < length; i++) {
+                if (chars[i] > MAX_ASCII) {
+                    writeText(connection, " " + new String(chars, 0, length));
+                    return remaining > 0;
+                }
+            }
+            ByteBuffer out = connection.reserve(length + 1);
+            out.put((byte) ' ');
+            for (int i = 0; i < length; i++) {
+                out.put((byte) chars[i]);
+            }
+            return remaining > 0;
+        }
+    }
+}
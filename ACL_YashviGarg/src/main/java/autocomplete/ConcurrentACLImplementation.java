@@ -0,0 +1,265 @@
+package autocomplete;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * A thread-safe variant of {@link ACLImplementation} that serves reads
+ * while words are inserted and removed.
+ * <p>
+ * Reads ({@link #search}, {@link #getWordsWithPrefix} and
+ * {@link #forEachCompletion}) never take a lock or block: they only
+ * follow child links that are published with compare-and-set. Inserts
+ * run in parallel with each other, creating missing nodes with
+ * compare-and-set. Removals prune nodes that no longer lead to a word,
+ * so they exclude inserts for their duration; otherwise an insert could
+ * attach a new word below a node that is being unlinked.
+ * </p>
+ * <p>
+ * {@link #search} is linearizable. Prefix enumerations are weakly
+ * consistent: they see every word that was present for the whole
+ * traversal and may or may not see words inserted or removed during
+ * it.
+ * </p>
+ */
+public class ConcurrentACLImplementation implements AutoCompleteIndex {
+
+    /**
+     * The root node of the Trie data structure.
+     */
+    private final ConcurrentTrieNode root = new ConcurrentTrieNode();
+
+    /**
+     * Shared by inserts, which may run together, and held exclusively
+     * by removals. Readers never touch it.
+     */
+    private final ReadWriteLock writeLock = new ReentrantReadWriteLock();
+
+    /**
+     * Constructs an empty ConcurrentACLImplementation.
+     */
+    public ConcurrentACLImplementation() {
+    }
+
+    /**
+     * Constructs a ConcurrentACLImplementation holding the words of a
+     * dictionary file.
+     *
+     * @param dictionaryPath The path to the dictionary file to load.
+     * @throws RuntimeException If the dictionary file is not found
+     * or an error occurs during reading.
+     */
+    public ConcurrentACLImplementation(final String dictionaryPath) {
+        copyFrom(TrieFileBuilder.buildTrieFromFile(dictionaryPath), root);
+    }
+
+    /**
+     * Recursively copies the words of a single-threaded Trie.
+     *
+     * @param source the node to copy from.
+     * @param target the node to copy into.
+     */
+    private static void copyFrom(
+        final TrieNode source,
+        final ConcurrentTrieNode target
+    ) {
+        target.setWordEnd(source.isWordEnd());
+        for (int i = source.nextChildIndex(0); i >= 0;
+             i = source.nextChildIndex(i + 1)) {
+            copyFrom(source.getChild(i), target.getOrCreateChild(i));
+        }
+    }
+
+    /**
+     * Inserts a word into the Trie. May run concurrently with reads and
+     * with other inserts.
+     *
+     * @param word the word to insert into the Trie. The word is automatically
+     * converted to lowercase before insertion.
+     */
+    public void insert(final String word) {
+        String lWord = Alphabet.fold(word);
+        if (!Alphabet.isWord(lWord)) {
+            throw new IllegalArgumentException(
+                "Words must contain only letters: " + word);
+        }
+        writeLock.readLock().lock();
+        try {
+            ConcurrentTrieNode node = root;
+            for (int i = 0; i < lWord.length(); i++) {
+                node = node.getOrCreateChild(
+                    Alphabet.index(lWord.charAt(i)));
+            }
+            // Publishing the flag is the point at which the word appears.
+            node.setWordEnd(true);
+        } finally {
+            writeLock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Searches for a complete word in the Trie without blocking.
+     *
+     * @param word the word to search for. The word is
+     * automatically converted to lowercase before searching.
+     * @return {@code true} if the word exists in the Trie and
+     * is marked as a complete word;
+     * {@code false} otherwise.
+     */
+    @Override
+    public boolean search(final String word) {
+        ConcurrentTrieNode node = findNode(word);
+        return node != null && node.isWordEnd();
+    }
+
+    /**
+     * Retrieves all words in the Trie that start with a given prefix,
+     * without blocking.
+     *
+     * @param prefix the prefix to search for. The prefix is automatically
+     * converted to lowercase before searching.
+     * @return a list of words that start with the given prefix.
+     * If no words match, returns an empty list.
+     */
+    @Override
+    public List<String> getWordsWithPrefix(final String prefix) {
+        List<String> result = new ArrayList<>();
+        forEachCompletion(prefix, (chars, length) ->
+            result.add(new String(chars, 0, length)));
+        return result;
+    }
+
+    /**
+     * Passes every word in the Trie that starts with a given prefix to a
+     * consumer, in lexicographic order, without blocking.
+     *
+     * @param prefix the prefix to search for. The prefix is automatically
+     * converted to lowercase before searching.
+     * @param consumer the consumer receiving each completion; returning
+     * {@code false} stops the traversal.
+     */
+    @Override
+    public void forEachCompletion(
+        final CharSequence prefix,
+        final CompletionConsumer consumer
+    ) {
+        CharSequence key = Alphabet.normalize(prefix);
+        ConcurrentTrieNode node = findNode(key);
+        if (node != null) {
+            collectWords(node, new WordBuffer(key), key.length(), consumer);
+        }
+    }
+
+    /**
+     * Removes a word from the Trie and prunes nodes that no longer lead
+     * to a word. Waits for running inserts to finish; reads continue
+     * undisturbed.
+     *
+     * @param word the word to remove. The word is automatically
+     * converted to lowercase before removal. If the word does not
+     * exist, no action is taken.
+     */
+    public void remove(final String word) {
+        String wordLowerCase = Alphabet.fold(word);
+        writeLock.writeLock().lock();
+        try {
+            removeHelper(root, wordLowerCase, 0);
+        } finally {
+            writeLock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Follows the path of a word from the root, folding each character
+     * to lowercase on the way.
+     *
+     * @param word the word or prefix to follow; non-ASCII input is
+     * normalized first.
+     * @return the node at the end of the path, or {@code null} if the
+     * path does not exist.
+     */
+    private ConcurrentTrieNode findNode(final CharSequence word) {
+        CharSequence key = Alphabet.normalize(word);
+        ConcurrentTrieNode node = root;
+        for (int i = 0; i < key.length() && node != null; i++) {
+            node = node.getChild(
+                Alphabet.index(Character.toLowerCase(key.charAt(i))));
+        }
+        return node;
+    }
+
+    /**
+     * Recursively passes all words starting from a given node to a
+     * consumer.
+     *
+     * @param node the starting node.
+     * @param buffer the buffer holding the path to the node.
+     * @param length the length of the path to the node.
+     * @param consumer the consumer receiving each word.
+     * @return {@code false} if the consumer stopped the traversal;
+     * {@code true} otherwise.
+     */
+    private boolean collectWords(
+        final ConcurrentTrieNode node,
+        final WordBuffer buffer,
+        final int length,
+        final CompletionConsumer consumer
+    ) {
+        if (node.isWordEnd() && !buffer.emit(consumer, length)) {
+            return false;
+        }
+        for (int i = node.nextChildIndex(0); i >= 0;
+             i = node.nextChildIndex(i + 1)) {
+            ConcurrentTrieNode child = node.getChild(i);
+            if (child == null) {
+                // Pruned after nextChildIndex saw it
+                continue;
+            }
+            buffer.set(length, Alphabet.letter(i));
+            if (!collectWords(child, buffer, length + 1, consumer)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Helper function to recursively remove a word from the Trie. Must be
+     * called with the write lock held exclusively.
+     *
+     * @param node the current node being processed.
+     * @param word the lowercase word to remove.
+     * @param depth the current depth of recursion
+     * (character index in the word).
+     * @return {@code true} if the current node can
+     * be deleted; {@code false} otherwise.
+     */
+    private boolean removeHelper(
+        final ConcurrentTrieNode node,
+        final String word,
+        final int depth
+    ) {
+        if (node == null) {
+            return false;
+        }
+        if (depth == word.length()) {
+            if (!node.isWordEnd()) {
+                // Word does not exist
+                return false;
+            }
+            // Clearing the flag is the point at which the word disappears.
+            node.setWordEnd(false);
+            return node.hasNoChildren();
+        }
+
+        int index = Alphabet.index(word.charAt(depth));
+        ConcurrentTrieNode child = node.getChild(index);
+        if (removeHelper(child, word, depth + 1)) {
+            node.removeChild(index, child);
+            return node.hasNoChildren() && !node.isWordEnd();
+        }
+        return false;
+    }
+}
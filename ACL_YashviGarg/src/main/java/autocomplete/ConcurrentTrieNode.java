@@ -0,0 +1,226 @@
+package autocomplete;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * A node of the thread-safe Trie used by
+ * {@link ConcurrentACLImplementation}.
+ * <p>
+ * Child slots live in an {@link AtomicReferenceArray} that is only
+ * allocated once the node gets its first child. New children are
+ * published with a compare-and-set, so concurrent inserts on the same
+ * path agree on a single node and readers always see fully constructed
+ * nodes. Children for letters other than 'a' to 'z' live in a sorted
+ * concurrent map, installed the same way, so nodes of ASCII words pay
+ * nothing for large alphabets.
+ * </p>
+ */
+final class ConcurrentTrieNode {
+
+    /**
+     * Handle used to install the child array with a compare-and-set.
+     */
+    private static final VarHandle CHILDREN;
+
+    /**
+     * Handle used to install the map of other letters with a
+     * compare-and-set.
+     */
+    private static final VarHandle OTHER_CHILDREN;
+
+    static {
+        try {
+            MethodHandles.Lookup lookup = MethodHandles.lookup();
+            CHILDREN = lookup.findVarHandle(
+                ConcurrentTrieNode.class, "children",
+                AtomicReferenceArray.class);
+            OTHER_CHILDREN = lookup.findVarHandle(
+                ConcurrentTrieNode.class, "otherChildren",
+                ConcurrentSkipListMap.class);
+        } catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    /**
+     * The child slots for each letter ('a' to 'z'), or {@code null}
+     * while the node has never had a child.
+     */
+    private volatile AtomicReferenceArray<ConcurrentTrieNode> children;
+
+    /**
+     * The children for letters other than 'a' to 'z', by letter index,
+     * or {@code null} while the node has never had such a child.
+     */
+    private volatile ConcurrentSkipListMap<Integer, ConcurrentTrieNode>
+        otherChildren;
+
+    /**
+     * A flag indicating whether the current node marks the end of
+     * a valid word.
+     */
+    private volatile boolean wordEnd;
+
+    /**
+     * Retrieves the child node for a letter index.
+     *
+     * @param index the letter index, 0 for 'a' up to 25 for 'z'; see
+     * {@link Alphabet} for other letters.
+     * @return the child node, or {@code null} if there is none or the
+     * index is not a letter index.
+     */
+    ConcurrentTrieNode getChild(final int index) {
+        if (index >= Constants.ALPHABET_SIZE) {
+            ConcurrentSkipListMap<Integer, ConcurrentTrieNode> others =
+                otherChildren;
+            if (others == null) {
+                return null;
+            }
+            return others.get(index);
+        }
+        AtomicReferenceArray<ConcurrentTrieNode> slots = children;
+        if (slots == null || index < 0 || index >= slots.length()) {
+            return null;
+        }
+        return slots.get(index);
+    }
+
+    /**
+     * Returns the child node for a letter index, creating it if it does
+     * not exist yet. If several threads race to create the same child,
+     * all of them get the node that won the compare-and-set.
+     *
+     * @param index the letter index, 0 for 'a' up to 25 for 'z'; see
+     * {@link Alphabet} for other letters.
+     * @return the existing or newly created child node.
+     * @throws IndexOutOfBoundsException if the index is not a letter index.
+     */
+    ConcurrentTrieNode getOrCreateChild(final int index) {
+        if (index >= Constants.ALPHABET_SIZE) {
+            return getOrCreateOtherChild(index);
+        }
+        AtomicReferenceArray<ConcurrentTrieNode> slots = children;
+        if (slots == null) {
+            CHILDREN.compareAndSet(this, null,
+                new AtomicReferenceArray<ConcurrentTrieNode>(
+                    Constants.ALPHABET_SIZE));
+            slots = children;
+        }
+        ConcurrentTrieNode child = slots.get(index);
+        if (child != null) {
+            return child;
+        }
+        ConcurrentTrieNode created = new ConcurrentTrieNode();
+        if (slots.compareAndSet(index, null, created)) {
+            return created;
+        }
+        return slots.get(index);
+    }
+
+    /**
+     * Returns the child node for a letter other than 'a' to 'z', creating
+     * it if it does not exist yet.
+     *
+     * @param index the letter index.
+     * @return the existing or newly created child node.
+     */
+    private ConcurrentTrieNode getOrCreateOtherChild(final int index) {
+        ConcurrentSkipListMap<Integer, ConcurrentTrieNode> others =
+            otherChildren;
+        if (others == null) {
+            OTHER_CHILDREN.compareAndSet(this, null,
+                new ConcurrentSkipListMap<Integer, ConcurrentTrieNode>());
+            others = otherChildren;
+        }
+        ConcurrentTrieNode child = others.get(index);
+        if (child != null) {
+            return child;
+        }
+        ConcurrentTrieNode created = new ConcurrentTrieNode();
+        child = others.putIfAbsent(index, created);
+        if (child == null) {
+            return created;
+        }
+        return child;
+    }
+
+    /**
+     * Unlinks a child node if it is still the given node.
+     *
+     * @param index the letter index of the child.
+     * @param expected the child node to unlink.
+     * @return {@code true} if the child was unlinked.
+     */
+    boolean removeChild(final int index, final ConcurrentTrieNode expected) {
+        if (index >= Constants.ALPHABET_SIZE) {
+            ConcurrentSkipListMap<Integer, ConcurrentTrieNode> others =
+                otherChildren;
+            return others != null && others.remove(index, expected);
+        }
+        AtomicReferenceArray<ConcurrentTrieNode> slots = children;
+        return slots != null && slots.compareAndSet(index, expected, null);
+    }
+
+    /**
+     * Finds the smallest letter index with a child, starting at the
+     * given index.
+     *
+     * @param fromIndex the first letter index to consider.
+     * @return the smallest letter index {@code >= fromIndex} that has a
+     * child, or {@code -1} if there is none.
+     */
+    int nextChildIndex(final int fromIndex) {
+        AtomicReferenceArray<ConcurrentTrieNode> slots = children;
+        if (slots != null) {
+            for (int i = Math.max(fromIndex, 0); i < slots.length(); i++) {
+                if (slots.get(i) != null) {
+                    return i;
+                }
+            }
+        }
+        ConcurrentSkipListMap<Integer, ConcurrentTrieNode> others =
+            otherChildren;
+        if (others == null) {
+            return -1;
+        }
+        Integer next = others.ceilingKey(
+            Math.max(fromIndex, Constants.ALPHABET_SIZE));
+        if (next == null) {
+            return -1;
+        }
+        return next;
+    }
+
+    /**
+     * Checks whether this node currently has no children.
+     *
+     * @return {@code true} if no child slot is set.
+     */
+    boolean hasNoChildren() {
+        return nextChildIndex(0) < 0;
+    }
+
+    /**
+     * Checks whether this node represents the end of a valid word.
+     *
+     * @return {@code true} if this node is the end of a word,
+     * {@code false} otherwise.
+     */
+    boolean isWordEnd() {
+        return wordEnd;
+    }
+
+    /**
+     * Sets the flag indicating whether this node represents the
+     * end of a valid word.
+     *
+     * @param isWordEnd {@code true} to mark this node as the end
+     * of a word, {@code false} otherwise.
+     */
+    void setWordEnd(final boolean isWordEnd) {
+        this.wordEnd = isWordEnd;
+    }
+}
@@ -56,6 +56,49 @@ final class Constants {
    */
   public static final String OPTION_DICTIONARY_ARGUMENT = "filename";
 
+  /**
+   * Option name for compiling the loaded dictionary into a binary
+   * snapshot file.
+   */
+  public static final String OPTION_COMPILE = "compile";
+
+  /**
+   * Short flag for the compile option.
+   */
+  public static final String OPTION_COMPILE_SHORT = "c";
+
+  /**
+   * Option name for answering queries from a memory-mapped snapshot
+   * file.
+   */
+  public static final String OPTION_SNAPSHOT = "snapshot";
+
+  /**
+   * Short flag for the snapshot option.
+   */
+  public static final String OPTION_SNAPSHOT_SHORT = "s";
+
+  /**
+   * Argument name for the compile and snapshot options.
+   */
+  public static final String OPTION_SNAPSHOT_ARGUMENT = "snapshotfile";
+
+  /**
+   * Option name for keeping the dictionary resident and answering
+   * completion requests over a local socket.
+   */
+  public static final String OPTION_SERVE = "serve";
+
+  /**
+   * Short flag for the serve option.
+   */
+  public static final String OPTION_SERVE_SHORT = "l";
+
+  /**
+   * Argument name for the serve option.
+   */
+  public static final String OPTION_SERVE_ARGUMENT = "port";
+
   /**
    * Option name for combining custom and built-in dictionaries.
    */
@@ -66,6 +109,16 @@ final class Constants {
    */
   public static final String OPTION_UNION_SHORT = "u";
 
+  /**
+   * Option name for loading a dictionary in lenient mode.
+   */
+  public static final String OPTION_LENIENT = "lenient";
+
+  /**
+   * Short flag for the lenient option.
+   */
+  public static final String OPTION_LENIENT_SHORT = "k";
+
   /**
    * Option name for displaying the help message.
    */
@@ -94,14 +147,55 @@ final class Constants {
       "Combine the specified dictionary with the built-in dictionary."
           + "\nUse like: --union --dictionary <filename> <input>";
 
+  /**
+   * Description for the lenient option.
+   */
+  public static final String OPTION_LENIENT_DESCRIPTION =
+      "Skip malformed dictionary lines, reporting each with its line "
+          + "number, instead of stopping at the first one."
+          + "\nUse like: --lenient --dictionary <filename> <input>";
+
   /**
    * Description for the dictionary option.
    */
   public static final String OPTION_DICTIONARY_DESCRIPTION  =
-      "Specify the path to a dictionary file. Can be used alone "
-          + "or with '--union' to combine dictionaries."
+      "Specify the path to a dictionary file, or '-' to read it from "
+          + "standard input. Gzip-compressed dictionaries are accepted. "
+          + "Can be used alone or with '--union' to combine dictionaries."
           + " \n Use like: --dictionary <filename> <input>";
 
+  /**
+   * Dictionary file name standing for standard input.
+   */
+  public static final String STDIN_DICTIONARY = "-";
+
+  /**
+   * Description for the compile option.
+   */
+  public static final String OPTION_COMPILE_DESCRIPTION =
+      "Compile the dictionary into a binary snapshot file for fast "
+          + "loading with '--snapshot'. Can be combined with "
+          + "'--dictionary' and '--union'."
+          + "\nUse like: --compile <snapshotfile>";
+
+  /**
+   * Description for the snapshot option.
+   */
+  public static final String OPTION_SNAPSHOT_DESCRIPTION =
+      "Answer queries from a snapshot file written by '--compile' "
+          + "instead of loading a dictionary."
+          + "\nUse like: --snapshot <snapshotfile> <input>";
+
+  /**
+   * Description for the serve option.
+   */
+  public static final String OPTION_SERVE_DESCRIPTION =
+      "Keep the dictionary loaded and answer 'COMPLETE <prefix> [<limit>]' "
+          + "and 'SEARCH <word>' request lines on a loopback port "
+          + "(0 picks a free port). Can be combined with '--dictionary', "
+          + "'--union' and '--snapshot'."
+          + "\nUse like: --serve <port>";
+
   /**
    * Description for the help option.
    */
@@ -132,9 +226,41 @@ final class Constants {
   public static final String INCORRECT_UNION_USAGE_ERROR =
       "Error: '--union' requires '--dictionary' option";
 
+  /**
+   * Error message for incorrect use of --lenient option.
+   */
+  public static final String INCORRECT_LENIENT_USAGE_ERROR =
+      "Error: '--lenient' requires '--dictionary' option";
+
+  /**
+   * Error message for combining --snapshot with dictionary options.
+   */
+  public static final String INCORRECT_SNAPSHOT_USAGE_ERROR =
+      "Error: '--snapshot' cannot be combined with '--dictionary', "
+          + "'--union' or '--compile'";
+
+  /**
+   * Error message for combining --serve with --compile or input
+   * prefixes.
+   */
+  public static final String INCORRECT_SERVE_USAGE_ERROR =
+      "Error: '--serve' cannot be combined with '--compile' or <input>";
+
   /**
    * Regex pattern for validating that a string contains only
    * alphabetic characters (a-z, A-Z).
    */
   public static final String REGEX_ALPHABETIC = "^[a-zA-Z]+$";
+
+  /**
+   * Regex pattern separating the word column from the optional
+   * weight column in a dictionary line.
+   */
+  public static final String REGEX_WHITESPACE = "\\s+";
+
+  /**
+   * Weight given to words that are inserted or loaded without an
+   * explicit weight.
+   */
+  public static final long DEFAULT_WORD_WEIGHT = 1L;
 }
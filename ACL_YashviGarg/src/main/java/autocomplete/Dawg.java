@@ -0,0 +1,574 @@
+package autocomplete;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A read-only directed acyclic word graph: the minimal deterministic
+ * automaton accepting the words of a dictionary. Where a Trie repeats
+ * every shared ending, such as "ness" or "ization", once per word, the
+ * graph stores each distinct set of endings once and lets all the words
+ * that end that way point to it, so it needs far fewer states.
+ * <p>
+ * A graph is built by a {@link Builder} from words in lexicographic
+ * order, in a single pass in time linear in the total length of the
+ * words (Daciuk, Mihov, Watson and Watson, 2000). The finished states
+ * are packed into a few arrays. Words carry no weights, since a state is
+ * shared by words that may have different ones.
+ * </p>
+ */
+public final class Dawg implements AutoCompleteIndex {
+
+    /**
+     * Number of bits in each word of {@link #finals}.
+     */
+    private static final int BITS_PER_WORD = Long.SIZE;
+
+    /**
+     * The first edge of each state, followed by the number of edges. The
+     * edges of a state are sorted by label.
+     */
+    private final int[] edgeStarts;
+
+    /**
+     * The letter of each edge.
+     */
+    private final char[] labels;
+
+    /**
+     * The state each edge leads to.
+     */
+    private final int[] targets;
+
+    /**
+     * A bit per state, set if the state ends a word.
+     */
+    private final long[] finals;
+
+    /**
+     * The start state.
+     */
+    private final int root;
+
+    /**
+     * The number of words in the graph.
+     */
+    private final int size;
+
+    /**
+     * Packs the states of a builder.
+     *
+     * @param states the states, numbered by their position.
+     * @param start the start state.
+     * @param wordCount the number of words.
+     */
+    private Dawg(
+        final List<State> states,
+        final State start,
+        final int wordCount
+    ) {
+        int count = states.size();
+        int edges = 0;
+        for (State state : states) {
+            edges += state.count;
+        }
+        edgeStarts = new int[count + 1];
+        labels = new char[edges];
+        targets = new int[edges];
+        finals = new long[(count + BITS_PER_WORD - 1) / BITS_PER_WORD];
+        int edge = 0;
+        for (int id = 0; id < count; id++) {
+            State state = states.get(id);
+            edgeStarts[id] = edge;
+            if (state.wordEnd) {
+                finals[id / BITS_PER_WORD] |= 1L << (id % BITS_PER_WORD);
+            }
+            for (int i = 0; i < state.count; i++) {
+                labels[edge] = state.labels[i];
+                targets[edge++] = state.targets[i].id;
+            }
+        }
+        edgeStarts[count] = edge;
+        root = start.id;
+        size = wordCount;
+    }
+
+    /**
+     * Builds a graph holding the same words as a Trie. The Trie is
+     * walked in order, so its words reach the builder sorted.
+     *
+     * @param trieRoot the root node of the Trie.
+     * @return a graph holding the same words.
+     */
+    public static Dawg fromTrie(final TrieNode trieRoot) {
+        Builder builder = new Builder();
+        new ACLImplementation(trieRoot).forEachCompletion("",
+            (word, length) -> {
+                builder.addFolded(new String(word, 0, length));
+                return true;
+            });
+        return builder.build();
+    }
+
+    /**
+     * Returns the number of words in the graph.
+     *
+     * @return the word count.
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Returns the number of states in the graph, including the start
+     * state.
+     *
+     * @return the state count.
+     */
+    public int nodeCount() {
+        return edgeStarts.length - 1;
+    }
+
+    /**
+     * Returns the number of edges in the graph.
+     *
+     * @return the edge count.
+     */
+    public int edgeCount() {
+        return labels.length;
+    }
+
+    /**
+     * Searches for a complete word in the graph.
+     *
+     * @param word the word to search for. The word is
+     * automatically converted to lowercase before searching.
+     * @return {@code true} if the word is in the graph.
+     */
+    @Override
+    public boolean search(final String word) {
+        int state = walk(Alphabet.fold(word));
+        return state >= 0 && isFinal(state);
+    }
+
+    /**
+     * Retrieves all words in the graph that start with a given prefix.
+     *
+     * @param prefix the prefix to search for. The prefix is automatically
+     * converted to lowercase before searching.
+     * @return the words starting with the prefix, in lexicographic order.
+     */
+    @Override
+    public List<String> getWordsWithPrefix(final String prefix) {
+        List<String> result = new ArrayList<>();
+        forEachCompletion(prefix, (chars, length) ->
+            result.add(new String(chars, 0, length)));
+        return result;
+    }
+
+    /**
+     * Passes every word in the graph that starts with a given prefix to
+     * a consumer, in lexicographic order.
+     *
+     * @param prefix the prefix to search for. The prefix is automatically
+     * converted to lowercase before searching.
+     * @param consumer the consumer receiving each completion; returning
+     * {@code false} stops the traversal.
+     */
+    @Override
+    public void forEachCompletion(
+        final CharSequence prefix,
+        final CompletionConsumer consumer
+    ) {
+        String key = Alphabet.fold(prefix.toString());
+        int state = walk(key);
+        if (state < 0) {
+            return;
+        }
+        collect(state, new WordBuffer(key), key.length(), consumer);
+    }
+
+    /**
+     * Follows the letters of a folded word from the start state.
+     *
+     * @param key the folded word.
+     * @return the state reached, or -1 if the graph has no such path.
+     */
+    private int walk(final String key) {
+        int state = root;
+        for (int i = 0; i < key.length() && state >= 0; i++) {
+            state = next(state, key.charAt(i));
+        }
+        return state;
+    }
+
+    /**
+     * Follows the edge of a state labelled with a letter.
+     *
+     * @param state the state.
+     * @param letter the letter.
+     * @return the target state, or -1 if there is no such edge.
+     */
+    private int next(final int state, final char letter) {
+        int edge = Arrays.binarySearch(
+            labels, edgeStarts[state], edgeStarts[state + 1], letter);
+        if (edge < 0) {
+            return -1;
+        }
+        return targets[edge];
+    }
+
+    /**
+     * Checks whether a state ends a word.
+     *
+     * @param state the state.
+     * @return {@code true} if it is final.
+     */
+    private boolean isFinal(final int state) {
+        return (finals[state / BITS_PER_WORD]
+            & (1L << (state % BITS_PER_WORD))) != 0;
+    }
+
+    /**
+     * Passes the words below a state to a consumer, depth-first.
+     *
+     * @param state the state.
+     * @param buffer the buffer holding the path to the state.
+     * @param length the length of the path.
+     * @param consumer the consumer receiving each word.
+     * @return {@code false} if the consumer asked to stop.
+     */
+    private boolean collect(
+        final int state,
+        final WordBuffer buffer,
+        final int length,
+        final CompletionConsumer consumer
+    ) {
+        if (isFinal(state) && !buffer.emit(consumer, length)) {
+            return false;
+        }
+        for (int edge = edgeStarts[state]; edge < edgeStarts[state + 1];
+             edge++) {
+            buffer.set(length, labels[edge]);
+            if (!collect(targets[edge], buffer, length + 1, consumer)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * A state of a graph under construction.
+     */
+    private static final class State {
+
+        /**
+         * Multiplier combining the hashes of the edges.
+         */
+        private static final int HASH_MULTIPLIER = 31;
+
+        /**
+         * Labels of a state without edges.
+         */
+        private static final char[] NO_LABELS = new char[0];
+
+        /**
+         * Targets of a state without edges.
+         */
+        private static final State[] NO_TARGETS = new State[0];
+
+        /**
+         * The edge labels, in ascending order.
+         */
+        private char[] labels = NO_LABELS;
+
+        /**
+         * The edge targets, parallel to {@link #labels}.
+         */
+        private State[] targets = NO_TARGETS;
+
+        /**
+         * The number of edges.
+         */
+        private int count;
+
+        /**
+         * Whether the state ends a word.
+         */
+        private boolean wordEnd;
+
+        /**
+         * The number of the state once registered, or -1.
+         */
+        private int id = -1;
+
+        /**
+         * Adds an edge after all existing ones.
+         *
+         * @param label the letter of the edge.
+         * @param target the state the edge leads to.
+         */
+        void addEdge(final char label, final State target) {
+            if (count == labels.length) {
+                int capacity = Math.max(2, 2 * count);
+                labels = Arrays.copyOf(labels, capacity);
+                targets = Arrays.copyOf(targets, capacity);
+            }
+            labels[count] = label;
+            targets[count++] = target;
+        }
+
+        /**
+         * Redirects the last edge to an equivalent registered state.
+         *
+         * @param target the registered state.
+         */
+        void replaceLastTarget(final State target) {
+            targets[count - 1] = target;
+        }
+
+        /**
+         * Hashes the state by its right language, which is determined by
+         * its finality and its edges, since the targets are registered.
+         *
+         * @return the hash code.
+         */
+        @Override
+        public int hashCode() {
+            int hash = Boolean.hashCode(wordEnd);
+            for (int i = 0; i < count; i++) {
+                hash = HASH_MULTIPLIER * hash + labels[i];
+                hash = HASH_MULTIPLIER * hash + targets[i].id;
+            }
+            return hash;
+        }
+
+        /**
+         * Checks whether two states accept the same endings.
+         *
+         * @param other the other state.
+         * @return {@code true} if both have the same finality and the
+         * same edges to the same registered states.
+         */
+        @Override
+        public boolean equals(final Object other) {
+            if (!(other instanceof State)) {
+                return false;
+            }
+            State state = (State) other;
+            if (wordEnd != state.wordEnd || count != state.count) {
+                return false;
+            }
+            for (int i = 0; i < count; i++) {
+                if (labels[i] != state.labels[i]
+                    || targets[i] != state.targets[i]) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+
+    /**
+     * Builds a {@link Dawg} from words added in lexicographic order.
+     * <p>
+     * The builder keeps the path of the last added word. When the next
+     * word branches off that path, the states past the branching point
+     * can no longer change, so each is either replaced by an equivalent
+     * state registered earlier or registered itself. Only the states of
+     * the minimal graph and one path are ever held.
+     * </p>
+     */
+    public static final class Builder {
+
+        /**
+         * Initial length of the path, enough for common dictionaries.
+         */
+        private static final int INITIAL_DEPTH = 32;
+
+        /**
+         * The registered states by their right language.
+         */
+        private final Map<State, State> register = new HashMap<>();
+
+        /**
+         * The registered states, numbered by position.
+         */
+        private final List<State> states = new ArrayList<>();
+
+        /**
+         * The states on the path of the last word; entry {@code i} is
+         * reached after its first {@code i} letters.
+         */
+        private State[] path = new State[INITIAL_DEPTH + 1];
+
+        /**
+         * The letters of the last word.
+         */
+        private char[] previous = new char[INITIAL_DEPTH];
+
+        /**
+         * The length of the last word, or -1 before the first word.
+         */
+        private int previousLength = -1;
+
+        /**
+         * The number of distinct words added.
+         */
+        private int words;
+
+        /**
+         * Whether {@link #build} was called.
+         */
+        private boolean built;
+
+        /**
+         * Constructs a builder without words.
+         */
+        public Builder() {
+            path[0] = new State();
+        }
+
+        /**
+         * Adds a word. Adding the last added word again does nothing.
+         *
+         * @param word the word to add. The word is automatically converted
+         * to lowercase before insertion.
+         * @return this builder.
+         * @throws IllegalArgumentException if the word contains anything
+         * but letters, or sorts before the last added word.
+         * @throws IllegalStateException if the graph was already built.
+         */
+        public Builder add(final String word) {
+            String key = Alphabet.fold(word);
+            if (!Alphabet.isWord(key)) {
+                throw new IllegalArgumentException(
+                    "Words must contain only letters: " + word);
+            }
+            addFolded(key);
+            return this;
+        }
+
+        /**
+         * Checks whether a folded word may be added next, i.e. does not
+         * sort before the last added word.
+         *
+         * @param word the folded word.
+         * @return {@code true} if the word is in order.
+         */
+        boolean accepts(final CharSequence word) {
+            if (previousLength < 0) {
+                return true;
+            }
+            int common = commonPrefix(word);
+            return common == previousLength
+                || common < word.length()
+                && word.charAt(common) > previous[common];
+        }
+
+        /**
+         * Adds a word that is already folded and holds only letters.
+         *
+         * @param word the folded word.
+         * @throws IllegalArgumentException if the word sorts before the
+         * last added word.
+         * @throws IllegalStateException if the graph was already built.
+         */
+        void addFolded(final CharSequence word) {
+            if (built) {
+                throw new IllegalStateException(
+                    "The word graph has already been built");
+            }
+            if (!accepts(word)) {
+                throw new IllegalArgumentException(
+                    "Words must be added in lexicographic order: '" + word
+                    + "' after '"
+                    + new String(previous, 0, previousLength) + "'");
+            }
+            int common = commonPrefix(word);
+            if (common == word.length() && common == previousLength) {
+                // The same word again
+                return;
+            }
+            minimize(common);
+            int length = word.length();
+            if (length >= previous.length) {
+                previous = Arrays.copyOf(previous, 2 * length);
+                path = Arrays.copyOf(path, 2 * length + 1);
+            }
+            for (int i = common; i < length; i++) {
+                State state = new State();
+                path[i].addEdge(word.charAt(i), state);
+                path[i + 1] = state;
+                previous[i] = word.charAt(i);
+            }
+            path[length].wordEnd = true;
+            previousLength = length;
+            words++;
+        }
+
+        /**
+         * Finishes the graph. The builder cannot be used afterwards.
+         *
+         * @return the graph of the added words.
+         * @throws IllegalStateException if the graph was already built.
+         */
+        public Dawg build() {
+            if (built) {
+                throw new IllegalStateException(
+                    "The word graph has already been built");
+            }
+            minimize(0);
+            State start = path[0];
+            start.id = states.size();
+            states.add(start);
+            built = true;
+            Dawg dawg = new Dawg(states, start, words);
+            register.clear();
+            states.clear();
+            return dawg;
+        }
+
+        /**
+         * Returns the length of the prefix a word shares with the last
+         * added word.
+         *
+         * @param word the word.
+         * @return the length of the common prefix.
+         */
+        private int commonPrefix(final CharSequence word) {
+            int limit = Math.min(word.length(), Math.max(0, previousLength));
+            int common = 0;
+            while (common < limit && word.charAt(common) == previous[common]) {
+                common++;
+            }
+            return common;
+        }
+
+        /**
+         * Replaces or registers the states of the last word's path below
+         * a depth, deepest first, so that every state is compared after
+         * its targets are final.
+         *
+         * @param depth the depth of the last state that stays on the
+         * path.
+         */
+        private void minimize(final int depth) {
+            for (int i = previousLength; i > depth; i--) {
+                State state = path[i];
+                State equivalent = register.get(state);
+                if (equivalent == null) {
+                    state.id = states.size();
+                    states.add(state);
+                    register.put(state, state);
+                } else {
+                    path[i - 1].replaceLastTarget(equivalent);
+                }
+                path[i] = null;
+            }
+        }
+    }
+}
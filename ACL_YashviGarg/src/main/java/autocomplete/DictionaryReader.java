@@ -0,0 +1,757 @@
+package autocomplete;
+
+import static autocomplete.Constants.DEFAULT_WORD_WEIGHT;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.SequenceInputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.ZipException;
+
+/**
+ * Parses dictionary lines straight from bytes. Input is read from a
+ * channel into a large direct buffer and split into lines in place.
+ * Line breaks are found, and ASCII words are validated and lower-cased,
+ * eight bytes at a time with SWAR (SIMD within a register) arithmetic
+ * on {@code long} words; ASCII words reach the consumer as a reused
+ * view over a scratch array, without a {@code String}. Gzip-compressed
+ * input is recognized by its magic number and decompressed on the fly.
+ * <p>
+ * Each line holds one word, optionally followed by whitespace and a
+ * non-negative integer weight; blank lines are skipped. A malformed
+ * line either fails the load or, in lenient mode, is reported to an
+ * {@link InvalidLineListener} with its line number and skipped. A
+ * reader keeps scratch state between lines and is not thread-safe.
+ * </p>
+ */
+final class DictionaryReader {
+
+    /**
+     * Size of the direct read buffer. Lines longer than this grow it.
+     */
+    static final int BUFFER_SIZE = 1024 * 1024;
+
+    /**
+     * Size of the buffer inside the gzip decompressor.
+     */
+    private static final int GZIP_BUFFER_SIZE = 64 * 1024;
+
+    /**
+     * Initial capacity of the scratch buffer for folded words.
+     */
+    private static final int INITIAL_WORD_CAPACITY = 64;
+
+    /**
+     * The value 1 in every byte of a {@code long}.
+     */
+    private static final long ONES = 0x0101010101010101L;
+
+    /**
+     * The high bit of every byte of a {@code long}.
+     */
+    private static final long HIGH_BITS = 0x8080808080808080L;
+
+    /**
+     * A line break in every byte of a {@code long}.
+     */
+    private static final long LINE_BREAKS = ONES * '\n';
+
+    /**
+     * Added to ASCII bytes, sets the high bit of those at least 'A'.
+     */
+    private static final long FROM_UPPER_A = ONES * (0x80 - 'A');
+
+    /**
+     * Added to ASCII bytes, sets the high bit of those above 'Z'.
+     */
+    private static final long PAST_UPPER_Z = ONES * (0x80 - 'Z' - 1);
+
+    /**
+     * Added to ASCII bytes, sets the high bit of those at least 'a'.
+     */
+    private static final long FROM_LOWER_A = ONES * (0x80 - 'a');
+
+    /**
+     * Added to ASCII bytes, sets the high bit of those above 'z'.
+     */
+    private static final long PAST_LOWER_Z = ONES * (0x80 - 'z' - 1);
+
+    /**
+     * Base of the weight column.
+     */
+    private static final int RADIX = 10;
+
+    /**
+     * What a dictionary line must look like, for error messages.
+     */
+    private static final String LINE_FORMAT = "Each line must contain "
+        + "exactly one word, optionally followed by a non-negative weight, "
+        + "and words must contain only letters.";
+
+    /**
+     * The leading bytes of a gzip stream.
+     */
+    private static final byte[] GZIP_MAGIC = {0x1f, (byte) 0x8b};
+
+    /**
+     * The leading bytes of a Zstandard frame.
+     */
+    private static final byte[] ZSTD_MAGIC =
+        {0x28, (byte) 0xb5, 0x2f, (byte) 0xfd};
+
+    /**
+     * Receives every parsed dictionary entry.
+     */
+    @FunctionalInterface
+    interface EntryConsumer {
+
+        /**
+         * Accepts one dictionary entry. The word is folded and holds
+         * only letters. It may be a view the reader reuses for the next
+         * line, so it is only valid during the call; call
+         * {@code toString()} to keep it.
+         *
+         * @param word the folded word.
+         * @param weight the weight of the word.
+         * @param weighted whether the weight was given on the line
+         * rather than defaulted.
+         */
+        void accept(CharSequence word, long weight, boolean weighted);
+    }
+
+    /**
+     * The consumer receiving the parsed entries.
+     */
+    private final EntryConsumer consumer;
+
+    /**
+     * The listener receiving skipped lines, or {@code null} to fail on
+     * the first malformed line.
+     */
+    private final InvalidLineListener listener;
+
+    /**
+     * The folded ASCII word of the current line.
+     */
+    private final AsciiWord asciiWord = new AsciiWord();
+
+    /**
+     * The number of lines parsed so far.
+     */
+    private long lineCount;
+
+    /**
+     * Constructs a reader passing every entry to a consumer and failing
+     * on the first malformed line.
+     *
+     * @param entryConsumer the consumer receiving the parsed entries.
+     */
+    DictionaryReader(final EntryConsumer entryConsumer) {
+        this(entryConsumer, null);
+    }
+
+    /**
+     * Constructs a reader passing every entry to a consumer.
+     *
+     * @param entryConsumer the consumer receiving the parsed entries.
+     * @param invalidLineListener the listener receiving malformed lines,
+     * which are then skipped, or {@code null} to fail on the first one.
+     */
+    DictionaryReader(
+        final EntryConsumer entryConsumer,
+        final InvalidLineListener invalidLineListener
+    ) {
+        this.consumer = entryConsumer;
+        this.listener = invalidLineListener;
+    }
+
+    /**
+     * Returns the number of lines parsed so far, including blank and
+     * malformed ones.
+     *
+     * @return the line count.
+     */
+    long getLineCount() {
+        return lineCount;
+    }
+
+    /**
+     * Reads and parses a whole dictionary from a channel, decompressing
+     * gzip input on the fly. The channel is read to its end but not
+     * closed.
+     *
+     * @param channel the channel to read.
+     * @param source a name for the input, used in error messages.
+     * @throws RuntimeException If the input is malformed, compressed in
+     * an unsupported format, or an error occurs during reading.
+     */
+    void read(final ReadableByteChannel channel, final String source) {
+        ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE)
+            .order(ByteOrder.LITTLE_ENDIAN);
+        try {
+            boolean end = fill(channel, buffer, ZSTD_MAGIC.length);
+            buffer.flip();
+            checkNotZstd(buffer, source);
+            if (startsWith(buffer, GZIP_MAGIC)) {
+                byte[] head = new byte[buffer.remaining()];
+                buffer.get(head);
+                buffer.clear().flip();
+                InputStream compressed = new SequenceInputStream(
+                    new ByteArrayInputStream(head),
+                    Channels.newInputStream(channel));
+                parse(Channels.newChannel(new GZIPInputStream(
+                    compressed, GZIP_BUFFER_SIZE)), buffer, false);
+            } else {
+                parse(channel, buffer, end);
+            }
+        } catch (ZipException e) {
+            throw new RuntimeException(
+                "Corrupt gzip data in resource: " + source);
+        } catch (IOException e) {
+            throw new RuntimeException("Error reading resource: " + source);
+        }
+    }
+
+    /**
+     * Parses every line of a byte range, including a last line without
+     * a line break.
+     *
+     * @param bytes the buffer holding the range.
+     * @param start the offset of the first line.
+     * @param end the offset just past the last line.
+     * @throws RuntimeException If a line is malformed.
+     */
+    void parseAll(final ByteBuffer bytes, final int start, final int end) {
+        ByteBuffer view = bytes.duplicate().order(ByteOrder.LITTLE_ENDIAN);
+        int rest = parseLines(view, start, end);
+        if (rest < end) {
+            parseLine(view, rest, end);
+        }
+    }
+
+    /**
+     * Returns a buffer over the decompressed contents of a whole
+     * dictionary held in memory. Uncompressed input is returned as is.
+     *
+     * @param bytes the dictionary contents.
+     * @param source a name for the input, used in error messages.
+     * @return the decompressed contents.
+     * @throws RuntimeException If the input is compressed in an
+     * unsupported format or the compressed data is corrupt.
+     */
+    static ByteBuffer decompress(final ByteBuffer bytes, final String source) {
+        checkNotZstd(bytes, source);
+        if (!startsWith(bytes, GZIP_MAGIC)) {
+            return bytes;
+        }
+        byte[] compressed = new byte[bytes.remaining()];
+        bytes.duplicate().get(compressed);
+        try (InputStream in = new GZIPInputStream(
+            new ByteArrayInputStream(compressed), GZIP_BUFFER_SIZE)) {
+            return ByteBuffer.wrap(in.readAllBytes());
+        } catch (IOException e) {
+            throw new RuntimeException(
+                "Corrupt gzip data in resource: " + source);
+        }
+    }
+
+    /**
+     * Rejects Zstandard input, which the JDK cannot decompress.
+     *
+     * @param bytes the buffer holding the start of the input.
+     * @param source a name for the input, used in error messages.
+     * @throws RuntimeException If the input is a Zstandard frame.
+     */
+    private static void checkNotZstd(
+        final ByteBuffer bytes,
+        final String source
+    ) {
+        if (startsWith(bytes, ZSTD_MAGIC)) {
+            throw new RuntimeException("Zstandard-compressed input is not "
+                + "supported: " + source + ". Decompress it first, for "
+                + "example by piping 'zstd -dc' into '--dictionary -', "
+                + "or compress it with gzip instead.");
+        }
+    }
+
+    /**
+     * Checks whether the remaining bytes of a buffer start with a
+     * magic number.
+     *
+     * @param bytes the buffer to check.
+     * @param magic the expected leading bytes.
+     * @return {@code true} if the buffer starts with the magic number.
+     */
+    private static boolean startsWith(
+        final ByteBuffer bytes,
+        final byte[] magic
+    ) {
+        if (bytes.remaining() < magic.length) {
+            return false;
+        }
+        for (int i = 0; i < magic.length; i++) {
+            if (bytes.get(bytes.position() + i) != magic[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Reads from a channel until a buffer holds a minimum number of
+     * bytes or the channel ends.
+     *
+     * @param channel the channel to read.
+     * @param buffer the buffer to fill, in write mode.
+     * @param minimum the number of bytes wanted in the buffer.
+     * @return {@code true} if the channel has ended.
+     * @throws IOException If reading fails.
+     */
+    private static boolean fill(
+        final ReadableByteChannel channel,
+        final ByteBuffer buffer,
+        final int minimum
+    ) throws IOException {
+        while (buffer.position() < minimum) {
+            if (channel.read(buffer) < 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Parses a channel line by line. Complete lines are parsed in place;
+     * a line cut off at the end of the buffer is moved to its start
+     * before the next read, and the buffer grows if a single line fills
+     * it.
+     *
+     * @param channel the channel to read.
+     * @param initial the buffer, in read mode, holding the bytes read
+     * so far.
+     * @param ended whether the channel has already ended.
+     * @throws IOException If reading fails.
+     */
+    private void parse(
+        final ReadableByteChannel channel,
+        final ByteBuffer initial,
+        final boolean ended
+    ) throws IOException {
+        ByteBuffer buffer = initial;
+        boolean end = ended;
+        while (true) {
+            int rest = parseLines(buffer, buffer.position(), buffer.limit());
+            if (end) {
+                if (rest < buffer.limit()) {
+                    parseLine(buffer, rest, buffer.limit());
+                }
+                return;
+            }
+            buffer.position(rest);
+            if (rest == 0 && buffer.limit() == buffer.capacity()) {
+                buffer = ByteBuffer.allocateDirect(2 * buffer.capacity())
+                    .order(ByteOrder.LITTLE_ENDIAN).put(buffer);
+            } else {
+                buffer.compact();
+            }
+            end = fill(channel, buffer, buffer.position() + 1);
+            buffer.flip();
+        }
+    }
+
+    /**
+     * Parses the complete lines of a byte range. Line breaks are looked
+     * for eight bytes at a time.
+     *
+     * @param bytes the little-endian buffer holding the range.
+     * @param start the offset of the first line.
+     * @param end the end of the range.
+     * @return the offset of the first byte after the last line break,
+     * where an incomplete line starts.
+     * @throws RuntimeException If a line is malformed.
+     */
+    private int parseLines(
+        final ByteBuffer bytes,
+        final int start,
+        final int end
+    ) {
+        int lineStart = start;
+        int position = start;
+        while (position <= end - Long.BYTES) {
+            long breaks = zeroBytes(bytes.getLong(position) ^ LINE_BREAKS);
+            if (breaks == 0) {
+                position += Long.BYTES;
+            } else {
+                // The lowest flagged byte is exact and comes first in
+                // little-endian order
+                int lineEnd = position
+                    + Long.numberOfTrailingZeros(breaks) / Byte.SIZE;
+                parseLine(bytes, lineStart, lineEnd);
+                lineStart = lineEnd + 1;
+                position = lineStart;
+            }
+        }
+        for (; position < end; position++) {
+            if (bytes.get(position) == '\n') {
+                parseLine(bytes, lineStart, position);
+                lineStart = position + 1;
+            }
+        }
+        return lineStart;
+    }
+
+    /**
+     * Parses one line and passes its entry to the consumer.
+     *
+     * @param bytes the buffer holding the line.
+     * @param start the offset of the line.
+     * @param end the offset just past the line, without its line break.
+     * @throws RuntimeException If the line is malformed.
+     */
+    private void parseLine(
+        final ByteBuffer bytes,
+        final int start,
+        final int end
+    ) {
+        lineCount++;
+        int from = start;
+        int to = end;
+        while (from < to && isBlank(bytes.get(from))) {
+            from++;
+        }
+        while (to > from && isBlank(bytes.get(to - 1))) {
+            to--;
+        }
+        if (from == to) {
+            return;
+        }
+        int wordEnd = from;
+        while (wordEnd < to && !isBlank(bytes.get(wordEnd))) {
+            wordEnd++;
+        }
+        CharSequence word = word(bytes, from, wordEnd);
+        if (word == null) {
+            reject(decode(bytes, from, to));
+            return;
+        }
+        long weight = DEFAULT_WORD_WEIGHT;
+        boolean weighted = wordEnd < to;
+        if (weighted) {
+            int weightStart = wordEnd;
+            while (isBlank(bytes.get(weightStart))) {
+                weightStart++;
+            }
+            weight = weight(bytes, weightStart, to);
+            if (weight < 0) {
+                reject(decode(bytes, from, to));
+                return;
+            }
+        }
+        consumer.accept(word, weight, weighted);
+    }
+
+    /**
+     * Reports a malformed line: fails the load, or passes the line to
+     * the listener in lenient mode.
+     *
+     * @param line the trimmed text of the line.
+     * @throws RuntimeException If no listener is set.
+     */
+    private void reject(final String line) {
+        if (listener == null) {
+            throw invalidLine(lineCount, line);
+        }
+        listener.invalidLine(lineCount, line);
+    }
+
+    /**
+     * Folds the word of a line. ASCII words are validated and
+     * lower-cased eight bytes at a time into a reused view; other words
+     * are decoded and folded with {@link Alphabet#fold(String)}.
+     *
+     * @param bytes the little-endian buffer holding the word.
+     * @param start the offset of the word.
+     * @param end the offset just past the word.
+     * @return the folded word, or {@code null} if it contains anything
+     * but letters.
+     */
+    private CharSequence word(final ByteBuffer bytes, final int start,
+        final int end) {
+        int length = end - start;
+        AsciiWord ascii = asciiWord.reset(length);
+        int position = 0;
+        while (position <= length - Long.BYTES) {
+            long folded = foldAscii(bytes.getLong(start + position));
+            if (folded == -1) {
+                return nonAsciiWord(bytes, start, end);
+            }
+            if (folded == 0) {
+                return null;
+            }
+            ascii.putLong(position, folded);
+            position += Long.BYTES;
+        }
+        if (position < length && length >= Long.BYTES) {
+            // Fold the tail as the last, overlapping, eight bytes
+            position = length - Long.BYTES;
+            long folded = foldAscii(bytes.getLong(start + position));
+            if (folded == -1) {
+                return nonAsciiWord(bytes, start, end);
+            }
+            if (folded == 0) {
+                return null;
+            }
+            ascii.putLong(position, folded);
+            return ascii;
+        }
+        for (; position < length; position++) {
+            byte b = bytes.get(start + position);
+            if (b < 0) {
+                return nonAsciiWord(bytes, start, end);
+            }
+            if (b >= 'A' && b <= 'Z') {
+                b += 'a' - 'A';
+            } else if (b < 'a' || b > 'z') {
+                return null;
+            }
+            ascii.put(position, b);
+        }
+        return ascii;
+    }
+
+    /**
+     * Validates and lower-cases eight bytes of a word at once.
+     *
+     * @param bytes the eight bytes.
+     * @return the lower-cased bytes; {@code -1} if a byte is not ASCII;
+     * {@code 0} if an ASCII byte is not a letter.
+     */
+    private static long foldAscii(final long bytes) {
+        if ((bytes & HIGH_BITS) != 0) {
+            return -1;
+        }
+        long upper = (bytes + FROM_UPPER_A) & ~(bytes + PAST_UPPER_Z)
+            & HIGH_BITS;
+        // 0x80 shifted right twice is the case bit 0x20
+        long folded = bytes | (upper >>> 2);
+        long lower = (folded + FROM_LOWER_A) & ~(folded + PAST_LOWER_Z)
+            & HIGH_BITS;
+        if (lower != HIGH_BITS) {
+            return 0;
+        }
+        return folded;
+    }
+
+    /**
+     * Flags the zero bytes of a {@code long}. The lowest flagged byte is
+     * always a zero byte; bytes above a zero byte may be flagged
+     * spuriously.
+     *
+     * @param bytes the eight bytes.
+     * @return a value with the high bit of each flagged byte set, or
+     * {@code 0} if no byte is zero.
+     */
+    private static long zeroBytes(final long bytes) {
+        return (bytes - ONES) & ~bytes & HIGH_BITS;
+    }
+
+    /**
+     * Decodes and folds a word that contains non-ASCII bytes.
+     *
+     * @param bytes the buffer holding the word.
+     * @param start the offset of the word.
+     * @param end the offset just past the word.
+     * @return the folded word, or {@code null} if it contains anything
+     * but letters.
+     */
+    private static String nonAsciiWord(final ByteBuffer bytes,
+        final int start, final int end) {
+        String folded = Alphabet.fold(decode(bytes, start, end));
+        if (Alphabet.isWord(folded)) {
+            return folded;
+        }
+        return null;
+    }
+
+    /**
+     * Parses the weight column of a line, which must be the last column.
+     *
+     * @param bytes the buffer holding the column.
+     * @param start the offset of the column.
+     * @param end the end of the line, after trailing blanks are removed.
+     * @return the weight, or {@code -1} if the column is not a
+     * non-negative integer or is followed by another column.
+     */
+    private static long weight(final ByteBuffer bytes, final int start,
+        final int end) {
+        int position = start;
+        boolean negative = false;
+        if (bytes.get(position) == '+' || bytes.get(position) == '-') {
+            negative = bytes.get(position) == '-';
+            position++;
+        }
+        if (position == end) {
+            return -1;
+        }
+        long weight = 0;
+        for (; position < end; position++) {
+            int digit = bytes.get(position) - '0';
+            if (digit < 0 || digit >= RADIX
+                || weight > (Long.MAX_VALUE - digit) / RADIX) {
+                return -1;
+            }
+            weight = weight * RADIX + digit;
+        }
+        if (negative && weight != 0) {
+            return -1;
+        }
+        return weight;
+    }
+
+    /**
+     * Checks whether a byte is blank, as {@link String#trim()} defines
+     * it.
+     *
+     * @param b the byte to check.
+     * @return {@code true} for ASCII spaces and control characters.
+     */
+    private static boolean isBlank(final byte b) {
+        return b >= 0 && b <= ' ';
+    }
+
+    /**
+     * Decodes a byte range as UTF-8.
+     *
+     * @param bytes the buffer holding the range.
+     * @param start the offset of the range.
+     * @param end the offset just past the range.
+     * @return the decoded text.
+     */
+    private static String decode(final ByteBuffer bytes, final int start,
+        final int end) {
+        byte[] text = new byte[end - start];
+        bytes.get(start, text);
+        return new String(text, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Creates the exception reported for a malformed dictionary line.
+     *
+     * @param line the offending line.
+     * @return the exception to throw.
+     */
+    static RuntimeException invalidLine(final String line) {
+        return new RuntimeException("Invalid line: \"" + line + "\". "
+            + LINE_FORMAT);
+    }
+
+    /**
+     * Creates the exception reported for a malformed dictionary line
+     * whose number is known.
+     *
+     * @param lineNumber the number of the line, counting from 1.
+     * @param line the offending line.
+     * @return the exception to throw.
+     */
+    static RuntimeException invalidLine(
+        final long lineNumber,
+        final String line
+    ) {
+        return new RuntimeException("Invalid line " + lineNumber + ": \""
+            + line + "\". " + LINE_FORMAT);
+    }
+
+    /**
+     * A folded ASCII word held in a reused byte array. Each byte is one
+     * character, so the word needs no decoding to be read as a
+     * {@link CharSequence}.
+     */
+    private static final class AsciiWord implements CharSequence {
+
+        /**
+         * The characters of the word, one per byte.
+         */
+        private byte[] letters = new byte[INITIAL_WORD_CAPACITY];
+
+        /**
+         * Little-endian view of {@link #letters} for eight-byte writes.
+         */
+        private ByteBuffer view = wrap(letters);
+
+        /**
+         * The length of the word.
+         */
+        private int length;
+
+        /**
+         * Wraps an array for little-endian access.
+         *
+         * @param array the array to wrap.
+         * @return the buffer view of the array.
+         */
+        private static ByteBuffer wrap(final byte[] array) {
+            return ByteBuffer.wrap(array).order(ByteOrder.LITTLE_ENDIAN);
+        }
+
+        /**
+         * Starts a new word, growing the array if needed.
+         *
+         * @param wordLength the length of the new word.
+         * @return this word.
+         */
+        AsciiWord reset(final int wordLength) {
+            if (letters.length < wordLength) {
+                letters = new byte[Math.max(wordLength, 2 * letters.length)];
+                view = wrap(letters);
+            }
+            length = wordLength;
+            return this;
+        }
+
+        /**
+         * Stores one character.
+         *
+         * @param position the position of the character.
+         * @param letter the character.
+         */
+        void put(final int position, final byte letter) {
+            letters[position] = letter;
+        }
+
+        /**
+         * Stores eight characters.
+         *
+         * @param position the position of the first character.
+         * @param eight the characters, the first in the lowest byte.
+         */
+        void putLong(final int position, final long eight) {
+            view.putLong(position, eight);
+        }
+
+        @Override
+        public int length() {
+            return length;
+        }
+
+        @Override
+        public char charAt(final int index) {
+            return (char) letters[index];
+        }
+
+        @Override
+        public CharSequence subSequence(final int start, final int end) {
+            return toString().substring(start, end);
+        }
+
+        @Override
+        public String toString() {
+            return new String(letters, 0, length, StandardCharsets.US_ASCII);
+        }
+    }
+}
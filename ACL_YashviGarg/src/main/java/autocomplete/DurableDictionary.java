@@ -0,0 +1,557 @@
+package autocomplete;
+
+import static autocomplete.Constants.DEFAULT_WORD_WEIGHT;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * A dictionary whose inserts and removals survive a restart.
+ * <p>
+ * The words live in an {@link ACLImplementation} in memory and in a
+ * directory on disk, which holds a {@link CompactTrie} snapshot and a
+ * write-ahead log of the mutations made since. Each mutation is applied
+ * and appended to the log, and the call returns once the log record is
+ * forced to the device. Concurrent writers share one {@code fsync} with
+ * group commit, so throughput grows with the number of writers instead
+ * of being capped by the device's flush latency.
+ * </p>
+ * <p>
+ * When the log grows past a threshold, it is compacted: the current
+ * words are written to a fresh snapshot and the log starts over. Opening
+ * the directory maps the snapshot, unpacks it and replays the short log,
+ * which takes a fraction of a second even after many edits, instead of
+ * parsing the original dictionary and repeating every edit.
+ * </p>
+ * <p>
+ * Every log record sets the state of one word, so replaying records that
+ * are already part of the snapshot does no harm as long as the newer
+ * records are replayed after them. This keeps recovery simple when a
+ * process dies during a compaction. The directory itself is forced to
+ * the device after every rename, so a replaced log is never more
+ * durable than the snapshot that made it redundant.
+ * </p>
+ * <p>
+ * Queries may run concurrently with each other; mutations and the
+ * in-memory part of a compaction exclude them briefly. A mutation is
+ * visible to queries as soon as it is applied, which is before its log
+ * record has been forced: a query may see a word that a crash in the
+ * next few milliseconds would lose. The mutating call itself returns
+ * only once the record is durable, so a caller never acts on a change
+ * that can still be lost.
+ * </p>
+ */
+public final class DurableDictionary implements AutoCompleteIndex, Closeable {
+
+    /**
+     * The log size at which the log is compacted into a new snapshot,
+     * unless another threshold is given.
+     */
+    public static final long DEFAULT_COMPACTION_BYTES = 64L * 1024 * 1024;
+
+    /**
+     * The name of the snapshot file in the directory.
+     */
+    static final String SNAPSHOT_FILE = "dictionary.trie";
+
+    /**
+     * The name of the log file in the directory.
+     */
+    static final String LOG_FILE = "mutations.log";
+
+    /**
+     * The name of the log that receives mutations while a compaction
+     * writes its snapshot.
+     */
+    static final String NEXT_LOG_FILE = "mutations.log.next";
+
+    /**
+     * The words in memory.
+     */
+    private final ACLImplementation acl;
+
+    /**
+     * Held shared by queries and compactions, and exclusively by
+     * mutations, which must append to the log in the order they apply.
+     */
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    /**
+     * Serializes compactions.
+     */
+    private final Object compactionLock = new Object();
+
+    /**
+     * The directory holding the snapshot and the logs.
+     */
+    private final Path directoryPath;
+
+    /**
+     * The snapshot file.
+     */
+    private final Path snapshotPath;
+
+    /**
+     * The log file.
+     */
+    private final Path logPath;
+
+    /**
+     * The log file of a compaction in progress.
+     */
+    private final Path nextLogPath;
+
+    /**
+     * The log size that triggers a compaction.
+     */
+    private final long compactionBytes;
+
+    /**
+     * The number of log records applied when the directory was opened.
+     */
+    private final int replayedMutations;
+
+    /**
+     * The log receiving mutations; replaced by compactions.
+     */
+    private MutationLog log;
+
+    /**
+     * Whether {@link #close} was called.
+     */
+    private boolean closed;
+
+    /**
+     * Opens a dictionary directory, compacting when the log reaches
+     * {@link #DEFAULT_COMPACTION_BYTES}.
+     *
+     * @param directory the directory holding the snapshot and the log;
+     * created if missing.
+     * @param dictionaryPath the dictionary file whose words a new
+     * directory starts with, or {@code null} to start empty. Ignored once
+     * the directory holds a snapshot.
+     * @throws RuntimeException If the directory or the dictionary cannot
+     * be read or written.
+     */
+    public DurableDictionary(
+        final String directory,
+        final String dictionaryPath
+    ) {
+        this(directory, dictionaryPath, DEFAULT_COMPACTION_BYTES);
+    }
+
+    /**
+     * Opens a dictionary directory.
+     *
+     * @param directory the directory holding the snapshot and the log;
+     * created if missing.
+     * @param dictionaryPath the dictionary file whose words a new
+     * directory starts with, or {@code null} to start empty. Ignored once
+     * the directory holds a snapshot.
+     * @param compactionThreshold the log size in bytes at which the log
+     * is compacted into a new snapshot.
+     * @throws IllegalArgumentException if {@code compactionThreshold} is
+     * not positive.
+     * @throws RuntimeException If the directory or the dictionary cannot
+     * be read or written.
+     */
+    public DurableDictionary(
+        final String directory,
+        final String dictionaryPath,
+        final long compactionThreshold
+    ) {
+        if (compactionThreshold <= 0) {
+            throw new IllegalArgumentException(
+                "Compaction threshold must be positive: "
+                + compactionThreshold);
+        }
+        Path dir = Paths.get(directory);
+        try {
+            Files.createDirectories(dir);
+        } catch (IOException e) {
+            throw new RuntimeException(
+                "Error creating directory: " + directory);
+        }
+        this.directoryPath = dir;
+        this.snapshotPath = dir.resolve(SNAPSHOT_FILE);
+        this.logPath = dir.resolve(LOG_FILE);
+        this.nextLogPath = dir.resolve(NEXT_LOG_FILE);
+        this.compactionBytes = compactionThreshold;
+
+        boolean hasSnapshot = Files.exists(snapshotPath);
+        TrieNode root;
+        if (hasSnapshot) {
+            root = CompactTrie.mapSnapshot(snapshotPath.toString()).toTrie();
+        } else if (dictionaryPath != null) {
+            root = TrieFileBuilder.buildTrieFromFile(dictionaryPath);
+        } else {
+            root = new TrieNode();
+        }
+        acl = new ACLImplementation(root);
+        boolean interrupted = Files.exists(nextLogPath);
+        replayedMutations = MutationLog.replay(logPath, this::apply)
+            + MutationLog.replay(nextLogPath, this::apply);
+        if (!hasSnapshot || interrupted) {
+            // Start from a snapshot of everything recovered, so that the
+            // directory is back to one snapshot and one log. The older
+            // log goes first: replaying only the newer one again on top
+            // of the snapshot is harmless, but not the other way round.
+            acl.toCompactTrie().writeSnapshot(snapshotPath.toString());
+            syncDirectory();
+            try {
+                Files.deleteIfExists(logPath);
+                Files.deleteIfExists(nextLogPath);
+            } catch (IOException e) {
+                throw new RuntimeException(
+                    "Error removing compacted log: " + logPath);
+            }
+        }
+        log = MutationLog.open(logPath);
+        syncDirectory();
+    }
+
+    /**
+     * Forces the entries of the directory to the device, so that files
+     * created, renamed or deleted before survive a crash in that state.
+     *
+     * @throws RuntimeException If the directory cannot be synced.
+     */
+    private void syncDirectory() {
+        try (FileChannel dir = FileChannel.open(directoryPath,
+            StandardOpenOption.READ)) {
+            dir.force(true);
+        } catch (IOException e) {
+            throw new RuntimeException(
+                "Error syncing directory: " + directoryPath);
+        }
+    }
+
+    /**
+     * Applies a logged mutation to the words in memory.
+     *
+     * @param operation the logged operation.
+     * @param word the folded word.
+     * @param weight the weight of the word.
+     */
+    private void apply(
+        final byte operation,
+        final String word,
+        final long weight
+    ) {
+        switch (operation) {
+            case MutationLog.PUT:
+                acl.insert(word, weight);
+                break;
+            case MutationLog.ADD:
+                acl.insert(word);
+                break;
+            case MutationLog.REMOVE:
+                acl.remove(word);
+                break;
+            default:
+                throw new RuntimeException(
+                    "Unknown mutation in log: " + operation);
+        }
+    }
+
+    /**
+     * Inserts a word durably. If the word is new it receives
+     * {@link Constants#DEFAULT_WORD_WEIGHT}; an existing word keeps its
+     * current weight.
+     *
+     * @param word the word to insert. The word is automatically converted
+     * to lowercase before insertion.
+     * @throws IllegalArgumentException if the word contains anything but
+     * letters.
+     * @throws IllegalStateException if the dictionary is closed.
+     * @throws RuntimeException If the log cannot be written.
+     */
+    public void insert(final String word) {
+        mutate(MutationLog.ADD, word, DEFAULT_WORD_WEIGHT);
+    }
+
+    /**
+     * Inserts a word durably with the given ranking weight. If the word
+     * already exists its weight is replaced.
+     *
+     * @param word the word to insert. The word is automatically converted
+     * to lowercase before insertion.
+     * @param weight the non-negative ranking weight of the word.
+     * @throws IllegalArgumentException if the word contains anything but
+     * letters, or {@code weight} is negative.
+     * @throws IllegalStateException if the dictionary is closed.
+     * @throws RuntimeException If the log cannot be written.
+     */
+    public void insert(final String word, final long weight) {
+        if (weight < 0) {
+            throw new IllegalArgumentException(
+                "Word weight must not be negative: " + weight);
+        }
+        mutate(MutationLog.PUT, word, weight);
+    }
+
+    /**
+     * Removes a word durably. If the word does not exist, nothing is
+     * logged.
+     *
+     * @param word the word to remove. The word is automatically converted
+     * to lowercase before removal.
+     * @throws IllegalStateException if the dictionary is closed.
+     * @throws RuntimeException If the log cannot be written.
+     */
+    public void remove(final String word) {
+        mutate(MutationLog.REMOVE, word, 0);
+    }
+
+    /**
+     * Logs and applies a mutation, then waits until its log record is
+     * durable. The wait happens outside the lock, so writers arriving in
+     * the meantime join the same group commit.
+     *
+     * @param operation the operation.
+     * @param word the word as given by the caller.
+     * @param weight the weight of the word.
+     */
+    private void mutate(
+        final byte operation,
+        final String word,
+        final long weight
+    ) {
+        String folded = Alphabet.fold(word);
+        if (operation != MutationLog.REMOVE && !Alphabet.isWord(folded)) {
+            throw new IllegalArgumentException(
+                "Words must contain only letters: " + word);
+        }
+        MutationLog target;
+        long position;
+        lock.writeLock().lock();
+        try {
+            checkOpen();
+            if (operation != MutationLog.PUT && isNoOp(operation, folded)) {
+                return;
+            }
+            target = log;
+            position = target.append(operation, folded, weight);
+            apply(operation, folded, weight);
+        } finally {
+            lock.writeLock().unlock();
+        }
+        target.sync(position);
+        if (position >= compactionBytes) {
+            compact(compactionBytes);
+        }
+    }
+
+    /**
+     * Checks whether a mutation would leave the words unchanged, so that
+     * it need not be logged.
+     *
+     * @param operation {@link MutationLog#ADD} or
+     * {@link MutationLog#REMOVE}.
+     * @param folded the folded word.
+     * @return {@code true} for adding a present word or removing an
+     * absent one.
+     */
+    private boolean isNoOp(final byte operation, final String folded) {
+        boolean present = acl.search(folded);
+        if (operation == MutationLog.ADD) {
+            return present;
+        }
+        return !present;
+    }
+
+    /**
+     * Writes the current words to a fresh snapshot and starts a new log.
+     * Mutations wait only while the words are packed in memory; the
+     * snapshot is written while they continue into the new log. The
+     * writer whose mutation takes the log past the compaction threshold
+     * runs this before returning.
+     *
+     * @throws IllegalStateException if the dictionary is closed.
+     * @throws RuntimeException If the snapshot or the log cannot be
+     * written.
+     */
+    public void compact() {
+        compact(0);
+    }
+
+    /**
+     * Compacts the log unless it is smaller than a threshold, e.g.
+     * because another writer compacted it first.
+     *
+     * @param threshold the smallest log size worth compacting.
+     */
+    private void compact(final long threshold) {
+        synchronized (compactionLock) {
+            MutationLog previous;
+            CompactTrie packed;
+            lock.readLock().lock();
+            try {
+                checkOpen();
+                if (log.position() < threshold) {
+                    return;
+                }
+                previous = log;
+                log = MutationLog.open(nextLogPath);
+                // Records synced to the new log must not outlive its name
+                syncDirectory();
+                packed = acl.toCompactTrie();
+            } finally {
+                lock.readLock().unlock();
+            }
+            try {
+                previous.close();
+            } catch (IOException e) {
+                throw new RuntimeException(
+                    "Error closing mutation log: " + logPath, e);
+            }
+            packed.writeSnapshot(snapshotPath.toString());
+            // The old log may only go once the new snapshot is durable
+            syncDirectory();
+            try {
+                Files.move(nextLogPath, logPath,
+                    StandardCopyOption.REPLACE_EXISTING,
+                    StandardCopyOption.ATOMIC_MOVE);
+            } catch (IOException e) {
+                throw new RuntimeException(
+                    "Error replacing mutation log: " + logPath);
+            }
+            syncDirectory();
+        }
+    }
+
+    /**
+     * Returns the number of log records applied when the directory was
+     * opened.
+     *
+     * @return the replayed mutation count.
+     */
+    public int getReplayedMutations() {
+        return replayedMutations;
+    }
+
+    /**
+     * Returns the number of words in the dictionary.
+     *
+     * @return the word count.
+     */
+    public int size() {
+        return countWithPrefix("");
+    }
+
+    /**
+     * Counts the words starting with a prefix.
+     *
+     * @param prefix the prefix. The prefix is automatically converted to
+     * lowercase before searching.
+     * @return the number of words starting with it.
+     */
+    public int countWithPrefix(final String prefix) {
+        lock.readLock().lock();
+        try {
+            return acl.countWithPrefix(prefix);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public boolean search(final String word) {
+        lock.readLock().lock();
+        try {
+            return acl.search(word);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public List<String> getWordsWithPrefix(final String prefix) {
+        lock.readLock().lock();
+        try {
+            return acl.getWordsWithPrefix(prefix);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Passes every word starting with a prefix to a consumer. Mutations
+     * wait until the traversal ends, so the consumer should not block.
+     *
+     * @param prefix the prefix to search for.
+     * @param consumer the consumer receiving each completion; returning
+     * {@code false} stops the traversal.
+     */
+    @Override
+    public void forEachCompletion(
+        final CharSequence prefix,
+        final CompletionConsumer consumer
+    ) {
+        lock.readLock().lock();
+        try {
+            acl.forEachCompletion(prefix, consumer);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Retrieves the k highest-weighted words starting with a prefix.
+     *
+     * @param prefix the prefix to search for.
+     * @param k the maximum number of words to return.
+     * @return the top words, highest weight first.
+     */
+    public List<String> getTopCompletions(final String prefix, final int k) {
+        lock.readLock().lock();
+        try {
+            return acl.getTopCompletions(prefix, k);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Makes every logged mutation durable and closes the log. The
+     * dictionary cannot be used afterwards; reopening the directory
+     * restores it. Closing twice has no effect.
+     *
+     * @throws IOException If the log cannot be written or closed.
+     */
+    @Override
+    public void close() throws IOException {
+        synchronized (compactionLock) {
+            lock.writeLock().lock();
+            try {
+                if (closed) {
+                    return;
+                }
+                closed = true;
+                log.close();
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+    }
+
+    /**
+     * Throws if the dictionary is closed.
+     *
+     * @throws IllegalStateException if {@link #close} was called.
+     */
+    private void checkOpen() {
+        if (closed) {
+            throw new IllegalStateException("The dictionary is closed");
+        }
+    }
+}
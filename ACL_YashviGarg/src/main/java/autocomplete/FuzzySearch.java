@@ -0,0 +1,285 @@
+package autocomplete;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.PriorityQueue;
+
+/**
+ * Typo-tolerant prefix completion over a Trie.
+ * <p>
+ * A word matches a query if some prefix of the word is within a given
+ * edit distance of the query, so "recieve" completes to "receive",
+ * "received" and "receiver". The distance counts insertions, deletions,
+ * substitutions and swaps of two adjacent letters (the optimal string
+ * alignment distance), since swapped letters are among the most common
+ * typos. The search walks a Levenshtein automaton in lockstep with the
+ * Trie: every visited node carries the row of the edit-distance table
+ * between the query and the path to the node. Only cells within the
+ * distance bound of the diagonal are computed, and the minimum of a row
+ * never decreases further down the Trie, so a subtree whose row minimum
+ * exceeds the bound is skipped as a whole.
+ * </p>
+ * <p>
+ * Nodes are expanded best-first, ordered by the smallest distance any
+ * word below them can reach and then by their maximum word weight, so
+ * the search stops as soon as the best {@code k} words are known
+ * instead of collecting every match.
+ * </p>
+ */
+final class FuzzySearch {
+
+    /**
+     * Private constructor to prevent instantiation of this utility class.
+     */
+    private FuzzySearch() {
+        throw new UnsupportedOperationException(
+            "FuzzySearch class cannot be instantiated."
+        );
+    }
+
+    /**
+     * Finds the best completions of a query within an edit distance.
+     *
+     * @param root the root node of the Trie.
+     * @param query the lowercase query.
+     * @param maxEdits the maximum number of insertions, deletions,
+     * substitutions and adjacent swaps between the query and a prefix of
+     * a word.
+     * @param k the maximum number of words to return.
+     * @return at most {@code k} words, ordered by edit distance, then by
+     * descending weight, then lexicographically.
+     */
+    static List<String> topCompletions(
+        final TrieNode root,
+        final String query,
+        final int maxEdits,
+        final int k
+    ) {
+        List<String> result = new ArrayList<>();
+        if (k == 0) {
+            return result;
+        }
+        int[] firstRow = new int[query.length() + 1];
+        for (int j = 0; j < firstRow.length; j++) {
+            firstRow[j] = Math.min(j, maxEdits + 1);
+        }
+        PriorityQueue<Candidate> queue = new PriorityQueue<>();
+        int rootMatched = firstRow[query.length()];
+        queue.add(new Candidate(lowerBound(firstRow, rootMatched),
+            root.getMaxWeight(), root, "", firstRow, null, rootMatched));
+        while (!queue.isEmpty() && result.size() < k) {
+            Candidate candidate = queue.poll();
+            TrieNode node = candidate.node;
+            if (node == null) {
+                result.add(candidate.word);
+                continue;
+            }
+            if (node.isWordEnd() && candidate.matched <= maxEdits) {
+                queue.add(new Candidate(candidate.matched, node.getWeight(),
+                    null, candidate.word, null, null, candidate.matched));
+            }
+            for (int i = node.nextChildIndex(0); i >= 0;
+                 i = node.nextChildIndex(i + 1)) {
+                char ch = Alphabet.letter(i);
+                int[] row = nextRow(candidate, query, ch, maxEdits);
+                int matched = Math.min(candidate.matched, row[query.length()]);
+                int bound = lowerBound(row, matched);
+                // Build the path only for subtrees that can still match
+                if (bound <= maxEdits) {
+                    TrieNode child = node.getChild(i);
+                    queue.add(new Candidate(bound, child.getMaxWeight(), child,
+                        candidate.word + ch, row, candidate.row, matched));
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Computes the smallest edit distance any word in a subtree can have.
+     *
+     * @param row the edit-distance row at the subtree root.
+     * @param matched the smallest distance between the whole query and a
+     * prefix of the path to the subtree root.
+     * @return the lower bound.
+     */
+    private static int lowerBound(final int[] row, final int matched) {
+        int bound = matched;
+        for (int distance : row) {
+            bound = Math.min(bound, distance);
+        }
+        return bound;
+    }
+
+    /**
+     * Computes the edit-distance row after appending a character to the
+     * path of a candidate. Cells further than {@code maxEdits} from the
+     * diagonal, and cells whose distance exceeds {@code maxEdits}, hold
+     * {@code maxEdits + 1}.
+     *
+     * @param parent the candidate being expanded.
+     * @param query the lowercase query.
+     * @param ch the appended character.
+     * @param maxEdits the distance bound.
+     * @return the row at the child node.
+     */
+    private static int[] nextRow(
+        final Candidate parent,
+        final String query,
+        final char ch,
+        final int maxEdits
+    ) {
+        int[] row = parent.row;
+        int[] swapRow = parent.parentRow;
+        int depth = parent.word.length() + 1;
+        int cap = maxEdits + 1;
+        int[] next = new int[row.length];
+        next[0] = Math.min(depth, cap);
+        int from = Math.max(1, depth - maxEdits);
+        int to = Math.min(query.length(), depth + maxEdits);
+        for (int j = 1; j < next.length; j++) {
+            if (j < from || j > to) {
+                next[j] = cap;
+                continue;
+            }
+            int substitution = row[j - 1];
+            if (query.charAt(j - 1) != ch) {
+                substitution++;
+            }
+            int best = Math.min(row[j] + 1, next[j - 1] + 1);
+            best = Math.min(best, substitution);
+            if (swapRow != null && j > 1
+                && query.charAt(j - 1) == parent.word.charAt(depth - 2)
+                && query.charAt(j - 2) == ch) {
+                best = Math.min(best, swapRow[j - 2] + 1);
+            }
+            next[j] = Math.min(best, cap);
+        }
+        return next;
+    }
+
+    /**
+     * An entry in the best-first search: either a subtree still to be
+     * expanded or a finished word ready to be emitted.
+     */
+    private static final class Candidate implements Comparable<Candidate> {
+
+        /**
+         * The smallest edit distance any word of the candidate can have.
+         * Exact for a finished word.
+         */
+        private final int distance;
+
+        /**
+         * The maximum word weight of the subtree, or the word weight of
+         * a finished word.
+         */
+        private final long weight;
+
+        /**
+         * The subtree root to expand, or {@code null} for a finished word.
+         */
+        private final TrieNode node;
+
+        /**
+         * The word, or the path leading to {@link #node}.
+         */
+        private final String word;
+
+        /**
+         * The edit-distance row at {@link #node}, or {@code null} for a
+         * finished word.
+         */
+        private final int[] row;
+
+        /**
+         * The edit-distance row at the parent of {@link #node}, needed for
+         * adjacent swaps, or {@code null}.
+         */
+        private final int[] parentRow;
+
+        /**
+         * The smallest distance between the whole query and a prefix of
+         * {@link #word}.
+         */
+        private final int matched;
+
+        /**
+         * Constructs a new search candidate.
+         *
+         * @param candidateDistance the smallest reachable distance.
+         * @param candidateWeight the ordering weight.
+         * @param candidateNode the subtree to expand, or {@code null}.
+         * @param candidateWord the word or path of the candidate.
+         * @param candidateRow the edit-distance row, or {@code null}.
+         * @param candidateParentRow the row at the parent, or {@code null}.
+         * @param candidateMatched the best whole-query distance so far.
+         */
+        Candidate(
+            final int candidateDistance,
+            final long candidateWeight,
+            final TrieNode candidateNode,
+            final String candidateWord,
+            final int[] candidateRow,
+            final int[] candidateParentRow,
+            final int candidateMatched
+        ) {
+            this.distance = candidateDistance;
+            this.weight = candidateWeight;
+            this.node = candidateNode;
+            this.word = candidateWord;
+            this.row = candidateRow;
+            this.parentRow = candidateParentRow;
+            this.matched = candidateMatched;
+        }
+
+        /**
+         * Orders candidates by ascending distance, then by descending
+         * weight, then lexicographically. A finished word comes before a
+         * subtree with the same path.
+         *
+         * @param other the candidate to compare with.
+         * @return a negative number if this candidate should be polled
+         * first, a positive number if {@code other} should, else zero.
+         */
+        @Override
+        public int compareTo(final Candidate other) {
+            int byDistance = Integer.compare(distance, other.distance);
+            if (byDistance != 0) {
+                return byDistance;
+            }
+            int byWeight = Long.compare(other.weight, weight);
+            if (byWeight != 0) {
+                return byWeight;
+            }
+            int byWord = word.compareTo(other.word);
+            if (byWord != 0) {
+                return byWord;
+            }
+            return Boolean.compare(node != null, other.node != null);
+        }
+
+        /**
+         * Checks equality consistently with {@link #compareTo(Candidate)}.
+         *
+         * @param obj the object to compare with.
+         * @return {@code true} if both candidates have the same ordering key.
+         */
+        @Override
+        public boolean equals(final Object obj) {
+            return obj instanceof Candidate
+                && compareTo((Candidate) obj) == 0;
+        }
+
+        /**
+         * Computes a hash code consistent with {@link #equals(Object)}.
+         *
+         * @return the hash code of this candidate.
+         */
+        @Override
+        public int hashCode() {
+            return Objects.hash(distance, weight, word, node != null);
+        }
+    }
+}
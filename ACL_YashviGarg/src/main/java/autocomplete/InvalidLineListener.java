@@ -0,0 +1,24 @@
+package autocomplete;
+
+/**
+ * Receives the malformed lines of a dictionary loaded in lenient mode.
+ * A lenient load skips such lines and keeps going instead of failing
+ * on the first one, so a few bad lines in a large upstream word list
+ * do not discard the rest of it.
+ * <p>
+ * Lines are reported in file order. A line is malformed if it holds
+ * more than a word and a weight, if its word contains anything but
+ * letters, or if its weight is not a non-negative integer.
+ * </p>
+ */
+@FunctionalInterface
+public interface InvalidLineListener {
+
+    /**
+     * Accepts one skipped line.
+     *
+     * @param lineNumber the number of the line, counting from 1.
+     * @param line the text of the line, without surrounding whitespace.
+     */
+    void invalidLine(long lineNumber, String line);
+}
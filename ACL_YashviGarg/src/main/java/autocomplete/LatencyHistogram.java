@@ -0,0 +1,193 @@
+package autocomplete;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A concurrent histogram of latencies in the style of HdrHistogram.
+ * <p>
+ * Values are counted in log-linear buckets: every power of two is split
+ * into 32 equal sub-buckets, so a recorded value is known to within
+ * about 3% of itself whether it is 50 nanoseconds or 5 seconds, and the
+ * whole range of {@code long} fits in a fixed array of counters.
+ * Recording a value takes no lock and allocates nothing.
+ * </p>
+ * <p>
+ * Values recorded while the histogram is being read may or may not be
+ * included in the result, so a percentile and a count read one after
+ * the other can disagree by the values recorded in between.
+ * </p>
+ */
+public final class LatencyHistogram {
+
+    /**
+     * Number of sub-buckets per power of two; a power of two itself.
+     */
+    static final int SUB_BUCKETS = 32;
+
+    /**
+     * The base-2 logarithm of {@link #SUB_BUCKETS}.
+     */
+    private static final int SUB_BUCKET_BITS =
+        Integer.numberOfTrailingZeros(SUB_BUCKETS);
+
+    /**
+     * Number of buckets needed to cover every non-negative {@code long}.
+     */
+    private static final int BUCKETS =
+        (Long.SIZE - SUB_BUCKET_BITS) * SUB_BUCKETS;
+
+    /**
+     * The largest percentile.
+     */
+    private static final double MAX_PERCENTILE = 100.0;
+
+    /**
+     * The number of values recorded in each bucket.
+     */
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+
+    /**
+     * The sum of the recorded values.
+     */
+    private final LongAdder total = new LongAdder();
+
+    /**
+     * The largest recorded value.
+     */
+    private final LongAccumulator max = new LongAccumulator(Math::max, 0);
+
+    /**
+     * Records one value.
+     *
+     * @param value the value, e.g. a latency in nanoseconds. Negative
+     * values, which a clock adjustment can produce, are recorded as 0.
+     */
+    public void record(final long value) {
+        long nonNegative = Math.max(0, value);
+        counts.incrementAndGet(bucketOf(nonNegative));
+        total.add(nonNegative);
+        max.accumulate(nonNegative);
+    }
+
+    /**
+     * Returns the number of recorded values.
+     *
+     * @return the count.
+     */
+    public long getCount() {
+        long count = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            count += counts.get(i);
+        }
+        return count;
+    }
+
+    /**
+     * Returns the exact mean of the recorded values.
+     *
+     * @return the mean, or 0 if nothing was recorded.
+     */
+    public double getMean() {
+        long count = getCount();
+        if (count == 0) {
+            return 0;
+        }
+        return (double) total.sum() / count;
+    }
+
+    /**
+     * Returns the exact largest recorded value.
+     *
+     * @return the maximum, or 0 if nothing was recorded.
+     */
+    public long getMax() {
+        return max.get();
+    }
+
+    /**
+     * Returns the value below or at which a given percentage of the
+     * recorded values fall. The result is the largest value of its
+     * bucket, so it is at most about 3% above the exact percentile, and
+     * never above {@link #getMax()}.
+     *
+     * @param percentile the percentage, from 0 to 100.
+     * @return the value at the percentile, or 0 if nothing was recorded.
+     * @throws IllegalArgumentException if {@code percentile} is not
+     * between 0 and 100.
+     */
+    public long getValueAtPercentile(final double percentile) {
+        if (!(percentile >= 0 && percentile <= MAX_PERCENTILE)) {
+            throw new IllegalArgumentException(
+                "Percentile must be between 0 and 100: " + percentile);
+        }
+        long[] snapshot = new long[BUCKETS];
+        long count = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            snapshot[i] = counts.get(i);
+            count += snapshot[i];
+        }
+        if (count == 0) {
+            return 0;
+        }
+        long rank = Math.max(1,
+            (long) Math.ceil(percentile / MAX_PERCENTILE * count));
+        long seen = 0;
+        int bucket = 0;
+        while (bucket < BUCKETS - 1) {
+            seen += snapshot[bucket];
+            if (seen >= rank) {
+                break;
+            }
+            bucket++;
+        }
+        return Math.min(highestValueIn(bucket), getMax());
+    }
+
+    /**
+     * Forgets all recorded values. Values recorded concurrently may be
+     * partly kept.
+     */
+    public void reset() {
+        for (int i = 0; i < BUCKETS; i++) {
+            counts.set(i, 0);
+        }
+        total.reset();
+        max.reset();
+    }
+
+    /**
+     * Returns the bucket counting a value. Values below
+     * {@link #SUB_BUCKETS} have a bucket each; above that, the exponent
+     * of the value selects a group of buckets and the bits just below its
+     * highest bit select the bucket in the group.
+     *
+     * @param value the non-negative value.
+     * @return the index of the bucket.
+     */
+    static int bucketOf(final long value) {
+        if (value < SUB_BUCKETS) {
+            return (int) value;
+        }
+        int exponent = Long.SIZE - 1 - Long.numberOfLeadingZeros(value);
+        int shift = exponent - SUB_BUCKET_BITS;
+        return (shift + 1) * SUB_BUCKETS
+            + (int) ((value >>> shift) & (SUB_BUCKETS - 1));
+    }
+
+    /**
+     * Returns the largest value counted by a bucket.
+     *
+     * @param bucket the index of the bucket.
+     * @return the largest value that {@link #bucketOf} maps to it.
+     */
+    static long highestValueIn(final int bucket) {
+        if (bucket < SUB_BUCKETS) {
+            return bucket;
+        }
+        int shift = bucket / SUB_BUCKETS - 1;
+        long lowest = (long) (SUB_BUCKETS + bucket % SUB_BUCKETS) << shift;
+        return lowest + (1L << shift) - 1;
+    }
+}
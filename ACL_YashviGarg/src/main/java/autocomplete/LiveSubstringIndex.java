@@ -0,0 +1,209 @@
+package autocomplete;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.function.Predicate;
+
+/**
+ * A {@link SubstringIndex} kept in step with a changing Trie.
+ * <p>
+ * The index itself is read-only, so the words inserted into or removed
+ * from the Trie since it was built are kept beside it: matches of a
+ * removed word are dropped, and the inserted words are checked one by
+ * one and merged into the result. Results are therefore always exact.
+ * Once the pending changes reach 1/{@value #PENDING_DIVISOR} of the
+ * index, or {@value #MIN_PENDING} for small ones, the change that
+ * crosses the threshold rebuilds the index. A rebuild takes about half
+ * a second on the default dictionary, so it costs each mutation about
+ * 50 µs on average, and a query checks at most about 12,000 pending
+ * words. Queries never rebuild the index.
+ * </p>
+ * <p>
+ * Like the Trie, an instance may be read by several threads, but it
+ * must not be changed while it is read.
+ * </p>
+ */
+final class LiveSubstringIndex {
+
+    /**
+     * The number of pending changes below which the index is never
+     * rebuilt.
+     */
+    static final int MIN_PENDING = 1024;
+
+    /**
+     * The index is rebuilt once the pending changes exceed its size
+     * divided by this.
+     */
+    static final int PENDING_DIVISOR = 32;
+
+    /**
+     * The root node of the Trie whose words are indexed.
+     */
+    private final TrieNode root;
+
+    /**
+     * Words inserted since the index was built, in lexicographic order.
+     */
+    private final TreeSet<String> added = new TreeSet<>();
+
+    /**
+     * Words of the index removed since it was built.
+     */
+    private final Set<String> removed = new HashSet<>();
+
+    /**
+     * The index of the words when it was last built.
+     */
+    private SubstringIndex index;
+
+    /**
+     * The number of builds, including the first.
+     */
+    private int builds;
+
+    /**
+     * Builds the index of the current words of a Trie.
+     *
+     * @param trieRoot the root node of the Trie.
+     */
+    LiveSubstringIndex(final TrieNode trieRoot) {
+        this.root = trieRoot;
+        rebuild();
+    }
+
+    /**
+     * Records a word that was added to the Trie.
+     *
+     * @param folded the folded word, which was not in the Trie before.
+     */
+    void added(final String folded) {
+        if (!removed.remove(folded)) {
+            added.add(folded);
+        }
+        rebuildIfStale();
+    }
+
+    /**
+     * Records a word that was removed from the Trie.
+     *
+     * @param folded the folded word, which was in the Trie before.
+     */
+    void removed(final String folded) {
+        if (!added.remove(folded)) {
+            removed.add(folded);
+        }
+        rebuildIfStale();
+    }
+
+    /**
+     * Returns the number of changes not yet built into the index.
+     *
+     * @return the pending change count.
+     */
+    int getPendingChanges() {
+        return added.size() + removed.size();
+    }
+
+    /**
+     * Returns the number of times the index was built.
+     *
+     * @return the build count, at least 1.
+     */
+    int getBuilds() {
+        return builds;
+    }
+
+    /**
+     * Retrieves the words that end with a given suffix.
+     *
+     * @param suffix the suffix to search for.
+     * @return the words in lexicographic order.
+     */
+    List<String> getWordsWithSuffix(final String suffix) {
+        String pattern = Alphabet.fold(suffix);
+        return merge(index.getWordsWithSuffix(suffix),
+            word -> word.endsWith(pattern));
+    }
+
+    /**
+     * Retrieves the words that contain a given string.
+     *
+     * @param infix the string to search for.
+     * @return the words in lexicographic order.
+     */
+    List<String> getWordsContaining(final String infix) {
+        String pattern = Alphabet.fold(infix);
+        return merge(index.getWordsContaining(infix),
+            word -> word.contains(pattern));
+    }
+
+    /**
+     * Applies the pending changes to the matches of the index.
+     *
+     * @param indexed the matches of the index, in lexicographic order.
+     * @param matches tells whether an added word matches the query.
+     * @return the matches among the current words, in lexicographic
+     * order.
+     */
+    private List<String> merge(
+        final List<String> indexed,
+        final Predicate<String> matches
+    ) {
+        if (added.isEmpty() && removed.isEmpty()) {
+            return indexed;
+        }
+        List<String> result = new ArrayList<>(indexed.size());
+        int next = 0;
+        for (String word : added) {
+            if (!matches.test(word)) {
+                continue;
+            }
+            while (next < indexed.size()
+                && indexed.get(next).compareTo(word) < 0) {
+                keep(indexed.get(next++), result);
+            }
+            result.add(word);
+        }
+        while (next < indexed.size()) {
+            keep(indexed.get(next++), result);
+        }
+        return result;
+    }
+
+    /**
+     * Adds a match of the index to a result unless it was removed.
+     *
+     * @param word the match.
+     * @param result the result.
+     */
+    private void keep(final String word, final List<String> result) {
+        if (!removed.contains(word)) {
+            result.add(word);
+        }
+    }
+
+    /**
+     * Rebuilds the index once the pending changes make queries slow.
+     */
+    private void rebuildIfStale() {
+        int limit = Math.max(MIN_PENDING, index.size() / PENDING_DIVISOR);
+        if (getPendingChanges() > limit) {
+            rebuild();
+        }
+    }
+
+    /**
+     * Builds the index of the current words and clears the pending
+     * changes.
+     */
+    private void rebuild() {
+        index = SubstringIndex.fromTrie(root);
+        added.clear();
+        removed.clear();
+        builds++;
+    }
+}
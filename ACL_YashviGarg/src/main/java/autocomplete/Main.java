@@ -1,8 +1,14 @@
 package autocomplete;
 
 import static autocomplete.Constants.HELP_FORMATTER_USAGE_DIRECTION;
+import static autocomplete.Constants.INCORRECT_LENIENT_USAGE_ERROR;
+import static autocomplete.Constants.INCORRECT_SERVE_USAGE_ERROR;
+import static autocomplete.Constants.INCORRECT_SNAPSHOT_USAGE_ERROR;
 import static autocomplete.Constants.INCORRECT_UNION_USAGE_ERROR;
 import static autocomplete.Constants.MISSING_INPUT_ERROR;
+import static autocomplete.Constants.OPTION_COMPILE;
+import static autocomplete.Constants.OPTION_COMPILE_DESCRIPTION;
+import static autocomplete.Constants.OPTION_COMPILE_SHORT;
 import static autocomplete.Constants.OPTION_DICTIONARY;
 import static autocomplete.Constants.OPTION_DICTIONARY_ARGUMENT;
 import static autocomplete.Constants.OPTION_DICTIONARY_DESCRIPTION;
@@ -10,14 +16,28 @@ import static autocomplete.Constants.OPTION_DICTIONARY_SHORT;
 import static autocomplete.Constants.OPTION_HELP;
 import static autocomplete.Constants.OPTION_HELP_DESCRIPTION;
 import static autocomplete.Constants.OPTION_HELP_SHORT;
+import static autocomplete.Constants.OPTION_LENIENT;
+import static autocomplete.Constants.OPTION_LENIENT_DESCRIPTION;
+import static autocomplete.Constants.OPTION_LENIENT_SHORT;
+import static autocomplete.Constants.OPTION_SERVE;
+import static autocomplete.Constants.OPTION_SERVE_ARGUMENT;
+import static autocomplete.Constants.OPTION_SERVE_DESCRIPTION;
+import static autocomplete.Constants.OPTION_SERVE_SHORT;
+import static autocomplete.Constants.OPTION_SNAPSHOT;
+import static autocomplete.Constants.OPTION_SNAPSHOT_ARGUMENT;
+import static autocomplete.Constants.OPTION_SNAPSHOT_DESCRIPTION;
+import static autocomplete.Constants.OPTION_SNAPSHOT_SHORT;
 import static autocomplete.Constants.OPTION_UNION;
 import static autocomplete.Constants.OPTION_UNION_DESCRIPTION;
 import static autocomplete.Constants.OPTION_UNION_SHORT;
 import static autocomplete.Constants.OPTION_VERSION;
 import static autocomplete.Constants.OPTION_VERSION_DESCRIPTION;
 import static autocomplete.Constants.OPTION_VERSION_SHORT;
+import static autocomplete.Constants.STDIN_DICTIONARY;
 
+import java.util.Arrays;
 import java.util.List;
+import java.util.Map;
 import org.apache.commons.cli.CommandLine;
 import org.apache.commons.cli.CommandLineParser;
 import org.apache.commons.cli.DefaultParser;
@@ -78,7 +98,8 @@ public final class Main {
    * for the application.
    * <p>
    * This method sets up options for help, version, dictionary file,
-   * and union functionality, each with corresponding short and long
+   * union, lenient loading, snapshot compilation, snapshot loading and
+   * server mode, each with corresponding short and long
    * flags, descriptions, and arguments (if applicable).
    * </p>
    *
@@ -111,6 +132,29 @@ public final class Main {
             .longOpt(OPTION_UNION)
             .desc(OPTION_UNION_DESCRIPTION)
             .build());
+    options.addOption(
+        Option.builder(OPTION_LENIENT_SHORT)
+            .longOpt(OPTION_LENIENT)
+            .desc(OPTION_LENIENT_DESCRIPTION)
+            .build());
+    options.addOption(
+        Option.builder(OPTION_COMPILE_SHORT)
+            .longOpt(OPTION_COMPILE)
+            .hasArg().argName(OPTION_SNAPSHOT_ARGUMENT)
+            .desc(OPTION_COMPILE_DESCRIPTION)
+            .build());
+    options.addOption(
+        Option.builder(OPTION_SNAPSHOT_SHORT)
+            .longOpt(OPTION_SNAPSHOT)
+            .hasArg().argName(OPTION_SNAPSHOT_ARGUMENT)
+            .desc(OPTION_SNAPSHOT_DESCRIPTION)
+            .build());
+    options.addOption(
+        Option.builder(OPTION_SERVE_SHORT)
+            .longOpt(OPTION_SERVE)
+            .hasArg().argName(OPTION_SERVE_ARGUMENT)
+            .desc(OPTION_SERVE_DESCRIPTION)
+            .build());
     return options;
   }
 
@@ -142,12 +186,54 @@ public final class Main {
         printHelpFormatter();
         return;
       }
-      ACLImplementation acl = new ACLImplementation();
+      if (cmd.hasOption(OPTION_LENIENT)
+          && !cmd.hasOption(OPTION_DICTIONARY)) {
+        System.err.println(INCORRECT_LENIENT_USAGE_ERROR);
+        printHelpFormatter();
+        return;
+      }
+      if (cmd.hasOption(OPTION_SERVE) && (cmd.hasOption(OPTION_COMPILE)
+          || cmd.getArgs().length > 0)) {
+        System.err.println(INCORRECT_SERVE_USAGE_ERROR);
+        printHelpFormatter();
+        return;
+      }
+      if (cmd.hasOption(OPTION_SNAPSHOT)) {
+        if (cmd.hasOption(OPTION_DICTIONARY) || cmd.hasOption(OPTION_UNION)
+            || cmd.hasOption(OPTION_COMPILE)) {
+          System.err.println(INCORRECT_SNAPSHOT_USAGE_ERROR);
+          printHelpFormatter();
+          return;
+        }
+        answer(CompactTrie.mapSnapshot(cmd.getOptionValue(OPTION_SNAPSHOT)),
+            cmd);
+        return;
+      }
+      ACLImplementation acl;
       if (cmd.hasOption(OPTION_DICTIONARY)) {
         String fileName = cmd.getOptionValue(OPTION_DICTIONARY);
-        acl = new ACLImplementation(fileName, !cmd.hasOption(OPTION_UNION));
+        boolean replace = !cmd.hasOption(OPTION_UNION);
+        InvalidLineListener listener = null;
+        if (cmd.hasOption(OPTION_LENIENT)) {
+          listener = (lineNumber, line) -> System.err.println(
+              "Warning: skipping invalid line " + lineNumber + ": \""
+                  + line + "\"");
+        }
+        if (STDIN_DICTIONARY.equals(fileName)) {
+          acl = new ACLImplementation(System.in, replace, listener);
+        } else {
+          acl = new ACLImplementation(fileName, replace, listener);
+        }
+      } else {
+        acl = new ACLImplementation();
       }
-      executeAutoCompletion(acl, cmd.getArgs());
+      if (cmd.hasOption(OPTION_COMPILE)) {
+        String snapshotFile = cmd.getOptionValue(OPTION_COMPILE);
+        acl.toCompactTrie().writeSnapshot(snapshotFile);
+        System.out.println("Compiled dictionary to '" + snapshotFile + "'");
+        return;
+      }
+      answer(acl, cmd);
 
     } catch (RuntimeException e) {
       System.err.println("Error: " + e.getMessage());
@@ -155,23 +241,62 @@ public final class Main {
     }
   }
 
+  /**
+   * Answers the input prefixes with the loaded index, or serves it
+   * when the serve option is given.
+   *
+   * @param index the loaded index.
+   * @param cmd the parsed command-line options.
+   */
+  private void answer(final AutoCompleteIndex index, final CommandLine cmd) {
+    if (cmd.hasOption(OPTION_SERVE)) {
+      serve(index, cmd.getOptionValue(OPTION_SERVE));
+    } else {
+      executeAutoCompletion(index, cmd.getArgs());
+    }
+  }
+
+  /**
+   * Keeps an index resident and answers completion requests on a
+   * loopback port until the process is stopped.
+   *
+   * @param index the index answering the requests.
+   * @param port the port to listen on, {@code 0} for any free port.
+   * @throws IllegalArgumentException if the port is not a valid port
+   *     number.
+   * @see CompletionServer
+   */
+  public void serve(final AutoCompleteIndex index, final String port) {
+    int portNumber;
+    try {
+      portNumber = Integer.parseInt(port);
+    } catch (NumberFormatException e) {
+      throw new IllegalArgumentException("Invalid port '" + port + "'");
+    }
+    try (CompletionServer server = new CompletionServer(index, portNumber)) {
+      System.out.println(
+          "Serving completions on localhost:" + server.getPort());
+      server.run();
+    }
+  }
+
   /**
    * Executes the auto-completion logic for the provided input
    * prefixes.
    * <p>
-   * This method uses the given {@link ACLImplementation} instance
+   * This method uses the given {@link AutoCompleteIndex} instance
    * to retrieve words matching the specified prefixes and prints
    * the results. If no input is provided, it displays an error
    * message and the help formatter.
    * </p>
    *
-   * @param acl  the {@link ACLImplementation} instance used for
+   * @param acl  the {@link AutoCompleteIndex} instance used for
    *             retrieving words with matching prefixes.
    * @param args the array of input prefixes for which
    *             auto-completion results are to be generated.
    */
   public void executeAutoCompletion(
-      final ACLImplementation acl,
+      final AutoCompleteIndex acl,
       final String[] args
   ) {
     if (args.length < 1) {
@@ -180,8 +305,10 @@ public final class Main {
       return;
     }
 
+    Map<String, List<String>> completions =
+        acl.completeAll(Arrays.asList(args));
     for (String prefix : args) {
-      List<String> results = acl.getWordsWithPrefix(prefix);
+      List<String> results = completions.get(prefix);
       if (!results.isEmpty()) {
         System.out.println(
             "Auto-completion results for '" + prefix
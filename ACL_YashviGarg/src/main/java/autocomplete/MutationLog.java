@@ -0,0 +1,443 @@
+package autocomplete;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.CRC32;
+
+/**
+ * An append-only write-ahead log of dictionary mutations.
+ * <p>
+ * The file starts with a header, followed by one record per mutation:
+ * the payload length, a CRC-32 of the payload, and the payload itself,
+ * which holds the operation, the weight and the UTF-8 bytes of the
+ * folded word. A crash can leave the last record half written; replay
+ * detects it by its length or checksum and cuts the file back to the
+ * last complete record.
+ * </p>
+ * <p>
+ * Appending only copies the record into a buffer. {@link #sync} makes
+ * the records up to a position durable with group commit: the first
+ * thread to call it writes and forces everything buffered so far, while
+ * threads that arrive during the write wait and are then covered by the
+ * next write, so one {@code fsync} serves every writer that queued up
+ * behind it.
+ * </p>
+ */
+final class MutationLog implements Closeable {
+
+    /**
+     * Inserts a word with a weight, replacing the weight of an existing
+     * word.
+     */
+    static final byte PUT = 1;
+
+    /**
+     * Inserts a word with a weight, keeping the weight of an existing
+     * word.
+     */
+    static final byte ADD = 2;
+
+    /**
+     * Removes a word.
+     */
+    static final byte REMOVE = 3;
+
+    /**
+     * Magic number at the start of a log file ("ACLW").
+     */
+    private static final int MAGIC = 0x41434C57;
+
+    /**
+     * Version of the log file layout.
+     */
+    private static final int VERSION = 1;
+
+    /**
+     * Size in bytes of the file header: magic and version.
+     */
+    private static final int HEADER_BYTES = 2 * Integer.BYTES;
+
+    /**
+     * Size in bytes of a record header: payload length and checksum.
+     */
+    private static final int RECORD_HEADER_BYTES = 2 * Integer.BYTES;
+
+    /**
+     * Size in bytes of a payload without its word: operation and weight.
+     */
+    private static final int PAYLOAD_HEADER_BYTES = 1 + Long.BYTES;
+
+    /**
+     * Initial size of the append buffers.
+     */
+    private static final int INITIAL_BUFFER_BYTES = 64 * 1024;
+
+    /**
+     * Receives the records of a log during replay.
+     */
+    @FunctionalInterface
+    interface Replayer {
+
+        /**
+         * Applies one logged mutation.
+         *
+         * @param operation {@link #PUT}, {@link #ADD} or {@link #REMOVE}.
+         * @param word the folded word.
+         * @param weight the weight of the word; 0 for removals.
+         */
+        void apply(byte operation, String word, long weight);
+    }
+
+    /**
+     * The log file.
+     */
+    private final Path path;
+
+    /**
+     * The channel appending to the log file.
+     */
+    private final FileChannel channel;
+
+    /**
+     * The records appended but not yet handed to a write.
+     */
+    private ByteBuffer pending = ByteBuffer.allocate(INITIAL_BUFFER_BYTES);
+
+    /**
+     * The buffer the next write will swap in for {@link #pending}.
+     */
+    private ByteBuffer spare = ByteBuffer.allocate(INITIAL_BUFFER_BYTES);
+
+    /**
+     * Computes the record checksums; guarded by this log's monitor.
+     */
+    private final CRC32 crc = new CRC32();
+
+    /**
+     * The file position after the last appended record.
+     */
+    private long appended;
+
+    /**
+     * The file position up to which the records are durable.
+     */
+    private long durable;
+
+    /**
+     * Whether a thread is currently writing and forcing a batch.
+     */
+    private boolean writing;
+
+    /**
+     * The error that made the log unusable, or {@code null}.
+     */
+    private IOException failure;
+
+    /**
+     * Opens a log for appending.
+     *
+     * @param logPath the log file.
+     * @param logChannel the channel, positioned at the end of the file.
+     * @param end the size of the file.
+     */
+    private MutationLog(
+        final Path logPath,
+        final FileChannel logChannel,
+        final long end
+    ) {
+        this.path = logPath;
+        this.channel = logChannel;
+        this.appended = end;
+        this.durable = end;
+    }
+
+    /**
+     * Opens a log for appending, creating it if it does not exist. An
+     * existing log should be replayed first, which also removes a torn
+     * last record.
+     *
+     * @param path the log file.
+     * @return the open log.
+     * @throws RuntimeException If the file cannot be opened or created.
+     */
+    static MutationLog open(final Path path) {
+        FileChannel channel = null;
+        try {
+            channel = FileChannel.open(path, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE);
+            long size = channel.size();
+            if (size == 0) {
+                ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES)
+                    .putInt(MAGIC).putInt(VERSION);
+                header.flip();
+                while (header.hasRemaining()) {
+                    channel.write(header);
+                }
+                channel.force(true);
+                size = HEADER_BYTES;
+            }
+            channel.position(size);
+            return new MutationLog(path, channel, size);
+        } catch (IOException e) {
+            closeQuietly(channel);
+            throw new RuntimeException("Error opening mutation log: " + path);
+        }
+    }
+
+    /**
+     * Reads every complete record of a log. A torn or corrupt record and
+     * everything after it is cut off the file, since it can only have
+     * been written by a process that crashed before acknowledging it.
+     *
+     * @param path the log file; a missing file holds no records.
+     * @param replayer the receiver of the records, in order.
+     * @return the number of records replayed.
+     * @throws RuntimeException If the file cannot be read or is not a
+     * mutation log.
+     */
+    static int replay(final Path path, final Replayer replayer) {
+        if (!Files.exists(path)) {
+            return 0;
+        }
+        try (FileChannel channel = FileChannel.open(path,
+            StandardOpenOption.READ, StandardOpenOption.WRITE)
+        ) {
+            long size = channel.size();
+            if (size == 0) {
+                return 0;
+            }
+            if (size > Integer.MAX_VALUE) {
+                throw new RuntimeException(
+                    "Mutation log too large: " + path);
+            }
+            ByteBuffer buffer = ByteBuffer.allocate((int) size);
+            while (buffer.hasRemaining() && channel.read(buffer) >= 0) {
+                continue;
+            }
+            buffer.flip();
+            if (size < HEADER_BYTES || buffer.getInt() != MAGIC
+                || buffer.getInt() != VERSION) {
+                throw new RuntimeException(
+                    "Not a mutation log: " + path);
+            }
+            int records = 0;
+            CRC32 checksum = new CRC32();
+            while (readRecord(buffer, checksum, replayer)) {
+                records++;
+            }
+            if (buffer.position() < size) {
+                channel.truncate(buffer.position());
+                channel.force(true);
+            }
+            return records;
+        } catch (IOException e) {
+            throw new RuntimeException(
+                "Error reading mutation log: " + path);
+        }
+    }
+
+    /**
+     * Reads and applies the next record of a log.
+     *
+     * @param buffer the log contents, positioned at the record; left
+     * after it, or unchanged if it is incomplete or corrupt.
+     * @param checksum the checksum to compute with.
+     * @param replayer the receiver of the record.
+     * @return {@code true} if a complete record was applied.
+     */
+    private static boolean readRecord(
+        final ByteBuffer buffer,
+        final CRC32 checksum,
+        final Replayer replayer
+    ) {
+        int start = buffer.position();
+        if (buffer.remaining() < RECORD_HEADER_BYTES) {
+            return false;
+        }
+        int length = buffer.getInt(start);
+        int expected = buffer.getInt(start + Integer.BYTES);
+        int payload = start + RECORD_HEADER_BYTES;
+        if (length < PAYLOAD_HEADER_BYTES
+            || length > buffer.limit() - payload) {
+            return false;
+        }
+        checksum.reset();
+        checksum.update(buffer.array(), payload, length);
+        if ((int) checksum.getValue() != expected) {
+            return false;
+        }
+        byte operation = buffer.get(payload);
+        long weight = buffer.getLong(payload + 1);
+        String word = new String(buffer.array(),
+            payload + PAYLOAD_HEADER_BYTES, length - PAYLOAD_HEADER_BYTES,
+            StandardCharsets.UTF_8);
+        replayer.apply(operation, word, weight);
+        buffer.position(payload + length);
+        return true;
+    }
+
+    /**
+     * Buffers a record. It is not durable until {@link #sync} is called
+     * with the returned position or a later one.
+     *
+     * @param operation {@link #PUT}, {@link #ADD} or {@link #REMOVE}.
+     * @param word the folded word.
+     * @param weight the weight of the word.
+     * @return the file position after the record.
+     */
+    synchronized long append(
+        final byte operation,
+        final String word,
+        final long weight
+    ) {
+        byte[] bytes = word.getBytes(StandardCharsets.UTF_8);
+        int length = PAYLOAD_HEADER_BYTES + bytes.length;
+        int size = RECORD_HEADER_BYTES + length;
+        if (pending.remaining() < size) {
+            ByteBuffer grown = ByteBuffer.allocate(
+                Math.max(2 * pending.capacity(), pending.position() + size));
+            pending.flip();
+            pending = grown.put(pending);
+        }
+        int start = pending.position();
+        pending.position(start + RECORD_HEADER_BYTES);
+        pending.put(operation).putLong(weight).put(bytes);
+        crc.reset();
+        crc.update(pending.array(), start + RECORD_HEADER_BYTES, length);
+        pending.putInt(start, length);
+        pending.putInt(start + Integer.BYTES, (int) crc.getValue());
+        appended += size;
+        return appended;
+    }
+
+    /**
+     * Returns the file position after the last appended record.
+     *
+     * @return the position.
+     */
+    synchronized long position() {
+        return appended;
+    }
+
+    /**
+     * Blocks until the records up to a position are written and forced
+     * to the device. Returns at once if they already are.
+     *
+     * @param position a position returned by {@link #append}.
+     * @throws RuntimeException If the log cannot be written; the log
+     * then refuses every later sync.
+     */
+    void sync(final long position) {
+        boolean interrupted = false;
+        try {
+            while (true) {
+                ByteBuffer batch;
+                long end;
+                synchronized (this) {
+                    while (writing && durable < position && failure == null) {
+                        try {
+                            wait();
+                        } catch (InterruptedException e) {
+                            // The record is already applied, so it must
+                            // still be made durable before returning.
+                            interrupted = true;
+                        }
+                    }
+                    checkFailure();
+                    if (durable >= position) {
+                        return;
+                    }
+                    writing = true;
+                    batch = pending;
+                    pending = spare;
+                    end = appended;
+                }
+                IOException error = write(batch);
+                synchronized (this) {
+                    writing = false;
+                    spare = batch;
+                    spare.clear();
+                    if (error == null) {
+                        durable = end;
+                    } else {
+                        failure = error;
+                    }
+                    notifyAll();
+                }
+            }
+        } finally {
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    /**
+     * Writes a batch of records and forces it to the device.
+     *
+     * @param batch the records, from position 0 to the buffer position.
+     * @return the error, or {@code null} on success.
+     */
+    private IOException write(final ByteBuffer batch) {
+        batch.flip();
+        try {
+            while (batch.hasRemaining()) {
+                channel.write(batch);
+            }
+            channel.force(false);
+            return null;
+        } catch (IOException e) {
+            return e;
+        }
+    }
+
+    /**
+     * Throws if an earlier write failed.
+     *
+     * @throws RuntimeException If the log is unusable.
+     */
+    private void checkFailure() {
+        if (failure != null) {
+            throw new RuntimeException(
+                "Error writing mutation log: " + path, failure);
+        }
+    }
+
+    /**
+     * Makes every appended record durable and closes the file.
+     *
+     * @throws IOException If the file cannot be written or closed.
+     */
+    @Override
+    public void close() throws IOException {
+        try {
+            sync(position());
+        } catch (RuntimeException e) {
+            channel.close();
+            throw new IOException(e.getMessage(), e.getCause());
+        }
+        channel.close();
+    }
+
+    /**
+     * Closes a channel, ignoring errors; used on failure paths.
+     *
+     * @param channel the channel, or {@code null}.
+     */
+    private static void closeQuietly(final FileChannel channel) {
+        if (channel == null) {
+            return;
+        }
+        try {
+            channel.close();
+        } catch (IOException e) {
+            // Already failing with a more useful error
+        }
+    }
+}
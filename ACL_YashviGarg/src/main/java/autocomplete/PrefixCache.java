@@ -0,0 +1,392 @@
+package autocomplete;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * A bounded cache of prefix query results for {@link ACLImplementation}.
+ * <p>
+ * Results are cached per prefix, separately for
+ * {@link ACLImplementation#getWordsWithPrefix} and for each {@code k} of
+ * {@link ACLImplementation#getTopCompletions}. When the cache is full the
+ * least recently used ({@link Policy#LRU}) or least frequently used
+ * ({@link Policy#LFU}) entry is evicted; LFU breaks ties by evicting the
+ * least recently used entry among the least frequently used ones. Both
+ * policies run in constant time per operation.
+ * </p>
+ * <p>
+ * Inserting or removing a word only changes the results of the prefixes
+ * of that word, so only those entries are invalidated. All methods are
+ * synchronized, so the hit and miss counters can be read from any
+ * thread.
+ * </p>
+ */
+public final class PrefixCache {
+
+    /**
+     * The eviction policy of a {@link PrefixCache}.
+     */
+    public enum Policy {
+        /**
+         * Evicts the least recently used entry.
+         */
+        LRU,
+        /**
+         * Evicts the least frequently used entry.
+         */
+        LFU
+    }
+
+    /**
+     * The {@code k} used in keys of full prefix listings.
+     */
+    private static final int ALL_WORDS = -1;
+
+    /**
+     * Initial capacity of the result map.
+     */
+    private static final int INITIAL_CAPACITY = 16;
+
+    /**
+     * Load factor of the result map.
+     */
+    private static final float LOAD_FACTOR = 0.75f;
+
+    /**
+     * The maximum number of cached results.
+     */
+    private final int maxEntries;
+
+    /**
+     * The eviction policy.
+     */
+    private final Policy policy;
+
+    /**
+     * The cached results. For LRU the map is kept in access order, so its
+     * first entry is the eviction candidate.
+     */
+    private final LinkedHashMap<Key, List<String>> entries;
+
+    /**
+     * The keys cached for each prefix, used for invalidation.
+     */
+    private final Map<String, Set<Key>> keysByPrefix = new HashMap<>();
+
+    /**
+     * LFU only: the use count of each cached key.
+     */
+    private final Map<Key, Integer> frequencies = new HashMap<>();
+
+    /**
+     * LFU only: the keys with each use count, least recently used first.
+     */
+    private final Map<Integer, LinkedHashSet<Key>> frequencyBuckets =
+        new HashMap<>();
+
+    /**
+     * LFU only: the smallest use count of any cached key.
+     */
+    private int minFrequency;
+
+    /**
+     * The number of lookups that found a cached result.
+     */
+    private long hits;
+
+    /**
+     * The number of lookups that found no cached result.
+     */
+    private long misses;
+
+    /**
+     * Constructs an empty cache.
+     *
+     * @param capacity the maximum number of cached results.
+     * @param evictionPolicy the eviction policy.
+     * @throws IllegalArgumentException if {@code capacity} is not
+     * positive.
+     */
+    public PrefixCache(final int capacity, final Policy evictionPolicy) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException(
+                "Cache capacity must be positive: " + capacity);
+        }
+        this.maxEntries = capacity;
+        this.policy = Objects.requireNonNull(evictionPolicy);
+        this.entries = new LinkedHashMap<>(
+            INITIAL_CAPACITY, LOAD_FACTOR, evictionPolicy == Policy.LRU);
+    }
+
+    /**
+     * Looks up the cached list of all words with a prefix.
+     *
+     * @param prefix the lowercase prefix.
+     * @return the cached words, or {@code null} if none are cached.
+     */
+    synchronized List<String> getWords(final String prefix) {
+        return lookup(new Key(prefix, ALL_WORDS));
+    }
+
+    /**
+     * Caches the list of all words with a prefix.
+     *
+     * @param prefix the lowercase prefix.
+     * @param words the words; the list must not be modified afterwards.
+     */
+    synchronized void putWords(final String prefix, final List<String> words) {
+        store(new Key(prefix, ALL_WORDS), words);
+    }
+
+    /**
+     * Looks up the cached top-K completions of a prefix.
+     *
+     * @param prefix the lowercase prefix.
+     * @param k the number of completions requested.
+     * @return the cached completions, or {@code null} if none are cached.
+     */
+    synchronized List<String> getTop(final String prefix, final int k) {
+        return lookup(new Key(prefix, k));
+    }
+
+    /**
+     * Caches the top-K completions of a prefix.
+     *
+     * @param prefix the lowercase prefix.
+     * @param k the number of completions requested.
+     * @param words the completions; the list must not be modified
+     * afterwards.
+     */
+    synchronized void putTop(
+        final String prefix,
+        final int k,
+        final List<String> words
+    ) {
+        store(new Key(prefix, k), words);
+    }
+
+    /**
+     * Drops every cached result that a change to a word can affect,
+     * namely the results of every prefix of the word, including the
+     * empty prefix and the word itself.
+     *
+     * @param word the lowercase word that was inserted or removed.
+     */
+    synchronized void invalidate(final String word) {
+        for (int i = 0; i <= word.length(); i++) {
+            Set<Key> keys = keysByPrefix.remove(word.substring(0, i));
+            if (keys != null) {
+                for (Key key : keys) {
+                    entries.remove(key);
+                    forgetFrequency(key);
+                }
+            }
+        }
+    }
+
+    /**
+     * Drops every cached result. The hit and miss counters are kept.
+     */
+    public synchronized void clear() {
+        entries.clear();
+        keysByPrefix.clear();
+        frequencies.clear();
+        frequencyBuckets.clear();
+    }
+
+    /**
+     * Returns the number of cached results.
+     *
+     * @return the number of cached results.
+     */
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    /**
+     * Returns the number of lookups answered from the cache.
+     *
+     * @return the hit count.
+     */
+    public synchronized long getHitCount() {
+        return hits;
+    }
+
+    /**
+     * Returns the number of lookups that were not answered from the
+     * cache.
+     *
+     * @return the miss count.
+     */
+    public synchronized long getMissCount() {
+        return misses;
+    }
+
+    /**
+     * Looks up a key, updating the counters and the eviction order.
+     *
+     * @param key the key.
+     * @return the cached result, or {@code null} if there is none.
+     */
+    private List<String> lookup(final Key key) {
+        List<String> words = entries.get(key);
+        if (words == null) {
+            misses++;
+            return null;
+        }
+        hits++;
+        if (policy == Policy.LFU) {
+            touch(key);
+        }
+        return words;
+    }
+
+    /**
+     * Caches a result, evicting an entry first if the cache is full.
+     *
+     * @param key the key.
+     * @param words the result.
+     */
+    private void store(final Key key, final List<String> words) {
+        if (entries.containsKey(key)) {
+            entries.put(key, words);
+            return;
+        }
+        if (entries.size() >= maxEntries) {
+            evict();
+        }
+        entries.put(key, words);
+        keysByPrefix.computeIfAbsent(key.prefix, p -> new HashSet<>())
+            .add(key);
+        if (policy == Policy.LFU) {
+            frequencies.put(key, 1);
+            frequencyBuckets.computeIfAbsent(1, f -> new LinkedHashSet<>())
+                .add(key);
+            minFrequency = 1;
+        }
+    }
+
+    /**
+     * Evicts the entry chosen by the eviction policy.
+     */
+    private void evict() {
+        Key victim;
+        if (policy == Policy.LRU) {
+            victim = entries.keySet().iterator().next();
+        } else {
+            Iterator<Key> candidates =
+                frequencyBuckets.get(minFrequency).iterator();
+            victim = candidates.next();
+        }
+        entries.remove(victim);
+        forgetFrequency(victim);
+        Set<Key> keys = keysByPrefix.get(victim.prefix);
+        keys.remove(victim);
+        if (keys.isEmpty()) {
+            keysByPrefix.remove(victim.prefix);
+        }
+    }
+
+    /**
+     * LFU only: moves a key to the bucket of its next use count.
+     *
+     * @param key the key that was used.
+     */
+    private void touch(final Key key) {
+        int frequency = frequencies.get(key);
+        LinkedHashSet<Key> bucket = frequencyBuckets.get(frequency);
+        bucket.remove(key);
+        if (bucket.isEmpty()) {
+            frequencyBuckets.remove(frequency);
+            if (minFrequency == frequency) {
+                minFrequency = frequency + 1;
+            }
+        }
+        frequencies.put(key, frequency + 1);
+        frequencyBuckets
+            .computeIfAbsent(frequency + 1, f -> new LinkedHashSet<>())
+            .add(key);
+    }
+
+    /**
+     * LFU only: forgets the use count of a key that left the cache.
+     *
+     * @param key the key.
+     */
+    private void forgetFrequency(final Key key) {
+        Integer frequency = frequencies.remove(key);
+        if (frequency == null) {
+            return;
+        }
+        LinkedHashSet<Key> bucket = frequencyBuckets.get(frequency);
+        bucket.remove(key);
+        if (bucket.isEmpty()) {
+            frequencyBuckets.remove(frequency);
+            if (minFrequency == frequency && !frequencies.isEmpty()) {
+                // Only happens on invalidation, which is rare
+                minFrequency = frequencyBuckets.keySet().stream()
+                    .mapToInt(Integer::intValue).min().getAsInt();
+            }
+        }
+    }
+
+    /**
+     * Identifies one cached result: a prefix and the number of requested
+     * completions, or {@link #ALL_WORDS} for the full listing.
+     */
+    private static final class Key {
+
+        /**
+         * The lowercase prefix.
+         */
+        private final String prefix;
+
+        /**
+         * The number of completions, or {@link #ALL_WORDS}.
+         */
+        private final int k;
+
+        /**
+         * Constructs a key.
+         *
+         * @param keyPrefix the lowercase prefix.
+         * @param count the number of completions, or {@link #ALL_WORDS}.
+         */
+        Key(final String keyPrefix, final int count) {
+            this.prefix = keyPrefix;
+            this.k = count;
+        }
+
+        /**
+         * Compares two keys by prefix and number of completions.
+         *
+         * @param obj the object to compare with.
+         * @return {@code true} if both keys identify the same result.
+         */
+        @Override
+        public boolean equals(final Object obj) {
+            if (!(obj instanceof Key)) {
+                return false;
+            }
+            Key other = (Key) obj;
+            return k == other.k && prefix.equals(other.prefix);
+        }
+
+        /**
+         * Computes a hash code consistent with {@link #equals(Object)}.
+         *
+         * @return the hash code of this key.
+         */
+        @Override
+        public int hashCode() {
+            return Objects.hash(prefix, k);
+        }
+    }
+}
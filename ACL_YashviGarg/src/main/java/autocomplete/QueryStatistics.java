@@ -0,0 +1,248 @@
+package autocomplete;
+
+import javax.management.openmbean.CompositeData;
+
+/**
+ * An immutable summary of the queries of one kind recorded by
+ * {@link TrieMetrics}. Counts and totals are scaled by the sample
+ * interval of the metrics; latencies are those of the sampled queries.
+ * Over JMX it appears as composite data with one item per getter.
+ */
+public final class QueryStatistics {
+
+    /**
+     * Position of the median in {@link #latencies}.
+     */
+    private static final int P50 = 0;
+
+    /**
+     * Position of the 90th percentile in {@link #latencies}.
+     */
+    private static final int P90 = 1;
+
+    /**
+     * Position of the 99th percentile in {@link #latencies}.
+     */
+    private static final int P99 = 2;
+
+    /**
+     * Position of the 99.9th percentile in {@link #latencies}.
+     */
+    private static final int P999 = 3;
+
+    /**
+     * Position of the maximum in {@link #latencies}.
+     */
+    private static final int MAX = 4;
+
+    /**
+     * The percentiles summarized, in the order of {@link #latencies}.
+     */
+    private static final double[] PERCENTILES = {50, 90, 99, 99.9};
+
+    /**
+     * The name of the query kind.
+     */
+    private final String query;
+
+    /**
+     * The number of queries.
+     */
+    private final long count;
+
+    /**
+     * The mean latency in nanoseconds.
+     */
+    private final double meanNanos;
+
+    /**
+     * The latency percentiles and maximum in nanoseconds, indexed by
+     * {@link #P50} to {@link #MAX}.
+     */
+    private final long[] latencies;
+
+    /**
+     * The total number of words returned.
+     */
+    private final long results;
+
+    /**
+     * The total size of the subtrees the queries were answered from.
+     */
+    private final long subtreeSize;
+
+    /**
+     * Constructs a summary.
+     *
+     * @param queryName the name of the query kind.
+     * @param queryCount the number of queries.
+     * @param mean the mean latency in nanoseconds.
+     * @param latencyValues the latency percentiles and maximum.
+     * @param resultTotal the total number of words returned.
+     * @param subtreeTotal the total size of the subtrees.
+     */
+    private QueryStatistics(
+        final String queryName,
+        final long queryCount,
+        final double mean,
+        final long[] latencyValues,
+        final long resultTotal,
+        final long subtreeTotal
+    ) {
+        this.query = queryName;
+        this.count = queryCount;
+        this.meanNanos = mean;
+        this.latencies = latencyValues;
+        this.results = resultTotal;
+        this.subtreeSize = subtreeTotal;
+    }
+
+    /**
+     * Summarizes recorded queries.
+     *
+     * @param query the query kind.
+     * @param latency the latencies of the recorded queries.
+     * @param sampleInterval how many queries each recorded one stands for.
+     * @param resultTotal the number of words the recorded queries returned.
+     * @param subtreeTotal the total size of their subtrees.
+     * @return the summary.
+     */
+    static QueryStatistics of(
+        final AutoCompleteMetrics.Query query,
+        final LatencyHistogram latency,
+        final int sampleInterval,
+        final long resultTotal,
+        final long subtreeTotal
+    ) {
+        long[] latencyValues = new long[MAX + 1];
+        for (int i = 0; i < PERCENTILES.length; i++) {
+            latencyValues[i] = latency.getValueAtPercentile(PERCENTILES[i]);
+        }
+        latencyValues[MAX] = latency.getMax();
+        return new QueryStatistics(query.name(),
+            latency.getCount() * sampleInterval, latency.getMean(),
+            latencyValues, resultTotal * sampleInterval,
+            subtreeTotal * sampleInterval);
+    }
+
+    /**
+     * Reconstructs a summary from its JMX form, so that MXBean proxies
+     * can return it.
+     *
+     * @param data the composite data of a summary.
+     * @return the summary.
+     */
+    public static QueryStatistics from(final CompositeData data) {
+        long[] latencyValues = {
+            (Long) data.get("p50Nanos"),
+            (Long) data.get("p90Nanos"),
+            (Long) data.get("p99Nanos"),
+            (Long) data.get("p999Nanos"),
+            (Long) data.get("maxNanos"),
+        };
+        return new QueryStatistics((String) data.get("query"),
+            (Long) data.get("count"), (Double) data.get("meanNanos"),
+            latencyValues, (Long) data.get("results"),
+            (Long) data.get("subtreeSize"));
+    }
+
+    /**
+     * Returns the name of the query kind, one of
+     * {@link AutoCompleteMetrics.Query}.
+     *
+     * @return the query kind.
+     */
+    public String getQuery() {
+        return query;
+    }
+
+    /**
+     * Returns the number of queries, estimated from the recorded ones.
+     *
+     * @return the count.
+     */
+    public long getCount() {
+        return count;
+    }
+
+    /**
+     * Returns the mean latency.
+     *
+     * @return the mean in nanoseconds, or 0 without queries.
+     */
+    public double getMeanNanos() {
+        return meanNanos;
+    }
+
+    /**
+     * Returns the median latency.
+     *
+     * @return the median in nanoseconds, within about 3%.
+     */
+    public long getP50Nanos() {
+        return latencies[P50];
+    }
+
+    /**
+     * Returns the 90th percentile of the latency.
+     *
+     * @return the percentile in nanoseconds, within about 3%.
+     */
+    public long getP90Nanos() {
+        return latencies[P90];
+    }
+
+    /**
+     * Returns the 99th percentile of the latency.
+     *
+     * @return the percentile in nanoseconds, within about 3%.
+     */
+    public long getP99Nanos() {
+        return latencies[P99];
+    }
+
+    /**
+     * Returns the 99.9th percentile of the latency.
+     *
+     * @return the percentile in nanoseconds, within about 3%.
+     */
+    public long getP999Nanos() {
+        return latencies[P999];
+    }
+
+    /**
+     * Returns the largest latency.
+     *
+     * @return the maximum in nanoseconds.
+     */
+    public long getMaxNanos() {
+        return latencies[MAX];
+    }
+
+    /**
+     * Returns the total number of words the queries returned, estimated
+     * from the recorded ones.
+     *
+     * @return the number of results.
+     */
+    public long getResults() {
+        return results;
+    }
+
+    /**
+     * Returns the total number of words below the nodes the queries were
+     * answered from; see {@link AutoCompleteMetrics#recordQuery}.
+     *
+     * @return the total subtree size.
+     */
+    public long getSubtreeSize() {
+        return subtreeSize;
+    }
+
+    @Override
+    public String toString() {
+        return query + "[count=" + count + ", mean=" + Math.round(meanNanos)
+            + "ns, p50=" + getP50Nanos() + "ns, p99=" + getP99Nanos()
+            + "ns, max=" + getMaxNanos() + "ns, results=" + results + "]";
+    }
+}
@@ -0,0 +1,518 @@
+package autocomplete;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * A path-compressed (radix) Trie. Every chain of nodes that have a
+ * single child and end no word is collapsed into one edge carrying the
+ * whole character run, so a long suffix such as "ation" costs one node
+ * instead of five. Lookups follow one edge per branching point and
+ * compare runs of characters, and enumeration visits only branching
+ * points and word ends.
+ * <p>
+ * Nodes split an edge when an inserted word diverges inside it, and a
+ * removal merges a node that no longer branches or ends a word back
+ * into its single child, so the Trie stays fully compressed. Like
+ * {@link ACLImplementation}, the class is not thread-safe.
+ * </p>
+ */
+public final class RadixTrie implements AutoCompleteIndex {
+
+    /**
+     * Edge label of the root, which has no incoming edge.
+     */
+    private static final char[] NO_LABEL = new char[0];
+
+    /**
+     * Largest number of children searched linearly rather than by
+     * binary search.
+     */
+    private static final int LINEAR_SCAN_MAX = 8;
+
+    /**
+     * The root node.
+     */
+    private final Node root = new Node(NO_LABEL);
+
+    /**
+     * The number of words in the Trie.
+     */
+    private int size;
+
+    /**
+     * Constructs an empty RadixTrie.
+     */
+    public RadixTrie() {
+    }
+
+    /**
+     * Builds a RadixTrie holding the same words as a Trie. Each chain of
+     * single-child nodes of the source is collapsed into one edge. The
+     * source is not modified.
+     *
+     * @param trieRoot the root node of the Trie to convert.
+     * @return a RadixTrie holding the same words.
+     */
+    public static RadixTrie fromTrie(final TrieNode trieRoot) {
+        RadixTrie trie = new RadixTrie();
+        trie.root.wordEnd = trieRoot.isWordEnd();
+        trie.size = trie.convertChildren(trieRoot, trie.root);
+        if (trie.root.wordEnd) {
+            trie.size++;
+        }
+        return trie;
+    }
+
+    /**
+     * Converts the children of a Trie node into compressed edges.
+     *
+     * @param source the Trie node whose children are converted.
+     * @param target the radix node receiving the edges.
+     * @return the number of words below the source node.
+     */
+    private int convertChildren(final TrieNode source, final Node target) {
+        int words = 0;
+        int count = source.getChildCount();
+        target.firsts = new char[count];
+        target.children = new Node[count];
+        StringBuilder label = new StringBuilder();
+        int position = 0;
+        for (int i = source.nextChildIndex(0); i >= 0;
+             i = source.nextChildIndex(i + 1)) {
+            label.setLength(0);
+            label.append(Alphabet.letter(i));
+            TrieNode end = source.getChild(i);
+            while (!end.isWordEnd() && end.getChildCount() == 1) {
+                int only = end.nextChildIndex(0);
+                label.append(Alphabet.letter(only));
+                end = end.getChild(only);
+            }
+            Node child = new Node(label.toString().toCharArray());
+            child.wordEnd = end.isWordEnd();
+            if (child.wordEnd) {
+                words++;
+            }
+            target.firsts[position] = child.label[0];
+            target.children[position++] = child;
+            words += convertChildren(end, child);
+        }
+        return words;
+    }
+
+    /**
+     * Inserts a word into the Trie, splitting the edge where the word
+     * diverges from an existing one.
+     *
+     * @param word the word to insert. The word is automatically
+     * converted to lowercase before insertion.
+     * @throws IllegalArgumentException if the word contains anything but
+     * letters.
+     */
+    public void insert(final String word) {
+        String key = Alphabet.fold(word);
+        if (!Alphabet.isWord(key)) {
+            throw new IllegalArgumentException(
+                "Words must contain only letters: " + word);
+        }
+        Node node = root;
+        int depth = 0;
+        while (depth < key.length()) {
+            int position = node.find(key.charAt(depth));
+            if (position < 0) {
+                Node leaf = new Node(key.substring(depth).toCharArray());
+                leaf.wordEnd = true;
+                node.insertChild(-position - 1, leaf);
+                size++;
+                return;
+            }
+            Node child = node.children[position];
+            int common = commonLength(child.label, key, depth);
+            if (common < child.label.length) {
+                // The word leaves the edge part way: split it
+                Node middle = new Node(Arrays.copyOf(child.label, common));
+                child.label = Arrays.copyOfRange(
+                    child.label, common, child.label.length);
+                middle.firsts = new char[] {child.label[0]};
+                middle.children = new Node[] {child};
+                node.children[position] = middle;
+                child = middle;
+            }
+            node = child;
+            depth += common;
+        }
+        if (!node.wordEnd) {
+            node.wordEnd = true;
+            size++;
+        }
+    }
+
+    /**
+     * Searches for a complete word in the Trie.
+     *
+     * @param word the word to search for. The word is
+     * automatically converted to lowercase before searching.
+     * @return {@code true} if the word exists in the Trie;
+     * {@code false} otherwise.
+     */
+    @Override
+    public boolean search(final String word) {
+        String key = Alphabet.fold(word);
+        Node node = root;
+        int depth = 0;
+        while (depth < key.length()) {
+            int position = node.find(key.charAt(depth));
+            if (position < 0) {
+                return false;
+            }
+            node = node.children[position];
+            if (!matches(node.label, key, depth)) {
+                return false;
+            }
+            depth += node.label.length;
+        }
+        return node.wordEnd;
+    }
+
+    /**
+     * Removes a word from the Trie. A node left without children is
+     * unlinked, and a node left with a single child and no word is
+     * merged with that child, so no uncompressed chain remains.
+     *
+     * @param word the word to remove. The word is automatically
+     * converted to lowercase before removal. If the word does not
+     * exist, no action is taken.
+     */
+    public void remove(final String word) {
+        String key = Alphabet.fold(word);
+        Node parent = null;
+        int position = -1;
+        Node node = root;
+        int depth = 0;
+        while (depth < key.length()) {
+            int next = node.find(key.charAt(depth));
+            if (next < 0) {
+                return;
+            }
+            Node child = node.children[next];
+            if (!matches(child.label, key, depth)) {
+                return;
+            }
+            parent = node;
+            position = next;
+            node = child;
+            depth += child.label.length;
+        }
+        if (!node.wordEnd) {
+            return;
+        }
+        node.wordEnd = false;
+        size--;
+        if (parent == null) {
+            // The empty word ended at the root
+            return;
+        }
+        if (node.children.length == 0) {
+            parent.removeChild(position);
+            if (parent != root && !parent.wordEnd
+                && parent.children.length == 1) {
+                parent.mergeWithOnlyChild();
+            }
+        } else if (node.children.length == 1) {
+            node.mergeWithOnlyChild();
+        }
+    }
+
+    /**
+     * Retrieves all words in the Trie that start with a given prefix.
+     *
+     * @param prefix the prefix to search for. The prefix is automatically
+     * converted to lowercase before searching.
+     * @return a list of words that start with the given prefix, in
+     * lexicographic order. If no words match, returns an empty list.
+     */
+    @Override
+    public List<String> getWordsWithPrefix(final String prefix) {
+        List<String> result = new ArrayList<>();
+        forEachCompletion(prefix, (chars, length) ->
+            result.add(new String(chars, 0, length)));
+        return result;
+    }
+
+    /**
+     * Passes every word in the Trie that starts with a given prefix to a
+     * consumer, in lexicographic order. The prefix may end inside an
+     * edge; the rest of that edge then starts every completion.
+     *
+     * @param prefix the prefix to search for. The prefix is automatically
+     * converted to lowercase before searching.
+     * @param consumer the consumer receiving each completion; returning
+     * {@code false} stops the traversal.
+     */
+    @Override
+    public void forEachCompletion(
+        final CharSequence prefix,
+        final CompletionConsumer consumer
+    ) {
+        String key = Alphabet.fold(prefix.toString());
+        Node node = root;
+        int depth = 0;
+        while (depth < key.length()) {
+            int position = node.find(key.charAt(depth));
+            if (position < 0) {
+                return;
+            }
+            node = node.children[position];
+            int compared = Math.min(node.label.length, key.length() - depth);
+            for (int i = 0; i < compared; i++) {
+                if (node.label[i] != key.charAt(depth + i)) {
+                    return;
+                }
+            }
+            depth += node.label.length;
+        }
+        // depth may overshoot the prefix by the unmatched rest of an edge
+        WordBuffer buffer = new WordBuffer(key);
+        int edgeStart = depth - node.label.length;
+        for (int i = key.length(); i < depth; i++) {
+            buffer.set(i, node.label[i - edgeStart]);
+        }
+        collectWords(node, buffer, depth, consumer);
+    }
+
+    /**
+     * Returns the number of words in the Trie.
+     *
+     * @return the word count.
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Returns the number of nodes in the Trie, including the root.
+     *
+     * @return the node count.
+     */
+    public int nodeCount() {
+        return countNodes(root);
+    }
+
+    /**
+     * Counts the nodes of a subtree.
+     *
+     * @param node the root of the subtree.
+     * @return the number of nodes in the subtree.
+     */
+    private static int countNodes(final Node node) {
+        int count = 1;
+        for (Node child : node.children) {
+            count += countNodes(child);
+        }
+        return count;
+    }
+
+    /**
+     * Recursively passes all words below a node to a consumer.
+     *
+     * @param node the starting node.
+     * @param buffer the buffer holding the path to the node.
+     * @param length the length of the path to the node.
+     * @param consumer the consumer receiving each word.
+     * @return {@code false} if the consumer stopped the traversal;
+     * {@code true} otherwise.
+     */
+    private static boolean collectWords(
+        final Node node,
+        final WordBuffer buffer,
+        final int length,
+        final CompletionConsumer consumer
+    ) {
+        if (node.wordEnd && !buffer.emit(consumer, length)) {
+            return false;
+        }
+        for (Node child : node.children) {
+            char[] label = child.label;
+            for (int i = 0; i < label.length; i++) {
+                buffer.set(length + i, label[i]);
+            }
+            if (!collectWords(child, buffer, length + label.length,
+                consumer)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Counts how many leading characters of an edge label match a word
+     * from a given position.
+     *
+     * @param label the edge label.
+     * @param word the word.
+     * @param from the position in the word the label is compared with.
+     * @return the length of the common run.
+     */
+    private static int commonLength(
+        final char[] label,
+        final String word,
+        final int from
+    ) {
+        int limit = Math.min(label.length, word.length() - from);
+        int common = 0;
+        while (common < limit && label[common] == word.charAt(from + common)) {
+            common++;
+        }
+        return common;
+    }
+
+    /**
+     * Checks whether a whole edge label occurs in a word at a given
+     * position.
+     *
+     * @param label the edge label.
+     * @param word the word.
+     * @param from the position in the word the label is compared with.
+     * @return {@code true} if the word continues with the label.
+     */
+    private static boolean matches(
+        final char[] label,
+        final String word,
+        final int from
+    ) {
+        return label.length <= word.length() - from
+            && commonLength(label, word, from) == label.length;
+    }
+
+    /**
+     * A node of the radix Trie together with the label of its incoming
+     * edge.
+     */
+    private static final class Node {
+
+        /**
+         * Child arrays of a node without children.
+         */
+        private static final Node[] NO_CHILDREN = new Node[0];
+
+        /**
+         * First-character array of a node without children.
+         */
+        private static final char[] NO_FIRSTS = new char[0];
+
+        /**
+         * The characters on the edge leading into this node.
+         */
+        private char[] label;
+
+        /**
+         * The first character of each child's label, in ascending
+         * order, kept next to {@link #children} for fast lookup.
+         */
+        private char[] firsts = NO_FIRSTS;
+
+        /**
+         * The children, ordered by the first character of their label.
+         */
+        private Node[] children = NO_CHILDREN;
+
+        /**
+         * Whether a word ends at this node.
+         */
+        private boolean wordEnd;
+
+        /**
+         * Constructs a node without children.
+         *
+         * @param edgeLabel the characters on the incoming edge.
+         */
+        Node(final char[] edgeLabel) {
+            this.label = edgeLabel;
+        }
+
+        /**
+         * Finds the child whose label starts with a character.
+         *
+         * @param ch the first character of the label.
+         * @return the position of the child, or
+         * {@code -(insertion point) - 1} if there is none.
+         */
+        int find(final char ch) {
+            if (firsts.length > LINEAR_SCAN_MAX) {
+                return Arrays.binarySearch(firsts, ch);
+            }
+            for (int i = 0; i < firsts.length; i++) {
+                if (firsts[i] >= ch) {
+                    if (firsts[i] == ch) {
+                        return i;
+                    }
+                    return -i - 1;
+                }
+            }
+            return -firsts.length - 1;
+        }
+
+        /**
+         * Inserts a child at a position of the sorted child arrays.
+         *
+         * @param position the insertion point.
+         * @param child the new child.
+         */
+        void insertChild(final int position, final Node child) {
+            int count = children.length;
+            char[] newFirsts = new char[count + 1];
+            Node[] newChildren = new Node[count + 1];
+            System.arraycopy(firsts, 0, newFirsts, 0, position);
+            System.arraycopy(children, 0, newChildren, 0, position);
+            newFirsts[position] = child.label[0];
+            newChildren[position] = child;
+            System.arraycopy(firsts, position, newFirsts, position + 1,
+                count - position);
+            System.arraycopy(children, position, newChildren, position + 1,
+                count - position);
+            firsts = newFirsts;
+            children = newChildren;
+        }
+
+        /**
+         * Removes the child at a position.
+         *
+         * @param position the position of the child.
+         */
+        void removeChild(final int position) {
+            int count = children.length - 1;
+            if (count == 0) {
+                firsts = NO_FIRSTS;
+                children = NO_CHILDREN;
+                return;
+            }
+            char[] newFirsts = new char[count];
+            Node[] newChildren = new Node[count];
+            System.arraycopy(firsts, 0, newFirsts, 0, position);
+            System.arraycopy(children, 0, newChildren, 0, position);
+            System.arraycopy(firsts, position + 1, newFirsts, position,
+                count - position);
+            System.arraycopy(children, position + 1, newChildren, position,
+                count - position);
+            firsts = newFirsts;
+            children = newChildren;
+        }
+
+        /**
+         * Absorbs the single child of this node, which ends no word,
+         * extending the label by the child's label.
+         */
+        void mergeWithOnlyChild() {
+            Node child = children[0];
+            char[] merged = Arrays.copyOf(
+                label, label.length + child.label.length);
+            System.arraycopy(child.label, 0, merged, label.length,
+                child.label.length);
+            label = merged;
+            firsts = child.firsts;
+            children = child.children;
+            wordEnd = child.wordEnd;
+        }
+    }
+}
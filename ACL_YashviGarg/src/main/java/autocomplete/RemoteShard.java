@@ -0,0 +1,233 @@
+package autocomplete;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * A dictionary served by a {@link CompletionServer} in another process,
+ * queried over the server's line protocol. It lets a
+ * {@link ShardedACLImplementation} spread its shards over several JVMs,
+ * each holding only its own part of the words on its heap.
+ * <p>
+ * The protocol offers exact lookups and prefix listing, so a remote
+ * shard supports exactly those; it cannot be modified or ranked through
+ * this client. Requests share one connection and are sent one at a time.
+ * A failed connection is reopened on the next request.
+ * </p>
+ */
+public final class RemoteShard implements AutoCompleteIndex, Closeable {
+
+    /**
+     * How long to wait for the connection and for each response, in
+     * milliseconds.
+     */
+    private static final int TIMEOUT_MILLIS = 10_000;
+
+    /**
+     * The prefix of a successful response.
+     */
+    private static final String OK = "OK";
+
+    /**
+     * The address of the server.
+     */
+    private final InetSocketAddress address;
+
+    /**
+     * The open connection, or {@code null}.
+     */
+    private Socket socket;
+
+    /**
+     * Reads responses from {@link #socket}.
+     */
+    private BufferedReader in;
+
+    /**
+     * Writes requests to {@link #socket}.
+     */
+    private OutputStream out;
+
+    /**
+     * Constructs a client for a server. The connection is opened by the
+     * first request.
+     *
+     * @param host the host of the server.
+     * @param port the port of the server.
+     */
+    public RemoteShard(final String host, final int port) {
+        this.address = new InetSocketAddress(host, port);
+    }
+
+    /**
+     * Writes a folded prefix or word as a word of a request line.
+     *
+     * @param key the folded prefix or word.
+     * @return the key, or {@link CompletionServer#EMPTY_ARGUMENT} if it
+     * is empty.
+     */
+    private static String token(final String key) {
+        if (key.isEmpty()) {
+            return CompletionServer.EMPTY_ARGUMENT;
+        }
+        return key;
+    }
+
+    /**
+     * Searches for a complete word on the server.
+     *
+     * @param word the word to search for. The word is automatically
+     * converted to lowercase before searching.
+     * @return {@code true} if the server holds the word.
+     * @throws RuntimeException If the server cannot be reached or
+     * reports an error.
+     */
+    @Override
+    public boolean search(final String word) {
+        String key = Alphabet.fold(word);
+        if (!Alphabet.isWord(key)) {
+            return false;
+        }
+        return Boolean.parseBoolean(request("SEARCH " + token(key)).trim());
+    }
+
+    /**
+     * Retrieves the words on the server that start with a prefix.
+     *
+     * @param prefix the prefix to search for. The prefix is automatically
+     * converted to lowercase before searching.
+     * @return the words, in lexicographic order.
+     * @throws RuntimeException If the server cannot be reached or
+     * reports an error.
+     */
+    @Override
+    public List<String> getWordsWithPrefix(final String prefix) {
+        String key = Alphabet.fold(prefix);
+        if (!Alphabet.isWord(key)) {
+            return new ArrayList<>();
+        }
+        String words = request(
+            "COMPLETE " + token(key) + " " + Integer.MAX_VALUE).trim();
+        if (words.isEmpty()) {
+            return new ArrayList<>();
+        }
+        return new ArrayList<>(Arrays.asList(words.split(" ")));
+    }
+
+    /**
+     * Passes the words on the server that start with a prefix to a
+     * consumer. The words are fetched in one response before the first
+     * is passed on.
+     *
+     * @param prefix the prefix to search for.
+     * @param consumer the consumer receiving each completion; returning
+     * {@code false} stops the traversal.
+     * @throws RuntimeException If the server cannot be reached or
+     * reports an error.
+     */
+    @Override
+    public void forEachCompletion(
+        final CharSequence prefix,
+        final CompletionConsumer consumer
+    ) {
+        for (String word : getWordsWithPrefix(prefix.toString())) {
+            if (!consumer.accept(word.toCharArray(), word.length())) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Sends a request and returns the body of its response.
+     *
+     * @param line the request, without the line break.
+     * @return the response after {@code OK}.
+     * @throws RuntimeException If the server cannot be reached or
+     * reports an error.
+     */
+    private synchronized String request(final String line) {
+        String response;
+        try {
+            if (socket == null) {
+                connect();
+            }
+            out.write((line + "\n").getBytes(StandardCharsets.UTF_8));
+            out.flush();
+            response = in.readLine();
+        } catch (IOException e) {
+            disconnect();
+            throw new RuntimeException(
+                "Error querying shard at " + address + ": " + e.getMessage());
+        }
+        if (response == null) {
+            disconnect();
+            throw new RuntimeException(
+                "Shard at " + address + " closed the connection");
+        }
+        if (!response.startsWith(OK)) {
+            throw new RuntimeException(
+                "Shard at " + address + " answered: " + response);
+        }
+        return response.substring(OK.length());
+    }
+
+    /**
+     * Opens the connection.
+     *
+     * @throws IOException If the server cannot be reached.
+     */
+    private void connect() throws IOException {
+        Socket connection = new Socket();
+        try {
+            connection.connect(address, TIMEOUT_MILLIS);
+            connection.setSoTimeout(TIMEOUT_MILLIS);
+            connection.setTcpNoDelay(true);
+            in = new BufferedReader(new InputStreamReader(
+                connection.getInputStream(), StandardCharsets.UTF_8));
+            out = connection.getOutputStream();
+        } catch (IOException e) {
+            connection.close();
+            throw e;
+        }
+        socket = connection;
+    }
+
+    /**
+     * Closes the connection, if open, ignoring errors.
+     */
+    private void disconnect() {
+        if (socket == null) {
+            return;
+        }
+        try {
+            socket.close();
+        } catch (IOException e) {
+            // The connection is gone either way.
+        }
+        socket = null;
+        in = null;
+        out = null;
+    }
+
+    /**
+     * Closes the connection. A later request opens a new one.
+     */
+    @Override
+    public synchronized void close() {
+        disconnect();
+    }
+
+    @Override
+    public String toString() {
+        return "RemoteShard[" + address + "]";
+    }
+}
@@ -0,0 +1,778 @@
+package autocomplete;
+
+import static autocomplete.Constants.ALPHABET_SIZE;
+
+import autocomplete.TrieFileBuilder.DictionaryEntry;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * A dictionary split into independent shards by the leading characters
+ * of its words.
+ * <p>
+ * Each shard owns one contiguous range of words, delimited by sorted
+ * boundary keys: a word belongs to the shard after the last boundary
+ * that is not greater than it. {@link #build(String, int)} parses the
+ * dictionary once, chooses the boundaries from the first two letters of
+ * the words so that the shards hold about the same number of words, and
+ * fills the shards in parallel. A shard of a few tens of thousands of
+ * words is cheap to rebuild and is swapped without touching the others.
+ * </p>
+ * <p>
+ * A query for a prefix only visits the shards whose range can contain
+ * words with that prefix, which is a single shard for all but the
+ * shortest prefixes. Listing the words of several shards runs on the
+ * pool, one task per shard, and concatenates the results in shard
+ * order, so every query returns the same words in the same order as an
+ * {@link ACLImplementation} holding all of them.
+ * </p>
+ * <p>
+ * A shard is usually an {@link ACLImplementation} in this process, but
+ * it may be any {@link AutoCompleteIndex}, such as a {@link RemoteShard}
+ * served by a {@link CompletionServer} in another JVM. Only local
+ * {@link ACLImplementation} shards can be modified, reloaded and ranked;
+ * the other shards answer searches and prefix listings. Queries may run
+ * concurrently with each other; a mutation or reload excludes queries
+ * from its own shard only.
+ * </p>
+ */
+public final class ShardedACLImplementation implements AutoCompleteIndex {
+
+    /**
+     * The number of leading letters that {@link #build(String, int)}
+     * considers when placing boundaries.
+     */
+    static final int KEY_LENGTH = 2;
+
+    /**
+     * A character greater than every letter, appended to a prefix to
+     * find the last shard that can hold words starting with it.
+     */
+    private static final char AFTER_ALL_LETTERS = Character.MAX_VALUE;
+
+    /**
+     * The first key of every shard but the first, in increasing order.
+     */
+    private final String[] boundaries;
+
+    /**
+     * The shards, in the order of their ranges.
+     */
+    private final Shard[] shards;
+
+    /**
+     * The pool that runs queries and reloads spanning several shards.
+     */
+    private final ForkJoinPool pool;
+
+    /**
+     * Constructs a dictionary over existing shards, using the common
+     * fork-join pool.
+     *
+     * @param shardBoundaries the first word or prefix of every shard but
+     * the first, folded and in strictly increasing order.
+     * @param shardIndexes the shards; one more than the boundaries.
+     * @throws IllegalArgumentException if the boundaries are not valid
+     * or do not match the number of shards.
+     */
+    public ShardedACLImplementation(
+        final List<String> shardBoundaries,
+        final List<? extends AutoCompleteIndex> shardIndexes
+    ) {
+        this(shardBoundaries, shardIndexes, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Constructs a dictionary over existing shards. Each shard must hold
+     * only the words of its range; words outside it cannot be found.
+     *
+     * @param shardBoundaries the first word or prefix of every shard but
+     * the first, folded and in strictly increasing order.
+     * @param shardIndexes the shards; one more than the boundaries.
+     * @param forkJoinPool the pool that runs queries and reloads spanning
+     * several shards.
+     * @throws IllegalArgumentException if the boundaries are not valid
+     * or do not match the number of shards.
+     */
+    public ShardedACLImplementation(
+        final List<String> shardBoundaries,
+        final List<? extends AutoCompleteIndex> shardIndexes,
+        final ForkJoinPool forkJoinPool
+    ) {
+        if (shardIndexes.size() != shardBoundaries.size() + 1) {
+            throw new IllegalArgumentException("Expected "
+                + (shardBoundaries.size() + 1) + " shards for "
+                + shardBoundaries.size() + " boundaries, got "
+                + shardIndexes.size());
+        }
+        this.boundaries = shardBoundaries.toArray(new String[0]);
+        for (int i = 0; i < boundaries.length; i++) {
+            String boundary = boundaries[i];
+            if (boundary.isEmpty() || !boundary.equals(Alphabet.fold(boundary))
+                || !Alphabet.isWord(boundary)) {
+                throw new IllegalArgumentException(
+                    "Invalid shard boundary: " + boundary);
+            }
+            if (i > 0 && boundaries[i - 1].compareTo(boundary) >= 0) {
+                throw new IllegalArgumentException(
+                    "Shard boundaries out of order: " + boundaries[i - 1]
+                        + ", " + boundary);
+            }
+        }
+        this.shards = new Shard[shardIndexes.size()];
+        for (int i = 0; i < shards.length; i++) {
+            if (shardIndexes.get(i) == null) {
+                throw new IllegalArgumentException("Shard " + i + " is null");
+            }
+            shards[i] = new Shard(shardIndexes.get(i));
+        }
+        this.pool = forkJoinPool;
+    }
+
+    /**
+     * Builds a dictionary of local shards from a dictionary file, using
+     * the common fork-join pool.
+     *
+     * @param dictionaryPath the resource name or file path.
+     * @param shardCount the number of shards to aim for.
+     * @return the sharded dictionary.
+     * @throws IllegalArgumentException if {@code shardCount} is not
+     * positive.
+     * @throws RuntimeException If the dictionary is not found, a line is
+     * malformed or an error occurs during reading.
+     */
+    public static ShardedACLImplementation build(
+        final String dictionaryPath,
+        final int shardCount
+    ) {
+        return build(dictionaryPath, shardCount, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Builds a dictionary of local shards from a dictionary file. The
+     * file is parsed once, in byte ranges on the pool, the way
+     * {@link TrieFileBuilder#appendTrieFromFileParallel(TrieNode, String,
+     * ForkJoinPool)} does. The parsed words choose boundaries that balance
+     * the number of words per shard, and then fill the shards in
+     * parallel, each shard taking the words of its own range.
+     * <p>
+     * The boundaries are placed between distinct two-letter keys, so a
+     * dictionary yields fewer shards than requested if it has fewer
+     * distinct keys, and a key with very many words makes its shard
+     * larger than the others.
+     * </p>
+     *
+     * @param dictionaryPath the resource name or file path.
+     * @param shardCount the number of shards to aim for.
+     * @param forkJoinPool the pool that builds the shards and later runs
+     * queries and reloads spanning several shards.
+     * @return the sharded dictionary.
+     * @throws IllegalArgumentException if {@code shardCount} is not
+     * positive.
+     * @throws RuntimeException If the dictionary is not found, a line is
+     * malformed or an error occurs during reading.
+     */
+    public static ShardedACLImplementation build(
+        final String dictionaryPath,
+        final int shardCount,
+        final ForkJoinPool forkJoinPool
+    ) {
+        if (shardCount < 1) {
+            throw new IllegalArgumentException(
+                "Number of shards must be positive: " + shardCount);
+        }
+        List<List<DictionaryEntry>> groups =
+            TrieFileBuilder.parseByFirstLetter(dictionaryPath, forkJoinPool);
+        String[] keys = balancedBoundaries(groups, shardCount);
+        List<Callable<ACLImplementation>> tasks = new ArrayList<>();
+        for (int i = 0; i <= keys.length; i++) {
+            int shard = i;
+            tasks.add(() -> loadShard(groups, keys, shard));
+        }
+        return new ShardedACLImplementation(List.of(keys),
+            TrieFileBuilder.invokeAll(forkJoinPool, tasks), forkJoinPool);
+    }
+
+    /**
+     * Builds one shard from a dictionary file, keeping only the words of
+     * its range. A shard served from another JVM is built with this
+     * method and the boundaries of the dictionary that routes to it. The
+     * file is streamed, so the words of the other shards are never held
+     * in memory.
+     *
+     * @param dictionaryPath the resource name or file path.
+     * @param shardBoundaries the boundaries of all shards.
+     * @param shard the number of the shard to build.
+     * @return the shard.
+     * @throws IndexOutOfBoundsException if there is no such shard.
+     * @throws RuntimeException If the dictionary is not found, a line is
+     * malformed or an error occurs during reading.
+     */
+    public static ACLImplementation buildShard(
+        final String dictionaryPath,
+        final List<String> shardBoundaries,
+        final int shard
+    ) {
+        return buildShard(dictionaryPath,
+            shardBoundaries.toArray(new String[0]), shard);
+    }
+
+    /**
+     * Builds one shard from a dictionary file.
+     *
+     * @param dictionaryPath the resource name or file path.
+     * @param keys the boundaries of all shards.
+     * @param shard the number of the shard to build.
+     * @return the shard.
+     */
+    private static ACLImplementation buildShard(
+        final String dictionaryPath,
+        final String[] keys,
+        final int shard
+    ) {
+        if (shard < 0 || shard > keys.length) {
+            throw new IndexOutOfBoundsException("No shard " + shard
+                + " among " + (keys.length + 1));
+        }
+        TrieNode root = new TrieNode();
+        SortedTrieLoader loader = new SortedTrieLoader(root);
+        try {
+            TrieFileBuilder.readDictionary(dictionaryPath,
+                (word, weight, weighted) -> {
+                    if (shardOf(keys, word) == shard) {
+                        loader.accept(word, weight, weighted);
+                    }
+                });
+        } finally {
+            loader.finish();
+        }
+        return new ACLImplementation(root);
+    }
+
+    /**
+     * Fills one shard with the words of its range from a parsed
+     * dictionary.
+     *
+     * @param groups the parsed entries, grouped by first letter.
+     * @param keys the boundaries of all shards.
+     * @param shard the number of the shard to fill.
+     * @return the shard.
+     */
+    private static ACLImplementation loadShard(
+        final List<List<DictionaryEntry>> groups,
+        final String[] keys,
+        final int shard
+    ) {
+        TrieNode root = new TrieNode();
+        SortedTrieLoader loader = new SortedTrieLoader(root);
+        for (int i = 0; i < groups.size(); i++) {
+            // Every shard checks the words starting with other letters
+            boolean whole = false;
+            if (i < ALPHABET_SIZE) {
+                String letter = String.valueOf(Alphabet.letter(i));
+                int first = shardOf(keys, letter);
+                int last = shardOf(keys, letter + AFTER_ALL_LETTERS);
+                if (shard < first || shard > last) {
+                    continue;
+                }
+                whole = first == last;
+            }
+            for (DictionaryEntry entry : groups.get(i)) {
+                if (whole || shardOf(keys, entry.getWord()) == shard) {
+                    loader.accept(entry.getWord(), entry.getWeight(),
+                        entry.isWeighted());
+                }
+            }
+        }
+        loader.finish();
+        return new ACLImplementation(root);
+    }
+
+    /**
+     * Chooses boundaries that split the words of a dictionary into
+     * shards of about equal size.
+     *
+     * @param groups the parsed entries, grouped by first letter.
+     * @param shardCount the number of shards to aim for.
+     * @return the boundaries, at most {@code shardCount - 1} of them.
+     */
+    private static String[] balancedBoundaries(
+        final List<List<DictionaryEntry>> groups,
+        final int shardCount
+    ) {
+        TreeMap<String, int[]> histogram = new TreeMap<>();
+        for (List<DictionaryEntry> group : groups) {
+            for (DictionaryEntry entry : group) {
+                String word = entry.getWord();
+                String key = word.substring(0,
+                    Math.min(KEY_LENGTH, word.length()));
+                histogram.computeIfAbsent(key, k -> new int[1])[0]++;
+            }
+        }
+        long total = 0;
+        for (int[] count : histogram.values()) {
+            total += count[0];
+        }
+        List<String> keys = new ArrayList<>();
+        long before = 0;
+        for (Map.Entry<String, int[]> entry : histogram.entrySet()) {
+            // Start the next shard once the previous ones hold their share
+            long target = total * (keys.size() + 1) / shardCount;
+            if (before > 0 && before >= target
+                && keys.size() < shardCount - 1) {
+                keys.add(entry.getKey());
+            }
+            before += entry.getValue()[0];
+        }
+        return keys.toArray(new String[0]);
+    }
+
+    /**
+     * Finds the shard whose range holds a word.
+     *
+     * @param keys the boundaries.
+     * @param word the folded word or prefix.
+     * @return the number of boundaries not greater than the word.
+     */
+    private static int shardOf(final String[] keys, final CharSequence word) {
+        int low = 0;
+        int high = keys.length;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (CharSequence.compare(keys[middle], word) <= 0) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * Returns the shard that holds a word.
+     *
+     * @param word the word, in any case.
+     * @return the shard.
+     */
+    private Shard shardFor(final String word) {
+        return shards[shardOf(boundaries, Alphabet.fold(word))];
+    }
+
+    /**
+     * Returns the first shard that may hold words starting with a prefix.
+     *
+     * @param folded the folded prefix.
+     * @return the number of the shard.
+     */
+    private int firstShard(final String folded) {
+        return shardOf(boundaries, folded);
+    }
+
+    /**
+     * Returns the last shard that may hold words starting with a prefix.
+     *
+     * @param folded the folded prefix.
+     * @return the number of the shard.
+     */
+    private int lastShard(final String folded) {
+        return shardOf(boundaries, folded + AFTER_ALL_LETTERS);
+    }
+
+    /**
+     * Inserts a word into its shard. If the word is new it receives
+     * {@link Constants#DEFAULT_WORD_WEIGHT}; an existing word keeps its
+     * current weight.
+     *
+     * @param word the word to insert. The word is automatically
+     * converted to lowercase before insertion.
+     * @throws IllegalArgumentException if the word contains anything but
+     * letters.
+     * @throws UnsupportedOperationException if the shard of the word is
+     * not a local {@link ACLImplementation}.
+     */
+    public void insert(final String word) {
+        Shard shard = shardFor(word);
+        shard.lock.writeLock().lock();
+        try {
+            shard.local().insert(word);
+        } finally {
+            shard.lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Inserts a word into its shard with the given ranking weight. If the
+     * word already exists its weight is replaced.
+     *
+     * @param word the word to insert. The word is automatically
+     * converted to lowercase before insertion.
+     * @param weight the non-negative ranking weight of the word.
+     * @throws IllegalArgumentException if the word contains anything but
+     * letters, or {@code weight} is negative.
+     * @throws UnsupportedOperationException if the shard of the word is
+     * not a local {@link ACLImplementation}.
+     */
+    public void insert(final String word, final long weight) {
+        Shard shard = shardFor(word);
+        shard.lock.writeLock().lock();
+        try {
+            shard.local().insert(word, weight);
+        } finally {
+            shard.lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Removes a word from its shard. Removing a missing word has no
+     * effect.
+     *
+     * @param word the word to remove. The word is automatically
+     * converted to lowercase before removal.
+     * @throws UnsupportedOperationException if the shard of the word is
+     * not a local {@link ACLImplementation}.
+     */
+    public void remove(final String word) {
+        Shard shard = shardFor(word);
+        shard.lock.writeLock().lock();
+        try {
+            shard.local().remove(word);
+        } finally {
+            shard.lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Searches for a complete word in its shard.
+     *
+     * @param word the word to search for. The word is automatically
+     * converted to lowercase before searching.
+     * @return {@code true} if the word is in the dictionary.
+     */
+    @Override
+    public boolean search(final String word) {
+        Shard shard = shardFor(word);
+        shard.lock.readLock().lock();
+        try {
+            return shard.index.search(word);
+        } finally {
+            shard.lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Retrieves all words that start with a given prefix. When the prefix
+     * spans several shards, they are listed in parallel.
+     *
+     * @param prefix the prefix to search for. The prefix is automatically
+     * converted to lowercase before searching.
+     * @return the words in lexicographic order.
+     * @throws RuntimeException If a shard failed or the wait was
+     * interrupted.
+     */
+    @Override
+    public List<String> getWordsWithPrefix(final String prefix) {
+        String folded = Alphabet.fold(prefix);
+        int first = firstShard(folded);
+        int last = lastShard(folded);
+        if (first == last) {
+            return shards[first].wordsWithPrefix(prefix);
+        }
+        List<Callable<List<String>>> tasks = new ArrayList<>();
+        for (int i = first; i <= last; i++) {
+            Shard shard = shards[i];
+            tasks.add(() -> shard.wordsWithPrefix(prefix));
+        }
+        List<String> words = new ArrayList<>();
+        for (List<String> shardWords : TrieFileBuilder.invokeAll(pool, tasks)) {
+            words.addAll(shardWords);
+        }
+        return words;
+    }
+
+    /**
+     * Passes every word that starts with a given prefix to a consumer, in
+     * lexicographic order, visiting the shards one after another. A
+     * mutation of a shard waits until the traversal leaves it, so the
+     * consumer should not block.
+     *
+     * @param prefix the prefix to search for. The prefix is automatically
+     * converted to lowercase before searching.
+     * @param consumer the consumer receiving each completion; returning
+     * {@code false} stops the traversal.
+     */
+    @Override
+    public void forEachCompletion(
+        final CharSequence prefix,
+        final CompletionConsumer consumer
+    ) {
+        String folded = Alphabet.fold(prefix.toString());
+        boolean[] stopped = new boolean[1];
+        CompletionConsumer watched = (chars, length) -> {
+            if (consumer.accept(chars, length)) {
+                return true;
+            }
+            stopped[0] = true;
+            return false;
+        };
+        int last = lastShard(folded);
+        for (int i = firstShard(folded); i <= last && !stopped[0]; i++) {
+            Shard shard = shards[i];
+            shard.lock.readLock().lock();
+            try {
+                shard.index.forEachCompletion(prefix, watched);
+            } finally {
+                shard.lock.readLock().unlock();
+            }
+        }
+    }
+
+    /**
+     * Retrieves the {@code k} highest-weighted words that start with a
+     * given prefix, merging the top words of every shard the prefix
+     * spans.
+     *
+     * @param prefix the prefix to search for. The prefix is automatically
+     * converted to lowercase before searching.
+     * @param k the maximum number of words to return.
+     * @return up to {@code k} words ordered by descending weight; words
+     * with equal weight are ordered lexicographically.
+     * @throws IllegalArgumentException if {@code k} is negative.
+     * @throws UnsupportedOperationException if a spanned shard is not a
+     * local {@link ACLImplementation}.
+     */
+    public List<String> getTopCompletions(final String prefix, final int k) {
+        if (k < 0) {
+            throw new IllegalArgumentException(
+                "Number of completions must not be negative: " + k);
+        }
+        String folded = Alphabet.fold(prefix);
+        int first = firstShard(folded);
+        int last = lastShard(folded);
+        if (first == last) {
+            return shards[first].topCompletions(prefix, k, null);
+        }
+        Map<String, Long> weights = new TreeMap<>();
+        for (int i = first; i <= last; i++) {
+            shards[i].topCompletions(prefix, k, weights);
+        }
+        List<String> words = new ArrayList<>(weights.keySet());
+        // Words are unique across shards; the stable sort keeps ties in
+        // lexicographic order
+        words.sort(Comparator.comparing(weights::get,
+            Collections.reverseOrder()));
+        return new ArrayList<>(words.subList(0, Math.min(k, words.size())));
+    }
+
+    /**
+     * Counts the words that start with a given prefix. Local shards
+     * answer from their cached counts; other shards list their words.
+     *
+     * @param prefix the prefix to count. The prefix is automatically
+     * converted to lowercase before searching.
+     * @return the number of words starting with the prefix.
+     */
+    public int countWithPrefix(final String prefix) {
+        String folded = Alphabet.fold(prefix);
+        int count = 0;
+        int last = lastShard(folded);
+        for (int i = firstShard(folded); i <= last; i++) {
+            count += shards[i].countWithPrefix(prefix);
+        }
+        return count;
+    }
+
+    /**
+     * Returns the number of words in the dictionary.
+     *
+     * @return the word count.
+     */
+    public int size() {
+        return countWithPrefix("");
+    }
+
+    /**
+     * Rebuilds every local shard from a dictionary file, keeping the
+     * boundaries. The file is parsed once, as by {@link #build}, and the
+     * shards are filled in parallel. Each shard is replaced as soon as
+     * its new words are ready, so queries keep running against the other
+     * shards and against the old words of the shard being built.
+     * Mutations made to a shard while it is rebuilt are lost. Shards
+     * that are not local are left alone; their own processes reload
+     * them.
+     *
+     * @param dictionaryPath the resource name or file path.
+     * @throws RuntimeException If the dictionary is not found, a line is
+     * malformed or an error occurs during reading; the shards are then
+     * left unchanged.
+     */
+    public void reload(final String dictionaryPath) {
+        List<List<DictionaryEntry>> groups =
+            TrieFileBuilder.parseByFirstLetter(dictionaryPath, pool);
+        List<Callable<Void>> tasks = new ArrayList<>();
+        for (int i = 0; i < shards.length; i++) {
+            Shard shard = shards[i];
+            if (!(shard.index instanceof ACLImplementation)) {
+                continue;
+            }
+            int number = i;
+            tasks.add(() -> {
+                ACLImplementation rebuilt =
+                    loadShard(groups, boundaries, number);
+                shard.lock.writeLock().lock();
+                try {
+                    shard.index = rebuilt;
+                } finally {
+                    shard.lock.writeLock().unlock();
+                }
+                return null;
+            });
+        }
+        TrieFileBuilder.invokeAll(pool, tasks);
+    }
+
+    /**
+     * Returns the boundaries between the shards.
+     *
+     * @return the first word or prefix of every shard but the first, in
+     * increasing order.
+     */
+    public List<String> getBoundaries() {
+        return List.of(boundaries);
+    }
+
+    /**
+     * Returns the number of shards.
+     *
+     * @return the shard count.
+     */
+    public int getShardCount() {
+        return shards.length;
+    }
+
+    /**
+     * Returns the number of words in each shard.
+     *
+     * @return the word counts, in shard order.
+     */
+    public List<Integer> getShardSizes() {
+        List<Integer> sizes = new ArrayList<>();
+        for (Shard shard : shards) {
+            sizes.add(shard.countWithPrefix(""));
+        }
+        return sizes;
+    }
+
+    /**
+     * One shard and the lock that keeps its queries apart from its
+     * mutations and reloads.
+     */
+    private static final class Shard {
+
+        /**
+         * Held shared by queries and exclusively by mutations and by the
+         * swap of a reload.
+         */
+        private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+        /**
+         * The words of the shard; replaced by reloads.
+         */
+        private volatile AutoCompleteIndex index;
+
+        /**
+         * Constructs a shard.
+         *
+         * @param shardIndex the words of the shard.
+         */
+        Shard(final AutoCompleteIndex shardIndex) {
+            this.index = shardIndex;
+        }
+
+        /**
+         * Returns the shard as a local Trie, for operations that only
+         * local shards support. Must be called under the lock.
+         *
+         * @return the local Trie.
+         * @throws UnsupportedOperationException if the shard is not a
+         * local {@link ACLImplementation}.
+         */
+        ACLImplementation local() {
+            if (index instanceof ACLImplementation) {
+                return (ACLImplementation) index;
+            }
+            throw new UnsupportedOperationException(
+                "Shard is read-only: " + index);
+        }
+
+        /**
+         * Lists the words of the shard that start with a prefix.
+         *
+         * @param prefix the prefix.
+         * @return the words in lexicographic order.
+         */
+        List<String> wordsWithPrefix(final String prefix) {
+            lock.readLock().lock();
+            try {
+                return index.getWordsWithPrefix(prefix);
+            } finally {
+                lock.readLock().unlock();
+            }
+        }
+
+        /**
+         * Counts the words of the shard that start with a prefix.
+         *
+         * @param prefix the prefix.
+         * @return the number of words.
+         */
+        int countWithPrefix(final String prefix) {
+            lock.readLock().lock();
+            try {
+                if (index instanceof ACLImplementation) {
+                    return ((ACLImplementation) index).countWithPrefix(prefix);
+                }
+                return index.getWordsWithPrefix(prefix).size();
+            } finally {
+                lock.readLock().unlock();
+            }
+        }
+
+        /**
+         * Retrieves the top words of the shard that start with a prefix,
+         * and their weights if they are to be merged with other shards.
+         *
+         * @param prefix the prefix.
+         * @param k the maximum number of words.
+         * @param weights receives each word with its weight, or
+         * {@code null} if only the words are needed.
+         * @return the words, highest weight first.
+         */
+        List<String> topCompletions(
+            final String prefix,
+            final int k,
+            final Map<String, Long> weights
+        ) {
+            lock.readLock().lock();
+            try {
+                ACLImplementation acl = local();
+                List<String> words = acl.getTopCompletions(prefix, k);
+                if (weights != null) {
+                    for (String word : words) {
+                        weights.put(word, acl.getWeight(word));
+                    }
+                }
+                return words;
+            } finally {
+                lock.readLock().unlock();
+            }
+        }
+    }
+}
@@ -0,0 +1,219 @@
+package autocomplete;
+
+import java.util.Arrays;
+
+/**
+ * Inserts a stream of folded words into a Trie, exploiting sorted input.
+ * Dictionaries such as {@code words_alpha.txt} are mostly in
+ * lexicographic order, so consecutive words share long prefixes. The
+ * loader keeps the path of the last word on a stack and starts each word
+ * at the point where it leaves that path, instead of descending from the
+ * root again. The word counts and maximum weights cached in the nodes
+ * are collected per level of the stack and written once, when a node
+ * leaves the stack, so each word touches only the nodes that differ from
+ * the last one.
+ * <p>
+ * A word that sorts before the last one, or that already exists, is
+ * inserted through {@link ACLImplementation#insertFolded} after the
+ * collected updates are written, so unsorted input still loads
+ * correctly, only without the shortcut. Call {@link #finish} once all
+ * words were added.
+ * </p>
+ */
+final class SortedTrieLoader implements DictionaryReader.EntryConsumer {
+
+    /**
+     * Initial depth of the stack, enough for common dictionaries.
+     */
+    private static final int INITIAL_DEPTH = 32;
+
+    /**
+     * The root node of the Trie.
+     */
+    private final TrieNode root;
+
+    /**
+     * The nodes on the path of the last word; entry {@code i} is reached
+     * after its first {@code i} letters.
+     */
+    private TrieNode[] path = new TrieNode[INITIAL_DEPTH + 1];
+
+    /**
+     * Words added below each node of the path but not yet counted in it.
+     */
+    private int[] pendingWords = new int[INITIAL_DEPTH + 1];
+
+    /**
+     * The largest weight of the words in {@link #pendingWords}.
+     */
+    private long[] pendingWeights = new long[INITIAL_DEPTH + 1];
+
+    /**
+     * The letters of the last word inserted along the path.
+     */
+    private char[] previous = new char[INITIAL_DEPTH];
+
+    /**
+     * The length of the last word inserted along the path.
+     */
+    private int depth;
+
+    /**
+     * The number of words inserted out of order.
+     */
+    private int unsortedWords;
+
+    /**
+     * Constructs a loader adding words to a Trie, which may already hold
+     * words.
+     *
+     * @param trieRoot the root node of the Trie.
+     */
+    SortedTrieLoader(final TrieNode trieRoot) {
+        this.root = trieRoot;
+        path[0] = trieRoot;
+    }
+
+    @Override
+    public void accept(
+        final CharSequence word,
+        final long weight,
+        final boolean weighted
+    ) {
+        int length = word.length();
+        int common = 0;
+        int limit = Math.min(length, depth);
+        while (common < limit && word.charAt(common) == previous[common]) {
+            common++;
+        }
+        if (sortsBefore(word, common)) {
+            insertUnsorted(word, weight);
+            return;
+        }
+        pop(common);
+        if (length >= previous.length) {
+            grow(length);
+        }
+        TrieNode node = path[common];
+        for (int i = common; i < length; i++) {
+            char letter = word.charAt(i);
+            int index = Alphabet.index(letter);
+            TrieNode child = node.getChild(index);
+            if (child == null) {
+                child = new TrieNode();
+                node.setChild(index, child);
+            }
+            node = child;
+            path[i + 1] = node;
+            previous[i] = letter;
+        }
+        depth = length;
+        if (node.isWordEnd()) {
+            insertUnsorted(word, weight);
+            return;
+        }
+        node.setWordEnd(true);
+        node.setWeight(weight);
+        pendingWords[length]++;
+        pendingWeights[length] = Math.max(pendingWeights[length], weight);
+    }
+
+    /**
+     * Writes the collected updates into the nodes. The loader can take
+     * further words afterwards.
+     */
+    void finish() {
+        pop(0);
+        flush(0);
+    }
+
+    /**
+     * Returns the number of words that could not follow the path of the
+     * previous word and were inserted from the root.
+     *
+     * @return the count of out-of-order or repeated words.
+     */
+    int getUnsortedWords() {
+        return unsortedWords;
+    }
+
+    /**
+     * Checks whether a word sorts before the last word on the path.
+     *
+     * @param word the folded word.
+     * @param common the length of the prefix it shares with the last
+     * word.
+     * @return {@code true} if the word is out of order.
+     */
+    private boolean sortsBefore(final CharSequence word, final int common) {
+        if (common == depth) {
+            return false;
+        }
+        return common == word.length()
+            || word.charAt(common) < previous[common];
+    }
+
+    /**
+     * Inserts a word from the root, after writing the collected updates,
+     * so that its own updates see consistent nodes.
+     *
+     * @param word the folded word.
+     * @param weight the weight of the word.
+     */
+    private void insertUnsorted(final CharSequence word, final long weight) {
+        unsortedWords++;
+        for (int level = depth; level >= 0; level--) {
+            flush(level);
+        }
+        ACLImplementation.insertFolded(root, word, weight);
+    }
+
+    /**
+     * Removes the nodes deeper than a level from the stack, writing
+     * their collected updates and passing them on to their parents.
+     *
+     * @param level the depth of the deepest node that stays.
+     */
+    private void pop(final int level) {
+        for (int i = depth; i > level; i--) {
+            flush(i);
+            path[i] = null;
+        }
+        depth = Math.min(depth, level);
+    }
+
+    /**
+     * Writes the collected updates of one level of the stack into its
+     * node, and adds them to the level above.
+     *
+     * @param level the level to write.
+     */
+    private void flush(final int level) {
+        int words = pendingWords[level];
+        if (words == 0) {
+            return;
+        }
+        long weight = pendingWeights[level];
+        ACLImplementation.raiseAggregates(path[level], weight, words);
+        pendingWords[level] = 0;
+        pendingWeights[level] = 0;
+        if (level > 0) {
+            pendingWords[level - 1] += words;
+            pendingWeights[level - 1] =
+                Math.max(pendingWeights[level - 1], weight);
+        }
+    }
+
+    /**
+     * Grows the stack to hold a longer word.
+     *
+     * @param length the length of the word.
+     */
+    private void grow(final int length) {
+        int capacity = 2 * length;
+        previous = Arrays.copyOf(previous, capacity);
+        path = Arrays.copyOf(path, capacity + 1);
+        pendingWords = Arrays.copyOf(pendingWords, capacity + 1);
+        pendingWeights = Arrays.copyOf(pendingWeights, capacity + 1);
+    }
+}
@@ -0,0 +1,551 @@
+package autocomplete;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * A read-only index of the words that end with, or contain, a given
+ * string, built from a Trie.
+ * <p>
+ * The index is an FM-index over the concatenation of all words, each
+ * followed by an end marker. The suffixes of that text are sorted, and
+ * for each suffix the index keeps the letter before it (the
+ * Burrows-Wheeler transform), with occurrence counts every
+ * {@value #BLOCK} suffixes, and the word it belongs to. Matching a
+ * pattern walks it backwards one letter at a time, each step narrowing a
+ * range of sorted suffixes in constant time, so a query takes time
+ * proportional to the length of the pattern plus the number of matches.
+ * Words ending with a pattern are the matches of the pattern followed by
+ * the end marker, so the same index answers suffix queries without a
+ * separate reversed Trie.
+ * </p>
+ * <p>
+ * On the default dictionary the index takes about 40 MB. Later changes
+ * to the Trie it was built from are not reflected in it.
+ * </p>
+ */
+public final class SubstringIndex {
+
+    /**
+     * Code of the marker ending each word; below every letter code.
+     */
+    private static final char END = 0;
+
+    /**
+     * Number of suffixes between two occurrence checkpoints.
+     */
+    private static final int BLOCK = 64;
+
+    /**
+     * Above this many codes, two-code buckets would take more memory
+     * than they save time, and suffixes are sorted without them.
+     */
+    private static final int MAX_BUCKETED_SIGMA = 256;
+
+    /**
+     * Ranges at most this long are sorted by insertion sort.
+     */
+    private static final int INSERTION_SORT_THRESHOLD = 12;
+
+    /**
+     * The letters of the dictionary in ascending order; the letter with
+     * code {@code c} is {@code letters[c]}. Slot 0 stands for
+     * {@link #END}.
+     */
+    private final char[] letters;
+
+    /**
+     * The first sorted suffix starting with each code, followed by the
+     * number of suffixes.
+     */
+    private final int[] firstRow;
+
+    /**
+     * The code before each sorted suffix.
+     */
+    private final char[] bwt;
+
+    /**
+     * The occurrences of each code in {@link #bwt} before every
+     * {@link #BLOCK}-th suffix, {@code letters.length} entries per
+     * checkpoint.
+     */
+    private final int[] checkpoints;
+
+    /**
+     * The number of the word each sorted suffix belongs to.
+     */
+    private final int[] rowWords;
+
+    /**
+     * The letters of all words, one after the other, in lexicographic
+     * order of the words.
+     */
+    private final char[] wordChars;
+
+    /**
+     * The start of each word in {@link #wordChars}, followed by the
+     * total length.
+     */
+    private final int[] wordStarts;
+
+    /**
+     * Builds the index over a sorted list of words.
+     *
+     * @param chars the letters of the words, one after the other.
+     * @param starts the start of each word in {@code chars}, followed by
+     * the length of {@code chars}.
+     */
+    private SubstringIndex(final char[] chars, final int[] starts) {
+        this.wordChars = chars;
+        this.wordStarts = starts;
+        int words = starts.length - 1;
+
+        // Number the letters in ascending order, after the end marker
+        boolean[] used = new boolean[Character.MAX_VALUE + 1];
+        for (char c : chars) {
+            used[c] = true;
+        }
+        char[] codes = new char[Character.MAX_VALUE + 1];
+        StringBuilder alphabet = new StringBuilder().append(END);
+        for (int c = 0; c <= Character.MAX_VALUE; c++) {
+            if (used[c]) {
+                codes[c] = (char) alphabet.length();
+                alphabet.append((char) c);
+            }
+        }
+        this.letters = alphabet.toString().toCharArray();
+        int sigma = letters.length;
+
+        // The text: each word in codes, followed by the end marker
+        int length = chars.length + words;
+        char[] text = new char[length];
+        int[] textWords = new int[length];
+        int position = 0;
+        for (int word = 0; word < words; word++) {
+            for (int i = starts[word]; i < starts[word + 1]; i++) {
+                textWords[position] = word;
+                text[position++] = codes[chars[i]];
+            }
+            textWords[position] = word;
+            text[position++] = END;
+        }
+
+        int[] rows = sortSuffixes(text, sigma);
+
+        this.firstRow = new int[sigma + 1];
+        for (char code : text) {
+            firstRow[code + 1]++;
+        }
+        for (int code = 0; code < sigma; code++) {
+            firstRow[code + 1] += firstRow[code];
+        }
+
+        this.bwt = new char[length];
+        this.checkpoints = new int[(length / BLOCK + 1) * sigma];
+        int[] seen = new int[sigma];
+        for (int row = 0; row < length; row++) {
+            if (row % BLOCK == 0) {
+                System.arraycopy(seen, 0, checkpoints,
+                    row / BLOCK * sigma, sigma);
+            }
+            int start = rows[row];
+            int before = length - 1;
+            if (start > 0) {
+                before = start - 1;
+            }
+            bwt[row] = text[before];
+            seen[bwt[row]]++;
+            // The suffix positions are no longer needed
+            rows[row] = textWords[start];
+        }
+        if (length % BLOCK == 0) {
+            System.arraycopy(seen, 0, checkpoints,
+                length / BLOCK * sigma, sigma);
+        }
+        this.rowWords = rows;
+    }
+
+    /**
+     * Builds the index over the words of a Trie.
+     *
+     * @param trieRoot the root node of the Trie.
+     * @return the index.
+     */
+    public static SubstringIndex fromTrie(final TrieNode trieRoot) {
+        int[] starts = new int[trieRoot.getWordCount() + 1];
+        StringBuilder chars = new StringBuilder();
+        int[] words = {0};
+        new ACLImplementation(trieRoot).forEachCompletion("",
+            (word, length) -> {
+                starts[words[0]++] = chars.length();
+                chars.append(word, 0, length);
+                return true;
+            });
+        starts[words[0]] = chars.length();
+        return new SubstringIndex(chars.toString().toCharArray(), starts);
+    }
+
+    /**
+     * Builds the index over a list of folded words.
+     *
+     * @param words the words, in any order and possibly repeated; sorted
+     * in place.
+     * @return the index.
+     */
+    static SubstringIndex fromWords(final List<String> words) {
+        Collections.sort(words);
+        int[] starts = new int[words.size() + 1];
+        StringBuilder chars = new StringBuilder();
+        int count = 0;
+        String previous = null;
+        for (String word : words) {
+            if (!word.equals(previous)) {
+                starts[count++] = chars.length();
+                chars.append(word);
+                previous = word;
+            }
+        }
+        starts[count] = chars.length();
+        return new SubstringIndex(chars.toString().toCharArray(),
+            Arrays.copyOf(starts, count + 1));
+    }
+
+    /**
+     * Returns the number of words in the index.
+     *
+     * @return the word count.
+     */
+    public int size() {
+        return wordStarts.length - 1;
+    }
+
+    /**
+     * Retrieves the words that end with a given suffix.
+     *
+     * @param suffix the suffix to search for. The suffix is automatically
+     * converted to lowercase before searching.
+     * @return the words ending with the suffix, in lexicographic order;
+     * every word if the suffix is empty.
+     */
+    public List<String> getWordsWithSuffix(final String suffix) {
+        String pattern = Alphabet.fold(suffix);
+        // The suffixes starting with the end marker, one per word
+        int[] range = {firstRow[END], firstRow[END + 1]};
+        if (!narrow(range, pattern)) {
+            return new ArrayList<>();
+        }
+        // Suffixes with equal text are ordered by word
+        List<String> result = new ArrayList<>(range[1] - range[0]);
+        for (int row = range[0]; row < range[1]; row++) {
+            result.add(word(rowWords[row]));
+        }
+        return result;
+    }
+
+    /**
+     * Retrieves the words that contain a given string.
+     *
+     * @param infix the string to search for. It is automatically
+     * converted to lowercase before searching.
+     * @return the words containing the string, in lexicographic order;
+     * every word if the string is empty.
+     */
+    public List<String> getWordsContaining(final String infix) {
+        String pattern = Alphabet.fold(infix);
+        if (pattern.isEmpty()) {
+            return getWordsWithSuffix(pattern);
+        }
+        int last = code(pattern.charAt(pattern.length() - 1));
+        if (last < 0) {
+            return new ArrayList<>();
+        }
+        int[] range = {firstRow[last], firstRow[last + 1]};
+        if (!narrow(range, pattern.substring(0, pattern.length() - 1))) {
+            return new ArrayList<>();
+        }
+        int[] matches = Arrays.copyOfRange(rowWords, range[0], range[1]);
+        Arrays.sort(matches);
+        List<String> result = new ArrayList<>();
+        for (int i = 0; i < matches.length; i++) {
+            // A word containing the string twice matches twice
+            if (i == 0 || matches[i] != matches[i - 1]) {
+                result.add(word(matches[i]));
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Narrows a range of sorted suffixes to those preceded by a pattern,
+     * by backward search.
+     *
+     * @param range the first and past-the-last row, updated in place.
+     * @param pattern the lowercase pattern.
+     * @return {@code false} if no suffix is preceded by the pattern.
+     */
+    private boolean narrow(final int[] range, final String pattern) {
+        for (int i = pattern.length() - 1; i >= 0; i--) {
+            if (range[0] >= range[1]) {
+                return false;
+            }
+            int code = code(pattern.charAt(i));
+            if (code < 0) {
+                return false;
+            }
+            range[0] = firstRow[code] + rank(code, range[0]);
+            range[1] = firstRow[code] + rank(code, range[1]);
+        }
+        return range[0] < range[1];
+    }
+
+    /**
+     * Counts the occurrences of a code in {@link #bwt} before a row.
+     *
+     * @param code the code.
+     * @param row the row.
+     * @return the number of occurrences.
+     */
+    private int rank(final int code, final int row) {
+        int block = row / BLOCK;
+        int count = checkpoints[block * letters.length + code];
+        for (int i = block * BLOCK; i < row; i++) {
+            if (bwt[i] == code) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Returns the code of a letter.
+     *
+     * @param letter the letter.
+     * @return the code, or -1 if no word contains the letter.
+     */
+    private int code(final char letter) {
+        int code = Arrays.binarySearch(letters, 1, letters.length, letter);
+        if (code < 0) {
+            return -1;
+        }
+        return code;
+    }
+
+    /**
+     * Returns a word of the index.
+     *
+     * @param word the number of the word.
+     * @return the word.
+     */
+    private String word(final int word) {
+        return new String(wordChars, wordStarts[word],
+            wordStarts[word + 1] - wordStarts[word]);
+    }
+
+    /**
+     * Sorts all suffixes of the text. A counting sort on their first two
+     * codes splits them into {@code sigma * sigma} buckets in one pass;
+     * the buckets of suffixes that are longer than one letter are then
+     * sorted by multikey quicksort.
+     *
+     * @param text the text in codes, ending with an end marker.
+     * @param sigma the number of codes.
+     * @return the start positions of the suffixes in sorted order.
+     */
+    private static int[] sortSuffixes(final char[] text, final int sigma) {
+        int length = text.length;
+        if (sigma > MAX_BUCKETED_SIGMA) {
+            int[] rows = new int[length];
+            for (int i = 0; i < length; i++) {
+                rows[i] = i;
+            }
+            sortSuffixes(text, rows, 0, length, 0);
+            return rows;
+        }
+        int[] bucketStarts = new int[sigma * sigma + 1];
+        for (int i = 0; i < length; i++) {
+            bucketStarts[bucket(text, i, sigma) + 1]++;
+        }
+        for (int b = 0; b < sigma * sigma; b++) {
+            bucketStarts[b + 1] += bucketStarts[b];
+        }
+        int[] rows = new int[length];
+        int[] next = Arrays.copyOf(bucketStarts, sigma * sigma);
+        // Stable, so suffixes ending in the bucket stay ordered by word
+        for (int i = 0; i < length; i++) {
+            rows[next[bucket(text, i, sigma)]++] = i;
+        }
+        for (int b = 0; b < sigma * sigma; b++) {
+            if (b % sigma != END) {
+                sortSuffixes(text, rows, bucketStarts[b],
+                    bucketStarts[b + 1], 2);
+            }
+        }
+        return rows;
+    }
+
+    /**
+     * Returns the bucket of a suffix by its first two codes. A suffix
+     * that starts with the end marker ends there, so it goes to bucket 0
+     * whatever follows.
+     *
+     * @param text the text in codes.
+     * @param position the start of the suffix.
+     * @param sigma the number of codes.
+     * @return the bucket.
+     */
+    private static int bucket(
+        final char[] text,
+        final int position,
+        final int sigma
+    ) {
+        if (text[position] == END) {
+            return 0;
+        }
+        return text[position] * sigma + text[position + 1];
+    }
+
+    /**
+     * Sorts suffixes of the text by multikey quicksort. A suffix ends at
+     * its first end marker; suffixes equal up to there are ordered by
+     * position, i.e. by word. Letter-by-letter partitioning looks at each
+     * letter of the common prefixes only once, and only the two smaller
+     * of the three partitions are sorted recursively, so the stack stays
+     * shallow whatever the words.
+     *
+     * @param text the text in codes, ending with an end marker.
+     * @param rows the start positions of the suffixes to sort.
+     * @param from the first row to sort.
+     * @param to the row after the last row to sort.
+     * @param depth the number of leading letters the suffixes share.
+     */
+    private static void sortSuffixes(
+        final char[] text,
+        final int[] rows,
+        final int from,
+        final int to,
+        final int depth
+    ) {
+        int lo = from;
+        int hi = to;
+        int d = depth;
+        while (hi - lo > INSERTION_SORT_THRESHOLD) {
+            int pivot = medianKey(text, rows, lo, hi, d);
+            int lt = lo;
+            int gt = hi;
+            int i = lo;
+            while (i < gt) {
+                int key = text[rows[i] + d];
+                if (key < pivot) {
+                    swap(rows, lt++, i++);
+                } else if (key > pivot) {
+                    swap(rows, i, --gt);
+                } else {
+                    i++;
+                }
+            }
+            int less = lt - lo;
+            int equal = gt - lt;
+            int greater = hi - gt;
+            if (pivot == END) {
+                // These suffixes end here; order them by position
+                Arrays.sort(rows, lt, gt);
+                equal = 0;
+            }
+            if (equal > 0 && equal >= less && equal >= greater) {
+                sortSuffixes(text, rows, lo, lt, d);
+                sortSuffixes(text, rows, gt, hi, d);
+                lo = lt;
+                hi = gt;
+                d++;
+            } else {
+                if (equal > 0) {
+                    sortSuffixes(text, rows, lt, gt, d + 1);
+                }
+                if (less >= greater) {
+                    sortSuffixes(text, rows, gt, hi, d);
+                    hi = lt;
+                } else {
+                    sortSuffixes(text, rows, lo, lt, d);
+                    lo = gt;
+                }
+            }
+        }
+        for (int i = lo + 1; i < hi; i++) {
+            int row = rows[i];
+            int j = i;
+            while (j > lo && compareSuffixes(text, rows[j - 1], row, d) > 0) {
+                rows[j] = rows[j - 1];
+                j--;
+            }
+            rows[j] = row;
+        }
+    }
+
+    /**
+     * Returns the median of the codes at a depth of the first, middle and
+     * last suffix of a range.
+     *
+     * @param text the text in codes.
+     * @param rows the suffix start positions.
+     * @param lo the first row of the range.
+     * @param hi the row after the range.
+     * @param depth the offset of the compared codes.
+     * @return the median code.
+     */
+    private static int medianKey(
+        final char[] text,
+        final int[] rows,
+        final int lo,
+        final int hi,
+        final int depth
+    ) {
+        int a = text[rows[lo] + depth];
+        int b = text[rows[(lo + hi) >>> 1] + depth];
+        int c = text[rows[hi - 1] + depth];
+        return Math.max(Math.min(a, b), Math.min(Math.max(a, b), c));
+    }
+
+    /**
+     * Compares two suffixes that share their first codes.
+     *
+     * @param text the text in codes.
+     * @param a the start of the first suffix.
+     * @param b the start of the second suffix.
+     * @param depth the number of codes known to be equal.
+     * @return a negative number, zero or a positive number as the first
+     * suffix sorts before, with or after the second.
+     */
+    private static int compareSuffixes(
+        final char[] text,
+        final int a,
+        final int b,
+        final int depth
+    ) {
+        int i = a + depth;
+        int j = b + depth;
+        while (text[i] == text[j]) {
+            if (text[i] == END) {
+                return Integer.compare(a, b);
+            }
+            i++;
+            j++;
+        }
+        return text[i] - text[j];
+    }
+
+    /**
+     * Swaps two rows.
+     *
+     * @param rows the rows.
+     * @param i the first row.
+     * @param j the second row.
+     */
+    private static void swap(final int[] rows, final int i, final int j) {
+        int row = rows[i];
+        rows[i] = rows[j];
+        rows[j] = row;
+    }
+}
@@ -1,6 +1,8 @@
 package autocomplete;
 
-import static autocomplete.Constants.REGEX_ALPHABETIC;
+import static autocomplete.Constants.ALPHABET_SIZE;
+import static autocomplete.Constants.DEFAULT_WORD_WEIGHT;
+import static autocomplete.Constants.REGEX_WHITESPACE;
 
 import java.io.BufferedReader;
 import java.io.File;
@@ -9,16 +11,43 @@ import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
 import java.nio.charset.StandardCharsets;
-import java.util.Locale;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
 
 /**
  * A utility class to build a Trie data structure from
- * a file resource. The file is expected to contain a
- * list of words, each word separated by whitespace or newlines.
+ * a file resource or a stream. The input is expected to contain one
+ * word per line, optionally followed by whitespace and a non-negative
+ * integer weight (e.g. a query-log frequency) used for ranking.
  */
 final class TrieFileBuilder {
 
+    /**
+     * Number of byte ranges per pool thread in a parallel build, so that
+     * uneven ranges still keep every thread busy.
+     */
+    private static final int CHUNKS_PER_THREAD = 4;
+
+    /**
+     * Smallest byte range worth parsing as a separate task.
+     */
+    private static final int MIN_CHUNK_BYTES = 64 * 1024;
+
     /**
      * Private constructor to prevent instantiation of this utility class.
      */
@@ -45,6 +74,136 @@ final class TrieFileBuilder {
         return appendTrieFromFile(node, dictionaryPath);
     }
 
+    /**
+     * Builds a read-only {@link CompactTrie} from a dictionary file. The
+     * intermediate {@link TrieNode} graph is discarded once packed, so
+     * only the compact form stays on the heap.
+     *
+     * @param dictionaryPath The file path to the dictionary file.
+     * @return A {@link CompactTrie} holding the words of the dictionary.
+     * @throws RuntimeException If the dictionary file is not found
+     * or an error occurs during reading.
+     */
+    public static CompactTrie buildCompactTrieFromFile(
+        final String dictionaryPath
+    ) {
+        return CompactTrie.fromTrie(buildTrieFromFile(dictionaryPath));
+    }
+
+    /**
+     * Builds a path-compressed {@link RadixTrie} from a dictionary file.
+     * The intermediate {@link TrieNode} graph is discarded once
+     * compressed.
+     *
+     * @param dictionaryPath The file path to the dictionary file.
+     * @return A {@link RadixTrie} holding the words of the dictionary.
+     * @throws RuntimeException If the dictionary file is not found
+     * or an error occurs during reading.
+     */
+    public static RadixTrie buildRadixTrieFromFile(
+        final String dictionaryPath
+    ) {
+        return RadixTrie.fromTrie(buildTrieFromFile(dictionaryPath));
+    }
+
+    /**
+     * Builds a {@link SubstringIndex} of the words in a dictionary file,
+     * for suffix and infix queries. The words are indexed as read,
+     * without building a Trie; an {@link ACLImplementation} loading a
+     * dictionary builds the same index alongside its Trie.
+     *
+     * @param dictionaryPath The file path to the dictionary file.
+     * @return A {@link SubstringIndex} of the words of the dictionary.
+     * @throws RuntimeException If the dictionary file is not found
+     * or an error occurs during reading.
+     */
+    public static SubstringIndex buildSubstringIndexFromFile(
+        final String dictionaryPath
+    ) {
+        List<String> words = new ArrayList<>();
+        readDictionary(dictionaryPath,
+            (word, weight, weighted) -> words.add(word.toString()));
+        return SubstringIndex.fromWords(words);
+    }
+
+    /**
+     * Builds a minimal {@link Dawg} from a dictionary file in one pass,
+     * without an intermediate Trie. Words are expected in lexicographic
+     * order; the few that are out of order are set aside and merged in
+     * by a second build at the end, so an unsorted file still loads, at
+     * the cost of building twice. Weights are ignored.
+     *
+     * @param dictionaryPath The file path to the dictionary file.
+     * @return A {@link Dawg} holding the words of the dictionary.
+     * @throws RuntimeException If the dictionary file is not found
+     * or an error occurs during reading.
+     */
+    public static Dawg buildDawgFromFile(final String dictionaryPath) {
+        Dawg.Builder builder = new Dawg.Builder();
+        List<String> unordered = new ArrayList<>();
+        readDictionary(dictionaryPath, (word, weight, weighted) -> {
+            if (builder.accepts(word)) {
+                builder.addFolded(word);
+            } else {
+                unordered.add(word.toString());
+            }
+        });
+        Dawg dawg = builder.build();
+        if (unordered.isEmpty()) {
+            return dawg;
+        }
+        return mergeIntoDawg(dawg.getWordsWithPrefix(""), unordered);
+    }
+
+    /**
+     * Passes every entry of a dictionary file to a consumer, for loaders
+     * that do not build a Trie or keep only some of the words.
+     *
+     * @param dictionaryPath the resource name or file path.
+     * @param consumer the consumer receiving each folded word; the word
+     * is reused and must be copied to be kept.
+     * @throws RuntimeException If the dictionary is not found, a line is
+     * malformed or an error occurs during reading.
+     */
+    static void readDictionary(
+        final String dictionaryPath,
+        final DictionaryReader.EntryConsumer consumer
+    ) {
+        try (ReadableByteChannel channel = openChannel(dictionaryPath)) {
+            new DictionaryReader(consumer, null).read(channel, dictionaryPath);
+        } catch (IOException e) {
+            throw new RuntimeException(
+                "Error reading resource: " + dictionaryPath);
+        }
+    }
+
+    /**
+     * Builds a {@link Dawg} from a sorted list of words and an unsorted
+     * one, merging them in order.
+     *
+     * @param sorted the words in lexicographic order.
+     * @param unordered the other words; sorted in place.
+     * @return a graph holding the words of both lists.
+     */
+    private static Dawg mergeIntoDawg(
+        final List<String> sorted,
+        final List<String> unordered
+    ) {
+        unordered.sort(null);
+        Dawg.Builder builder = new Dawg.Builder();
+        int i = 0;
+        int j = 0;
+        while (i < sorted.size() || j < unordered.size()) {
+            if (j == unordered.size() || i < sorted.size()
+                && sorted.get(i).compareTo(unordered.get(j)) <= 0) {
+                builder.addFolded(sorted.get(i++));
+            } else {
+                builder.addFolded(unordered.get(j++));
+            }
+        }
+        return builder.build();
+    }
+
     /**
      * Appends words from a specified dictionary file to an existing TrieNode.
      * This method is useful for adding more words to an existing Trie data
@@ -61,19 +220,167 @@ final class TrieFileBuilder {
         final TrieNode node,
         final String dictionaryPath
     ) {
-        InputStream inputStream = null;
+        return appendTrieFromFile(node, dictionaryPath, null);
+    }
 
-        try {
-            inputStream = TrieFileBuilder.class.getClassLoader()
-                .getResourceAsStream(dictionaryPath);
+    /**
+     * Appends words from a dictionary file to an existing TrieNode,
+     * optionally in lenient mode, where malformed lines are skipped and
+     * reported instead of failing the load.
+     *
+     * @param node The root node of the Trie to which words are to be appended.
+     * @param dictionaryPath The file path to the dictionary whose words are to
+     * be appended.
+     * @param listener the listener receiving malformed lines, or
+     * {@code null} to fail on the first one.
+     * @return The updated {@link TrieNode} after appending the words.
+     * @throws RuntimeException If the file does not exist, an error occurs
+     * during file reading, or, without a listener, a line is malformed.
+     */
+    public static TrieNode appendTrieFromFile(
+        final TrieNode node,
+        final String dictionaryPath,
+        final InvalidLineListener listener
+    ) {
+        try (ReadableByteChannel channel = openChannel(dictionaryPath)) {
+            return appendTrieFromChannel(
+                node, channel, dictionaryPath, listener);
+        } catch (IOException e) {
+            throw new RuntimeException(
+                "Error reading resource: "
+                    + dictionaryPath);
+        }
+    }
 
-            if (inputStream == null) {
-                File file = new File(dictionaryPath);
-                inputStream = new FileInputStream(file);
-            }
-        } catch (FileNotFoundException e) {
-            throw new RuntimeException("File not found: " + dictionaryPath);
+    /**
+     * Builds a Trie from a dictionary read from a stream, such as the
+     * output of another process or standard input. Gzip-compressed
+     * input is decompressed on the fly.
+     *
+     * @param inputStream the stream to read; it is read to its end but
+     * not closed.
+     * @return A {@link TrieNode} representing the root of the
+     * constructed Trie.
+     * @throws RuntimeException If a line is malformed or an error occurs
+     * during reading.
+     */
+    public static TrieNode buildTrieFromStream(final InputStream inputStream) {
+        return appendTrieFromStream(new TrieNode(), inputStream);
+    }
+
+    /**
+     * Appends words from a dictionary read from a stream to an existing
+     * TrieNode. Gzip-compressed input is decompressed on the fly.
+     *
+     * @param node The root node of the Trie to which words are to be appended.
+     * @param inputStream the stream to read; it is read to its end but
+     * not closed.
+     * @return The updated {@link TrieNode} after appending the words.
+     * @throws RuntimeException If a line is malformed or an error occurs
+     * during reading.
+     */
+    public static TrieNode appendTrieFromStream(
+        final TrieNode node,
+        final InputStream inputStream
+    ) {
+        return appendTrieFromStream(node, inputStream, null);
+    }
+
+    /**
+     * Appends words from a dictionary read from a stream to an existing
+     * TrieNode, optionally in lenient mode, where malformed lines are
+     * skipped and reported instead of failing the load.
+     *
+     * @param node The root node of the Trie to which words are to be appended.
+     * @param inputStream the stream to read; it is read to its end but
+     * not closed.
+     * @param listener the listener receiving malformed lines, or
+     * {@code null} to fail on the first one.
+     * @return The updated {@link TrieNode} after appending the words.
+     * @throws RuntimeException If an error occurs during reading or,
+     * without a listener, a line is malformed.
+     */
+    public static TrieNode appendTrieFromStream(
+        final TrieNode node,
+        final InputStream inputStream,
+        final InvalidLineListener listener
+    ) {
+        return appendTrieFromChannel(node,
+            Channels.newChannel(inputStream), "input stream", listener);
+    }
+
+    /**
+     * Appends words from a dictionary read from a channel to an existing
+     * TrieNode. Gzip-compressed input is decompressed on the fly.
+     *
+     * @param node The root node of the Trie to which words are to be appended.
+     * @param channel the channel to read; it is read to its end but not
+     * closed.
+     * @return The updated {@link TrieNode} after appending the words.
+     * @throws RuntimeException If a line is malformed or an error occurs
+     * during reading.
+     */
+    public static TrieNode appendTrieFromChannel(
+        final TrieNode node,
+        final ReadableByteChannel channel
+    ) {
+        return appendTrieFromChannel(node, channel, "input channel", null);
+    }
+
+    /**
+     * Appends the words read from a channel to a Trie. The reader hands
+     * over words already validated and folded, so they are inserted
+     * without being checked again. Runs of sorted words are inserted
+     * along the path of the previous word rather than from the root; see
+     * {@link SortedTrieLoader}.
+     *
+     * @param node the root node of the Trie.
+     * @param channel the channel to read.
+     * @param source a name for the input, used in error messages.
+     * @param listener the listener receiving malformed lines, or
+     * {@code null} to fail on the first one.
+     * @return the root node.
+     */
+    private static TrieNode appendTrieFromChannel(
+        final TrieNode node,
+        final ReadableByteChannel channel,
+        final String source,
+        final InvalidLineListener listener
+    ) {
+        SortedTrieLoader loader = new SortedTrieLoader(node);
+        try {
+            new DictionaryReader(loader, listener).read(channel, source);
+        } finally {
+            loader.finish();
         }
+        return node;
+    }
+
+    /**
+     * Applies a delta file to a Trie without modifying it, returning a new
+     * Trie that shares every unchanged branch with the original. Each
+     * line is either {@code +word}, optionally followed by a weight, to
+     * insert a word, or {@code -word} to remove one. A {@code +} line
+     * without a weight keeps the weight of an existing word. Each node of
+     * the original Trie on a changed path is copied once, however many
+     * lines change it.
+     *
+     * @param node The root node of the original Trie; it is left
+     * unchanged.
+     * @param deltaPath The file path to the delta file.
+     * @return The root node of the updated Trie.
+     * @throws RuntimeException If the file does not exist, a line is
+     * malformed, or an error occurs during file reading.
+     */
+    static TrieNode applyDeltaFromFile(
+        final TrieNode node,
+        final String deltaPath
+    ) {
+        TrieNode root = node;
+        // Nodes of the new Trie that the original does not share
+        Set<TrieNode> fresh =
+            Collections.newSetFromMap(new IdentityHashMap<>());
+        InputStream inputStream = openDictionary(deltaPath);
 
         try (BufferedReader br = new BufferedReader(new InputStreamReader(
             inputStream,
@@ -81,27 +388,589 @@ final class TrieFileBuilder {
         ) {
             String line;
             while ((line = br.readLine()) != null) {
-                line = line.trim();
-                if (line.isEmpty()) {
+                String trimmed = line.trim();
+                if (trimmed.isEmpty()) {
                     continue;
                 }
-                if (line.contains(" ") || !line.matches(REGEX_ALPHABETIC)) {
-                    throw new RuntimeException("Invalid line: \"" + line
-                        + "\". Each line must contain exactly one word and "
-                        + "words must contain only letters."
-                    );
+                DictionaryEntry entry = parseDeltaLine(trimmed);
+                // Copy the path first so the original Trie stays intact
+                root = ACLImplementation.copyPath(root, entry.word, fresh);
+                if (trimmed.charAt(0) == '-') {
+                    ACLImplementation.remove(root, entry.word);
+                    continue;
+                }
+                if (entry.weighted) {
+                    ACLImplementation.insert(root, entry.word, entry.weight);
+                } else {
+                    ACLImplementation.insert(root, entry.word);
                 }
-                ACLImplementation.insert(
-                    node,
-                    line.toLowerCase(Locale.ENGLISH)
-                );
+                ACLImplementation.markFresh(root, entry.word, fresh);
             }
         } catch (IOException e) {
             throw new RuntimeException(
                 "Error reading resource: "
-                    + dictionaryPath);
+                    + deltaPath);
+        }
+
+        return root;
+    }
+
+    /**
+     * Builds a Trie from a dictionary file using all threads of the
+     * common fork-join pool. See
+     * {@link #appendTrieFromFileParallel(TrieNode, String, ForkJoinPool)}.
+     *
+     * @param dictionaryPath The file path to the dictionary file.
+     * @return A {@link TrieNode} representing the root of the
+     * constructed Trie.
+     * @throws RuntimeException If the dictionary file is not found
+     * or an error occurs during reading.
+     */
+    public static TrieNode buildTrieFromFileParallel(
+        final String dictionaryPath
+    ) {
+        return appendTrieFromFileParallel(
+            new TrieNode(), dictionaryPath, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Appends words from a dictionary file to an existing TrieNode using
+     * several threads. The result is the same as that of
+     * {@link #appendTrieFromFile(TrieNode, String)}.
+     * <p>
+     * The file is split into byte ranges aligned to line boundaries,
+     * which are parsed in parallel and grouped by first letter. Every
+     * first letter then owns a disjoint subtree below the root, so the
+     * subtrees are filled in parallel without any locking and attached
+     * to the root at the end. Within a letter, words are inserted in
+     * file order, so a repeated word keeps its last weight.
+     * </p>
+     *
+     * @param node The root node of the Trie to which words are to be appended.
+     * @param dictionaryPath The file path to the dictionary whose words are to
+     * be appended.
+     * @param pool the pool that runs the parsing and building tasks.
+     * @return The updated {@link TrieNode} after appending the words.
+     * @throws RuntimeException If the file does not exist or an error occurs
+     * during file reading.
+     */
+    public static TrieNode appendTrieFromFileParallel(
+        final TrieNode node,
+        final String dictionaryPath,
+        final ForkJoinPool pool
+    ) {
+        return appendTrieFromFileParallel(node, dictionaryPath, pool, null);
+    }
+
+    /**
+     * Appends words from a dictionary file to an existing TrieNode using
+     * several threads, optionally in lenient mode. See
+     * {@link #appendTrieFromFileParallel(TrieNode, String, ForkJoinPool)}.
+     * Malformed lines are collected while the chunks are parsed and
+     * reported in file order, with their line numbers, before any word
+     * is inserted.
+     *
+     * @param node The root node of the Trie to which words are to be appended.
+     * @param dictionaryPath The file path to the dictionary whose words are to
+     * be appended.
+     * @param pool the pool that runs the parsing and building tasks.
+     * @param listener the listener receiving malformed lines, or
+     * {@code null} to fail on the first one.
+     * @return The updated {@link TrieNode} after appending the words.
+     * @throws RuntimeException If the file does not exist, an error occurs
+     * during file reading, or, without a listener, a line is malformed.
+     */
+    public static TrieNode appendTrieFromFileParallel(
+        final TrieNode node,
+        final String dictionaryPath,
+        final ForkJoinPool pool,
+        final InvalidLineListener listener
+    ) {
+        List<ParsedChunk> chunks = parseChunks(dictionaryPath, pool);
+        reportInvalidLines(chunks, listener);
+
+        TrieNode[] subtries = new TrieNode[ALPHABET_SIZE];
+        List<Callable<TrieNode>> buildTasks = new ArrayList<>();
+        for (int i = 0; i < ALPHABET_SIZE; i++) {
+            int letter = i;
+            TrieNode subtrie = node.getChild(letter);
+            if (subtrie == null) {
+                subtrie = new TrieNode();
+            }
+            subtries[letter] = subtrie;
+            buildTasks.add(() -> buildSubtrie(
+                subtries[letter], chunks, letter));
         }
+        invokeAll(pool, buildTasks);
 
+        for (int i = 0; i < ALPHABET_SIZE; i++) {
+            if (subtries[i].isWordEnd() || subtries[i].getChildCount() > 0) {
+                node.setChild(i, subtries[i]);
+            }
+        }
+        // Words starting with other letters are rare; insert them whole
+        for (ParsedChunk chunk : chunks) {
+            for (DictionaryEntry entry : chunk.byLetter.get(ALPHABET_SIZE)) {
+                ACLImplementation.insertFolded(
+                    node, entry.word, entry.weight);
+            }
+        }
+        ACLImplementation.recomputeAggregates(node);
         return node;
     }
+
+    /**
+     * Parses a dictionary file once, in byte ranges on several threads,
+     * and groups its entries by first letter, for loaders that split the
+     * words between several Tries.
+     *
+     * @param dictionaryPath the resource name or file path.
+     * @param pool the pool that runs the parsing tasks.
+     * @return the entries whose words start with each letter index, in
+     * file order, followed by the entries of words starting with any
+     * other letter.
+     * @throws RuntimeException If the dictionary is not found, a line is
+     * malformed or an error occurs during reading.
+     */
+    static List<List<DictionaryEntry>> parseByFirstLetter(
+        final String dictionaryPath,
+        final ForkJoinPool pool
+    ) {
+        List<ParsedChunk> chunks = parseChunks(dictionaryPath, pool);
+        reportInvalidLines(chunks, null);
+        List<List<DictionaryEntry>> groups = new ArrayList<>();
+        for (int letter = 0; letter <= ALPHABET_SIZE; letter++) {
+            List<DictionaryEntry> group = new ArrayList<>();
+            for (ParsedChunk chunk : chunks) {
+                group.addAll(chunk.byLetter.get(letter));
+            }
+            groups.add(group);
+        }
+        return groups;
+    }
+
+    /**
+     * Reads a dictionary and parses byte ranges of it aligned to line
+     * boundaries in parallel.
+     *
+     * @param dictionaryPath the resource name or file path.
+     * @param pool the pool that runs the parsing tasks.
+     * @return the parsed ranges, in file order.
+     */
+    private static List<ParsedChunk> parseChunks(
+        final String dictionaryPath,
+        final ForkJoinPool pool
+    ) {
+        ByteBuffer bytes = readDictionary(dictionaryPath);
+        int chunkCount = Math.max(1, Math.min(
+            pool.getParallelism() * CHUNKS_PER_THREAD,
+            bytes.limit() / MIN_CHUNK_BYTES));
+
+        List<Callable<ParsedChunk>> parseTasks = new ArrayList<>();
+        for (int i = 0; i < chunkCount; i++) {
+            int start = lineStart(bytes,
+                (int) ((long) bytes.limit() * i / chunkCount));
+            int end = lineStart(bytes,
+                (int) ((long) bytes.limit() * (i + 1) / chunkCount));
+            parseTasks.add(() -> parseChunk(bytes, start, end));
+        }
+        return invokeAll(pool, parseTasks);
+    }
+
+    /**
+     * Inserts all words starting with one letter into the subtree for
+     * that letter. Only the part of each word after the first letter is
+     * inserted, since the subtree root stands for the first letter.
+     *
+     * @param subtrie the subtree root for the letter.
+     * @param chunks the parsed chunks, in file order, grouped by letter.
+     * @param letter the letter index.
+     * @return the subtree root.
+     */
+    private static TrieNode buildSubtrie(
+        final TrieNode subtrie,
+        final List<ParsedChunk> chunks,
+        final int letter
+    ) {
+        for (ParsedChunk chunk : chunks) {
+            for (DictionaryEntry entry : chunk.byLetter.get(letter)) {
+                ACLImplementation.insertFolded(
+                    subtrie, entry.word.substring(1), entry.weight);
+            }
+        }
+        return subtrie;
+    }
+
+    /**
+     * Reports the malformed lines found by the chunk parsers in file
+     * order, numbering each line from the line counts of the chunks
+     * before it.
+     *
+     * @param chunks the parsed chunks, in file order.
+     * @param listener the listener receiving malformed lines, or
+     * {@code null} to fail on the first one.
+     * @throws RuntimeException If there is a malformed line and no
+     * listener.
+     */
+    private static void reportInvalidLines(
+        final List<ParsedChunk> chunks,
+        final InvalidLineListener listener
+    ) {
+        long linesBefore = 0;
+        for (ParsedChunk chunk : chunks) {
+            for (int i = 0; i < chunk.invalidLines.size(); i++) {
+                long lineNumber = linesBefore + chunk.invalidNumbers.get(i);
+                String line = chunk.invalidLines.get(i);
+                if (listener == null) {
+                    throw DictionaryReader.invalidLine(lineNumber, line);
+                }
+                listener.invalidLine(lineNumber, line);
+            }
+            linesBefore += chunk.lineCount;
+        }
+    }
+
+    /**
+     * Parses the lines of one byte range of a dictionary.
+     *
+     * @param bytes the whole dictionary.
+     * @param start the offset of the first line of the range.
+     * @param end the offset just past the last line of the range.
+     * @return the parsed entries and the malformed lines of the range.
+     */
+    private static ParsedChunk parseChunk(
+        final ByteBuffer bytes,
+        final int start,
+        final int end
+    ) {
+        ParsedChunk chunk = new ParsedChunk();
+        DictionaryReader reader = new DictionaryReader(
+            (word, weight, weighted) -> {
+                int letter = Math.min(
+                    Alphabet.index(word.charAt(0)), ALPHABET_SIZE);
+                chunk.byLetter.get(letter).add(
+                    new DictionaryEntry(word.toString(), weight, weighted));
+            },
+            (lineNumber, line) -> {
+                chunk.invalidNumbers.add(lineNumber);
+                chunk.invalidLines.add(line);
+            });
+        reader.parseAll(bytes, start, end);
+        chunk.lineCount = reader.getLineCount();
+        return chunk;
+    }
+
+    /**
+     * Finds the start of the first line that begins at or after an
+     * offset.
+     *
+     * @param bytes the whole dictionary.
+     * @param offset the offset to start looking from.
+     * @return the offset of the line start, or the end of the buffer if
+     * no line starts at or after the offset.
+     */
+    private static int lineStart(final ByteBuffer bytes, final int offset) {
+        if (offset == 0) {
+            return 0;
+        }
+        int position = offset - 1;
+        while (position < bytes.limit() && bytes.get(position) != '\n') {
+            position++;
+        }
+        return Math.min(position + 1, bytes.limit());
+    }
+
+    /**
+     * Runs tasks on a pool and waits for all of them.
+     *
+     * @param pool the pool to run the tasks on.
+     * @param tasks the tasks to run.
+     * @param <T> the result type of the tasks.
+     * @return the task results, in task order.
+     * @throws RuntimeException If a task failed or the wait was
+     * interrupted.
+     */
+    static <T> List<T> invokeAll(
+        final ForkJoinPool pool,
+        final List<Callable<T>> tasks
+    ) {
+        List<T> results = new ArrayList<>();
+        try {
+            for (Future<T> future : pool.invokeAll(tasks)) {
+                results.add(future.get());
+            }
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new RuntimeException(e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted while waiting for tasks.");
+        }
+        return results;
+    }
+
+    /**
+     * Opens a dictionary as a classpath resource or, failing that, as a
+     * file on the filesystem.
+     *
+     * @param dictionaryPath the resource name or file path.
+     * @return a stream over the dictionary contents.
+     * @throws RuntimeException If the dictionary does not exist.
+     */
+    private static InputStream openDictionary(final String dictionaryPath) {
+        InputStream inputStream = null;
+
+        try {
+            inputStream = TrieFileBuilder.class.getClassLoader()
+                .getResourceAsStream(dictionaryPath);
+
+            if (inputStream == null) {
+                File file = new File(dictionaryPath);
+                inputStream = new FileInputStream(file);
+            }
+        } catch (FileNotFoundException e) {
+            throw new RuntimeException("File not found: " + dictionaryPath);
+        }
+        return inputStream;
+    }
+
+    /**
+     * Opens a dictionary as a classpath resource or, failing that, as a
+     * file on the filesystem, for reading through a channel.
+     *
+     * @param dictionaryPath the resource name or file path.
+     * @return a channel over the dictionary contents.
+     * @throws RuntimeException If the dictionary does not exist.
+     */
+    private static ReadableByteChannel openChannel(
+        final String dictionaryPath
+    ) {
+        InputStream inputStream = TrieFileBuilder.class.getClassLoader()
+            .getResourceAsStream(dictionaryPath);
+        if (inputStream != null) {
+            return Channels.newChannel(inputStream);
+        }
+        try {
+            return FileChannel.open(
+                Paths.get(dictionaryPath), StandardOpenOption.READ);
+        } catch (NoSuchFileException e) {
+            throw new RuntimeException("File not found: " + dictionaryPath);
+        } catch (IOException e) {
+            throw new RuntimeException(
+                "Error reading resource: " + dictionaryPath);
+        }
+    }
+
+    /**
+     * Reads a whole dictionary into a buffer that allows random access.
+     * Files are memory-mapped; classpath resources and gzip-compressed
+     * dictionaries are read into memory.
+     *
+     * @param dictionaryPath the resource name or file path.
+     * @return a buffer holding the dictionary contents.
+     * @throws RuntimeException If the dictionary does not exist or an
+     * error occurs during reading.
+     */
+    private static ByteBuffer readDictionary(final String dictionaryPath) {
+        if (TrieFileBuilder.class.getClassLoader()
+            .getResource(dictionaryPath) == null) {
+            try (FileChannel channel = FileChannel.open(
+                Paths.get(dictionaryPath), StandardOpenOption.READ)
+            ) {
+                return DictionaryReader.decompress(channel.map(
+                    FileChannel.MapMode.READ_ONLY, 0, channel.size()),
+                    dictionaryPath);
+            } catch (NoSuchFileException e) {
+                throw new RuntimeException(
+                    "File not found: " + dictionaryPath);
+            } catch (IOException e) {
+                throw new RuntimeException(
+                    "Error reading resource: " + dictionaryPath);
+            }
+        }
+        try (InputStream inputStream = openDictionary(dictionaryPath)) {
+            return DictionaryReader.decompress(
+                ByteBuffer.wrap(inputStream.readAllBytes()), dictionaryPath);
+        } catch (IOException e) {
+            throw new RuntimeException(
+                "Error reading resource: " + dictionaryPath);
+        }
+    }
+
+    /**
+     * Parses one dictionary line into a lowercase word and its weight.
+     *
+     * @param rawLine the line, possibly with surrounding whitespace.
+     * @return the parsed entry, or {@code null} for a blank line.
+     * @throws RuntimeException If the line is malformed.
+     */
+    private static DictionaryEntry parseLine(final String rawLine) {
+        String line = rawLine.trim();
+        if (line.isEmpty()) {
+            return null;
+        }
+        String[] columns = line.split(REGEX_WHITESPACE);
+        String word = Alphabet.fold(columns[0]);
+        if (columns.length > 2 || !Alphabet.isWord(word)) {
+            throw DictionaryReader.invalidLine(line);
+        }
+        long weight = DEFAULT_WORD_WEIGHT;
+        boolean weighted = columns.length == 2;
+        if (weighted) {
+            weight = parseWeight(line, columns[1]);
+        }
+        return new DictionaryEntry(word, weight, weighted);
+    }
+
+    /**
+     * Parses one non-blank line of a delta file.
+     *
+     * @param line the trimmed line.
+     * @return the word of the line and its weight, if any.
+     * @throws RuntimeException If the line is malformed.
+     */
+    private static DictionaryEntry parseDeltaLine(final String line) {
+        char operation = line.charAt(0);
+        DictionaryEntry entry = null;
+        if (operation == '+' || operation == '-') {
+            try {
+                entry = parseLine(line.substring(1));
+            } catch (RuntimeException e) {
+                entry = null;
+            }
+        }
+        if (entry == null || operation == '-' && entry.weighted) {
+            throw new RuntimeException("Invalid delta line: \"" + line
+                + "\". Each line must be '+' followed by a word and an "
+                + "optional non-negative weight, or '-' followed by a word."
+            );
+        }
+        return entry;
+    }
+
+    /**
+     * Parses the optional weight column of a dictionary line.
+     *
+     * @param line the full line, used for error reporting.
+     * @param column the text of the weight column.
+     * @return the parsed weight.
+     * @throws RuntimeException If the column is not a non-negative integer.
+     */
+    private static long parseWeight(final String line, final String column) {
+        long weight;
+        try {
+            weight = Long.parseLong(column);
+        } catch (NumberFormatException e) {
+            throw DictionaryReader.invalidLine(line);
+        }
+        if (weight < 0) {
+            throw DictionaryReader.invalidLine(line);
+        }
+        return weight;
+    }
+
+    /**
+     * The result of parsing one byte range of a dictionary.
+     */
+    private static final class ParsedChunk {
+
+        /**
+         * The parsed entries, grouped by the index of their first
+         * letter, followed by one group for words starting with a
+         * letter other than 'a' to 'z'.
+         */
+        private final List<List<DictionaryEntry>> byLetter =
+            new ArrayList<>();
+
+        /**
+         * The numbers of the malformed lines, counted within the range.
+         */
+        private final List<Long> invalidNumbers = new ArrayList<>();
+
+        /**
+         * The text of the malformed lines.
+         */
+        private final List<String> invalidLines = new ArrayList<>();
+
+        /**
+         * The number of lines in the range.
+         */
+        private long lineCount;
+
+        /**
+         * Constructs an empty result.
+         */
+        ParsedChunk() {
+            for (int i = 0; i <= ALPHABET_SIZE; i++) {
+                byLetter.add(new ArrayList<>());
+            }
+        }
+    }
+
+    /**
+     * A word read from a dictionary line together with its weight.
+     */
+    static final class DictionaryEntry {
+
+        /**
+         * The lowercase word.
+         */
+        private final String word;
+
+        /**
+         * The weight of the word.
+         */
+        private final long weight;
+
+        /**
+         * Whether the weight was given on the line rather than defaulted.
+         */
+        private final boolean weighted;
+
+        /**
+         * Constructs a new dictionary entry.
+         *
+         * @param entryWord the lowercase word.
+         * @param entryWeight the weight of the word.
+         * @param hasWeight whether the weight was given on the line.
+         */
+        DictionaryEntry(
+            final String entryWord,
+            final long entryWeight,
+            final boolean hasWeight
+        ) {
+            this.word = entryWord;
+            this.weight = entryWeight;
+            this.weighted = hasWeight;
+        }
+
+        /**
+         * Returns the word.
+         *
+         * @return the lowercase word.
+         */
+        String getWord() {
+            return word;
+        }
+
+        /**
+         * Returns the weight of the word.
+         *
+         * @return the weight.
+         */
+        long getWeight() {
+            return weight;
+        }
+
+        /**
+         * Returns whether the weight was given on the line.
+         *
+         * @return {@code true} unless the weight was defaulted.
+         */
+        boolean isWeighted() {
+            return weighted;
+        }
+    }
 }
@@ -0,0 +1,272 @@
+package autocomplete;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.LongAdder;
+import javax.management.JMException;
+import javax.management.MalformedObjectNameException;
+import javax.management.ObjectName;
+
+/**
+ * The default {@link AutoCompleteMetrics}: per kind of query, a
+ * {@link LatencyHistogram} of latencies and counters of results and
+ * subtree sizes, plus the figures of the last build. Recording takes no
+ * lock, so one instance can serve every thread of a server and several
+ * {@link ACLImplementation}s.
+ * <p>
+ * By default one query in {@value #DEFAULT_SAMPLE_INTERVAL} is measured,
+ * which keeps the cost of measuring below a few percent even for exact
+ * lookups. Counts and totals are then estimates, scaled up by the sample
+ * interval; the latency percentiles are those of the sampled queries.
+ * Pass a sample interval of 1 to measure every query.
+ * </p>
+ * <p>
+ * The figures can be read directly, or over JMX after {@link #register}:
+ * </p>
+ * <pre>{@code
+ * TrieMetrics metrics = new TrieMetrics();
+ * metrics.register("main");
+ * acl.setMetrics(metrics);
+ * }</pre>
+ */
+public final class TrieMetrics
+    implements AutoCompleteMetrics, TrieMetricsMXBean {
+
+    /**
+     * The sample interval of metrics constructed without one.
+     */
+    public static final int DEFAULT_SAMPLE_INTERVAL = 16;
+
+    /**
+     * The JMX domain of registered metrics.
+     */
+    private static final String DOMAIN = "autocomplete";
+
+    /**
+     * The kinds of query, indexed by ordinal.
+     */
+    private static final Query[] QUERIES = Query.values();
+
+    /**
+     * How many queries each recorded query stands for.
+     */
+    private final int sampleInterval;
+
+    /**
+     * The latencies of each kind of query.
+     */
+    private final LatencyHistogram[] latencies =
+        new LatencyHistogram[QUERIES.length];
+
+    /**
+     * The number of words returned by each kind of query.
+     */
+    private final LongAdder[] resultTotals = new LongAdder[QUERIES.length];
+
+    /**
+     * The subtree sizes of each kind of query.
+     */
+    private final LongAdder[] subtreeTotals = new LongAdder[QUERIES.length];
+
+    /**
+     * The time of the last recorded build, in nanoseconds.
+     */
+    private long buildNanos;
+
+    /**
+     * The number of words of the last recorded build.
+     */
+    private int wordCount;
+
+    /**
+     * The number of nodes of the last recorded build.
+     */
+    private int nodeCount;
+
+    /**
+     * The name under which these metrics are registered, or {@code null}.
+     */
+    private ObjectName registeredName;
+
+    /**
+     * Constructs metrics with nothing recorded that sample one query in
+     * {@value #DEFAULT_SAMPLE_INTERVAL}.
+     */
+    public TrieMetrics() {
+        this(DEFAULT_SAMPLE_INTERVAL);
+    }
+
+    /**
+     * Constructs metrics with nothing recorded.
+     *
+     * @param interval the number of queries each measured query stands
+     * for; 1 to measure every query.
+     * @throws IllegalArgumentException if {@code interval} is not a
+     * positive power of two.
+     */
+    public TrieMetrics(final int interval) {
+        if (interval <= 0 || Integer.bitCount(interval) != 1) {
+            throw new IllegalArgumentException(
+                "Sample interval must be a positive power of two: "
+                + interval);
+        }
+        this.sampleInterval = interval;
+        for (int i = 0; i < QUERIES.length; i++) {
+            latencies[i] = new LatencyHistogram();
+            resultTotals[i] = new LongAdder();
+            subtreeTotals[i] = new LongAdder();
+        }
+    }
+
+    @Override
+    public int getSampleInterval() {
+        return sampleInterval;
+    }
+
+    @Override
+    public void recordQuery(
+        final Query query,
+        final long nanos,
+        final int subtreeSize,
+        final int results
+    ) {
+        int kind = query.ordinal();
+        latencies[kind].record(nanos);
+        resultTotals[kind].add(results);
+        subtreeTotals[kind].add(subtreeSize);
+    }
+
+    @Override
+    public synchronized void recordBuild(
+        final long nanos,
+        final int words,
+        final int nodes
+    ) {
+        buildNanos = nanos;
+        wordCount = words;
+        nodeCount = nodes;
+    }
+
+    /**
+     * Returns the latency histogram of one kind of query, for percentiles
+     * other than those of {@link QueryStatistics}.
+     *
+     * @param query the kind of query.
+     * @return the live histogram.
+     */
+    public LatencyHistogram getLatencies(final Query query) {
+        return latencies[query.ordinal()];
+    }
+
+    /**
+     * Summarizes the recorded queries of one kind.
+     *
+     * @param query the kind of query.
+     * @return the summary.
+     */
+    public QueryStatistics getStatistics(final Query query) {
+        int kind = query.ordinal();
+        return QueryStatistics.of(query, latencies[kind], sampleInterval,
+            resultTotals[kind].sum(), subtreeTotals[kind].sum());
+    }
+
+    @Override
+    public List<QueryStatistics> getQueryStatistics() {
+        List<QueryStatistics> statistics = new ArrayList<>();
+        for (Query query : QUERIES) {
+            statistics.add(getStatistics(query));
+        }
+        return statistics;
+    }
+
+    @Override
+    public long getQueryCount() {
+        long count = 0;
+        for (LatencyHistogram latency : latencies) {
+            count += latency.getCount();
+        }
+        return count * sampleInterval;
+    }
+
+    @Override
+    public synchronized long getBuildNanos() {
+        return buildNanos;
+    }
+
+    @Override
+    public synchronized int getWordCount() {
+        return wordCount;
+    }
+
+    @Override
+    public synchronized int getNodeCount() {
+        return nodeCount;
+    }
+
+    @Override
+    public void reset() {
+        for (int i = 0; i < QUERIES.length; i++) {
+            latencies[i].reset();
+            resultTotals[i].reset();
+            subtreeTotals[i].reset();
+        }
+    }
+
+    /**
+     * Publishes these metrics on the platform MBean server as
+     * {@code autocomplete:type=TrieMetrics,name=<name>}.
+     *
+     * @param name the name telling these metrics apart from others.
+     * @return the name the metrics are registered under.
+     * @throws IllegalArgumentException if {@code name} is not a valid
+     * JMX key value.
+     * @throws IllegalStateException if these metrics are already
+     * registered.
+     * @throws RuntimeException if the MBean server rejects the metrics,
+     * e.g. because the name is taken.
+     */
+    public synchronized ObjectName register(final String name) {
+        if (registeredName != null) {
+            throw new IllegalStateException(
+                "Metrics are already registered as " + registeredName);
+        }
+        ObjectName objectName;
+        try {
+            objectName = new ObjectName(
+                DOMAIN + ":type=TrieMetrics,name=" + name);
+        } catch (MalformedObjectNameException e) {
+            throw new IllegalArgumentException(
+                "Invalid metrics name: " + name, e);
+        }
+        try {
+            ManagementFactory.getPlatformMBeanServer()
+                .registerMBean(this, objectName);
+        } catch (JMException e) {
+            throw new RuntimeException(
+                "Error registering metrics as " + objectName, e);
+        }
+        registeredName = objectName;
+        return objectName;
+    }
+
+    /**
+     * Removes these metrics from the platform MBean server. Does nothing
+     * if they are not registered.
+     *
+     * @throws RuntimeException if the MBean server fails to remove them.
+     */
+    public synchronized void unregister() {
+        if (registeredName == null) {
+            return;
+        }
+        try {
+            ManagementFactory.getPlatformMBeanServer()
+                .unregisterMBean(registeredName);
+        } catch (JMException e) {
+            throw new RuntimeException(
+                "Error unregistering metrics " + registeredName, e);
+        }
+        registeredName = null;
+    }
+}
@@ -0,0 +1,61 @@
+package autocomplete;
+
+import java.util.List;
+
+/**
+ * The JMX management interface of {@link TrieMetrics}. Once registered
+ * with {@link TrieMetrics#register}, the attributes can be read with
+ * JConsole, VisualVM or any JMX exporter.
+ */
+public interface TrieMetricsMXBean {
+
+    /**
+     * Returns the summaries of the recorded queries, one per kind of
+     * query in the order of {@link AutoCompleteMetrics.Query}.
+     *
+     * @return the query summaries.
+     */
+    List<QueryStatistics> getQueryStatistics();
+
+    /**
+     * Returns the number of queries of all kinds, estimated from the
+     * recorded ones.
+     *
+     * @return the query count.
+     */
+    long getQueryCount();
+
+    /**
+     * Returns how many queries each recorded query stands for.
+     *
+     * @return the sample interval; 1 if every query is recorded.
+     */
+    int getSampleInterval();
+
+    /**
+     * Returns the time the most recently recorded build took.
+     *
+     * @return the build time in nanoseconds, or 0 if no build was
+     * recorded.
+     */
+    long getBuildNanos();
+
+    /**
+     * Returns the number of words of the most recently recorded build.
+     *
+     * @return the word count.
+     */
+    int getWordCount();
+
+    /**
+     * Returns the number of nodes of the most recently recorded build.
+     *
+     * @return the node count, including the root.
+     */
+    int getNodeCount();
+
+    /**
+     * Forgets the recorded queries. The build figures are kept.
+     */
+    void reset();
+}
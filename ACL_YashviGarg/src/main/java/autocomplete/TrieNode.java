@@ -1,18 +1,99 @@
 package autocomplete;
 
+import java.util.Arrays;
+
 /**
  * Represents a node in the Trie data structure.
- * Each node contains an array of child nodes and a
- * flag indicating the end of a word.
+ * Each node holds its child nodes and a flag indicating the end
+ * of a word.
+ * <p>
+ * Children are addressed by letter index (0 for 'a' up to 25 for 'z',
+ * see {@link Alphabet} for other letters).
+ * The storage adapts to the fan-out of the node: a node with only a few
+ * children keeps small sorted key and child arrays, a node with a
+ * medium number of children keeps a bitmap of the used indices next to
+ * a packed child array, and only a node with many children uses a full
+ * array with one slot per letter. The layout is upgraded and downgraded
+ * as children are added and removed. Children outside 'a' to 'z' are
+ * kept apart in a small sorted side array, so they never hold the
+ * letters back in a slower layout, and large alphabets cost no more per
+ * node than the children actually present.
+ * </p>
  */
 class TrieNode {
 
     /**
-     * An array representing the child nodes for
-     * each letter ('a' to 'z'). The index 0 corresponds
-     * to 'a', and index 25 corresponds to 'z'.
+     * Largest number of children kept in the sparse key/child layout.
+     */
+    static final int SPARSE_MAX = 4;
+
+    /**
+     * Largest number of children kept in the bitmap/packed layout.
      */
-    private TrieNode[] childNode;
+    static final int PACKED_MAX = 16;
+
+    /**
+     * Layout of a node without children.
+     */
+    private static final byte EMPTY = 0;
+
+    /**
+     * Layout using sorted {@link #keys} next to {@link #children}.
+     */
+    private static final byte SPARSE = 1;
+
+    /**
+     * Layout using {@link #bitmap} next to a packed {@link #children}.
+     */
+    private static final byte PACKED = 2;
+
+    /**
+     * Layout where {@link #children} has one slot per letter.
+     */
+    private static final byte DENSE = 3;
+
+    /**
+     * Names of the layouts, indexed by layout constant.
+     */
+    private static final String[] LAYOUT_NAMES =
+        {"empty", "sparse", "packed", "dense"};
+
+    /**
+     * The children for 'a' to 'z'. In the sparse and packed layouts the
+     * array is exactly as long as the number of these children and
+     * ordered by letter index; in the dense layout it is indexed by
+     * letter.
+     */
+    private TrieNode[] children;
+
+    /**
+     * The sorted letter indices of the children in the sparse layout,
+     * {@code null} in every other layout.
+     */
+    private char[] keys;
+
+    /**
+     * One bit per letter index that has a child, maintained in the
+     * packed and dense layouts.
+     */
+    private long bitmap;
+
+    /**
+     * The current storage layout of the children for 'a' to 'z'.
+     */
+    private byte layout;
+
+    /**
+     * The sorted letter indices of the children outside 'a' to 'z', or
+     * {@code null} if there are none.
+     */
+    private char[] otherKeys;
+
+    /**
+     * The children outside 'a' to 'z', in the order of
+     * {@link #otherKeys}, or {@code null} if there are none.
+     */
+    private TrieNode[] otherChildren;
 
     /**
      * A flag indicating whether the current node marks the end of
@@ -22,33 +103,519 @@ class TrieNode {
      */
     private boolean wordEnd;
 
+    /**
+     * The ranking weight of the word ending at this node. Only
+     * meaningful when {@link #isWordEnd()} is {@code true}.
+     */
+    private long weight;
+
+    /**
+     * The largest weight of any word in the subtree rooted at this
+     * node, including the word ending at this node itself. Used to
+     * drive best-first top-K completion.
+     */
+    private long maxWeight;
+
+    /**
+     * The number of words in the subtree rooted at this node, including
+     * the word ending at this node itself. Used to count and index
+     * completions without enumerating them.
+     */
+    private int wordCount;
+
     /**
      * Constructs a new TrieNode with no children and the
      * {@code wordEnd} flag set to {@code false}.
      */
     TrieNode() {
         this.wordEnd = false;
-        this.childNode = new TrieNode[Constants.ALPHABET_SIZE];
+        this.layout = EMPTY;
     }
 
     /**
-     * Retrieves the array of child nodes for this TrieNode.
+     * Retrieves the child node for a letter index.
      *
-     * @return an array of {@link TrieNode} objects representing
-     * the child nodes.
+     * @param index the letter index, 0 for 'a' up to 25 for 'z'.
+     * @return the child node, or {@code null} if there is none or the
+     * index is not a letter index.
      */
-    public TrieNode[] getChildNode() {
-        return childNode;
+    public TrieNode getChild(final int index) {
+        if (index < 0) {
+            return null;
+        }
+        if (index >= Constants.ALPHABET_SIZE) {
+            return findOther(index);
+        }
+        switch (layout) {
+            case SPARSE:
+                for (int i = 0; i < keys.length; i++) {
+                    if (keys[i] == index) {
+                        return children[i];
+                    }
+                }
+                return null;
+            case PACKED:
+                if (!hasBit(index)) {
+                    return null;
+                }
+                return children[packedPosition(index)];
+            case DENSE:
+                return children[index];
+            default:
+                return null;
+        }
     }
 
     /**
-     * Sets the array of child nodes for this TrieNode.
+     * Looks up a child outside 'a' to 'z'.
      *
-     * @param children an array of {@link TrieNode} objects
-     * to replace the current child nodes.
+     * @param index the letter index.
+     * @return the child node, or {@code null} if there is none.
      */
-    public void setChildNode(final TrieNode[] children) {
-        this.childNode = children;
+    private TrieNode findOther(final int index) {
+        if (otherKeys == null || index > Character.MAX_VALUE) {
+            return null;
+        }
+        int position = Arrays.binarySearch(otherKeys, (char) index);
+        if (position < 0) {
+            return null;
+        }
+        return otherChildren[position];
+    }
+
+    /**
+     * Sets or removes the child node for a letter index, switching to a
+     * smaller or larger layout when the number of children for 'a' to
+     * 'z' crosses a layout threshold.
+     *
+     * @param index the letter index, 0 for 'a' up to 25 for 'z'.
+     * @param child the new child node, or {@code null} to remove the
+     * child at this index.
+     * @throws IndexOutOfBoundsException if the index is not a letter index.
+     */
+    public void setChild(final int index, final TrieNode child) {
+        if (!Alphabet.isIndex(index)) {
+            throw new IndexOutOfBoundsException(
+                "Not a letter index: " + index);
+        }
+        if (index >= Constants.ALPHABET_SIZE) {
+            if (child == null) {
+                removeOther(index);
+            } else {
+                putOther(index, child);
+            }
+            return;
+        }
+        if (child == null) {
+            removeChild(index);
+            return;
+        }
+        switch (layout) {
+            case SPARSE:
+                putSparse(index, child);
+                break;
+            case PACKED:
+                putPacked(index, child);
+                break;
+            case DENSE:
+                bitmap |= 1L << index;
+                children[index] = child;
+                break;
+            default:
+                layout = SPARSE;
+                keys = new char[] {(char) index};
+                children = new TrieNode[] {child};
+                break;
+        }
+    }
+
+    /**
+     * Returns the number of children of this node.
+     *
+     * @return the child count.
+     */
+    public int getChildCount() {
+        if (otherKeys == null) {
+            return letterCount();
+        }
+        return letterCount() + otherKeys.length;
+    }
+
+    /**
+     * Returns the number of children for 'a' to 'z'.
+     *
+     * @return the child count in the current layout.
+     */
+    private int letterCount() {
+        switch (layout) {
+            case SPARSE:
+            case PACKED:
+                return children.length;
+            case DENSE:
+                return Long.bitCount(bitmap);
+            default:
+                return 0;
+        }
+    }
+
+    /**
+     * Finds the smallest letter index with a child, starting at the
+     * given index. Iterating with this method visits children in
+     * alphabetical order without allocating:
+     * <pre>
+     * for (int i = node.nextChildIndex(0); i &gt;= 0;
+     *      i = node.nextChildIndex(i + 1)) { ... }
+     * </pre>
+     *
+     * @param fromIndex the first letter index to consider.
+     * @return the smallest letter index {@code >= fromIndex} that has a
+     * child, or {@code -1} if there is none.
+     */
+    public int nextChildIndex(final int fromIndex) {
+        int next = nextLetterIndex(fromIndex);
+        if (next >= 0 || otherKeys == null) {
+            return next;
+        }
+        for (char key : otherKeys) {
+            if (key >= fromIndex) {
+                return key;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Finds the smallest index of a child for 'a' to 'z', starting at
+     * the given index.
+     *
+     * @param fromIndex the first letter index to consider.
+     * @return the smallest such index {@code >= fromIndex}, or
+     * {@code -1} if there is none.
+     */
+    private int nextLetterIndex(final int fromIndex) {
+        switch (layout) {
+            case SPARSE:
+                for (char key : keys) {
+                    if (key >= fromIndex) {
+                        return key;
+                    }
+                }
+                return -1;
+            case PACKED:
+            case DENSE:
+                if (fromIndex >= Long.SIZE) {
+                    return -1;
+                }
+                long remaining = bitmap & (-1L << fromIndex);
+                if (remaining == 0) {
+                    return -1;
+                }
+                return Long.numberOfTrailingZeros(remaining);
+            default:
+                return -1;
+        }
+    }
+
+    /**
+     * Inserts or replaces a child in the sparse layout, upgrading to the
+     * packed layout when the node outgrows it.
+     *
+     * @param index the letter index of the child.
+     * @param child the child node.
+     */
+    private void putSparse(final int index, final TrieNode child) {
+        int position = 0;
+        while (position < keys.length && keys[position] < index) {
+            position++;
+        }
+        if (position < keys.length && keys[position] == index) {
+            children[position] = child;
+            return;
+        }
+        if (keys.length == SPARSE_MAX) {
+            toPacked();
+            putPacked(index, child);
+            return;
+        }
+        char[] newKeys = new char[keys.length + 1];
+        TrieNode[] newChildren = new TrieNode[keys.length + 1];
+        System.arraycopy(keys, 0, newKeys, 0, position);
+        System.arraycopy(children, 0, newChildren, 0, position);
+        newKeys[position] = (char) index;
+        newChildren[position] = child;
+        System.arraycopy(keys, position, newKeys, position + 1,
+            keys.length - position);
+        System.arraycopy(children, position, newChildren, position + 1,
+            keys.length - position);
+        keys = newKeys;
+        children = newChildren;
+    }
+
+    /**
+     * Inserts or replaces a child in the packed layout, upgrading to the
+     * dense layout when the node outgrows it.
+     *
+     * @param index the letter index of the child.
+     * @param child the child node.
+     */
+    private void putPacked(final int index, final TrieNode child) {
+        int position = packedPosition(index);
+        if (hasBit(index)) {
+            children[position] = child;
+            return;
+        }
+        if (children.length == PACKED_MAX) {
+            toDense();
+            bitmap |= 1L << index;
+            children[index] = child;
+            return;
+        }
+        TrieNode[] newChildren = new TrieNode[children.length + 1];
+        System.arraycopy(children, 0, newChildren, 0, position);
+        newChildren[position] = child;
+        System.arraycopy(children, position, newChildren, position + 1,
+            children.length - position);
+        children = newChildren;
+        bitmap |= 1L << index;
+    }
+
+    /**
+     * Removes the child at a letter index, downgrading to a smaller
+     * layout when the remaining children fit into it.
+     *
+     * @param index the letter index of the child to remove.
+     */
+    private void removeChild(final int index) {
+        switch (layout) {
+            case SPARSE:
+                removeSparse(index);
+                break;
+            case PACKED:
+                if (hasBit(index)) {
+                    int position = packedPosition(index);
+                    TrieNode[] newChildren =
+                        new TrieNode[children.length - 1];
+                    System.arraycopy(children, 0, newChildren, 0, position);
+                    System.arraycopy(children, position + 1, newChildren,
+                        position, newChildren.length - position);
+                    children = newChildren;
+                    bitmap &= ~(1L << index);
+                    if (children.length <= SPARSE_MAX) {
+                        toSparse();
+                    }
+                }
+                break;
+            case DENSE:
+                children[index] = null;
+                bitmap &= ~(1L << index);
+                if (Long.bitCount(bitmap) <= PACKED_MAX) {
+                    toPacked();
+                }
+                break;
+            default:
+                break;
+        }
+    }
+
+    /**
+     * Removes the child at a letter index in the sparse layout.
+     *
+     * @param index the letter index of the child to remove.
+     */
+    private void removeSparse(final int index) {
+        int position = 0;
+        while (position < keys.length && keys[position] != index) {
+            position++;
+        }
+        if (position == keys.length) {
+            return;
+        }
+        if (keys.length == 1) {
+            layout = EMPTY;
+            keys = null;
+            children = null;
+            return;
+        }
+        char[] newKeys = new char[keys.length - 1];
+        TrieNode[] newChildren = new TrieNode[keys.length - 1];
+        System.arraycopy(keys, 0, newKeys, 0, position);
+        System.arraycopy(children, 0, newChildren, 0, position);
+        System.arraycopy(keys, position + 1, newKeys, position,
+            newKeys.length - position);
+        System.arraycopy(children, position + 1, newChildren, position,
+            newChildren.length - position);
+        keys = newKeys;
+        children = newChildren;
+    }
+
+    /**
+     * Inserts or replaces a child outside 'a' to 'z'.
+     *
+     * @param index the letter index of the child.
+     * @param child the child node.
+     */
+    private void putOther(final int index, final TrieNode child) {
+        if (otherKeys == null) {
+            otherKeys = new char[] {(char) index};
+            otherChildren = new TrieNode[] {child};
+            return;
+        }
+        int position = Arrays.binarySearch(otherKeys, (char) index);
+        if (position >= 0) {
+            otherChildren[position] = child;
+            return;
+        }
+        position = -position - 1;
+        char[] newKeys = new char[otherKeys.length + 1];
+        TrieNode[] newChildren = new TrieNode[otherKeys.length + 1];
+        System.arraycopy(otherKeys, 0, newKeys, 0, position);
+        System.arraycopy(otherChildren, 0, newChildren, 0, position);
+        newKeys[position] = (char) index;
+        newChildren[position] = child;
+        System.arraycopy(otherKeys, position, newKeys, position + 1,
+            otherKeys.length - position);
+        System.arraycopy(otherChildren, position, newChildren, position + 1,
+            otherKeys.length - position);
+        otherKeys = newKeys;
+        otherChildren = newChildren;
+    }
+
+    /**
+     * Removes the child outside 'a' to 'z' at a letter index.
+     *
+     * @param index the letter index of the child to remove.
+     */
+    private void removeOther(final int index) {
+        if (otherKeys == null || index > Character.MAX_VALUE) {
+            return;
+        }
+        int position = Arrays.binarySearch(otherKeys, (char) index);
+        if (position < 0) {
+            return;
+        }
+        if (otherKeys.length == 1) {
+            otherKeys = null;
+            otherChildren = null;
+            return;
+        }
+        char[] newKeys = new char[otherKeys.length - 1];
+        TrieNode[] newChildren = new TrieNode[otherKeys.length - 1];
+        System.arraycopy(otherKeys, 0, newKeys, 0, position);
+        System.arraycopy(otherChildren, 0, newChildren, 0, position);
+        System.arraycopy(otherKeys, position + 1, newKeys, position,
+            newKeys.length - position);
+        System.arraycopy(otherChildren, position + 1, newChildren, position,
+            newChildren.length - position);
+        otherKeys = newKeys;
+        otherChildren = newChildren;
+    }
+
+    /**
+     * Converts the current children for 'a' to 'z' to the packed layout.
+     */
+    private void toPacked() {
+        TrieNode[] packed = new TrieNode[letterCount()];
+        long bits = 0;
+        int position = 0;
+        for (int i = nextLetterIndex(0); i >= 0; i = nextLetterIndex(i + 1)) {
+            packed[position++] = getChild(i);
+            bits |= 1L << i;
+        }
+        layout = PACKED;
+        keys = null;
+        bitmap = bits;
+        children = packed;
+    }
+
+    /**
+     * Converts the current children for 'a' to 'z' to the sparse layout.
+     */
+    private void toSparse() {
+        char[] newKeys = new char[letterCount()];
+        TrieNode[] newChildren = new TrieNode[newKeys.length];
+        int position = 0;
+        for (int i = nextLetterIndex(0); i >= 0; i = nextLetterIndex(i + 1)) {
+            newKeys[position] = (char) i;
+            newChildren[position++] = getChild(i);
+        }
+        layout = SPARSE;
+        keys = newKeys;
+        children = newChildren;
+        bitmap = 0;
+    }
+
+    /**
+     * Converts the current children for 'a' to 'z' to the dense layout.
+     */
+    private void toDense() {
+        TrieNode[] dense = new TrieNode[Constants.ALPHABET_SIZE];
+        for (int i = nextLetterIndex(0); i >= 0; i = nextLetterIndex(i + 1)) {
+            dense[i] = getChild(i);
+        }
+        layout = DENSE;
+        keys = null;
+        children = dense;
+    }
+
+    /**
+     * Checks whether the bitmap has a child at a letter index.
+     *
+     * @param index the letter index.
+     * @return {@code true} if the bit for the index is set.
+     */
+    private boolean hasBit(final int index) {
+        return index < Long.SIZE && (bitmap & (1L << index)) != 0;
+    }
+
+    /**
+     * Computes where the child for a letter index lives, or would be
+     * inserted, in the packed child array.
+     *
+     * @param index the letter index.
+     * @return the number of children with a smaller letter index.
+     */
+    private int packedPosition(final int index) {
+        return Long.bitCount(bitmap & ((1L << index) - 1));
+    }
+
+    /**
+     * Creates a shallow copy of this node: the copy has its own child
+     * storage, so children can be added, replaced or removed on either
+     * node without affecting the other, but both initially point at the
+     * same child nodes.
+     *
+     * @return the copy.
+     */
+    TrieNode copy() {
+        TrieNode copy = new TrieNode();
+        if (children != null) {
+            copy.children = children.clone();
+        }
+        if (keys != null) {
+            copy.keys = keys.clone();
+        }
+        if (otherKeys != null) {
+            copy.otherKeys = otherKeys.clone();
+            copy.otherChildren = otherChildren.clone();
+        }
+        copy.bitmap = bitmap;
+        copy.layout = layout;
+        copy.wordEnd = wordEnd;
+        copy.weight = weight;
+        copy.maxWeight = maxWeight;
+        copy.wordCount = wordCount;
+        return copy;
+    }
+
+    /**
+     * Describes the current storage layout of the children for 'a' to
+     * 'z', for tests and diagnostics.
+     *
+     * @return {@code "empty"}, {@code "sparse"}, {@code "packed"} or
+     * {@code "dense"}.
+     */
+    String layoutName() {
+        return LAYOUT_NAMES[layout];
     }
 
     /**
@@ -71,4 +638,59 @@ class TrieNode {
     public void setWordEnd(final boolean isWordEnd) {
         this.wordEnd = isWordEnd;
     }
+
+    /**
+     * Retrieves the weight of the word ending at this node.
+     *
+     * @return the weight of the word, or {@code 0} if no word ends here.
+     */
+    public long getWeight() {
+        return weight;
+    }
+
+    /**
+     * Sets the weight of the word ending at this node.
+     *
+     * @param wordWeight the new weight of the word.
+     */
+    public void setWeight(final long wordWeight) {
+        this.weight = wordWeight;
+    }
+
+    /**
+     * Retrieves the largest word weight in the subtree rooted
+     * at this node.
+     *
+     * @return the maximum weight found in this subtree.
+     */
+    public long getMaxWeight() {
+        return maxWeight;
+    }
+
+    /**
+     * Sets the largest word weight in the subtree rooted at this node.
+     *
+     * @param subtreeMaxWeight the maximum weight found in this subtree.
+     */
+    public void setMaxWeight(final long subtreeMaxWeight) {
+        this.maxWeight = subtreeMaxWeight;
+    }
+
+    /**
+     * Retrieves the number of words in the subtree rooted at this node.
+     *
+     * @return the number of words in this subtree.
+     */
+    public int getWordCount() {
+        return wordCount;
+    }
+
+    /**
+     * Sets the number of words in the subtree rooted at this node.
+     *
+     * @param subtreeWordCount the number of words in this subtree.
+     */
+    public void setWordCount(final int subtreeWordCount) {
+        this.wordCount = subtreeWordCount;
+    }
 }
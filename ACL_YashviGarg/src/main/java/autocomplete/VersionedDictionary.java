@@ -0,0 +1,280 @@
+package autocomplete;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * A dictionary that can be replaced or updated while it is being queried.
+ * <p>
+ * Every version of the dictionary is an immutable {@link Snapshot}. New
+ * versions are built in the background, either by rebuilding from a
+ * dictionary file or by applying a delta file with path copying, which
+ * copies only the nodes on the path of each changed word and shares the
+ * rest of the Trie with the previous version. The new version is then
+ * published with a single atomic reference swap.
+ * </p>
+ * <p>
+ * Queries never lock: each query reads the current snapshot once and
+ * runs to completion on it, even if a newer version is published in the
+ * meantime. Callers that need several queries to agree can pin a
+ * version with {@link #snapshot()}. Updates are applied one at a time,
+ * so a delta is always applied on top of the latest version.
+ * </p>
+ */
+public final class VersionedDictionary implements AutoCompleteIndex {
+
+    /**
+     * The currently published version.
+     */
+    private final AtomicReference<Snapshot> current;
+
+    /**
+     * Serializes updates so that no published version is lost.
+     */
+    private final Object updateLock = new Object();
+
+    /**
+     * Constructs a VersionedDictionary whose first version holds the
+     * words of a dictionary file.
+     *
+     * @param dictionaryPath The path to the dictionary file to load.
+     * @throws RuntimeException If the dictionary file is not found
+     * or an error occurs during reading.
+     */
+    public VersionedDictionary(final String dictionaryPath) {
+        current = new AtomicReference<>(new Snapshot(
+            1, TrieFileBuilder.buildTrieFromFile(dictionaryPath)));
+    }
+
+    /**
+     * Returns the currently published version. The returned snapshot
+     * never changes, so all queries made on it see the same words.
+     *
+     * @return the current snapshot.
+     */
+    public Snapshot snapshot() {
+        return current.get();
+    }
+
+    /**
+     * Returns the number of the currently published version. The first
+     * version is 1 and every published update increments it.
+     *
+     * @return the current version number.
+     */
+    public long version() {
+        return current.get().version();
+    }
+
+    /**
+     * Rebuilds the dictionary from a file in the background and publishes
+     * it as the next version. Queries keep using the previous version
+     * until the new one is published.
+     *
+     * @param dictionaryPath The path to the dictionary file to load.
+     * @param executor the executor that builds the new version.
+     * @return a future completed with the published snapshot, or
+     * completed exceptionally if the file cannot be read.
+     */
+    public CompletableFuture<Snapshot> reload(
+        final String dictionaryPath,
+        final Executor executor
+    ) {
+        return CompletableFuture.supplyAsync(() -> {
+            TrieNode root = TrieFileBuilder.buildTrieFromFile(dictionaryPath);
+            synchronized (updateLock) {
+                return publish(root);
+            }
+        }, executor);
+    }
+
+    /**
+     * Applies a delta file to the current version in the background and
+     * publishes the result as the next version. Each line of the delta
+     * is {@code +word}, optionally followed by a weight, or
+     * {@code -word}. Only the paths of the changed words are copied; the
+     * previous version is not modified.
+     *
+     * @param deltaPath The path to the delta file.
+     * @param executor the executor that builds the new version.
+     * @return a future completed with the published snapshot, or
+     * completed exceptionally if the file cannot be read or is
+     * malformed, in which case no version is published.
+     */
+    public CompletableFuture<Snapshot> applyDelta(
+        final String deltaPath,
+        final Executor executor
+    ) {
+        return CompletableFuture.supplyAsync(() -> {
+            synchronized (updateLock) {
+                TrieNode root = TrieFileBuilder.applyDeltaFromFile(
+                    current.get().root, deltaPath);
+                return publish(root);
+            }
+        }, executor);
+    }
+
+    /**
+     * Publishes a Trie as the next version. Must be called while holding
+     * {@link #updateLock}.
+     *
+     * @param root the root node of the new version.
+     * @return the published snapshot.
+     */
+    private Snapshot publish(final TrieNode root) {
+        Snapshot next = new Snapshot(current.get().version() + 1, root);
+        current.set(next);
+        return next;
+    }
+
+    /**
+     * Searches for a complete word in the current version.
+     *
+     * @param word the word to search for.
+     * @return {@code true} if the word exists; {@code false} otherwise.
+     */
+    @Override
+    public boolean search(final String word) {
+        return current.get().search(word);
+    }
+
+    /**
+     * Retrieves all words of the current version that start with a
+     * given prefix.
+     *
+     * @param prefix the prefix to search for.
+     * @return a list of words that start with the given prefix.
+     */
+    @Override
+    public List<String> getWordsWithPrefix(final String prefix) {
+        return current.get().getWordsWithPrefix(prefix);
+    }
+
+    /**
+     * Passes every word of the current version that starts with a given
+     * prefix to a consumer, in lexicographic order.
+     *
+     * @param prefix the prefix to search for.
+     * @param consumer the consumer receiving each completion; returning
+     * {@code false} stops the traversal.
+     */
+    @Override
+    public void forEachCompletion(
+        final CharSequence prefix,
+        final CompletionConsumer consumer
+    ) {
+        current.get().forEachCompletion(prefix, consumer);
+    }
+
+    /**
+     * Retrieves the k highest-weighted words of the current version that
+     * start with a given prefix.
+     *
+     * @param prefix the prefix to search for.
+     * @param k the maximum number of words to return.
+     * @return at most {@code k} words, heaviest first.
+     * @throws IllegalArgumentException if {@code k} is negative.
+     */
+    public List<String> getTopCompletions(final String prefix, final int k) {
+        return current.get().getTopCompletions(prefix, k);
+    }
+
+    /**
+     * One immutable version of a {@link VersionedDictionary}.
+     */
+    public static final class Snapshot implements AutoCompleteIndex {
+
+        /**
+         * The version number of this snapshot.
+         */
+        private final long version;
+
+        /**
+         * The root node of the Trie; never modified once published.
+         */
+        private final TrieNode root;
+
+        /**
+         * Read-only view used to answer queries on {@link #root}.
+         */
+        private final ACLImplementation index;
+
+        /**
+         * Constructs a snapshot.
+         *
+         * @param versionNumber the version number.
+         * @param trieRoot the root node of the Trie.
+         */
+        private Snapshot(final long versionNumber, final TrieNode trieRoot) {
+            this.version = versionNumber;
+            this.root = trieRoot;
+            this.index = new ACLImplementation(trieRoot);
+        }
+
+        /**
+         * Returns the version number of this snapshot.
+         *
+         * @return the version number.
+         */
+        public long version() {
+            return version;
+        }
+
+        /**
+         * Searches for a complete word in this version.
+         *
+         * @param word the word to search for.
+         * @return {@code true} if the word exists; {@code false} otherwise.
+         */
+        @Override
+        public boolean search(final String word) {
+            return index.search(word);
+        }
+
+        /**
+         * Retrieves all words of this version that start with a given
+         * prefix.
+         *
+         * @param prefix the prefix to search for.
+         * @return a list of words that start with the given prefix.
+         */
+        @Override
+        public List<String> getWordsWithPrefix(final String prefix) {
+            return index.getWordsWithPrefix(prefix);
+        }
+
+        /**
+         * Passes every word of this version that starts with a given
+         * prefix to a consumer, in lexicographic order.
+         *
+         * @param prefix the prefix to search for.
+         * @param consumer the consumer receiving each completion;
+         * returning {@code false} stops the traversal.
+         */
+        @Override
+        public void forEachCompletion(
+            final CharSequence prefix,
+            final CompletionConsumer consumer
+        ) {
+            index.forEachCompletion(prefix, consumer);
+        }
+
+        /**
+         * Retrieves the k highest-weighted words of this version that
+         * start with a given prefix.
+         *
+         * @param prefix the prefix to search for.
+         * @param k the maximum number of words to return.
+         * @return at most {@code k} words, heaviest first.
+         * @throws IllegalArgumentException if {@code k} is negative.
+         */
+        public List<String> getTopCompletions(
+            final String prefix,
+            final int k
+        ) {
+            return index.getTopCompletions(prefix, k);
+        }
+    }
+}
@@ -0,0 +1,68 @@
+package autocomplete;
+
+import java.util.Arrays;
+
+/**
+ * A growable character buffer holding the word on the current path of
+ * a Trie traversal. One buffer is shared by the whole traversal, so
+ * visiting a node costs no allocation.
+ */
+final class WordBuffer {
+
+    /**
+     * Initial capacity, enough for the words of common dictionaries.
+     */
+    private static final int INITIAL_CAPACITY = 32;
+
+    /**
+     * The characters of the current path.
+     */
+    private char[] chars;
+
+    /**
+     * Constructs a buffer starting with the lowercase form of a prefix.
+     *
+     * @param prefix the prefix the traversal starts from.
+     */
+    WordBuffer(final CharSequence prefix) {
+        chars = new char[Math.max(INITIAL_CAPACITY, 2 * prefix.length())];
+        for (int i = 0; i < prefix.length(); i++) {
+            chars[i] = Character.toLowerCase(prefix.charAt(i));
+        }
+    }
+
+    /**
+     * Sets the character at a position of the path, growing the buffer
+     * if needed.
+     *
+     * @param position the position in the path.
+     * @param ch the character to store.
+     */
+    void set(final int position, final char ch) {
+        if (position == chars.length) {
+            chars = Arrays.copyOf(chars, 2 * chars.length);
+        }
+        chars[position] = ch;
+    }
+
+    /**
+     * Passes the first characters of the buffer to a consumer.
+     *
+     * @param consumer the consumer to call.
+     * @param length the length of the word to emit.
+     * @return the result of the consumer.
+     */
+    boolean emit(final CompletionConsumer consumer, final int length) {
+        return consumer.accept(chars, length);
+    }
+
+    /**
+     * Copies the first characters of the buffer into a string.
+     *
+     * @param length the length of the word.
+     * @return the word.
+     */
+    String word(final int length) {
+        return new String(chars, 0, length);
+    }
+}
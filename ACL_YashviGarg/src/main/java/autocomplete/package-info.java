@@ -6,6 +6,11 @@
  * <ul>
  *   <li>Core implementations like
  *   {@link autocomplete.ACLImplementation}</li>
+ *   <li>Thread-safe engines like
+ *   {@link autocomplete.ConcurrentACLImplementation} and
+ *   {@link autocomplete.VersionedDictionary}</li>
+ *   <li>Read-only engines like
+ *   {@link autocomplete.CompactTrie}</li>
  *   <li>Utilities such as
  *   {@link autocomplete.Constants}</li>
  *   <li>Data structures like
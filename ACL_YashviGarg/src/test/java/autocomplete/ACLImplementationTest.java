@@ -2,8 +2,10 @@ package autocomplete;
 
 import static org.junit.jupiter.api.Assertions.*;
 
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
+import java.util.concurrent.ForkJoinPool;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
@@ -24,6 +26,19 @@ class ACLImplementationTest {
             "The word 'apple' should exist in the Trie.");
     }
 
+    @Test
+    void testNonLettersMatchNoChild() {
+        assertFalse(aCLImplementation.search("\u0001"),
+            "A control character must not stand for a letter.");
+        assertEquals(List.of(), aCLImplementation.getWordsWithPrefix("\u0001\u0004\u0004"));
+        assertEquals(0, aCLImplementation.countWithPrefix("b\u0000"));
+        List<String> words = aCLImplementation.getWordsWithPrefix("ap");
+        for (String word : List.of("ap\u0001", "ap0", "app{", "apq€")) {
+            long before = words.stream().filter(w -> w.compareTo(word) < 0).count();
+            assertEquals(before, aCLImplementation.getCompletionRank("ap", word), "Rank of " + word);
+        }
+    }
+
     @Test
     void testSearchWordDoesNotExist() {
         assertFalse(aCLImplementation.search("aaq"),
@@ -67,4 +82,390 @@ class ACLImplementationTest {
         aCLImplementation.remove("aaq");
         assertFalse(aCLImplementation.search("aaq"), "Word 'aaq' has been removed");
     }
+
+    @Test
+    void topCompletionsOrderedByWeight() {
+        aCLImplementation.insert("appetite", 50);
+        aCLImplementation.insert("apply", 90);
+        aCLImplementation.insert("app", 70);
+        List<String> words = aCLImplementation.getTopCompletions("app", 3);
+        assertEquals(Arrays.asList("apply", "app", "appetite"), words,
+            "Top completions should be ordered by descending weight.");
+    }
+
+    @Test
+    void topCompletionsBreakTiesLexicographically() {
+        List<String> words = aCLImplementation.getTopCompletions("acanthodea", 5);
+        assertEquals(Arrays.asList("acanthodea", "acanthodean"), words,
+            "Equal weights should be ordered lexicographically.");
+    }
+
+    @Test
+    void topCompletionsAreBoundedByK() {
+        List<String> words = aCLImplementation.getTopCompletions("s", 10);
+        assertEquals(10, words.size(), "At most k completions should be returned.");
+        assertEquals(aCLImplementation.getWordsWithPrefix("s").subList(0, 10), words,
+            "Default-weighted words should come back in dictionary order.");
+    }
+
+    @Test
+    void topCompletionsForMissingPrefix() {
+        assertTrue(aCLImplementation.getTopCompletions("aaq", 10).isEmpty(),
+            "The prefix 'aaq' does not exist.");
+        assertTrue(aCLImplementation.getTopCompletions("app", 0).isEmpty(),
+            "k = 0 should return no words.");
+    }
+
+    @Test
+    void topCompletionsAfterWeightDecrease() {
+        aCLImplementation.insert("apple", 100);
+        aCLImplementation.insert("application", 60);
+        aCLImplementation.insert("apple", 5);
+        assertEquals("application", aCLImplementation.getTopCompletions("app", 1).get(0),
+            "Lowering a weight should update the cached subtree maximum.");
+    }
+
+    @Test
+    void topCompletionsAfterRemove() {
+        aCLImplementation.insert("apple", 100);
+        aCLImplementation.insert("application", 60);
+        aCLImplementation.remove("apple");
+        assertEquals("application", aCLImplementation.getTopCompletions("app", 1).get(0),
+            "Removing the heaviest word should update the cached subtree maximum.");
+    }
+
+    @Test
+    void insertKeepsExistingWeight() {
+        aCLImplementation.insert("apple", 100);
+        aCLImplementation.insert("apple");
+        assertEquals("apple", aCLImplementation.getTopCompletions("app", 1).get(0),
+            "Re-inserting without a weight should keep the existing weight.");
+    }
+
+    @Test
+    void insertRejectsNegativeWeight() {
+        assertThrows(IllegalArgumentException.class,
+            () -> aCLImplementation.insert("apple", -1));
+    }
+
+    @Test
+    void parallelUnionBuild() {
+        ACLImplementation union = new ACLImplementation(
+            Constants.TEST_DICTIONARY, false, ForkJoinPool.commonPool());
+        assertTrue(union.search("agrivoltaics"), "Words of the given dictionary should be loaded.");
+        assertTrue(union.search("apple"), "Words of the default dictionary should be kept.");
+    }
+
+    @Test
+    void forEachCompletionMatchesWordsWithPrefix() {
+        List<String> words = new ArrayList<>();
+        aCLImplementation.forEachCompletion("ACANTHOD", (chars, length) ->
+            words.add(new String(chars, 0, length)));
+        assertEquals(aCLImplementation.getWordsWithPrefix("acanthod"), words,
+            "The consumer should see every completion in order.");
+    }
+
+    @Test
+    void forEachCompletionReusesBuffer() {
+        List<char[]> buffers = new ArrayList<>();
+        aCLImplementation.forEachCompletion(new StringBuilder("acanthod"), (chars, length) ->
+            buffers.add(chars));
+        assertTrue(buffers.size() > 1, "The prefix should have several completions.");
+        for (char[] buffer : buffers) {
+            assertSame(buffers.get(0), buffer, "The buffer should be shared across callbacks.");
+        }
+    }
+
+    @Test
+    void forEachCompletionStopsEarly() {
+        List<String> words = new ArrayList<>();
+        aCLImplementation.forEachCompletion("app", (chars, length) -> {
+            words.add(new String(chars, 0, length));
+            return words.size() < 3;
+        });
+        assertEquals(aCLImplementation.getWordsWithPrefix("app").subList(0, 3), words,
+            "Returning false should stop the traversal.");
+    }
+
+    @Test
+    void forEachCompletionMissingPrefix() {
+        aCLImplementation.forEachCompletion("aaq", (chars, length) -> {
+            throw new AssertionError("The prefix 'aaq' does not exist.");
+        });
+    }
+
+    @Test
+    void cachedResultsFollowInsertAndRemove() {
+        PrefixCache cache = new PrefixCache(16, PrefixCache.Policy.LRU);
+        aCLImplementation.setPrefixCache(cache);
+
+        List<String> first = aCLImplementation.getWordsWithPrefix("Applicati");
+        List<String> second = aCLImplementation.getWordsWithPrefix("applicati");
+        assertEquals(first, second);
+        assertEquals(1, cache.getHitCount());
+        assertEquals(1, cache.getMissCount());
+
+        second.clear();
+        assertEquals(first, aCLImplementation.getWordsWithPrefix("applicati"),
+            "Callers must not be able to change cached results.");
+
+        aCLImplementation.insert("applicatix", 1000);
+        assertTrue(aCLImplementation.getWordsWithPrefix("applicati").contains("applicatix"));
+        assertEquals(List.of("applicatix"), aCLImplementation.getTopCompletions("applicati", 1));
+        assertEquals(List.of("applicatix"), aCLImplementation.getTopCompletions("applicati", 1));
+
+        aCLImplementation.remove("applicatix");
+        assertFalse(aCLImplementation.getWordsWithPrefix("applicati").contains("applicatix"));
+        assertNotEquals(List.of("applicatix"), aCLImplementation.getTopCompletions("applicati", 1));
+    }
+
+    @Test
+    void fuzzyCompletionsTolerateTypos() {
+        List<String> words = aCLImplementation.getFuzzyCompletions("Recieve", 2, 5);
+        assertTrue(words.contains("receive"), "A transposition should be within two edits: " + words);
+        assertEquals(List.of(), aCLImplementation.getFuzzyCompletions("recieve", 0, 5));
+        assertEquals(aCLImplementation.getTopCompletions("recei", 5),
+            aCLImplementation.getFuzzyCompletions("recei", 0, 5),
+            "Without edits fuzzy completion should match exact top-K.");
+    }
+
+    @Test
+    void fuzzyCompletionsRejectNegativeArguments() {
+        assertThrows(IllegalArgumentException.class, () -> aCLImplementation.getFuzzyCompletions("a", -1, 5));
+        assertThrows(IllegalArgumentException.class, () -> aCLImplementation.getFuzzyCompletions("a", 1, -1));
+    }
+
+    @Test
+    void completionPagesCoverAllWords() {
+        List<String> expected = aCLImplementation.getWordsWithPrefix("abs");
+        for (int pageSize : new int[] {1, 7, expected.size(), expected.size() + 1}) {
+            List<String> collected = new ArrayList<>();
+            String cursor = null;
+            do {
+                CompletionPage page = aCLImplementation.getCompletionPage("abs", cursor, pageSize);
+                assertTrue(page.getWords().size() <= pageSize);
+                collected.addAll(page.getWords());
+                cursor = page.getNextCursor();
+            } while (cursor != null);
+            assertEquals(expected, collected, "Pages of " + pageSize + " should cover every word once.");
+        }
+    }
+
+    @Test
+    void completionPagesSurviveUpdates() {
+        CompletionPage first = aCLImplementation.getCompletionPage("applicati", null, 2);
+        assertEquals(List.of("application", "applications"), first.getWords());
+        assertTrue(first.hasMore());
+
+        aCLImplementation.remove("applications");
+        aCLImplementation.insert("applicationsx");
+        CompletionPage second = aCLImplementation.getCompletionPage("applicati", first.getNextCursor(), 2);
+
+        assertEquals(List.of("applicationsx", "applicative"), second.getWords());
+    }
+
+    @Test
+    void testCompletionPageOfUnboundedSize() {
+        CompletionPage page = aCLImplementation.getCompletionPage("applicati", null, Integer.MAX_VALUE);
+        assertEquals(aCLImplementation.getWordsWithPrefix("applicati"), page.getWords());
+        assertNull(page.getNextCursor());
+        assertEquals(List.of(), aCLImplementation.getCompletionPage("aaq", null, Integer.MAX_VALUE).getWords());
+    }
+
+    @Test
+    void completionPagesRejectBadArguments() {
+        String cursor = aCLImplementation.getCompletionPage("app", null, 1).getNextCursor();
+        assertThrows(IllegalArgumentException.class, () -> aCLImplementation.getCompletionPage("app", null, 0));
+        assertThrows(IllegalArgumentException.class, () -> aCLImplementation.getCompletionPage("b", cursor, 1));
+        assertThrows(IllegalArgumentException.class, () -> aCLImplementation.getCompletionPage("app", "not base64!", 1));
+    }
+
+    @Test
+    void countWithPrefixMatchesListing() {
+        for (String prefix : new String[] {"", "app", "Ab", "zyz", "aaq", "applications"}) {
+            assertEquals(aCLImplementation.getWordsWithPrefix(prefix).size(),
+                aCLImplementation.countWithPrefix(prefix),
+                "Count should match the listing for prefix '" + prefix + "'");
+        }
+    }
+
+    @Test
+    void countWithPrefixFollowsUpdates() {
+        int before = aCLImplementation.countWithPrefix("app");
+        aCLImplementation.insert("appzz");
+        aCLImplementation.insert("appzz", 7);
+        aCLImplementation.insert("appzz");
+        assertEquals(before + 1, aCLImplementation.countWithPrefix("app"),
+            "Re-inserting a word should not count it twice.");
+        aCLImplementation.remove("appzz");
+        aCLImplementation.remove("appzz");
+        assertEquals(before, aCLImplementation.countWithPrefix("app"));
+        assertEquals(0, aCLImplementation.countWithPrefix("appzz"));
+    }
+
+    @Test
+    void completionAtAndRankAreInverse() {
+        List<String> words = aCLImplementation.getWordsWithPrefix("ab");
+        for (int i = 0; i < words.size(); i += 97) {
+            assertEquals(words.get(i), aCLImplementation.getCompletionAt("AB", i));
+            assertEquals(i, aCLImplementation.getCompletionRank("ab", words.get(i)));
+        }
+        int last = words.size() - 1;
+        assertEquals(words.get(last), aCLImplementation.getCompletionAt("ab", last));
+        assertThrows(IndexOutOfBoundsException.class, () -> aCLImplementation.getCompletionAt("ab", words.size()));
+        assertThrows(IndexOutOfBoundsException.class, () -> aCLImplementation.getCompletionAt("ab", -1));
+        assertThrows(IndexOutOfBoundsException.class, () -> aCLImplementation.getCompletionAt("aaq", 0));
+    }
+
+    @Test
+    void completionRankOfMissingWords() {
+        List<String> words = aCLImplementation.getWordsWithPrefix("ab");
+        for (String probe : new String[] {"abzzzz", "abaa", "abacz", "ab", "aa", "ac", "b"}) {
+            int expected = (int) words.stream().filter(w -> w.compareTo(probe) < 0).count();
+            assertEquals(expected, aCLImplementation.getCompletionRank("ab", probe),
+                "Rank of '" + probe + "'");
+        }
+        assertEquals(0, aCLImplementation.getCompletionRank("aaq", "zebra"));
+    }
+
+    @Test
+    void testUnicodeWords() {
+        ACLImplementation acl = new ACLImplementation(new TrieNode());
+        for (String word : List.of("Éclair", "école", "ecole", "über", "Straße", "être", "étoile")) {
+            acl.insert(word);
+        }
+        assertTrue(acl.search("ÉCLAIR"));
+        assertTrue(acl.search("E\u0301clair"), "Decomposed input should match the composed word.");
+        assertTrue(acl.search("STRASSE") == false);
+        assertTrue(acl.search("straße"));
+        assertEquals(List.of("éclair", "école", "étoile"), acl.getWordsWithPrefix("É"));
+        assertEquals(List.of("éclair", "école", "étoile"), acl.getWordsWithPrefix("E\u0301"));
+        assertEquals(List.of("ecole", "straße", "éclair", "école", "étoile", "être", "über"),
+            acl.getWordsWithPrefix(""));
+        assertEquals(3, acl.countWithPrefix("é"));
+        assertEquals("école", acl.getCompletionAt("é", 1));
+        assertEquals(2, acl.getCompletionRank("é", "étoile"));
+
+        acl.remove("ÉCOLE");
+        assertFalse(acl.search("école"));
+        assertEquals(List.of("éclair", "étoile"), acl.getWordsWithPrefix("é"));
+    }
+
+    @Test
+    void testInsertRejectsNonLetters() {
+        assertThrows(IllegalArgumentException.class, () -> aCLImplementation.insert("can't"));
+        assertThrows(IllegalArgumentException.class, () -> aCLImplementation.insert("zzqx1", 3));
+        assertEquals(0, aCLImplementation.countWithPrefix("zzq"), "A rejected word should leave no trace.");
+    }
+
+    @Test
+    void testSuffixAndInfixQueriesFollowChanges() {
+        ACLImplementation acl = new ACLImplementation(new TrieNode());
+        acl.insert("walking");
+        acl.insert("talking");
+        acl.insert("king");
+        assertEquals(List.of("king", "talking", "walking"), acl.getWordsWithSuffix("king"));
+        assertEquals(List.of("talking", "walking"), acl.getWordsContaining("alk"));
+        acl.insert("stalk");
+        acl.remove("walking");
+        assertEquals(List.of("stalk", "talking"), acl.getWordsContaining("ALK"),
+            "Changes should be reflected in the next infix query.");
+        assertEquals(List.of("king", "talking"), acl.getWordsWithSuffix("ing"));
+    }
+
+    /** Keeps every recorded measurement. */
+    private static class RecordingMetrics implements AutoCompleteMetrics {
+        private final List<String> queries = new ArrayList<>();
+        private final List<String> builds = new ArrayList<>();
+
+        @Override
+        public void recordQuery(Query query, long nanos, int subtreeSize, int results) {
+            assertTrue(nanos >= 0, "Latency should not be negative.");
+            queries.add(query + ":" + subtreeSize + ":" + results);
+        }
+
+        @Override
+        public void recordBuild(long nanos, int words, int nodes) {
+            builds.add(words + ":" + nodes);
+        }
+    }
+
+    @Test
+    void testMetricsRecordQueries() {
+        ACLImplementation acl = new ACLImplementation(new TrieNode());
+        for (String word : List.of("car", "cart", "carbon", "dog")) {
+            acl.insert(word);
+        }
+        RecordingMetrics metrics = new RecordingMetrics();
+        acl.setMetrics(metrics);
+        assertEquals(List.of("4:11"), metrics.builds, "Attaching metrics should record the Trie size.");
+        assertSame(metrics, acl.getMetrics());
+
+        acl.search("car");
+        acl.search("ca");
+        acl.search("cow");
+        acl.getWordsWithPrefix("car");
+        acl.getTopCompletions("c", 2);
+        acl.countWithPrefix("d");
+        acl.getFuzzyCompletions("cat", 1, 5);
+        acl.completeAll(List.of("ca", "d"));
+        assertEquals(List.of("SEARCH:3:1", "SEARCH:3:0", "SEARCH:0:0", "PREFIX:3:3", "TOP:3:2",
+            "COUNT:1:1", "FUZZY:0:3", "BATCH:0:4"), metrics.queries);
+
+        acl.setMetrics(null);
+        assertSame(AutoCompleteMetrics.NOOP, acl.getMetrics());
+        acl.search("car");
+        assertEquals(8, metrics.queries.size(), "Detached metrics should record nothing.");
+    }
+
+    @Test
+    void testMetricsRecordCachedQueries() {
+        ACLImplementation acl = new ACLImplementation(new TrieNode());
+        acl.insert("car");
+        acl.insert("cart");
+        acl.setPrefixCache(new PrefixCache(8, PrefixCache.Policy.LRU));
+        RecordingMetrics metrics = new RecordingMetrics();
+        acl.setMetrics(metrics);
+        acl.getTopCompletions("ca", 1);
+        acl.getTopCompletions("ca", 1);
+        acl.getWordsWithPrefix("car");
+        acl.getWordsWithPrefix("car");
+        assertEquals(List.of("TOP:2:1", "TOP:2:1", "PREFIX:2:2", "PREFIX:2:2"), metrics.queries,
+            "Cache hits should be measured like misses.");
+    }
+
+    @Test
+    void testMetricsSampleQueries() {
+        ACLImplementation acl = new ACLImplementation(new TrieNode());
+        acl.insert("car");
+        RecordingMetrics metrics = new RecordingMetrics() {
+            @Override
+            public int getSampleInterval() {
+                return 4;
+            }
+        };
+        acl.setMetrics(metrics);
+        for (int i = 0; i < 4000; i++) {
+            acl.search("car");
+        }
+        assertTrue(metrics.queries.size() > 800 && metrics.queries.size() < 1200,
+            "About one query in four should be recorded: " + metrics.queries.size());
+
+        assertThrows(IllegalArgumentException.class, () -> acl.setMetrics(new AutoCompleteMetrics() {
+            @Override
+            public int getSampleInterval() {
+                return 3;
+            }
+        }));
+    }
+
+    @Test
+    void testMetricsRecordBuildTime() {
+        TrieMetrics metrics = new TrieMetrics();
+        ACLImplementation acl = new ACLImplementation(Constants.TEST_DICTIONARY, true);
+        acl.setMetrics(metrics);
+        assertTrue(metrics.getBuildNanos() > 0, "The dictionary load should be timed.");
+        assertEquals(2, metrics.getWordCount());
+        assertEquals("agrivoltaics".length() + "wokery".length() + 1, metrics.getNodeCount());
+    }
 }
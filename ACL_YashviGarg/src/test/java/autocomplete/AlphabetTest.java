@@ -0,0 +1,93 @@
+package autocomplete;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.lang.reflect.Constructor;
+import java.lang.reflect.InvocationTargetException;
+import org.junit.jupiter.api.Test;
+
+class AlphabetTest {
+
+  @Test
+  void testPrivateConstructor() throws Exception {
+    Constructor<Alphabet> constructor = Alphabet.class.getDeclaredConstructor();
+    constructor.setAccessible(true);
+    InvocationTargetException exception = assertThrows(InvocationTargetException.class, constructor::newInstance);
+    assertTrue(exception.getCause() instanceof UnsupportedOperationException);
+  }
+
+  @Test
+  void testAsciiLettersKeepDenseIndices() {
+    for (char ch = 'a'; ch <= 'z'; ch++) {
+      assertEquals(ch - 'a', Alphabet.index(ch));
+      assertEquals(ch, Alphabet.letter(ch - 'a'));
+      assertTrue(Alphabet.isIndex(ch - 'a'));
+    }
+    assertFalse(Alphabet.isIndex(-1));
+    assertFalse(Alphabet.isIndex(Constants.ALPHABET_SIZE));
+    assertFalse(Alphabet.isIndex('A'));
+    assertFalse(Alphabet.isIndex('\''));
+  }
+
+  @Test
+  void testOtherLettersKeepTheirOrder() {
+    String letters = "zßàéñœσж中";
+    for (int i = 0; i < letters.length(); i++) {
+      char ch = letters.charAt(i);
+      assertEquals(ch, Alphabet.letter(Alphabet.index(ch)));
+      assertTrue(Alphabet.isIndex(Alphabet.index(ch)), "Index of " + ch);
+      if (i > 0) {
+        assertTrue(Alphabet.index(letters.charAt(i - 1)) < Alphabet.index(ch),
+            "Indices must follow character order at " + ch);
+      }
+    }
+    assertFalse(Alphabet.isIndex(Character.MAX_VALUE + 1));
+    assertFalse(Alphabet.isIndex('§'));
+  }
+
+  @Test
+  void testNonLettersHaveNoIndex() {
+    for (char ch : "\u0000\u0001\u0019 0'-{~§€".toCharArray()) {
+      assertEquals(Alphabet.NONE, Alphabet.index(ch), "Index of " + (int) ch);
+    }
+    assertEquals(0, Alphabet.lowerBound('\u0001'));
+    assertEquals(3, Alphabet.lowerBound('d'));
+    assertEquals(Constants.ALPHABET_SIZE, Alphabet.lowerBound('{'));
+    assertEquals('€', Alphabet.lowerBound('€'));
+    assertTrue(Alphabet.lowerBound('€') < Alphabet.index('中'));
+  }
+
+  @Test
+  void testFoldNormalizesAndLowercases() {
+    assertEquals("élan", Alphabet.fold("Élan"));
+    assertEquals("élan", Alphabet.fold("E\u0301lan"));
+    assertEquals("straße", Alphabet.fold("STRAßE"));
+    assertEquals("über", Alphabet.fold("ÜBER"));
+    assertEquals("hello", Alphabet.fold("HeLLo"));
+    String ascii = "hello";
+    assertSame(ascii, Alphabet.fold(ascii));
+  }
+
+  @Test
+  void testNormalizeKeepsAsciiQueries() {
+    StringBuilder query = new StringBuilder("HeL");
+    assertSame(query, Alphabet.normalize(query));
+    assertEquals("été", Alphabet.normalize("E\u0301te\u0301").toString());
+  }
+
+  @Test
+  void testIsWord() {
+    assertTrue(Alphabet.isWord("hello"));
+    assertTrue(Alphabet.isWord("élève"));
+    assertTrue(Alphabet.isWord("किताब"));
+    assertTrue(Alphabet.isWord(""));
+    assertFalse(Alphabet.isWord("can't"));
+    assertFalse(Alphabet.isWord("abc1"));
+    assertFalse(Alphabet.isWord("two words"));
+    assertFalse(Alphabet.isWord("Hello"));
+  }
+}
@@ -0,0 +1,79 @@
+package autocomplete;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.lang.reflect.Constructor;
+import java.lang.reflect.InvocationTargetException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+class BatchCompletionTest {
+
+  private static ACLImplementation acl;
+
+  @BeforeAll
+  static void setUp() {
+    acl = new ACLImplementation();
+  }
+
+  @Test
+  void testPrivateConstructor() throws Exception {
+    Constructor<BatchCompletion> constructor = BatchCompletion.class.getDeclaredConstructor();
+    constructor.setAccessible(true);
+    InvocationTargetException exception = assertThrows(InvocationTargetException.class, constructor::newInstance);
+    assertTrue(exception.getCause() instanceof UnsupportedOperationException);
+  }
+
+  @Test
+  void testMatchesSinglePrefixQueries() {
+    List<String> prefixes = Arrays.asList(
+        "ab", "abs", "Abso", "absolute", "absolutes", "abz", "zz", "a", "ab", "q-", "", "xylo", "xy", "abq", "ABS");
+    assertMatches(prefixes, acl.completeAll(prefixes));
+    assertMatches(prefixes, acl.completeAll(prefixes, ForkJoinPool.commonPool()));
+  }
+
+  @Test
+  void testRandomBatches() {
+    List<String> words = acl.getWordsWithPrefix("c");
+    Random random = new Random(7);
+    for (int round = 0; round < 20; round++) {
+      List<String> prefixes = new ArrayList<>();
+      for (int i = 0; i < 50; i++) {
+        String word = words.get(random.nextInt(words.size()));
+        String prefix = word.substring(0, 1 + random.nextInt(Math.min(word.length(), 6)));
+        if (random.nextInt(10) == 0) {
+          prefix += (char) ('a' + random.nextInt(26));
+        }
+        prefixes.add(prefix);
+      }
+      assertMatches(prefixes, acl.completeAll(prefixes));
+    }
+  }
+
+  @Test
+  void testResultsAreIndependent() {
+    Map<String, List<String>> completions = acl.completeAll(Arrays.asList("abso", "absol", "ABSO"));
+    assertNotSame(completions.get("abso"), completions.get("ABSO"));
+    completions.get("abso").clear();
+    assertEquals(acl.getWordsWithPrefix("abso"), completions.get("ABSO"));
+    assertEquals(acl.getWordsWithPrefix("absol"), completions.get("absol"));
+  }
+
+  private static void assertMatches(List<String> prefixes, Map<String, List<String>> completions) {
+    assertEquals(new ArrayList<>(new LinkedHashSet<>(prefixes)), new ArrayList<>(completions.keySet()),
+        "Keys should be the distinct prefixes in input order.");
+    for (String prefix : prefixes) {
+      assertEquals(acl.getWordsWithPrefix(prefix), completions.get(prefix), "Completions of '" + prefix + "'");
+    }
+  }
+}
@@ -0,0 +1,145 @@
+package autocomplete;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class CompactTrieTest {
+  private static ACLImplementation acl;
+  private static CompactTrie compactTrie;
+
+  @BeforeAll
+  static void setUp() {
+    acl = new ACLImplementation();
+    compactTrie = acl.toCompactTrie();
+  }
+
+  @Test
+  void testSearch() {
+    assertTrue(compactTrie.search("apple"), "The word 'apple' should exist.");
+    assertTrue(compactTrie.search("Apple"), "Search should ignore case.");
+    assertFalse(compactTrie.search("aaq"), "The word 'aaq' should not exist.");
+    assertFalse(compactTrie.search("applicatio"), "A prefix alone is not a word.");
+  }
+
+  @Test
+  void testWordsWithPrefixMatchesTrie() {
+    for (String prefix : Arrays.asList("", "a", "app", "acanthodea", "zz", "s")) {
+      assertEquals(acl.getWordsWithPrefix(prefix), compactTrie.getWordsWithPrefix(prefix),
+          "Compact and pointer Tries should agree for prefix '" + prefix + "'.");
+    }
+  }
+
+  @Test
+  void testWordsWithMissingPrefix() {
+    assertEquals(Collections.emptyList(), compactTrie.getWordsWithPrefix("aaq"),
+        "The prefix 'aaq' does not exist.");
+  }
+
+  @Test
+  void testEmptyTrie() {
+    CompactTrie empty = CompactTrie.fromTrie(new TrieNode());
+    assertEquals(1, empty.nodeCount(), "An empty Trie holds only the root.");
+    assertFalse(empty.search("a"), "An empty Trie holds no words.");
+    assertTrue(empty.getWordsWithPrefix("").isEmpty(), "An empty Trie holds no words.");
+  }
+
+  @Test
+  void testBuildFromFile() {
+    CompactTrie fromFile = TrieFileBuilder.buildCompactTrieFromFile(Constants.TEST_DICTIONARY);
+    assertEquals(Collections.singletonList("agrivoltaics"), fromFile.getWordsWithPrefix("ag"),
+        "The test dictionary holds a single word.");
+  }
+
+  @Test
+  void testSnapshotRoundTrip(@TempDir Path dir) {
+    String snapshot = dir.resolve("words.trie").toString();
+    compactTrie.writeSnapshot(snapshot);
+    CompactTrie mapped = CompactTrie.mapSnapshot(snapshot);
+    assertEquals(compactTrie.nodeCount(), mapped.nodeCount(), "Node counts should match.");
+    assertTrue(mapped.search("apple"), "The word 'apple' should exist.");
+    assertFalse(mapped.search("aaq"), "The word 'aaq' should not exist.");
+    for (String prefix : Arrays.asList("", "app", "acanthodea", "zz")) {
+      assertEquals(compactTrie.getWordsWithPrefix(prefix), mapped.getWordsWithPrefix(prefix),
+          "Mapped and in-memory Tries should agree for prefix '" + prefix + "'.");
+    }
+  }
+
+  @Test
+  void testSnapshotOverwrite(@TempDir Path dir) {
+    String snapshot = dir.resolve("words.trie").toString();
+    compactTrie.writeSnapshot(snapshot);
+    CompactTrie first = CompactTrie.mapSnapshot(snapshot);
+    CompactTrie.fromTrie(new TrieNode()).writeSnapshot(snapshot);
+    assertTrue(first.search("apple"), "An existing mapping should survive a rewrite.");
+    assertFalse(CompactTrie.mapSnapshot(snapshot).search("apple"),
+        "A new mapping should see the rewritten snapshot.");
+  }
+
+  @Test
+  void testMapInvalidSnapshot(@TempDir Path dir) throws IOException {
+    Path text = dir.resolve("words.txt");
+    Files.write(text, Arrays.asList("apple"), StandardCharsets.UTF_8);
+    assertThrows(RuntimeException.class, () -> CompactTrie.mapSnapshot(text.toString()),
+        "A text dictionary is not a snapshot.");
+    assertThrows(RuntimeException.class,
+        () -> CompactTrie.mapSnapshot(dir.resolve("missing.trie").toString()),
+        "A missing file cannot be mapped.");
+  }
+
+  @Test
+  void testToTrieRestoresWeightsAndCounts() {
+    TrieNode source = new TrieNode();
+    ACLImplementation.insert(source, "tea", 5);
+    ACLImplementation.insert(source, "team", 40);
+    ACLImplementation.insert(source, "ten", 7);
+    ACLImplementation.insert(source, "Über", 3);
+    ACLImplementation unpacked = new ACLImplementation(CompactTrie.fromTrie(source).toTrie());
+    assertEquals(List.of("team", "ten", "tea"), unpacked.getTopCompletions("te", 3));
+    assertEquals(3, unpacked.countWithPrefix("te"));
+    assertEquals(4, unpacked.countWithPrefix(""));
+    assertTrue(unpacked.search("über"));
+    unpacked.remove("team");
+    assertEquals(List.of("ten", "tea"), unpacked.getTopCompletions("te", 2),
+        "The unpacked Trie should stay modifiable.");
+  }
+
+  @Test
+  void testForEachCompletion() {
+    List<String> words = new ArrayList<>();
+    compactTrie.forEachCompletion("Acanthod", (chars, length) -> {
+      words.add(new String(chars, 0, length));
+      return words.size() < 2;
+    });
+    assertEquals(acl.getWordsWithPrefix("acanthod").subList(0, 2), words,
+        "The consumer should see completions in order and stop when asked.");
+  }
+
+  @Test
+  void testUnicodeSnapshot(@TempDir Path dir) {
+    ACLImplementation words = new ACLImplementation(Constants.TEST_DICTIONARY, true);
+    for (String word : List.of("über", "übel", "Straße", "straw")) {
+      words.insert(word);
+    }
+    String snapshot = dir.resolve("de.trie").toString();
+    words.toCompactTrie().writeSnapshot(snapshot);
+    CompactTrie mapped = CompactTrie.mapSnapshot(snapshot);
+    assertTrue(mapped.search("ÜBER"));
+    assertTrue(mapped.search("U\u0308bel"));
+    assertEquals(List.of("übel", "über"), mapped.getWordsWithPrefix("Ü"));
+    assertEquals(List.of("straw", "straße"), mapped.getWordsWithPrefix("stra"));
+  }
+}
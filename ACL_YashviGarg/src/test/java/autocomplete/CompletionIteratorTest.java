@@ -0,0 +1,64 @@
+package autocomplete;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+class CompletionIteratorTest {
+
+  private static ACLImplementation acl;
+
+  @BeforeAll
+  static void setUp() {
+    acl = new ACLImplementation();
+  }
+
+  private static List<String> drain(Iterator<String> iterator) {
+    List<String> words = new ArrayList<>();
+    iterator.forEachRemaining(words::add);
+    return words;
+  }
+
+  @Test
+  void testMatchesEagerListing() {
+    for (String prefix : new String[] {"", "ab", "Zy", "quixot", "aaq"}) {
+      assertEquals(acl.getWordsWithPrefix(prefix), drain(acl.completionIterator(prefix)),
+          "Iterator and list should agree for prefix '" + prefix + "'");
+    }
+  }
+
+  @Test
+  void testExhaustedIterator() {
+    Iterator<String> iterator = acl.completionIterator("aaq");
+    assertFalse(iterator.hasNext());
+    assertThrows(NoSuchElementException.class, iterator::next);
+  }
+
+  @Test
+  void testStartsAfterWord() {
+    TrieNode root = new TrieNode();
+    for (String word : List.of("car", "card", "cards", "care", "cat", "dog")) {
+      ACLImplementation.insert(root, word);
+    }
+    assertEquals(List.of("card", "cards", "care", "cat"),
+        drain(new CompletionIterator(root, "", "car")).subList(0, 4));
+    assertEquals(List.of("care", "cat", "dog"), drain(new CompletionIterator(root, "", "cards")));
+    assertEquals(List.of("cat"), drain(new CompletionIterator(root.getChild(2), "c", "careless")),
+        "Starting after a missing word should continue with the next existing word.");
+    assertEquals(List.of("cat"), drain(new CompletionIterator(root.getChild(2), "c", "cas")));
+    assertEquals(List.of(), drain(new CompletionIterator(root, "", "zebra")));
+  }
+
+  @Test
+  void testStreamStopsEarly() {
+    assertEquals(acl.getWordsWithPrefix("ab").subList(0, 5),
+        acl.streamCompletions("AB").limit(5).toList());
+  }
+}
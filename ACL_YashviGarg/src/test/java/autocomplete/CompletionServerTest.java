@@ -0,0 +1,256 @@
+package autocomplete;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.ConnectException;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class CompletionServerTest {
+
+  private CompletionServer server;
+  private Thread serverThread;
+
+  @BeforeEach
+  void setUp() {
+    ACLImplementation acl = new ACLImplementation(Constants.TEST_DICTIONARY, true);
+    for (String word : List.of("hello", "help", "hero", "world")) {
+      acl.insert(word);
+    }
+    server = new CompletionServer(acl, 0);
+    serverThread = new Thread(server);
+    serverThread.start();
+  }
+
+  @AfterEach
+  void tearDown() throws InterruptedException {
+    server.close();
+    serverThread.join(5000);
+  }
+
+  private Socket connect() throws IOException {
+    return new Socket(InetAddress.getLoopbackAddress(), server.getPort());
+  }
+
+  private static BufferedReader reader(Socket socket) throws IOException {
+    return new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.US_ASCII));
+  }
+
+  private static void send(Socket socket, String text) throws IOException {
+    OutputStream out = socket.getOutputStream();
+    out.write(text.getBytes(StandardCharsets.US_ASCII));
+    out.flush();
+  }
+
+  @Test
+  void testCompleteAndSearch() throws IOException {
+    try (Socket socket = connect()) {
+      BufferedReader in = reader(socket);
+      send(socket, "COMPLETE he\n");
+      assertEquals("OK hello help hero", in.readLine());
+      send(socket, "COMPLETE HE 2\r\n");
+      assertEquals("OK hello help", in.readLine());
+      send(socket, "COMPLETE xyz\n");
+      assertEquals("OK", in.readLine());
+      send(socket, "COMPLETE he 0\n");
+      assertEquals("OK", in.readLine());
+      send(socket, "SEARCH world\n");
+      assertEquals("OK true", in.readLine());
+      send(socket, "SEARCH wor\n");
+      assertEquals("OK false", in.readLine());
+    }
+  }
+
+  @Test
+  void testPipelinedRequestsAreAnsweredInOrder() throws IOException {
+    try (Socket socket = connect()) {
+      BufferedReader in = reader(socket);
+      StringBuilder batch = new StringBuilder();
+      for (int i = 0; i < 500; i++) {
+        batch.append(i % 2 == 0 ? "COMPLETE hel\n" : "SEARCH hero\n");
+      }
+      send(socket, batch.toString());
+      for (int i = 0; i < 500; i++) {
+        assertEquals(i % 2 == 0 ? "OK hello help" : "OK true", in.readLine());
+      }
+    }
+  }
+
+  @Test
+  void testRequestSplitAcrossWrites() throws IOException {
+    try (Socket socket = connect()) {
+      BufferedReader in = reader(socket);
+      send(socket, "COMP");
+      send(socket, "LETE wor");
+      send(socket, "\n");
+      assertEquals("OK world", in.readLine());
+    }
+  }
+
+  @Test
+  void testMalformedRequests() throws IOException {
+    try (Socket socket = connect()) {
+      BufferedReader in = reader(socket);
+      send(socket, "FETCH he\n");
+      assertEquals("ERR unknown command 'FETCH'", in.readLine());
+      send(socket, "COMPLETE\n");
+      assertEquals("ERR wrong number of arguments for COMPLETE", in.readLine());
+      send(socket, "SEARCH a b\n");
+      assertEquals("ERR wrong number of arguments for SEARCH", in.readLine());
+      send(socket, "COMPLETE he many\n");
+      assertEquals("ERR invalid limit 'many'", in.readLine());
+      send(socket, "COMPLETE he -1\n");
+      assertEquals("ERR invalid limit '-1'", in.readLine());
+      send(socket, "COMPLETE he\n");
+      assertEquals("OK hello help hero", in.readLine());
+    }
+  }
+
+  @Test
+  void testEmptyPrefixAndRepeatedSpaces() throws IOException {
+    try (Socket socket = connect()) {
+      BufferedReader in = reader(socket);
+      send(socket, "COMPLETE \"\" 2\n");
+      String response = in.readLine();
+      assertTrue(response.startsWith("OK "), response);
+      assertEquals(3, response.split(" ").length, "Two completions of the empty prefix.");
+      send(socket, "COMPLETE  he   2\n");
+      assertEquals("OK hello help", in.readLine());
+      send(socket, "COMPLETE  he\n");
+      assertEquals("OK hello help hero", in.readLine());
+      send(socket, "COMPLETE \n");
+      assertEquals("ERR wrong number of arguments for COMPLETE", in.readLine());
+      send(socket, "SEARCH \"\"\n");
+      assertEquals("OK false", in.readLine());
+    }
+  }
+
+  @Test
+  void testTooLongRequestClosesConnection() throws IOException {
+    try (Socket socket = connect()) {
+      BufferedReader in = reader(socket);
+      send(socket, "COMPLETE " + "a".repeat(10_000) + "\n");
+      assertEquals("ERR request too long", in.readLine());
+      assertNull(in.readLine());
+    }
+    try (Socket socket = connect()) {
+      send(socket, "SEARCH help\n");
+      assertEquals("OK true", reader(socket).readLine());
+    }
+  }
+
+  @Test
+  void testLargeResponse() throws IOException {
+    ACLImplementation full = new ACLImplementation();
+    try (CompletionServer large = new CompletionServer(full, 0);
+         Socket socket = new Socket(InetAddress.getLoopbackAddress(), large.getPort())) {
+      Thread thread = new Thread(large);
+      thread.start();
+      send(socket, "COMPLETE a 100000\nCOMPLETE appl 3\nCOMPLETE a\n");
+      BufferedReader in = reader(socket);
+      List<String> words = full.getWordsWithPrefix("a");
+      assertEquals("OK " + String.join(" ", words), in.readLine());
+      assertEquals("OK " + String.join(" ", full.getWordsWithPrefix("appl").subList(0, 3)), in.readLine());
+      assertEquals("OK " + String.join(" ", words.subList(0, CompletionServer.DEFAULT_LIMIT)),
+          in.readLine(), "A request without a limit gets the default limit.");
+    }
+  }
+
+  @Test
+  void testPipelinedLargeResponsesWaitForReader() throws Exception {
+    ACLImplementation full = new ACLImplementation();
+    String expected = "OK " + String.join(" ",
+        full.getWordsWithPrefix("b").subList(0, CompletionServer.DEFAULT_LIMIT));
+    try (CompletionServer large = new CompletionServer(full, 0);
+         Socket socket = new Socket(InetAddress.getLoopbackAddress(), large.getPort())) {
+      new Thread(large).start();
+      // About 4 MB of responses, far more than the server keeps pending
+      send(socket, "COMPLETE b\n".repeat(350));
+      Thread.sleep(200);
+      BufferedReader in = reader(socket);
+      for (int i = 0; i < 350; i++) {
+        assertEquals(expected, in.readLine(), "Response " + i + ".");
+      }
+      send(socket, "SEARCH bee\n");
+      assertEquals("OK true", in.readLine());
+    }
+  }
+
+  @Test
+  void testConcurrentClients() throws Exception {
+    Thread[] clients = new Thread[4];
+    Throwable[] failures = new Throwable[clients.length];
+    for (int c = 0; c < clients.length; c++) {
+      final int id = c;
+      clients[c] = new Thread(() -> {
+        try (Socket socket = connect()) {
+          BufferedReader in = reader(socket);
+          for (int i = 0; i < 200; i++) {
+            send(socket, "COMPLETE her\n");
+            assertEquals("OK hero", in.readLine());
+          }
+        } catch (Throwable e) {
+          failures[id] = e;
+        }
+      });
+      clients[c].start();
+    }
+    for (int c = 0; c < clients.length; c++) {
+      clients[c].join();
+      assertNull(failures[c]);
+    }
+  }
+
+  @Test
+  void testCloseStopsServer() throws Exception {
+    int port = server.getPort();
+    server.close();
+    serverThread.join(5000);
+    assertTrue(!serverThread.isAlive());
+    assertThrows(ConnectException.class,
+        () -> new Socket(InetAddress.getLoopbackAddress(), port).close());
+    assertThrows(IllegalStateException.class, server::run);
+  }
+
+  @Test
+  void testInvalidPort() {
+    ACLImplementation acl = new ACLImplementation(Constants.TEST_DICTIONARY, true);
+    assertThrows(IllegalArgumentException.class, () -> new CompletionServer(acl, 70_000));
+  }
+
+  @Test
+  void testCloseBeforeRun() {
+    CompletionServer idle = new CompletionServer(new ACLImplementation(Constants.TEST_DICTIONARY, true), 0);
+    idle.close();
+    assertThrows(IllegalStateException.class, idle::run);
+  }
+
+  @Test
+  void testUnicodeRequests() throws IOException {
+    ACLImplementation acl = new ACLImplementation(Constants.TEST_DICTIONARY, true);
+    acl.insert("élan");
+    acl.insert("élève");
+    try (CompletionServer unicode = new CompletionServer(acl, 0);
+         Socket socket = new Socket(InetAddress.getLoopbackAddress(), unicode.getPort())) {
+      new Thread(unicode).start();
+      OutputStream out = socket.getOutputStream();
+      out.write("COMPLETE Él\nSEARCH ÉLAN\n".getBytes(StandardCharsets.UTF_8));
+      out.flush();
+      BufferedReader in = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+      assertEquals("OK élan élève", in.readLine());
+      assertEquals("OK true", in.readLine());
+    }
+  }
+}
@@ -0,0 +1,150 @@
+package autocomplete;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.Test;
+
+class ConcurrentACLImplementationTest {
+
+  private static final List<String> STABLE = List.of("car", "cart", "care", "do", "dog", "zebra");
+  private static final List<String> TOGGLED = List.of("ca", "carts", "cared", "dogs", "d", "zebras", "zeb");
+
+  @Test
+  void testInsertSearchAndPrefix() {
+    ConcurrentACLImplementation acl = new ConcurrentACLImplementation();
+    STABLE.forEach(acl::insert);
+
+    assertTrue(acl.search("cart"));
+    assertTrue(acl.search("CAR"));
+    assertFalse(acl.search("ca"));
+    assertEquals(List.of("car", "care", "cart"), acl.getWordsWithPrefix("car"));
+    assertEquals(List.of(), acl.getWordsWithPrefix("x"));
+  }
+
+  @Test
+  void testRemovePrunesOnlyDeadBranches() {
+    ConcurrentACLImplementation acl = new ConcurrentACLImplementation();
+    STABLE.forEach(acl::insert);
+    acl.insert("carts");
+
+    acl.remove("carts");
+    acl.remove("car");
+    acl.remove("missing");
+
+    assertFalse(acl.search("carts"));
+    assertFalse(acl.search("car"));
+    assertEquals(List.of("care", "cart"), acl.getWordsWithPrefix("car"));
+    assertEquals(List.of(), acl.getWordsWithPrefix("carts"));
+  }
+
+  @Test
+  void testInsertRejectsNonLetters() {
+    ConcurrentACLImplementation acl = new ConcurrentACLImplementation();
+    assertThrows(IllegalArgumentException.class, () -> acl.insert("can't"));
+  }
+
+  @Test
+  void testLoadsDictionary() {
+    ConcurrentACLImplementation acl = new ConcurrentACLImplementation(Constants.TEST_DICTIONARY);
+    assertTrue(acl.search("agrivoltaics"));
+    assertEquals(List.of("agrivoltaics"), acl.getWordsWithPrefix("agri"));
+  }
+
+  @Test
+  void testReadsDuringConcurrentUpdates() throws Exception {
+    ConcurrentACLImplementation acl = new ConcurrentACLImplementation();
+    STABLE.forEach(acl::insert);
+
+    int growingWords = 2000;
+    AtomicInteger published = new AtomicInteger(-1);
+    AtomicBoolean done = new AtomicBoolean();
+    ExecutorService executor = Executors.newFixedThreadPool(6);
+    List<Future<?>> futures = new ArrayList<>();
+    try {
+      // Two writers toggle words that share paths with the stable words,
+      // so removals keep pruning right next to them.
+      for (int w = 0; w < 2; w++) {
+        futures.add(executor.submit(() -> {
+          while (!done.get()) {
+            for (String word : TOGGLED) {
+              acl.insert(word);
+              acl.remove(word);
+            }
+          }
+        }));
+      }
+      // One writer only grows the trie and publishes its progress.
+      futures.add(executor.submit(() -> {
+        for (int i = 0; i < growingWords; i++) {
+          acl.insert(growingWord(i));
+          published.set(i);
+        }
+        done.set(true);
+      }));
+      for (int r = 0; r < 3; r++) {
+        futures.add(executor.submit(() -> {
+          while (!done.get()) {
+            for (String word : STABLE) {
+              assertTrue(acl.search(word), "Stable word lost: " + word);
+            }
+            int seen = published.get();
+            if (seen >= 0) {
+              assertTrue(acl.search(growingWord(seen)), "Published word missing: " + growingWord(seen));
+            }
+            List<String> cars = acl.getWordsWithPrefix("car");
+            assertTrue(cars.containsAll(List.of("car", "care", "cart")), "Enumeration lost words: " + cars);
+          }
+        }));
+      }
+      for (Future<?> future : futures) {
+        future.get(60, TimeUnit.SECONDS);
+      }
+    } finally {
+      done.set(true);
+      executor.shutdownNow();
+    }
+
+    for (int i = 0; i < growingWords; i++) {
+      assertTrue(acl.search(growingWord(i)));
+    }
+    for (String word : TOGGLED) {
+      assertFalse(acl.search(word), "Toggled word left behind: " + word);
+    }
+    assertEquals(List.of("car", "care", "cart"), acl.getWordsWithPrefix("car"));
+  }
+
+  private static String growingWord(int i) {
+    StringBuilder sb = new StringBuilder("grow");
+    for (int n = i; n > 0; n /= 26) {
+      sb.append((char) ('a' + n % 26));
+    }
+    return sb.toString();
+  }
+
+  @Test
+  void testUnicodeWords() {
+    ConcurrentACLImplementation acl = new ConcurrentACLImplementation();
+    for (String word : List.of("Çava", "çà", "cava", "жук", "жуки")) {
+      acl.insert(word);
+    }
+    assertTrue(acl.search("ÇAVA"));
+    assertEquals(List.of("çava", "çà"), acl.getWordsWithPrefix("Ç"));
+    assertEquals(List.of("жук", "жуки"), acl.getWordsWithPrefix("Жу"));
+    acl.remove("жук");
+    assertEquals(List.of("жуки"), acl.getWordsWithPrefix("ж"));
+    acl.remove("жуки");
+    assertEquals(List.of(), acl.getWordsWithPrefix("ж"));
+    assertTrue(acl.search("cava"));
+  }
+}
@@ -0,0 +1,148 @@
+package autocomplete;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.TreeSet;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class DawgTest {
+  private static ACLImplementation acl;
+  private static Dawg dawg;
+
+  @BeforeAll
+  static void setUp() {
+    acl = new ACLImplementation();
+    dawg = acl.toDawg();
+  }
+
+  @Test
+  void testSearch() {
+    assertTrue(dawg.search("apple"), "The word 'apple' should exist.");
+    assertTrue(dawg.search("Apple"), "Search should ignore case.");
+    assertFalse(dawg.search("aaq"), "The word 'aaq' should not exist.");
+    assertFalse(dawg.search("applicatio"), "A prefix alone is not a word.");
+    assertFalse(dawg.search("applicationness"), "A shared ending should not create words.");
+  }
+
+  @Test
+  void testWordsWithPrefixMatchesTrie() {
+    for (String prefix : Arrays.asList("", "a", "app", "acanthodea", "zz", "s", "applicatio")) {
+      assertEquals(acl.getWordsWithPrefix(prefix), dawg.getWordsWithPrefix(prefix),
+          "The word graph and the Trie should agree for prefix '" + prefix + "'.");
+    }
+  }
+
+  @Test
+  void testFewerNodesThanTrie() {
+    int trieNodes = acl.toCompactTrie().nodeCount();
+    assertTrue(dawg.nodeCount() < trieNodes / 4,
+        "Sharing endings should remove most nodes: " + dawg.nodeCount() + " of " + trieNodes);
+    assertEquals(acl.getWordsWithPrefix("").size(), dawg.size(), "Word counts should match.");
+  }
+
+  @Test
+  void testSharesEndings() {
+    Dawg graph = new Dawg.Builder().add("tap").add("taps").add("top").add("tops").build();
+    assertEquals(5, graph.nodeCount(), "'ta' and 'to' should share one state and their ending.");
+    assertEquals(5, graph.edgeCount());
+    assertEquals(List.of("tap", "taps", "top", "tops"), graph.getWordsWithPrefix("t"));
+    assertFalse(graph.search("ta"));
+  }
+
+  @Test
+  void testMatchesSortedSet() {
+    Random random = new Random(17);
+    TreeSet<String> expected = new TreeSet<>();
+    for (int i = 0; i < 20_000; i++) {
+      StringBuilder word = new StringBuilder();
+      int length = 1 + random.nextInt(7);
+      for (int j = 0; j < length; j++) {
+        word.append((char) ('a' + random.nextInt(4)));
+      }
+      expected.add(word.toString());
+    }
+    Dawg.Builder builder = new Dawg.Builder();
+    expected.forEach(builder::add);
+    Dawg graph = builder.build();
+    assertEquals(expected.size(), graph.size());
+    assertEquals(new ArrayList<>(expected), graph.getWordsWithPrefix(""));
+    for (String prefix : List.of("a", "ab", "cad", "dddd", "bcab")) {
+      assertEquals(new ArrayList<>(expected.subSet(prefix, prefix + Character.MAX_VALUE)),
+          graph.getWordsWithPrefix(prefix), "Prefix '" + prefix + "'.");
+    }
+  }
+
+  @Test
+  void testDuplicatesAndEmptyWord() {
+    Dawg graph = new Dawg.Builder().add("").add("a").add("A").add("b").build();
+    assertEquals(3, graph.size(), "A repeated word should count once.");
+    assertTrue(graph.search(""));
+    assertEquals(List.of("", "a", "b"), graph.getWordsWithPrefix(""));
+    assertEquals(0, new Dawg.Builder().build().size());
+    assertEquals(1, new Dawg.Builder().build().nodeCount(), "An empty graph holds the start.");
+  }
+
+  @Test
+  void testRejectsInvalidWords() {
+    Dawg.Builder builder = new Dawg.Builder().add("beta");
+    assertThrows(IllegalArgumentException.class, () -> builder.add("alpha"),
+        "Words out of order should be rejected.");
+    assertThrows(IllegalArgumentException.class, () -> builder.add("bet"),
+        "A prefix of the last word sorts before it.");
+    assertThrows(IllegalArgumentException.class, () -> builder.add("can't"));
+    builder.add("betas");
+    builder.build();
+    assertThrows(IllegalStateException.class, () -> builder.add("gamma"));
+    assertThrows(IllegalStateException.class, builder::build);
+  }
+
+  @Test
+  void testForEachCompletion() {
+    List<String> words = new ArrayList<>();
+    dawg.forEachCompletion("Acanthod", (chars, length) -> {
+      words.add(new String(chars, 0, length));
+      return words.size() < 2;
+    });
+    assertEquals(acl.getWordsWithPrefix("acanthod").subList(0, 2), words,
+        "The consumer should see completions in order and stop when asked.");
+  }
+
+  @Test
+  void testUnicodeWords() {
+    Dawg graph = new Dawg.Builder().add("straw").add("Straße").add("übel").add("über").build();
+    assertTrue(graph.search("ÜBER"));
+    assertEquals(List.of("übel", "über"), graph.getWordsWithPrefix("Ü"));
+    assertEquals(List.of("straw", "straße"), graph.getWordsWithPrefix("stra"));
+  }
+
+  @Test
+  void testBuildFromFile() {
+    Dawg fromFile = TrieFileBuilder.buildDawgFromFile(Constants.TEST_DICTIONARY);
+    assertEquals(Collections.singletonList("agrivoltaics"), fromFile.getWordsWithPrefix("ag"),
+        "The test dictionary holds a single word.");
+  }
+
+  @Test
+  void testBuildFromUnsortedFile(@TempDir Path dir) throws IOException {
+    Path file = dir.resolve("words.txt");
+    Files.write(file, Arrays.asList("cab", "car", "abc", "Cart", "car", "zebra", "ab"),
+        StandardCharsets.UTF_8);
+    Dawg fromFile = TrieFileBuilder.buildDawgFromFile(file.toString());
+    assertEquals(List.of("ab", "abc", "cab", "car", "cart", "zebra"),
+        fromFile.getWordsWithPrefix(""), "Words out of order should be merged in.");
+  }
+}
@@ -0,0 +1,152 @@
+package autocomplete;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+class DictionaryReaderTest {
+
+  private static List<String> read(String text) {
+    return read(Channels.newChannel(new ByteArrayInputStream(text.getBytes(StandardCharsets.UTF_8))));
+  }
+
+  private static List<String> read(ReadableByteChannel channel) {
+    List<String> entries = new ArrayList<>();
+    new DictionaryReader((word, weight, weighted) ->
+        entries.add(weighted ? word + "=" + weight : word.toString())).read(channel, "test");
+    return entries;
+  }
+
+  /** A channel returning at most a few bytes per read, as a slow pipe would. */
+  private static ReadableByteChannel trickle(byte[] bytes, int chunk) {
+    ByteBuffer source = ByteBuffer.wrap(bytes);
+    return new ReadableByteChannel() {
+      @Override
+      public int read(ByteBuffer dst) {
+        if (!source.hasRemaining()) {
+          return -1;
+        }
+        int count = Math.min(chunk, Math.min(dst.remaining(), source.remaining()));
+        ByteBuffer slice = source.slice();
+        slice.limit(count);
+        dst.put(slice);
+        source.position(source.position() + count);
+        return count;
+      }
+
+      @Override
+      public boolean isOpen() {
+        return true;
+      }
+
+      @Override
+      public void close() {
+      }
+    };
+  }
+
+  @Test
+  void testParsesWordsAndWeights() {
+    assertEquals(List.of("apple", "banana=12", "cherry=0", "date=5"),
+        read("Apple\n  banana\t12 \r\n\n \t\ncherry -0\ndate +5"));
+  }
+
+  @Test
+  void testNonAsciiWordsAreFolded() {
+    assertEquals(List.of("élan", "straße=3", "über"), read("ÉLAN\nStraße 3\nÜber\n"));
+  }
+
+  @Test
+  void testMalformedLines() {
+    for (String line : List.of("car 3 4", "car -3", "car 1x", "car +", "can't", "abc1",
+        "car 99999999999999999999", "½", "a\u0001b")) {
+      RuntimeException e = assertThrows(RuntimeException.class, () -> read("apple\n" + line + "\n"),
+          "Expected to reject " + line);
+      assertTrue(e.getMessage().startsWith("Invalid line 2: \"" + line.trim()), e.getMessage());
+    }
+    assertEquals(List.of("car=" + Long.MAX_VALUE), read("car " + Long.MAX_VALUE));
+  }
+
+  @Test
+  void testLinesSplitAcrossReads() {
+    StringBuilder text = new StringBuilder();
+    List<String> expected = new ArrayList<>();
+    for (int i = 0; i < 5000; i++) {
+      String word = "w" + (char) ('a' + i % 26) + "é".repeat(i % 3) + (char) ('a' + i / 26 % 26);
+      text.append(word).append(' ').append(i).append('\n');
+      expected.add(word + "=" + i);
+    }
+    assertEquals(expected, read(trickle(text.toString().getBytes(StandardCharsets.UTF_8), 7)));
+  }
+
+  @Test
+  void testLineLongerThanBuffer() {
+    String longWord = "a".repeat(DictionaryReader.BUFFER_SIZE * 2 + 3);
+    List<String> entries = read("first\n" + longWord + " 9\nlast");
+    assertEquals(3, entries.size());
+    assertEquals("first", entries.get(0));
+    assertEquals(longWord + "=9", entries.get(1));
+    assertEquals("last", entries.get(2));
+  }
+
+  @Test
+  void testParseAllRange() {
+    ByteBuffer bytes = ByteBuffer.wrap("skip\nkeep 2\nalso".getBytes(StandardCharsets.US_ASCII));
+    List<String> entries = new ArrayList<>();
+    new DictionaryReader((word, weight, weighted) -> entries.add(word.toString())).parseAll(bytes, 5, bytes.limit());
+    assertEquals(List.of("keep", "also"), entries);
+  }
+
+  @Test
+  void testDecompressLeavesPlainInput() {
+    ByteBuffer plain = ByteBuffer.wrap("apple\n".getBytes(StandardCharsets.US_ASCII));
+    assertTrue(plain == DictionaryReader.decompress(plain, "test"));
+  }
+
+  @Test
+  void testAsciiFoldingAtEveryPosition() {
+    // Neighbours of the letter ranges must be rejected wherever they sit in a word
+    String letters = "abcdefghijklmnopqrstuvwxyzABCDEFGHIJKLMNOPQRSTUVWXYZ";
+    for (int length = 1; length <= 20; length++) {
+      StringBuilder word = new StringBuilder();
+      for (int i = 0; i < length; i++) {
+        word.append(letters.charAt((i * 7 + length) % letters.length()));
+      }
+      assertEquals(List.of(word.toString().toLowerCase()), read(word.toString()), "Length " + length);
+      for (int i = 0; i < length; i++) {
+        for (char bad : new char[] {'@', '[', '`', '{', '0', '\u007f', '-'}) {
+          StringBuilder invalid = new StringBuilder(word);
+          invalid.setCharAt(i, bad);
+          assertThrows(RuntimeException.class, () -> read(invalid.toString()),
+              "Expected to reject " + invalid);
+        }
+        StringBuilder accented = new StringBuilder(word);
+        accented.setCharAt(i, 'É');
+        assertEquals(List.of(accented.toString().toLowerCase()), read(accented.toString()));
+      }
+    }
+  }
+
+  @Test
+  void testLenientModeReportsLineNumbers() {
+    String text = "apple\ncan't\n\nbanana 3\ncar 3 4\r\ncherry -1\ndate\n";
+    List<String> entries = new ArrayList<>();
+    List<String> skipped = new ArrayList<>();
+    DictionaryReader reader = new DictionaryReader(
+        (word, weight, weighted) -> entries.add(word.toString()),
+        (lineNumber, line) -> skipped.add(lineNumber + ":" + line));
+    reader.read(Channels.newChannel(new ByteArrayInputStream(text.getBytes(StandardCharsets.UTF_8))), "test");
+    assertEquals(List.of("apple", "banana", "date"), entries);
+    assertEquals(List.of("2:can't", "5:car 3 4", "6:cherry -1"), skipped);
+    assertEquals(7, reader.getLineCount());
+  }
+}
@@ -0,0 +1,166 @@
+package autocomplete;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class DurableDictionaryTest {
+
+  private static String letters(int number) {
+    StringBuilder word = new StringBuilder();
+    do {
+      word.append((char) ('a' + number % 26));
+      number /= 26;
+    } while (number > 0);
+    return word.toString();
+  }
+
+  @Test
+  void testMutationsSurviveRestart(@TempDir Path dir) throws IOException {
+    String directory = dir.toString();
+    try (DurableDictionary dict = new DurableDictionary(directory, Constants.TEST_DICTIONARY)) {
+      assertEquals(2, dict.size(), "A new directory starts with the seed dictionary.");
+      dict.insert("Hello");
+      dict.insert("help", 42);
+      dict.insert("hero", 7);
+      dict.remove("wokery");
+      dict.remove("missing");
+      dict.insert("hello");
+    }
+    try (DurableDictionary dict = new DurableDictionary(directory, null)) {
+      assertEquals(4, dict.getReplayedMutations(), "Mutations that change nothing are not logged.");
+      assertEquals(List.of("agrivoltaics", "hello", "help", "hero"), dict.getWordsWithPrefix(""));
+      assertEquals(List.of("help", "hero", "hello"), dict.getTopCompletions("he", 3),
+          "Weights should survive a restart.");
+      assertFalse(dict.search("wokery"));
+    }
+  }
+
+  @Test
+  void testMutationsAreDurableWithoutClose(@TempDir Path dir) throws IOException {
+    DurableDictionary first = new DurableDictionary(dir.toString(), null);
+    first.insert("durable", 3);
+    try (DurableDictionary second = new DurableDictionary(dir.toString(), null)) {
+      assertTrue(second.search("durable"), "A returned insert should already be on disk.");
+    }
+    first.close();
+  }
+
+  @Test
+  void testCompaction(@TempDir Path dir) throws IOException {
+    String directory = dir.toString();
+    try (DurableDictionary dict = new DurableDictionary(directory, null, 512)) {
+      for (int i = 0; i < 1000; i++) {
+        dict.insert(letters(i), i);
+      }
+      assertTrue(Files.size(dir.resolve(DurableDictionary.LOG_FILE)) < 1024,
+          "The log should have been compacted along the way.");
+      dict.remove("a");
+      dict.compact();
+      assertEquals(8, Files.size(dir.resolve(DurableDictionary.LOG_FILE)),
+          "A compaction should leave an empty log.");
+    }
+    try (DurableDictionary dict = new DurableDictionary(directory, null)) {
+      assertEquals(0, dict.getReplayedMutations());
+      assertEquals(999, dict.size());
+      assertEquals(List.of(letters(999)), dict.getTopCompletions("", 1));
+    }
+    assertFalse(Files.exists(dir.resolve(DurableDictionary.NEXT_LOG_FILE)));
+  }
+
+  @Test
+  void testRecoversInterruptedCompaction(@TempDir Path dir) throws IOException {
+    String directory = dir.toString();
+    try (DurableDictionary dict = new DurableDictionary(directory, null)) {
+      dict.insert("kept", 1);
+      dict.insert("dropped", 1);
+    }
+    // The state after a crash between rotating the log and replacing it:
+    // the old snapshot, the old log, and a newer log.
+    try (MutationLog next = MutationLog.open(dir.resolve(DurableDictionary.NEXT_LOG_FILE))) {
+      next.append(MutationLog.REMOVE, "dropped", 0);
+      next.sync(next.append(MutationLog.PUT, "added", 2));
+    }
+    try (DurableDictionary dict = new DurableDictionary(directory, null)) {
+      assertEquals(4, dict.getReplayedMutations());
+      assertEquals(List.of("added", "kept"), dict.getWordsWithPrefix(""));
+    }
+    assertFalse(Files.exists(dir.resolve(DurableDictionary.NEXT_LOG_FILE)));
+    try (DurableDictionary dict = new DurableDictionary(directory, null)) {
+      assertEquals(0, dict.getReplayedMutations(), "Recovery should have compacted the logs.");
+      assertEquals(List.of("added", "kept"), dict.getWordsWithPrefix(""));
+    }
+  }
+
+  @Test
+  void testIgnoresTornRecord(@TempDir Path dir) throws IOException {
+    String directory = dir.toString();
+    try (DurableDictionary dict = new DurableDictionary(directory, null)) {
+      dict.insert("whole");
+    }
+    Path log = dir.resolve(DurableDictionary.LOG_FILE);
+    byte[] bytes = Files.readAllBytes(log);
+    byte[] torn = new byte[bytes.length + 6];
+    System.arraycopy(bytes, 0, torn, 0, bytes.length);
+    torn[bytes.length] = 40;
+    Files.write(log, torn);
+    try (DurableDictionary dict = new DurableDictionary(directory, null)) {
+      assertEquals(List.of("whole"), dict.getWordsWithPrefix(""));
+      dict.insert("after");
+    }
+    try (DurableDictionary dict = new DurableDictionary(directory, null)) {
+      assertEquals(List.of("after", "whole"), dict.getWordsWithPrefix(""));
+    }
+  }
+
+  @Test
+  void testConcurrentWriters(@TempDir Path dir) throws Exception {
+    String directory = dir.toString();
+    int threads = 4;
+    int perThread = 250;
+    ExecutorService executor = Executors.newFixedThreadPool(threads);
+    try (DurableDictionary dict = new DurableDictionary(directory, null, 4096)) {
+      List<Future<?>> futures = new ArrayList<>();
+      for (int t = 0; t < threads; t++) {
+        int first = t * perThread;
+        futures.add(executor.submit(() -> {
+          for (int i = first; i < first + perThread; i++) {
+            dict.insert(letters(i));
+          }
+        }));
+      }
+      for (Future<?> future : futures) {
+        future.get();
+      }
+    } finally {
+      executor.shutdown();
+    }
+    try (DurableDictionary dict = new DurableDictionary(directory, null)) {
+      assertEquals(threads * perThread, dict.size());
+    }
+  }
+
+  @Test
+  void testRejectsInvalidCalls(@TempDir Path dir) throws IOException {
+    DurableDictionary dict = new DurableDictionary(dir.toString(), null);
+    assertThrows(IllegalArgumentException.class, () -> dict.insert("can't"));
+    assertThrows(IllegalArgumentException.class, () -> dict.insert("word", -1));
+    dict.close();
+    dict.close();
+    assertThrows(IllegalStateException.class, () -> dict.insert("late"));
+    assertThrows(IllegalArgumentException.class,
+        () -> new DurableDictionary(dir.toString(), null, 0));
+  }
+}
@@ -0,0 +1,103 @@
+package autocomplete;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.lang.reflect.Constructor;
+import java.lang.reflect.InvocationTargetException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Collectors;
+import org.junit.jupiter.api.Test;
+
+class FuzzySearchTest {
+
+  @Test
+  void testPrivateConstructor() throws Exception {
+    Constructor<FuzzySearch> constructor = FuzzySearch.class.getDeclaredConstructor();
+    constructor.setAccessible(true);
+    InvocationTargetException exception = assertThrows(InvocationTargetException.class, constructor::newInstance);
+    assertTrue(exception.getCause() instanceof UnsupportedOperationException);
+  }
+
+  @Test
+  void testMatchesBruteForce() {
+    Random random = new Random(42);
+    TrieNode root = new TrieNode();
+    List<String> words = new ArrayList<>();
+    List<Long> weights = new ArrayList<>();
+    for (int i = 0; i < 400; i++) {
+      String word = randomWord(random, 1 + random.nextInt(7));
+      long weight = random.nextInt(5);
+      ACLImplementation.insert(root, word, weight);
+      int existing = words.indexOf(word);
+      if (existing >= 0) {
+        weights.set(existing, weight);
+      } else {
+        words.add(word);
+        weights.add(weight);
+      }
+    }
+    for (int q = 0; q < 200; q++) {
+      String query = randomWord(random, random.nextInt(6));
+      int maxEdits = random.nextInt(3);
+      int k = 1 + random.nextInt(20);
+      assertEquals(bruteForce(words, weights, query, maxEdits, k),
+          FuzzySearch.topCompletions(root, query, maxEdits, k),
+          "Query '" + query + "' within " + maxEdits);
+    }
+  }
+
+  private static List<String> bruteForce(List<String> words, List<Long> weights, String query, int maxEdits, int k) {
+    List<Integer> matches = new ArrayList<>();
+    int[] distances = new int[words.size()];
+    for (int i = 0; i < words.size(); i++) {
+      String word = words.get(i);
+      distances[i] = Integer.MAX_VALUE;
+      for (int end = 0; end <= word.length(); end++) {
+        distances[i] = Math.min(distances[i], editDistance(query, word.substring(0, end)));
+      }
+      if (distances[i] <= maxEdits) {
+        matches.add(i);
+      }
+    }
+    return matches.stream()
+        .sorted(Comparator.<Integer>comparingInt(i -> distances[i])
+            .thenComparing(i -> -weights.get(i))
+            .thenComparing(words::get))
+        .limit(k)
+        .map(words::get)
+        .collect(Collectors.toList());
+  }
+
+  // Optimal string alignment distance: Levenshtein plus adjacent swaps
+  private static int editDistance(String a, String b) {
+    int[][] d = new int[a.length() + 1][b.length() + 1];
+    for (int i = 0; i <= a.length(); i++) {
+      for (int j = 0; j <= b.length(); j++) {
+        if (i == 0 || j == 0) {
+          d[i][j] = i + j;
+          continue;
+        }
+        int cost = a.charAt(i - 1) == b.charAt(j - 1) ? 0 : 1;
+        d[i][j] = Math.min(Math.min(d[i - 1][j] + 1, d[i][j - 1] + 1), d[i - 1][j - 1] + cost);
+        if (i > 1 && j > 1 && a.charAt(i - 1) == b.charAt(j - 2) && a.charAt(i - 2) == b.charAt(j - 1)) {
+          d[i][j] = Math.min(d[i][j], d[i - 2][j - 2] + 1);
+        }
+      }
+    }
+    return d[a.length()][b.length()];
+  }
+
+  private static String randomWord(Random random, int length) {
+    StringBuilder sb = new StringBuilder();
+    for (int i = 0; i < length; i++) {
+      // A small alphabet makes near misses common
+      sb.append((char) ('a' + random.nextInt(4)));
+    }
+    return sb.toString();
+  }
+}
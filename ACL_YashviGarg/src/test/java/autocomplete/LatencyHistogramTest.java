@@ -0,0 +1,127 @@
+package autocomplete;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.Test;
+
+class LatencyHistogramTest {
+
+  @Test
+  void testEmptyHistogram() {
+    LatencyHistogram histogram = new LatencyHistogram();
+    assertEquals(0, histogram.getCount());
+    assertEquals(0, histogram.getMean());
+    assertEquals(0, histogram.getMax());
+    assertEquals(0, histogram.getValueAtPercentile(99));
+  }
+
+  @Test
+  void testSmallValuesAreExact() {
+    LatencyHistogram histogram = new LatencyHistogram();
+    for (int value = 1; value <= 10; value++) {
+      histogram.record(value);
+    }
+    assertEquals(10, histogram.getCount());
+    assertEquals(5.5, histogram.getMean());
+    assertEquals(5, histogram.getValueAtPercentile(50));
+    assertEquals(9, histogram.getValueAtPercentile(90));
+    assertEquals(1, histogram.getValueAtPercentile(0));
+    assertEquals(10, histogram.getValueAtPercentile(100));
+  }
+
+  @Test
+  void testBucketsCoverEveryValue() {
+    long[] values = {0, 1, 31, 32, 63, 64, 65, 1000, 123_456_789L, Long.MAX_VALUE / 3, Long.MAX_VALUE};
+    for (long value : values) {
+      int bucket = LatencyHistogram.bucketOf(value);
+      assertTrue(LatencyHistogram.highestValueIn(bucket) >= value, "Bucket of " + value);
+      if (bucket > 0) {
+        assertTrue(LatencyHistogram.highestValueIn(bucket - 1) < value, "Bucket of " + value);
+      }
+    }
+    for (int bucket = 1; bucket < LatencyHistogram.bucketOf(Long.MAX_VALUE); bucket++) {
+      assertEquals(bucket, LatencyHistogram.bucketOf(LatencyHistogram.highestValueIn(bucket)));
+      assertEquals(bucket, LatencyHistogram.bucketOf(LatencyHistogram.highestValueIn(bucket - 1) + 1));
+    }
+  }
+
+  @Test
+  void testPercentilesWithinRelativeError() {
+    Random random = new Random(20);
+    LatencyHistogram histogram = new LatencyHistogram();
+    long[] values = new long[100_000];
+    for (int i = 0; i < values.length; i++) {
+      // Log-normal, like real latencies: mostly microseconds, a tail of milliseconds
+      values[i] = (long) Math.exp(8 + 1.5 * random.nextGaussian());
+      histogram.record(values[i]);
+    }
+    Arrays.sort(values);
+    for (double percentile : new double[] {1, 50, 90, 99, 99.9}) {
+      long exact = values[(int) Math.ceil(percentile / 100 * values.length) - 1];
+      long estimate = histogram.getValueAtPercentile(percentile);
+      assertTrue(estimate >= exact && estimate <= exact * 1.04,
+          "p" + percentile + ": " + estimate + " for " + exact);
+    }
+    assertEquals(values[values.length - 1], histogram.getMax());
+    assertEquals(values[values.length - 1], histogram.getValueAtPercentile(100));
+  }
+
+  @Test
+  void testNegativeValuesRecordedAsZero() {
+    LatencyHistogram histogram = new LatencyHistogram();
+    histogram.record(-5);
+    assertEquals(1, histogram.getCount());
+    assertEquals(0, histogram.getMax());
+  }
+
+  @Test
+  void testInvalidPercentile() {
+    LatencyHistogram histogram = new LatencyHistogram();
+    assertThrows(IllegalArgumentException.class, () -> histogram.getValueAtPercentile(-1));
+    assertThrows(IllegalArgumentException.class, () -> histogram.getValueAtPercentile(100.5));
+    assertThrows(IllegalArgumentException.class, () -> histogram.getValueAtPercentile(Double.NaN));
+  }
+
+  @Test
+  void testReset() {
+    LatencyHistogram histogram = new LatencyHistogram();
+    histogram.record(1_000_000);
+    histogram.reset();
+    assertEquals(0, histogram.getCount());
+    assertEquals(0, histogram.getMax());
+    histogram.record(7);
+    assertEquals(7.0, histogram.getMean());
+  }
+
+  @Test
+  void testConcurrentRecording() throws Exception {
+    LatencyHistogram histogram = new LatencyHistogram();
+    ExecutorService executor = Executors.newFixedThreadPool(4);
+    try {
+      Future<?>[] futures = new Future<?>[4];
+      for (int t = 0; t < futures.length; t++) {
+        futures[t] = executor.submit(() -> {
+          for (int i = 1; i <= 50_000; i++) {
+            histogram.record(i);
+          }
+        });
+      }
+      for (Future<?> future : futures) {
+        future.get(30, TimeUnit.SECONDS);
+      }
+    } finally {
+      executor.shutdownNow();
+    }
+    assertEquals(200_000, histogram.getCount(), "No recorded value should be lost.");
+    assertEquals(25_000.5, histogram.getMean());
+    assertEquals(50_000, histogram.getMax());
+  }
+}
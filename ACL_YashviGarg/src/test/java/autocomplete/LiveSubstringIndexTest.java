@@ -0,0 +1,56 @@
+package autocomplete;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.List;
+import java.util.stream.Collectors;
+import org.junit.jupiter.api.Test;
+
+class LiveSubstringIndexTest {
+
+  private static String letters(int number) {
+    StringBuilder word = new StringBuilder();
+    do {
+      word.append((char) ('a' + number % 26));
+      number /= 26;
+    } while (number > 0);
+    return word.toString();
+  }
+
+  @Test
+  void testBuiltIndexFollowsChanges() {
+    ACLImplementation acl = new ACLImplementation(Constants.TEST_DICTIONARY, true);
+    acl.buildSubstringIndex();
+    LiveSubstringIndex index = acl.substringIndex();
+    acl.buildSubstringIndex();
+    acl.insert("voltage");
+    acl.insert("Revolt", 4);
+    acl.insert("voltage", 9);
+    acl.remove("agrivoltaics");
+    acl.remove("missing");
+    assertEquals(List.of("revolt", "voltage"), acl.getWordsContaining("volt"));
+    assertEquals(List.of("revolt"), acl.getWordsWithSuffix("volt"));
+    acl.insert("agrivoltaics");
+    acl.remove("revolt");
+    assertEquals(List.of("agrivoltaics", "voltage"), acl.getWordsContaining("volt"));
+    assertEquals(List.of("agrivoltaics", "voltage", "wokery"), acl.getWordsWithSuffix(""));
+    assertEquals(1, index.getPendingChanges(), "Only voltage differs from the index.");
+    assertEquals(1, index.getBuilds(), "A few changes should not rebuild the index.");
+  }
+
+  @Test
+  void testRebuildsAfterManyChanges() {
+    ACLImplementation acl = new ACLImplementation(new TrieNode());
+    LiveSubstringIndex index = acl.substringIndex();
+    int words = LiveSubstringIndex.MIN_PENDING * 3;
+    for (int i = 0; i < words; i++) {
+      acl.insert(letters(i));
+    }
+    assertEquals(3, index.getBuilds());
+    assertEquals(words - 2 * (LiveSubstringIndex.MIN_PENDING + 1), index.getPendingChanges());
+    List<String> all = acl.getWordsWithPrefix("");
+    assertEquals(all, acl.getWordsWithSuffix(""));
+    assertEquals(all.stream().filter(w -> w.contains("ab")).collect(Collectors.toList()),
+        acl.getWordsContaining("ab"));
+  }
+}
@@ -5,8 +5,13 @@ import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
+import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
 import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import org.apache.commons.cli.CommandLine;
 import org.apache.commons.cli.CommandLineParser;
 import org.apache.commons.cli.DefaultParser;
@@ -15,6 +20,7 @@ import org.apache.commons.cli.Options;
 import org.apache.commons.cli.ParseException;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
 
 class MainTest {
   private final ByteArrayOutputStream outContent = new ByteArrayOutputStream();
@@ -87,6 +93,45 @@ class MainTest {
     assertFalse(errContent.toString().contains("Error"));
   }
 
+  @Test
+  void testProcessCommandsLenientDictionary(@TempDir Path dir) throws Exception {
+    Path dictionary = dir.resolve("mixed.txt");
+    Files.write(dictionary, "zygote\nzy gote x\nzymurgy\n".getBytes(StandardCharsets.UTF_8));
+    String[] strict = {"-d", dictionary.toString(), "zy"};
+    main.processCommands(new DefaultParser().parse(main.setUpOptions(), strict));
+    assertTrue(errContent.toString().contains("Error: Invalid line 2"), errContent.toString());
+
+    errContent.reset();
+    String[] lenient = {"-d", dictionary.toString(), "--lenient", "zy"};
+    main.processCommands(new DefaultParser().parse(main.setUpOptions(), lenient));
+    assertTrue(errContent.toString().contains("Warning: skipping invalid line 2: \"zy gote x\""),
+        errContent.toString());
+    assertTrue(outContent.toString().contains("Auto-completion results for 'zy': zygote, zymurgy"));
+  }
+
+  @Test
+  void testProcessCommandsLenientWithoutDictionary() throws ParseException {
+    String[] args = {"--lenient", "zy"};
+    main.processCommands(new DefaultParser().parse(main.setUpOptions(), args));
+    assertTrue(errContent.toString().contains("Error: '--lenient' requires '--dictionary' option"));
+  }
+
+  @Test
+  void testProcessCommandsDictionaryFromStdin() throws ParseException {
+    InputStream stdin = System.in;
+    System.setIn(new ByteArrayInputStream("zygote\nzymurgy 4\n".getBytes(StandardCharsets.UTF_8)));
+    try {
+      String[] args = {"--dictionary", "-", "zy"};
+      CommandLine cmd = new DefaultParser().parse(main.setUpOptions(), args);
+      main.processCommands(cmd);
+    } finally {
+      System.setIn(stdin);
+    }
+    assertFalse(errContent.toString().contains("Error"), errContent.toString());
+    assertTrue(outContent.toString().contains("Auto-completion results for 'zy': zygote, zymurgy"),
+        outContent.toString());
+  }
+
   @Test
   void testExecuteAutoCompletionWithNoInput() {
     String[] args = {};
@@ -110,4 +155,42 @@ class MainTest {
     main.executeAutoCompletion(acl, args);
     assertTrue(errContent.toString().contains("No auto-completion candidates found for 'wokery'"));
   }
-}
\ No newline at end of file
+
+  @Test
+  void testProcessCommandsCompileAndSnapshot(@TempDir Path dir) throws ParseException {
+    String snapshot = dir.resolve("words.trie").toString();
+    CommandLineParser parser = new DefaultParser();
+    main.processCommands(parser.parse(main.setUpOptions(),
+        new String[] {"-d", Constants.TEST_DICTIONARY, "--compile", snapshot}));
+    assertTrue(outContent.toString().contains("Compiled dictionary to '" + snapshot + "'"));
+
+    main.processCommands(parser.parse(main.setUpOptions(),
+        new String[] {"--snapshot", snapshot, "agri"}));
+    assertTrue(outContent.toString().contains("Auto-completion results for 'agri': agrivoltaics"));
+    assertFalse(errContent.toString().contains("Error"));
+  }
+
+  @Test
+  void testProcessCommandsSnapshotWithDictionary() throws ParseException {
+    String[] args = {"--snapshot", "words.trie", "-d", Constants.TEST_DICTIONARY, "ag"};
+    CommandLineParser parser = new DefaultParser();
+    main.processCommands(parser.parse(main.setUpOptions(), args));
+    assertTrue(errContent.toString().contains(Constants.INCORRECT_SNAPSHOT_USAGE_ERROR));
+  }
+
+  @Test
+  void testProcessCommandsServeWithInput() throws ParseException {
+    String[] args = {"--serve", "0", "ag"};
+    CommandLineParser parser = new DefaultParser();
+    main.processCommands(parser.parse(main.setUpOptions(), args));
+    assertTrue(errContent.toString().contains(Constants.INCORRECT_SERVE_USAGE_ERROR));
+  }
+
+  @Test
+  void testProcessCommandsServeInvalidPort() throws ParseException {
+    String[] args = {"-d", Constants.TEST_DICTIONARY, "--serve", "http"};
+    CommandLineParser parser = new DefaultParser();
+    main.processCommands(parser.parse(main.setUpOptions(), args));
+    assertTrue(errContent.toString().contains("Error: Invalid port 'http'"));
+  }
+}
@@ -0,0 +1,128 @@
+package autocomplete;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class MutationLogTest {
+
+  private static List<String> replay(Path path) {
+    List<String> records = new ArrayList<>();
+    MutationLog.replay(path, (operation, word, weight) ->
+        records.add(operation + ":" + word + ":" + weight));
+    return records;
+  }
+
+  private static void write(Path path, String... words) throws IOException {
+    try (MutationLog log = MutationLog.open(path)) {
+      for (String word : words) {
+        log.sync(log.append(MutationLog.PUT, word, word.length()));
+      }
+    }
+  }
+
+  @Test
+  void testReplayInOrder(@TempDir Path dir) throws IOException {
+    Path path = dir.resolve("mutations.log");
+    try (MutationLog log = MutationLog.open(path)) {
+      log.append(MutationLog.PUT, "straße", 7);
+      log.append(MutationLog.ADD, "tea", 1);
+      log.sync(log.append(MutationLog.REMOVE, "tea", 0));
+    }
+    assertEquals(List.of("1:straße:7", "2:tea:1", "3:tea:0"), replay(path));
+    write(path, "more");
+    assertEquals(4, replay(path).size(), "Reopening should append after the existing records.");
+  }
+
+  @Test
+  void testMissingAndEmptyLogs(@TempDir Path dir) throws IOException {
+    assertEquals(0, MutationLog.replay(dir.resolve("missing.log"), (o, w, x) -> { }));
+    Path empty = dir.resolve("empty.log");
+    Files.createFile(empty);
+    assertEquals(0, MutationLog.replay(empty, (o, w, x) -> { }));
+  }
+
+  @Test
+  void testTornRecordIsCutOff(@TempDir Path dir) throws IOException {
+    Path path = dir.resolve("mutations.log");
+    write(path, "alpha", "beta", "gamma");
+    long size = Files.size(path);
+    try (FileChannel channel = FileChannel.open(path, StandardOpenOption.WRITE)) {
+      channel.truncate(size - 3);
+    }
+    assertEquals(List.of("1:alpha:5", "1:beta:4"), replay(path));
+    write(path, "delta");
+    assertEquals(List.of("1:alpha:5", "1:beta:4", "1:delta:5"), replay(path),
+        "New records should follow the last complete one.");
+  }
+
+  @Test
+  void testCorruptRecordIsCutOff(@TempDir Path dir) throws IOException {
+    Path path = dir.resolve("mutations.log");
+    write(path, "alpha", "beta");
+    byte[] bytes = Files.readAllBytes(path);
+    bytes[bytes.length - 1] ^= 1;
+    Files.write(path, bytes);
+    assertEquals(List.of("1:alpha:5"), replay(path));
+    assertEquals(List.of("1:alpha:5"), replay(path), "Replay should have repaired the file.");
+  }
+
+  @Test
+  void testRejectsOtherFiles(@TempDir Path dir) throws IOException {
+    Path text = dir.resolve("words.txt");
+    Files.write(text, Collections.singletonList("apple"), StandardCharsets.UTF_8);
+    assertThrows(RuntimeException.class, () -> replay(text));
+  }
+
+  @Test
+  void testConcurrentWritersShareCommits(@TempDir Path dir) throws Exception {
+    Path path = dir.resolve("mutations.log");
+    int threads = 8;
+    int perThread = 200;
+    ExecutorService executor = Executors.newFixedThreadPool(threads);
+    try (MutationLog log = MutationLog.open(path)) {
+      List<Future<?>> futures = new ArrayList<>();
+      for (int t = 0; t < threads; t++) {
+        String prefix = "t" + (char) ('a' + t);
+        futures.add(executor.submit(() -> {
+          for (int i = 0; i < perThread; i++) {
+            log.sync(log.append(MutationLog.PUT, prefix + i, i));
+          }
+        }));
+      }
+      for (Future<?> future : futures) {
+        future.get();
+      }
+    } finally {
+      executor.shutdown();
+    }
+    List<String> records = replay(path);
+    assertEquals(threads * perThread, records.size(), "Every synced record should be durable.");
+    for (int t = 0; t < threads; t++) {
+      String prefix = "1:t" + (char) ('a' + t);
+      List<String> own = new ArrayList<>();
+      for (String record : records) {
+        if (record.startsWith(prefix)) {
+          own.add(record);
+        }
+      }
+      for (int i = 0; i < perThread; i++) {
+        assertEquals(prefix + i + ":" + i, own.get(i), "Each writer's records stay in order.");
+      }
+    }
+  }
+}
@@ -0,0 +1,91 @@
+package autocomplete;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+class PrefixCacheTest {
+
+  @Test
+  void testRejectsNonPositiveCapacity() {
+    assertThrows(IllegalArgumentException.class, () -> new PrefixCache(0, PrefixCache.Policy.LRU));
+  }
+
+  @Test
+  void testLruEvictsLeastRecentlyUsed() {
+    PrefixCache cache = new PrefixCache(2, PrefixCache.Policy.LRU);
+    cache.putWords("a", List.of("a"));
+    cache.putWords("b", List.of("b"));
+    cache.getWords("a");
+    cache.putWords("c", List.of("c"));
+
+    assertNotNull(cache.getWords("a"));
+    assertNull(cache.getWords("b"), "'b' was used least recently and should be evicted.");
+    assertNotNull(cache.getWords("c"));
+    assertEquals(2, cache.size());
+  }
+
+  @Test
+  void testLfuEvictsLeastFrequentlyUsed() {
+    PrefixCache cache = new PrefixCache(2, PrefixCache.Policy.LFU);
+    cache.putWords("a", List.of("a"));
+    cache.putWords("b", List.of("b"));
+    cache.getWords("a");
+    cache.getWords("a");
+    cache.getWords("b");
+    cache.putWords("c", List.of("c"));
+    cache.getWords("c");
+    cache.getWords("c");
+    cache.getWords("c");
+    cache.putWords("d", List.of("d"));
+
+    assertNull(cache.getWords("b"), "'b' was used least often and should be evicted first.");
+    assertNull(cache.getWords("a"), "'a' is now the least frequently used entry.");
+    assertNotNull(cache.getWords("c"));
+    assertNotNull(cache.getWords("d"));
+  }
+
+  @Test
+  void testInvalidateOnlyPrefixChain() {
+    PrefixCache cache = new PrefixCache(10, PrefixCache.Policy.LFU);
+    cache.putWords("", List.of("car", "cat", "dog"));
+    cache.putWords("ca", List.of("car", "cat"));
+    cache.putTop("ca", 1, List.of("cat"));
+    cache.putWords("cat", List.of("cat"));
+    cache.putWords("cats", List.of());
+    cache.putWords("do", List.of("dog"));
+
+    cache.invalidate("cat");
+
+    assertNull(cache.getWords(""));
+    assertNull(cache.getWords("ca"));
+    assertNull(cache.getTop("ca", 1));
+    assertNull(cache.getWords("cat"));
+    assertNotNull(cache.getWords("cats"), "Longer prefixes are not affected by the word.");
+    assertNotNull(cache.getWords("do"), "Other branches should stay cached.");
+    assertEquals(2, cache.size());
+
+    cache.putWords("e", List.of());
+    cache.putWords("f", List.of());
+    assertEquals(4, cache.size());
+  }
+
+  @Test
+  void testCountersAndClear() {
+    PrefixCache cache = new PrefixCache(4, PrefixCache.Policy.LRU);
+    assertNull(cache.getTop("a", 3));
+    cache.putTop("a", 3, List.of("ab"));
+    assertEquals(List.of("ab"), cache.getTop("a", 3));
+    assertNull(cache.getTop("a", 2), "Results are cached per k.");
+
+    cache.clear();
+
+    assertEquals(0, cache.size());
+    assertEquals(1, cache.getHitCount());
+    assertEquals(2, cache.getMissCount());
+  }
+}
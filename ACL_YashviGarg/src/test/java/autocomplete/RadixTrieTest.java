@@ -0,0 +1,172 @@
+package autocomplete;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.TreeSet;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+class RadixTrieTest {
+  private static ACLImplementation acl;
+  private static RadixTrie radixTrie;
+
+  @BeforeAll
+  static void setUp() {
+    acl = new ACLImplementation();
+    radixTrie = acl.toRadixTrie();
+  }
+
+  @Test
+  void testSearch() {
+    assertTrue(radixTrie.search("apple"), "The word 'apple' should exist.");
+    assertTrue(radixTrie.search("Apple"), "Search should ignore case.");
+    assertFalse(radixTrie.search("aaq"), "The word 'aaq' should not exist.");
+    assertFalse(radixTrie.search("applicatio"), "A prefix alone is not a word.");
+  }
+
+  @Test
+  void testWordsWithPrefixMatchesTrie() {
+    for (String prefix : Arrays.asList("", "a", "app", "acanthodea", "zz", "s", "applicatio")) {
+      assertEquals(acl.getWordsWithPrefix(prefix), radixTrie.getWordsWithPrefix(prefix),
+          "Radix and pointer Tries should agree for prefix '" + prefix + "'.");
+    }
+  }
+
+  @Test
+  void testFewerNodesThanTrie() {
+    int compactNodes = acl.toCompactTrie().nodeCount();
+    assertTrue(radixTrie.nodeCount() < compactNodes / 2,
+        "Path compression should remove most nodes: " + radixTrie.nodeCount()
+            + " of " + compactNodes);
+    assertEquals(acl.getWordsWithPrefix("").size(), radixTrie.size(), "Word counts should match.");
+  }
+
+  @Test
+  void testInsertSplitsEdges() {
+    RadixTrie trie = new RadixTrie();
+    trie.insert("romane");
+    assertEquals(2, trie.nodeCount(), "One edge should hold the whole word.");
+    trie.insert("romanus");
+    assertEquals(4, trie.nodeCount(), "The edge should split at 'roman'.");
+    trie.insert("roman");
+    assertEquals(4, trie.nodeCount(), "A word ending at a split needs no node.");
+    trie.insert("rom");
+    assertEquals(5, trie.nodeCount(), "A word ending inside an edge splits it.");
+    trie.insert("Roman");
+    assertEquals(4, trie.size(), "Inserting an existing word should not count it twice.");
+    assertEquals(List.of("rom", "roman", "romane", "romanus"), trie.getWordsWithPrefix("r"));
+    assertFalse(trie.search("ro"), "A prefix inside an edge is not a word.");
+    assertFalse(trie.search("romanes"), "A word beyond a leaf does not exist.");
+  }
+
+  @Test
+  void testRemoveMergesEdges() {
+    RadixTrie trie = new RadixTrie();
+    for (String word : List.of("test", "tester", "testing", "team")) {
+      trie.insert(word);
+    }
+    int nodes = trie.nodeCount();
+    trie.remove("test");
+    assertEquals(nodes, trie.nodeCount(), "A branching node should stay.");
+    trie.remove("testing");
+    assertEquals(nodes - 2, trie.nodeCount(), "'test' and 'er' should merge into one edge.");
+    trie.remove("team");
+    assertEquals(2, trie.nodeCount(), "Only 'tester' should remain, on a single edge.");
+    assertEquals(List.of("tester"), trie.getWordsWithPrefix("te"));
+    trie.remove("tes");
+    trie.remove("testers");
+    assertEquals(1, trie.size(), "Removing a missing word should change nothing.");
+    trie.remove("tester");
+    assertEquals(1, trie.nodeCount(), "An emptied Trie holds only the root.");
+    assertEquals(0, trie.size());
+  }
+
+  @Test
+  void testPrefixEndingInsideEdge() {
+    RadixTrie trie = new RadixTrie();
+    trie.insert("abracadabra");
+    trie.insert("abracadabras");
+    assertEquals(List.of("abracadabra", "abracadabras"), trie.getWordsWithPrefix("ABRA"));
+    assertEquals(Collections.emptyList(), trie.getWordsWithPrefix("abrx"));
+    assertEquals(Collections.emptyList(), trie.getWordsWithPrefix("abracadabrass"));
+  }
+
+  @Test
+  void testMatchesSortedSetUnderRandomEdits() {
+    Random random = new Random(17);
+    RadixTrie trie = new RadixTrie();
+    TreeSet<String> expected = new TreeSet<>();
+    for (int i = 0; i < 20_000; i++) {
+      StringBuilder word = new StringBuilder();
+      int length = 1 + random.nextInt(6);
+      for (int j = 0; j < length; j++) {
+        word.append((char) ('a' + random.nextInt(4)));
+      }
+      if (random.nextInt(3) == 0) {
+        trie.remove(word.toString());
+        expected.remove(word.toString());
+      } else {
+        trie.insert(word.toString());
+        expected.add(word.toString());
+      }
+    }
+    assertEquals(expected.size(), trie.size());
+    assertEquals(new ArrayList<>(expected), trie.getWordsWithPrefix(""));
+    for (String prefix : List.of("a", "ab", "cad", "dddd", "bcab")) {
+      assertEquals(new ArrayList<>(expected.subSet(prefix, prefix + Character.MAX_VALUE)),
+          trie.getWordsWithPrefix(prefix), "Prefix '" + prefix + "'.");
+    }
+    for (String word : expected) {
+      trie.remove(word);
+    }
+    assertEquals(1, trie.nodeCount(), "Removing every word should leave only the root.");
+  }
+
+  @Test
+  void testForEachCompletion() {
+    List<String> words = new ArrayList<>();
+    radixTrie.forEachCompletion("Acanthod", (chars, length) -> {
+      words.add(new String(chars, 0, length));
+      return words.size() < 2;
+    });
+    assertEquals(acl.getWordsWithPrefix("acanthod").subList(0, 2), words,
+        "The consumer should see completions in order and stop when asked.");
+  }
+
+  @Test
+  void testRejectsNonLetters() {
+    RadixTrie trie = new RadixTrie();
+    assertThrows(IllegalArgumentException.class, () -> trie.insert("can't"));
+    assertThrows(IllegalArgumentException.class, () -> trie.insert("abc1"));
+    assertEquals(1, trie.nodeCount(), "A rejected word should leave no trace.");
+  }
+
+  @Test
+  void testBuildFromFile() {
+    RadixTrie fromFile = TrieFileBuilder.buildRadixTrieFromFile(Constants.TEST_DICTIONARY);
+    assertEquals(Collections.singletonList("agrivoltaics"), fromFile.getWordsWithPrefix("ag"),
+        "The test dictionary holds a single word.");
+  }
+
+  @Test
+  void testUnicodeWords() {
+    RadixTrie trie = new RadixTrie();
+    for (String word : List.of("über", "übel", "Straße", "straw")) {
+      trie.insert(word);
+    }
+    assertTrue(trie.search("ÜBER"));
+    assertTrue(trie.search("Übel"));
+    assertEquals(List.of("übel", "über"), trie.getWordsWithPrefix("Ü"));
+    assertEquals(List.of("straw", "straße"), trie.getWordsWithPrefix("stra"));
+    trie.remove("straw");
+    assertEquals(List.of("straße"), trie.getWordsWithPrefix("str"));
+  }
+}
@@ -0,0 +1,82 @@
+package autocomplete;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class RemoteShardTest {
+
+  private CompletionServer server;
+  private Thread serverThread;
+  private RemoteShard remote;
+
+  @BeforeEach
+  void setUp() {
+    ACLImplementation acl = new ACLImplementation(new TrieNode());
+    for (String word : List.of("melon", "nectar", "olive", "zucchini", "mañana")) {
+      acl.insert(word);
+    }
+    server = new CompletionServer(acl, 0);
+    serverThread = new Thread(server);
+    serverThread.start();
+    remote = new RemoteShard("127.0.0.1", server.getPort());
+  }
+
+  @AfterEach
+  void tearDown() throws InterruptedException {
+    remote.close();
+    server.close();
+    serverThread.join(5000);
+  }
+
+  @Test
+  void testQueriesServer() {
+    assertTrue(remote.search("Olive"));
+    assertFalse(remote.search("oliv"));
+    assertFalse(remote.search("not a word"));
+    assertFalse(remote.search(""));
+    assertEquals(List.of("mañana", "melon"), remote.getWordsWithPrefix("M"));
+    assertEquals(List.of(), remote.getWordsWithPrefix("q"));
+    assertEquals(List.of(), remote.getWordsWithPrefix("o l"));
+    assertEquals(5, remote.getWordsWithPrefix("").size());
+    List<String> words = new ArrayList<>();
+    remote.forEachCompletion("", (chars, length) -> {
+      words.add(new String(chars, 0, length));
+      return words.size() < 2;
+    });
+    assertEquals(List.of("mañana", "melon"), words);
+  }
+
+  @Test
+  void testRoutesToRemoteShard() {
+    ACLImplementation local = new ACLImplementation(new TrieNode());
+    local.insert("apple");
+    local.insert("lemon", 5);
+    ShardedACLImplementation dict =
+        new ShardedACLImplementation(List.of("m"), List.of(local, remote));
+    assertEquals(List.of("apple", "lemon", "mañana", "melon", "nectar", "olive", "zucchini"),
+        dict.getWordsWithPrefix(""));
+    assertTrue(dict.search("zucchini"));
+    assertEquals(2, dict.countWithPrefix("m"));
+    assertEquals(List.of("lemon"), dict.getTopCompletions("l", 1));
+    dict.insert("kiwi");
+    assertThrows(UnsupportedOperationException.class, () -> dict.remove("olive"));
+    assertEquals(8, dict.size());
+  }
+
+  @Test
+  void testReconnectsAfterFailure() throws InterruptedException {
+    assertTrue(remote.search("melon"));
+    server.close();
+    serverThread.join(5000);
+    assertThrows(RuntimeException.class, () -> remote.search("melon"));
+    assertThrows(RuntimeException.class, () -> remote.search("melon"));
+  }
+}
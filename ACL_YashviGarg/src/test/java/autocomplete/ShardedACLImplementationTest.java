@@ -0,0 +1,147 @@
+package autocomplete;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class ShardedACLImplementationTest {
+
+  private static ACLImplementation whole;
+  private static ShardedACLImplementation sharded;
+
+  @BeforeAll
+  static void setUp() {
+    whole = new ACLImplementation();
+    sharded = ShardedACLImplementation.build(Constants.DEFAULT_DICTIONARY, 8);
+  }
+
+  private static Path writeDictionary(Path dir, String... lines) throws IOException {
+    Path file = dir.resolve("words.txt");
+    Files.write(file, List.of(lines));
+    return file;
+  }
+
+  @Test
+  void testAgreesWithSingleTrie() {
+    assertEquals(8, sharded.getShardCount());
+    assertEquals(whole.countWithPrefix(""), sharded.size());
+    for (String prefix : List.of("", "a", "ab", "Comp", "m", "zy", "qx", "s")) {
+      assertEquals(whole.getWordsWithPrefix(prefix), sharded.getWordsWithPrefix(prefix),
+          "Completions of '" + prefix + "' should match.");
+      assertEquals(whole.countWithPrefix(prefix), sharded.countWithPrefix(prefix));
+      assertEquals(whole.getTopCompletions(prefix, 10), sharded.getTopCompletions(prefix, 10));
+    }
+    assertTrue(sharded.search("Zebra"));
+    assertFalse(sharded.search("zebrax"));
+  }
+
+  @Test
+  void testForEachCompletionStopsAcrossShards() {
+    List<String> expected = whole.getWordsWithPrefix("").subList(0, 5);
+    List<String> words = new ArrayList<>();
+    sharded.forEachCompletion("", (chars, length) -> {
+      words.add(new String(chars, 0, length));
+      return words.size() < 5;
+    });
+    assertEquals(expected, words);
+  }
+
+  @Test
+  void testShardsAreBalanced() {
+    List<Integer> sizes = sharded.getShardSizes();
+    int total = sizes.stream().mapToInt(Integer::intValue).sum();
+    int largest = Collections.max(sizes);
+    assertTrue(largest < total / 8 * 1.5, "Shard sizes " + sizes + " are uneven.");
+    List<String> boundaries = sharded.getBoundaries();
+    for (String boundary : boundaries) {
+      assertTrue(boundary.length() <= ShardedACLImplementation.KEY_LENGTH);
+    }
+  }
+
+  @Test
+  void testMutationsGoToOwningShard(@TempDir Path dir) throws IOException {
+    Path file = writeDictionary(dir, "apple", "banana", "cherry", "date", "elder", "fig");
+    ShardedACLImplementation dict = ShardedACLImplementation.build(file.toString(), 3);
+    assertEquals(List.of("ch", "el"), dict.getBoundaries());
+    dict.insert("Cat", 50);
+    dict.insert("zebra");
+    dict.insert("ant", 7);
+    dict.remove("banana");
+    assertEquals(List.of(3, 2, 3), dict.getShardSizes());
+    assertEquals(List.of("cat", "ant", "apple", "cherry"), dict.getTopCompletions("", 4));
+    assertEquals(List.of("ant", "apple", "cat", "cherry", "date", "elder", "fig", "zebra"),
+        dict.getWordsWithPrefix(""));
+    assertThrows(IllegalArgumentException.class, () -> dict.insert("no way"));
+  }
+
+  @Test
+  void testReloadKeepsBoundaries(@TempDir Path dir) throws IOException {
+    Path file = writeDictionary(dir, "apple", "banana", "cherry", "date");
+    ShardedACLImplementation dict = ShardedACLImplementation.build(file.toString(), 2);
+    List<String> boundaries = dict.getBoundaries();
+    dict.insert("lost");
+    writeDictionary(dir, "avocado", "cherry", "durian", "eggplant");
+    dict.reload(file.toString());
+    assertEquals(boundaries, dict.getBoundaries());
+    assertEquals(List.of("avocado", "cherry", "durian", "eggplant"), dict.getWordsWithPrefix(""));
+  }
+
+  @Test
+  void testFewerKeysThanShards(@TempDir Path dir) throws IOException {
+    Path file = writeDictionary(dir, "aa", "ab", "abc");
+    ShardedACLImplementation dict = ShardedACLImplementation.build(file.toString(), 5);
+    assertEquals(List.of("ab"), dict.getBoundaries());
+    assertEquals(List.of("ab", "abc"), dict.getWordsWithPrefix("ab"));
+    assertEquals(3, dict.size());
+  }
+
+  @Test
+  void testRoutesUnsortedAndNonAsciiWords(@TempDir Path dir) throws IOException {
+    Path file = writeDictionary(dir, "zulu 3", "élan", "alpha", "mike", "echo", "bravo 9", "alpha 2");
+    ShardedACLImplementation dict = ShardedACLImplementation.build(file.toString(), 3);
+    assertEquals(List.of("alpha", "bravo", "echo", "mike", "zulu", "élan"), dict.getWordsWithPrefix(""));
+    assertEquals(List.of("bravo", "zulu", "alpha"), dict.getTopCompletions("", 3));
+    writeDictionary(dir, "alpha", "no way");
+    assertThrows(RuntimeException.class, () -> dict.reload(file.toString()));
+    assertEquals(6, dict.size(), "A failed reload should leave the shards alone.");
+  }
+
+  @Test
+  void testRejectsInvalidShards() {
+    List<ACLImplementation> two = List.of(new ACLImplementation(new TrieNode()),
+        new ACLImplementation(new TrieNode()));
+    assertThrows(IllegalArgumentException.class,
+        () -> new ShardedACLImplementation(List.of(), two));
+    assertThrows(IllegalArgumentException.class,
+        () -> new ShardedACLImplementation(List.of("M"), two));
+    assertThrows(IllegalArgumentException.class,
+        () -> new ShardedACLImplementation(List.of(""), two));
+    assertThrows(IllegalArgumentException.class, () -> new ShardedACLImplementation(
+        List.of("m", "c"), List.of(two.get(0), two.get(1), two.get(0))));
+    assertThrows(IllegalArgumentException.class,
+        () -> ShardedACLImplementation.build(Constants.TEST_DICTIONARY, 0));
+    assertThrows(IllegalArgumentException.class, () -> sharded.getTopCompletions("a", -1));
+  }
+
+  @Test
+  void testReadOnlyShards() {
+    ShardedACLImplementation dict = new ShardedACLImplementation(List.of("m"),
+        List.of(new ACLImplementation(new TrieNode()), Dawg.fromTrie(new TrieNode())));
+    dict.insert("apple");
+    assertThrows(UnsupportedOperationException.class, () -> dict.insert("zebra"));
+    assertThrows(UnsupportedOperationException.class, () -> dict.getTopCompletions("", 1));
+    assertEquals(List.of("apple"), dict.getTopCompletions("a", 1));
+    assertEquals(1, dict.size());
+  }
+}
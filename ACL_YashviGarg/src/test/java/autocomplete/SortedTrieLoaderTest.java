@@ -0,0 +1,126 @@
+package autocomplete;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+
+class SortedTrieLoaderTest {
+
+  /**
+   * Loads words through the loader and one by one from the root, and checks that both Tries
+   * are the same, down to the cached word counts and maximum weights.
+   */
+  private static int assertSameAsInsert(TrieNode loaded, TrieNode inserted, List<String> words,
+      List<Long> weights) {
+    SortedTrieLoader loader = new SortedTrieLoader(loaded);
+    for (int i = 0; i < words.size(); i++) {
+      loader.accept(words.get(i), weights.get(i), true);
+      ACLImplementation.insertFolded(inserted, words.get(i), weights.get(i));
+    }
+    loader.finish();
+    assertSameNodes(inserted, loaded, "");
+    return loader.getUnsortedWords();
+  }
+
+  private static void assertSameNodes(TrieNode expected, TrieNode actual, String path) {
+    assertEquals(expected.isWordEnd(), actual.isWordEnd(), "Word end at '" + path + "'.");
+    assertEquals(expected.getWeight(), actual.getWeight(), "Weight at '" + path + "'.");
+    assertEquals(expected.getWordCount(), actual.getWordCount(), "Count at '" + path + "'.");
+    assertEquals(expected.getMaxWeight(), actual.getMaxWeight(), "Maximum at '" + path + "'.");
+    assertEquals(expected.getChildCount(), actual.getChildCount(), "Children at '" + path + "'.");
+    for (int i = expected.nextChildIndex(0); i >= 0; i = expected.nextChildIndex(i + 1)) {
+      assertSameNodes(expected.getChild(i), actual.getChild(i), path + Alphabet.letter(i));
+    }
+  }
+
+  private static List<String> randomWords(Random random, int count) {
+    List<String> words = new ArrayList<>();
+    for (int i = 0; i < count; i++) {
+      StringBuilder word = new StringBuilder();
+      int length = random.nextInt(7);
+      for (int j = 0; j < length; j++) {
+        word.append((char) ('a' + random.nextInt(4)));
+      }
+      words.add(word.toString());
+    }
+    return words;
+  }
+
+  private static List<Long> randomWeights(Random random, int count) {
+    List<Long> weights = new ArrayList<>();
+    for (int i = 0; i < count; i++) {
+      weights.add((long) random.nextInt(1000));
+    }
+    return weights;
+  }
+
+  @Test
+  void testSortedInput() {
+    Random random = new Random(5);
+    List<String> words = randomWords(random, 5000);
+    Collections.sort(words);
+    int unsorted = assertSameAsInsert(new TrieNode(), new TrieNode(), words,
+        randomWeights(random, words.size()));
+    assertEquals(words.size() - words.stream().distinct().count(), unsorted,
+        "Only repeated words should leave the path.");
+  }
+
+  @Test
+  void testUnsortedInput() {
+    Random random = new Random(7);
+    List<String> words = randomWords(random, 5000);
+    assertSameAsInsert(new TrieNode(), new TrieNode(), words, randomWeights(random, words.size()));
+  }
+
+  @Test
+  void testMostlySortedInput() {
+    Random random = new Random(11);
+    List<String> words = randomWords(random, 5000);
+    Collections.sort(words);
+    for (int i = 0; i < 100; i++) {
+      Collections.swap(words, random.nextInt(words.size()), random.nextInt(words.size()));
+    }
+    assertSameAsInsert(new TrieNode(), new TrieNode(), words, randomWeights(random, words.size()));
+  }
+
+  @Test
+  void testAppendToExistingTrie() {
+    Random random = new Random(13);
+    TrieNode loaded = new TrieNode();
+    TrieNode inserted = new TrieNode();
+    List<String> existing = randomWords(random, 2000);
+    List<Long> existingWeights = randomWeights(random, existing.size());
+    for (int i = 0; i < existing.size(); i++) {
+      ACLImplementation.insertFolded(loaded, existing.get(i), existingWeights.get(i));
+      ACLImplementation.insertFolded(inserted, existing.get(i), existingWeights.get(i));
+    }
+    List<String> words = randomWords(random, 2000);
+    Collections.sort(words);
+    assertSameAsInsert(loaded, inserted, words, randomWeights(random, words.size()));
+  }
+
+  @Test
+  void testRepeatedWordLowersWeight() {
+    TrieNode loaded = new TrieNode();
+    assertSameAsInsert(loaded, new TrieNode(), List.of("ab", "abc", "abc", "abd"),
+        List.of(1L, 50L, 2L, 3L));
+    assertEquals(3, loaded.getMaxWeight(), "The replaced weight should no longer count.");
+    assertEquals(3, loaded.getWordCount());
+  }
+
+  @Test
+  void testDictionaryFile() {
+    TrieNode root = TrieFileBuilder.buildTrieFromFile(Constants.DEFAULT_DICTIONARY);
+    TrieNode expected = new TrieNode();
+    new ACLImplementation().forEachCompletion("", (chars, length) -> {
+      ACLImplementation.insertFolded(expected, new String(chars, 0, length),
+          Constants.DEFAULT_WORD_WEIGHT);
+      return true;
+    });
+    assertSameNodes(expected, root, "");
+  }
+}
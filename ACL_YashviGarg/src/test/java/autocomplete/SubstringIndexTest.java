@@ -0,0 +1,150 @@
+package autocomplete;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Collectors;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+class SubstringIndexTest {
+  private static List<String> dictionary;
+  private static SubstringIndex index;
+
+  @BeforeAll
+  static void setUp() {
+    ACLImplementation acl = new ACLImplementation();
+    dictionary = acl.getWordsWithPrefix("");
+    index = acl.toSubstringIndex();
+  }
+
+  private static SubstringIndex indexOf(String... words) {
+    ACLImplementation acl = new ACLImplementation(new TrieNode());
+    for (String word : words) {
+      acl.insert(word);
+    }
+    return acl.toSubstringIndex();
+  }
+
+  @Test
+  void testFromWordsMatchesFromTrie() {
+    SubstringIndex fromFile = TrieFileBuilder.buildSubstringIndexFromFile(Constants.DEFAULT_DICTIONARY);
+    assertEquals(dictionary.size(), fromFile.size());
+    assertEquals(index.getWordsContaining("volt"), fromFile.getWordsContaining("volt"));
+    SubstringIndex repeated = SubstringIndex.fromWords(new ArrayList<>(List.of("nab", "cab", "nab")));
+    assertEquals(List.of("cab", "nab"), repeated.getWordsWithSuffix("ab"));
+  }
+
+  @Test
+  void testSuffixMatchesScan() {
+    for (String suffix : List.of("ing", "tion", "zz", "a", "ology", "ss", "q", "xylophone")) {
+      assertEquals(dictionary.stream().filter(w -> w.endsWith(suffix)).collect(Collectors.toList()),
+          index.getWordsWithSuffix(suffix), "Suffix '" + suffix + "'.");
+    }
+  }
+
+  @Test
+  void testInfixMatchesScan() {
+    for (String infix : List.of("volt", "qu", "zzz", "ana", "e", "tion", "xq", "abcde")) {
+      assertEquals(dictionary.stream().filter(w -> w.contains(infix)).collect(Collectors.toList()),
+          index.getWordsContaining(infix), "Infix '" + infix + "'.");
+    }
+  }
+
+  @Test
+  void testEmptyPatternMatchesEveryWord() {
+    assertEquals(dictionary.size(), index.size());
+    assertEquals(dictionary, index.getWordsWithSuffix(""));
+    assertEquals(dictionary, index.getWordsContaining(""));
+  }
+
+  @Test
+  void testRepeatedInfixListedOnce() {
+    SubstringIndex small = indexOf("banana", "bandana", "cabana", "nab");
+    assertEquals(List.of("banana", "bandana", "cabana"), small.getWordsContaining("ana"));
+    assertEquals(List.of("banana"), small.getWordsContaining("anan"));
+    assertEquals(List.of("banana"), small.getWordsContaining("nan"));
+    assertEquals(List.of("banana", "bandana", "cabana"), small.getWordsWithSuffix("na"));
+    assertEquals(List.of("nab"), small.getWordsWithSuffix("NAB"));
+    assertEquals(List.of("bandana"), small.getWordsContaining("nd"));
+    assertEquals(List.of("banana", "bandana", "cabana", "nab"), small.getWordsContaining("n"));
+  }
+
+  @Test
+  void testWholeWordsAndMissingLetters() {
+    SubstringIndex small = indexOf("car", "scar", "carbon");
+    assertEquals(List.of("car", "scar"), small.getWordsWithSuffix("car"));
+    assertEquals(List.of("car", "carbon", "scar"), small.getWordsContaining("car"));
+    assertEquals(List.of(), small.getWordsContaining("carx"));
+    assertEquals(List.of(), small.getWordsWithSuffix("é"));
+    assertEquals(List.of(), small.getWordsContaining("can't"));
+    assertEquals(List.of(), small.getWordsWithSuffix("scarcar"));
+    assertEquals(0, indexOf().size());
+    assertEquals(List.of(), indexOf().getWordsContaining("a"));
+  }
+
+  @Test
+  void testRandomWordsMatchScan() {
+    Random random = new Random(21);
+    List<String> words = new ArrayList<>();
+    for (int i = 0; i < 3000; i++) {
+      StringBuilder word = new StringBuilder();
+      int length = 1 + random.nextInt(8);
+      for (int j = 0; j < length; j++) {
+        word.append("abcé".charAt(random.nextInt(4)));
+      }
+      words.add(word.toString());
+    }
+    SubstringIndex small = indexOf(words.toArray(new String[0]));
+    List<String> sorted = words.stream().distinct().sorted().collect(Collectors.toList());
+    assertEquals(sorted.size(), small.size());
+    for (int i = 0; i < 200; i++) {
+      String pattern = words.get(random.nextInt(words.size()));
+      pattern = pattern.substring(random.nextInt(pattern.length()));
+      String p = pattern;
+      assertEquals(sorted.stream().filter(w -> w.endsWith(p)).collect(Collectors.toList()),
+          small.getWordsWithSuffix(p), "Suffix '" + p + "'.");
+      assertEquals(sorted.stream().filter(w -> w.contains(p)).collect(Collectors.toList()),
+          small.getWordsContaining(p), "Infix '" + p + "'.");
+    }
+  }
+
+  @Test
+  void testLongRepetitiveWords() {
+    String[] words = new String[50];
+    for (int i = 0; i < words.length; i++) {
+      words[i] = "a".repeat(1000 + i) + "b";
+    }
+    SubstringIndex small = indexOf(words);
+    assertEquals(50, small.getWordsContaining("a".repeat(1000)).size());
+    assertEquals(1, small.getWordsContaining("a".repeat(1049) + "b").size());
+    assertTrue(small.getWordsWithSuffix("ab").size() == 50);
+  }
+
+  @Test
+  void testLargeAlphabet() {
+    // More letters than the two-letter buckets are used for
+    List<String> words = new ArrayList<>();
+    for (int i = 0; i < 2000; i++) {
+      words.add("" + (char) (0x4E00 + i % 400) + (char) (0x4E00 + i * 7 % 300) + (char) (0x4E00 + i % 13));
+    }
+    SubstringIndex small = indexOf(words.toArray(new String[0]));
+    List<String> sorted = words.stream().distinct().sorted().collect(Collectors.toList());
+    for (String pattern : List.of("\u4E00", "\u4E07\u4E31", "\u4E05", "\u4E00\u4E00\u4E00")) {
+      assertEquals(sorted.stream().filter(w -> w.contains(pattern)).collect(Collectors.toList()),
+          small.getWordsContaining(pattern));
+      assertEquals(sorted.stream().filter(w -> w.endsWith(pattern)).collect(Collectors.toList()),
+          small.getWordsWithSuffix(pattern));
+    }
+  }
+
+  @Test
+  void testBuildFromFile() {
+    SubstringIndex fromFile = TrieFileBuilder.buildSubstringIndexFromFile(Constants.TEST_DICTIONARY);
+    assertEquals(List.of("agrivoltaics"), fromFile.getWordsContaining("volta"));
+    assertEquals(List.of("wokery"), fromFile.getWordsWithSuffix("ery"));
+  }
+}
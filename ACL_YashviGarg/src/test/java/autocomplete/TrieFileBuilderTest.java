@@ -1,12 +1,32 @@
 package autocomplete;
 
+import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.lang.reflect.Constructor;
 import java.lang.reflect.InvocationTargetException;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.zip.GZIPOutputStream;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
 
 class TrieFileBuilderTest {
 
@@ -38,4 +58,261 @@ class TrieFileBuilderTest {
     assertNotNull(node);
   }
 
-}
\ No newline at end of file
+  @Test
+  void testAppendTrieFromFile_WeightColumn(@TempDir Path dir) throws IOException {
+    Path dictionary = dir.resolve("weighted.txt");
+    Files.write(dictionary, Arrays.asList("car 10", "cart\t40", "care", "carbon 25"),
+        StandardCharsets.UTF_8);
+    TrieNode root = TrieFileBuilder.buildTrieFromFile(dictionary.toString());
+    assertEquals(40, root.getMaxWeight(), "Root should cache the largest weight.");
+  }
+
+  @Test
+  void testAppendTrieFromFile_InvalidWeight(@TempDir Path dir) throws IOException {
+    Path dictionary = dir.resolve("invalid.txt");
+    Files.write(dictionary, Arrays.asList("car -3"), StandardCharsets.UTF_8);
+    assertThrows(RuntimeException.class,
+        () -> TrieFileBuilder.buildTrieFromFile(dictionary.toString()),
+        "Expected to throw on a negative weight");
+  }
+
+  @Test
+  void testAppendTrieFromFile_TooManyColumns(@TempDir Path dir) throws IOException {
+    Path dictionary = dir.resolve("invalid.txt");
+    Files.write(dictionary, Arrays.asList("car 3 4"), StandardCharsets.UTF_8);
+    assertThrows(RuntimeException.class,
+        () -> TrieFileBuilder.buildTrieFromFile(dictionary.toString()),
+        "Expected to throw on extra columns");
+  }
+
+  @Test
+  void testParallelBuildMatchesSequential() {
+    CompactTrie sequential = TrieFileBuilder.buildCompactTrieFromFile(Constants.DEFAULT_DICTIONARY);
+    CompactTrie parallel = CompactTrie.fromTrie(
+        TrieFileBuilder.buildTrieFromFileParallel(Constants.DEFAULT_DICTIONARY));
+    assertEquals(sequential.nodeCount(), parallel.nodeCount(), "Node counts should match.");
+    assertEquals(TrieFileBuilder.buildTrieFromFile(Constants.DEFAULT_DICTIONARY).getWordCount(),
+        TrieFileBuilder.buildTrieFromFileParallel(Constants.DEFAULT_DICTIONARY).getWordCount(),
+        "Word counts should match.");
+    assertEquals(sequential.getWordsWithPrefix(""), parallel.getWordsWithPrefix(""),
+        "Parallel and sequential builds should hold the same words.");
+  }
+
+  @Test
+  void testParallelAppendKeepsLastWeight(@TempDir Path dir) throws IOException {
+    List<String> lines = new ArrayList<>();
+    for (int i = 0; i < 20000; i++) {
+      lines.add("word" + (char) ('a' + i % 26) + (char) ('a' + i / 26 % 26) + " " + i);
+    }
+    lines.add("");
+    lines.add("Zebra 7");
+    lines.add("zebra 3");
+    Path dictionary = dir.resolve("weighted.txt");
+    Files.write(dictionary, lines, StandardCharsets.UTF_8);
+
+    TrieNode root = new TrieNode();
+    ACLImplementation.insert(root, "apple", 99999);
+    ForkJoinPool pool = new ForkJoinPool(4);
+    try {
+      TrieFileBuilder.appendTrieFromFileParallel(root, dictionary.toString(), pool);
+    } finally {
+      pool.shutdown();
+    }
+    assertEquals(99999, root.getMaxWeight(), "Existing words should be kept.");
+    TrieNode zebra = root.getChild('z' - 'a');
+    assertEquals(3, zebra.getMaxWeight(), "A repeated word should keep its last weight.");
+    assertEquals(19999, root.getChild('w' - 'a').getMaxWeight(),
+        "Words from every chunk should be inserted.");
+  }
+
+  @Test
+  void testParallelBuildInvalidLine(@TempDir Path dir) throws IOException {
+    Path dictionary = dir.resolve("invalid.txt");
+    Files.write(dictionary, Arrays.asList("apple", "not a word"), StandardCharsets.UTF_8);
+    assertThrows(RuntimeException.class,
+        () -> TrieFileBuilder.buildTrieFromFileParallel(dictionary.toString()),
+        "Expected to throw on an invalid line");
+    assertThrows(RuntimeException.class,
+        () -> TrieFileBuilder.buildTrieFromFileParallel("nonexistent_dictionary.txt"),
+        "Expected to throw when file does not exist");
+  }
+
+  @Test
+  void testApplyDeltaLeavesOriginalUntouched(@TempDir Path dir) throws IOException {
+    TrieNode original = new TrieNode();
+    ACLImplementation.insert(original, "cart", 5);
+    ACLImplementation.insert(original, "care", 2);
+    ACLImplementation.insert(original, "dog", 1);
+    Path delta = dir.resolve("delta.txt");
+    Files.write(delta, Arrays.asList("+carton 9", "", "-cart", "+care", "+dogs"), StandardCharsets.UTF_8);
+
+    TrieNode updated = TrieFileBuilder.applyDeltaFromFile(original, delta.toString());
+
+    ACLImplementation before = new ACLImplementation(original);
+    ACLImplementation after = new ACLImplementation(updated);
+    assertEquals(List.of("care", "cart"), before.getWordsWithPrefix("car"));
+    assertEquals(List.of("cart", "care"), before.getTopCompletions("car", 2));
+    assertEquals(List.of("care", "carton"), after.getWordsWithPrefix("car"));
+    assertEquals(List.of("carton", "care"), after.getTopCompletions("car", 2));
+    assertEquals(List.of("dog"), before.getWordsWithPrefix("do"));
+    assertEquals(List.of("dog", "dogs"), after.getWordsWithPrefix("do"));
+  }
+
+  @Test
+  void testDeltaCopiesEachSharedNodeOnce() {
+    TrieNode original = new TrieNode();
+    ACLImplementation.insert(original, "cart");
+    ACLImplementation.insert(original, "dog");
+    int c = Alphabet.index('c');
+    Set<TrieNode> fresh = Collections.newSetFromMap(new IdentityHashMap<>());
+
+    TrieNode root = ACLImplementation.copyPath(original, "cart", fresh);
+    TrieNode copied = root.getChild(c);
+    assertNotSame(original, root);
+    assertNotSame(original.getChild(c), copied);
+    assertEquals(5, fresh.size(), "The root and the four nodes of cart are copied.");
+
+    assertSame(root, ACLImplementation.copyPath(root, "care", fresh));
+    assertSame(copied, root.getChild(c), "Fresh nodes should not be copied again.");
+    assertEquals(5, fresh.size());
+    ACLImplementation.insert(root, "care");
+    ACLImplementation.markFresh(root, "care", fresh);
+    assertEquals(6, fresh.size(), "The node created for care is fresh.");
+    assertSame(original.getChild(Alphabet.index('d')), root.getChild(Alphabet.index('d')));
+  }
+
+  @Test
+  void testApplyDeltaInvalidLine(@TempDir Path dir) throws IOException {
+    TrieNode root = new TrieNode();
+    for (String line : Arrays.asList("apple", "+apple pie", "-apple 3", "+")) {
+      Path delta = dir.resolve("invalid.txt");
+      Files.write(delta, Arrays.asList(line), StandardCharsets.UTF_8);
+      assertThrows(RuntimeException.class,
+          () -> TrieFileBuilder.applyDeltaFromFile(root, delta.toString()),
+          "Expected to throw on delta line " + line);
+    }
+  }
+
+  @Test
+  void testUnicodeDictionary(@TempDir Path dir) throws IOException {
+    Path dictionary = dir.resolve("fr.txt");
+    Files.write(dictionary, Arrays.asList("Élève 4", "e\u0301cole", "zèbre", "ÅNGSTRÖM 2", "apple"),
+        StandardCharsets.UTF_8);
+
+    TrieNode sequential = TrieFileBuilder.buildTrieFromFile(dictionary.toString());
+    TrieNode parallel = TrieFileBuilder.appendTrieFromFileParallel(
+        new TrieNode(), dictionary.toString(), new ForkJoinPool(2));
+    for (TrieNode root : Arrays.asList(sequential, parallel)) {
+      ACLImplementation acl = new ACLImplementation(root);
+      assertEquals(List.of("apple", "zèbre", "ångström", "école", "élève"), acl.getWordsWithPrefix(""));
+      assertEquals(List.of("élève", "école"), acl.getTopCompletions("é", 2));
+      assertEquals(5, root.getWordCount());
+    }
+  }
+
+  @Test
+  void testRejectsNonLetterWords(@TempDir Path dir) throws IOException {
+    for (String line : Arrays.asList("can't", "abc1", "½")) {
+      Path dictionary = dir.resolve("invalid.txt");
+      Files.write(dictionary, Arrays.asList(line), StandardCharsets.UTF_8);
+      assertThrows(RuntimeException.class,
+          () -> TrieFileBuilder.buildTrieFromFile(dictionary.toString()),
+          "Expected to reject " + line);
+    }
+  }
+
+  @Test
+  void testBuildTrieFromStream() {
+    byte[] dictionary = "car 10\r\ncart\n\n  Care \ncarbon 25".getBytes(StandardCharsets.UTF_8);
+    TrieNode root = TrieFileBuilder.buildTrieFromStream(new ByteArrayInputStream(dictionary));
+    ACLImplementation acl = new ACLImplementation(root);
+    assertEquals(List.of("car", "carbon", "care", "cart"), acl.getWordsWithPrefix("car"));
+    assertEquals(25, root.getMaxWeight(), "Weights should be read from the stream.");
+  }
+
+  @Test
+  void testStreamMatchesFile() throws IOException {
+    byte[] dictionary;
+    try (InputStream in = TrieFileBuilder.class.getClassLoader()
+        .getResourceAsStream(Constants.DEFAULT_DICTIONARY)) {
+      dictionary = in.readAllBytes();
+    }
+    TrieNode fromStream = TrieFileBuilder.buildTrieFromStream(new ByteArrayInputStream(dictionary));
+    TrieNode fromFile = TrieFileBuilder.buildTrieFromFile(Constants.DEFAULT_DICTIONARY);
+    assertEquals(fromFile.getWordCount(), fromStream.getWordCount(), "Word counts should match.");
+    assertEquals(CompactTrie.fromTrie(fromFile).getWordsWithPrefix(""),
+        CompactTrie.fromTrie(fromStream).getWordsWithPrefix(""),
+        "Streamed and file builds should hold the same words.");
+  }
+
+  @Test
+  void testGzipDictionary(@TempDir Path dir) throws IOException {
+    Path dictionary = dir.resolve("words.txt.gz");
+    try (OutputStream out = new GZIPOutputStream(Files.newOutputStream(dictionary))) {
+      out.write("zebra 3\nzebu\nélan 7\n".getBytes(StandardCharsets.UTF_8));
+    }
+    byte[] compressed = Files.readAllBytes(dictionary);
+    List<TrieNode> roots = List.of(
+        TrieFileBuilder.buildTrieFromFile(dictionary.toString()),
+        TrieFileBuilder.buildTrieFromFileParallel(dictionary.toString()),
+        TrieFileBuilder.buildTrieFromStream(new ByteArrayInputStream(compressed)),
+        TrieFileBuilder.appendTrieFromChannel(new TrieNode(),
+            Channels.newChannel(new ByteArrayInputStream(compressed))));
+    for (TrieNode root : roots) {
+      ACLImplementation acl = new ACLImplementation(root);
+      assertEquals(List.of("zebra", "zebu", "élan"), acl.getWordsWithPrefix(""));
+      assertEquals(7, root.getMaxWeight());
+    }
+  }
+
+  @Test
+  void testCorruptGzipDictionary() {
+    byte[] corrupt = {0x1f, (byte) 0x8b, 0x08, 0x00, 0x01, 0x02, 0x03};
+    assertThrows(RuntimeException.class,
+        () -> TrieFileBuilder.buildTrieFromStream(new ByteArrayInputStream(corrupt)));
+  }
+
+  @Test
+  void testZstdDictionaryIsRejected(@TempDir Path dir) throws IOException {
+    byte[] frame = {0x28, (byte) 0xb5, 0x2f, (byte) 0xfd, 0x00, 0x00};
+    RuntimeException streamed = assertThrows(RuntimeException.class,
+        () -> TrieFileBuilder.buildTrieFromStream(new ByteArrayInputStream(frame)));
+    assertTrue(streamed.getMessage().contains("Zstandard"), streamed.getMessage());
+    Path dictionary = dir.resolve("words.txt.zst");
+    Files.write(dictionary, frame);
+    assertThrows(RuntimeException.class,
+        () -> TrieFileBuilder.buildTrieFromFileParallel(dictionary.toString()));
+  }
+
+  @Test
+  void testLenientLoadSkipsInvalidLines(@TempDir Path dir) throws IOException {
+    List<String> lines = new ArrayList<>();
+    for (int i = 0; i < 30000; i++) {
+      lines.add(i % 7000 == 1 ? "bad line " + i : "word" + (char) ('a' + i % 26) + (char) ('a' + i / 26 % 26));
+    }
+    Path dictionary = dir.resolve("mixed.txt");
+    Files.write(dictionary, lines, StandardCharsets.UTF_8);
+    List<String> expected = List.of("2:bad line 1", "7002:bad line 7001", "14002:bad line 14001",
+        "21002:bad line 21001", "28002:bad line 28001");
+
+    List<String> sequential = new ArrayList<>();
+    TrieNode root = TrieFileBuilder.appendTrieFromFile(new TrieNode(), dictionary.toString(),
+        (lineNumber, line) -> sequential.add(lineNumber + ":" + line));
+    assertEquals(expected, sequential);
+
+    List<String> parallel = new ArrayList<>();
+    ForkJoinPool pool = new ForkJoinPool(4);
+    try {
+      TrieNode parallelRoot = TrieFileBuilder.appendTrieFromFileParallel(new TrieNode(),
+          dictionary.toString(), pool, (lineNumber, line) -> parallel.add(lineNumber + ":" + line));
+      assertEquals(root.getWordCount(), parallelRoot.getWordCount(), "Word counts should match.");
+    } finally {
+      pool.shutdown();
+    }
+    assertEquals(expected, parallel, "Parallel chunks should report file line numbers in order.");
+
+    RuntimeException strict = assertThrows(RuntimeException.class,
+        () -> TrieFileBuilder.buildTrieFromFileParallel(dictionary.toString()));
+    assertTrue(strict.getMessage().startsWith("Invalid line 2: \"bad line 1\""), strict.getMessage());
+  }
+}
@@ -0,0 +1,109 @@
+package autocomplete;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import autocomplete.AutoCompleteMetrics.Query;
+import java.lang.management.ManagementFactory;
+import java.util.List;
+import javax.management.JMX;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import javax.management.openmbean.CompositeData;
+import org.junit.jupiter.api.Test;
+
+class TrieMetricsTest {
+
+  @Test
+  void testQueryStatistics() {
+    TrieMetrics metrics = new TrieMetrics(1);
+    metrics.recordQuery(Query.PREFIX, 1_000, 40, 40);
+    metrics.recordQuery(Query.PREFIX, 3_000, 2, 2);
+    metrics.recordQuery(Query.SEARCH, 100, 5, 1);
+    QueryStatistics prefix = metrics.getStatistics(Query.PREFIX);
+    assertEquals("PREFIX", prefix.getQuery());
+    assertEquals(2, prefix.getCount());
+    assertEquals(2_000.0, prefix.getMeanNanos());
+    assertTrue(prefix.getP50Nanos() >= 1_000 && prefix.getP50Nanos() < 1_040, prefix.toString());
+    assertEquals(3_000, prefix.getP99Nanos());
+    assertEquals(3_000, prefix.getMaxNanos());
+    assertEquals(42, prefix.getResults());
+    assertEquals(42, prefix.getSubtreeSize());
+    assertEquals(3, metrics.getQueryCount());
+    assertEquals(1, metrics.getLatencies(Query.SEARCH).getCount());
+    assertEquals(0, metrics.getStatistics(Query.FUZZY).getCount());
+    assertEquals(Query.values().length, metrics.getQueryStatistics().size());
+
+    metrics.reset();
+    assertEquals(0, metrics.getQueryCount());
+    assertEquals(0, metrics.getStatistics(Query.PREFIX).getResults());
+  }
+
+  @Test
+  void testSampledCountsAreScaled() {
+    TrieMetrics metrics = new TrieMetrics(8);
+    assertEquals(8, metrics.getSampleInterval());
+    metrics.recordQuery(Query.TOP, 2_000, 30, 10);
+    QueryStatistics top = metrics.getStatistics(Query.TOP);
+    assertEquals(8, top.getCount());
+    assertEquals(80, top.getResults());
+    assertEquals(240, top.getSubtreeSize());
+    assertEquals(2_000.0, top.getMeanNanos(), "Latencies should not be scaled.");
+    assertEquals(8, metrics.getQueryCount());
+    assertEquals(TrieMetrics.DEFAULT_SAMPLE_INTERVAL, new TrieMetrics().getSampleInterval());
+    assertThrows(IllegalArgumentException.class, () -> new TrieMetrics(0));
+    assertThrows(IllegalArgumentException.class, () -> new TrieMetrics(12));
+  }
+
+  @Test
+  void testBuild() {
+    TrieMetrics metrics = new TrieMetrics();
+    metrics.recordBuild(5_000_000, 10, 30);
+    metrics.reset();
+    assertEquals(5_000_000, metrics.getBuildNanos(), "Resetting queries should keep the build.");
+    assertEquals(10, metrics.getWordCount());
+    assertEquals(30, metrics.getNodeCount());
+  }
+
+  @Test
+  void testJmx() throws Exception {
+    TrieMetrics metrics = new TrieMetrics(1);
+    ObjectName name = metrics.register("test");
+    try {
+      assertEquals("autocomplete:type=TrieMetrics,name=test", name.toString());
+      assertThrows(IllegalStateException.class, () -> metrics.register("other"));
+      assertThrows(RuntimeException.class, () -> new TrieMetrics().register("test"),
+          "A taken name should be rejected.");
+
+      ACLImplementation acl = new ACLImplementation(new TrieNode());
+      acl.insert("metric");
+      acl.setMetrics(metrics);
+      acl.getWordsWithPrefix("met");
+
+      MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+      assertEquals(1L, server.getAttribute(name, "QueryCount"));
+      assertEquals(7, server.getAttribute(name, "NodeCount"));
+      CompositeData[] rows = (CompositeData[]) server.getAttribute(name, "QueryStatistics");
+      assertEquals("PREFIX", rows[Query.PREFIX.ordinal()].get("query"));
+      assertEquals(1L, rows[Query.PREFIX.ordinal()].get("results"));
+
+      TrieMetricsMXBean proxy = JMX.newMXBeanProxy(server, name, TrieMetricsMXBean.class);
+      List<QueryStatistics> statistics = proxy.getQueryStatistics();
+      assertEquals(1, statistics.get(Query.PREFIX.ordinal()).getCount());
+      assertEquals(metrics.getStatistics(Query.PREFIX).getMaxNanos(),
+          statistics.get(Query.PREFIX.ordinal()).getMaxNanos());
+      proxy.reset();
+      assertEquals(0, metrics.getQueryCount());
+    } finally {
+      metrics.unregister();
+    }
+    assertTrue(!ManagementFactory.getPlatformMBeanServer().isRegistered(name));
+    metrics.unregister();
+  }
+
+  @Test
+  void testInvalidName() {
+    assertThrows(IllegalArgumentException.class, () -> new TrieMetrics().register("a:b"));
+  }
+}
@@ -2,8 +2,9 @@ package autocomplete;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
-import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
 import org.junit.jupiter.api.Test;
@@ -31,15 +32,147 @@ class TrieNodeTest {
   @Test
   void testChildNodeInitialization() {
     TrieNode node = new TrieNode();
-    assertNotNull(node.getChildNode(), "Child node array should be initialized.");
-    assertEquals(Constants.ALPHABET_SIZE, node.getChildNode().length, "Child node array should have size of ALPHABET_SIZE.");
+    assertEquals(0, node.getChildCount(), "A new node should have no children.");
+    assertEquals(-1, node.nextChildIndex(0), "A new node should have no children.");
+    assertNull(node.getChild(0), "A new node should have no children.");
+    assertEquals("empty", node.layoutName(), "A new node should not allocate child storage.");
   }
 
   @Test
-  void testSetChildNode() {
+  void testSetChild() {
     TrieNode node = new TrieNode();
-    TrieNode[] newChildren = new TrieNode[Constants.ALPHABET_SIZE];
-    node.setChildNode(newChildren);
-    assertSame(newChildren, node.getChildNode(), "getChildNode should return the array set by setChildNode.");
+    TrieNode child = new TrieNode();
+    node.setChild(2, child);
+    assertSame(child, node.getChild(2), "getChild should return the node set by setChild.");
+    assertNull(node.getChild(3), "Other indices should stay empty.");
+    assertEquals(1, node.getChildCount(), "The node should have one child.");
+  }
+
+  @Test
+  void testLayoutUpgradesAndDowngrades() {
+    TrieNode node = new TrieNode();
+    TrieNode[] children = new TrieNode[Constants.ALPHABET_SIZE];
+    for (int i = Constants.ALPHABET_SIZE - 1; i >= 0; i--) {
+      children[i] = new TrieNode();
+      node.setChild(i, children[i]);
+      int count = Constants.ALPHABET_SIZE - i;
+      assertEquals(count, node.getChildCount(), "Child count should track insertions.");
+      assertEquals(expectedLayout(count), node.layoutName(), "Layout for " + count + " children.");
+    }
+    for (int i = 0; i < Constants.ALPHABET_SIZE; i++) {
+      assertSame(children[i], node.getChild(i), "Every child should survive the upgrades.");
+    }
+
+    for (int i = 0; i < Constants.ALPHABET_SIZE; i += 2) {
+      node.setChild(i, null);
+    }
+    assertEquals("packed", node.layoutName(), "13 children should downgrade to packed.");
+    for (int i = 1; i < Constants.ALPHABET_SIZE; i += 2) {
+      assertSame(children[i], node.getChild(i), "Every child should survive the downgrade.");
+    }
+    for (int i = 1; i < 20; i += 2) {
+      node.setChild(i, null);
+    }
+    assertEquals("sparse", node.layoutName(), "3 children should downgrade to sparse.");
+    assertEquals(21, node.nextChildIndex(0), "Iteration should start at the smallest index.");
+    assertEquals(23, node.nextChildIndex(22), "Iteration should skip missing indices.");
+    assertEquals(-1, node.nextChildIndex(26), "Iteration should end after the last child.");
+    node.setChild(21, null);
+    node.setChild(23, null);
+    node.setChild(25, null);
+    assertEquals("empty", node.layoutName(), "A node without children should release storage.");
+  }
+
+  @Test
+  void testSetChildRejectsNonLetterIndex() {
+    TrieNode node = new TrieNode();
+    assertThrows(IndexOutOfBoundsException.class, () -> node.setChild(-1, new TrieNode()));
+    assertThrows(IndexOutOfBoundsException.class,
+        () -> node.setChild(Constants.ALPHABET_SIZE, new TrieNode()));
+    assertNull(node.getChild(-1), "Non-letter indices have no child.");
+  }
+
+  private static String expectedLayout(int count) {
+    if (count <= TrieNode.SPARSE_MAX) {
+      return "sparse";
+    }
+    if (count <= TrieNode.PACKED_MAX) {
+      return "packed";
+    }
+    return "dense";
+  }
+
+  @Test
+  void testCopyHasIndependentChildren() {
+    TrieNode node = new TrieNode();
+    TrieNode child = new TrieNode();
+    node.setChild(0, child);
+    node.setWordEnd(true);
+    node.setWeight(3);
+
+    TrieNode copy = node.copy();
+    copy.setChild(1, new TrieNode());
+    copy.setChild(0, null);
+
+    assertSame(child, node.getChild(0), "The original should keep its children.");
+    assertNull(node.getChild(1), "Children added to the copy should not appear in the original.");
+    assertNull(copy.getChild(0));
+    assertTrue(copy.isWordEnd());
+    assertEquals(3, copy.getWeight());
+    assertEquals(node.getWordCount(), copy.getWordCount());
+  }
+
+  @Test
+  void testOtherLettersKeepLetterLayout() {
+    TrieNode node = new TrieNode();
+    String letters = "abcdefghijklmnopqrstuvwxyz";
+    for (int i = 0; i < letters.length(); i++) {
+      node.setChild(Alphabet.index(letters.charAt(i)), new TrieNode());
+    }
+    assertEquals("dense", node.layoutName());
+    String others = "éàüßœж";
+    for (int i = 0; i < others.length(); i++) {
+      node.setChild(Alphabet.index(others.charAt(i)), new TrieNode());
+      assertEquals("dense", node.layoutName(), "Letters outside a-z should not change the layout.");
+    }
+    assertEquals(letters.length() + others.length(), node.getChildCount());
+    StringBuilder order = new StringBuilder();
+    for (int i = node.nextChildIndex(0); i >= 0; i = node.nextChildIndex(i + 1)) {
+      assertTrue(node.getChild(i) != null);
+      order.append(Alphabet.letter(i));
+    }
+    assertEquals(letters + "ßàéüœж", order.toString(), "Children should stay in character order.");
+    assertNull(node.getChild(Alphabet.index('ñ')));
+
+    for (int i = 0; i < others.length(); i++) {
+      node.setChild(Alphabet.index(others.charAt(i)), null);
+    }
+    assertEquals(letters.length(), node.getChildCount());
+    assertNull(node.getChild(Alphabet.index('é')));
+    assertTrue(node.getChild(Alphabet.index('q')) != null);
+  }
+
+  @Test
+  void testOtherLetterDoesNotBlockUpgrade() {
+    TrieNode node = new TrieNode();
+    int other = Alphabet.index('é');
+    node.setChild(other, new TrieNode());
+    assertEquals("empty", node.layoutName(), "Only letters a-z use the layouts.");
+    for (int i = 0; i < Constants.ALPHABET_SIZE; i++) {
+      node.setChild(i, new TrieNode());
+      assertEquals(expectedLayout(i + 1), node.layoutName(), "Layout for " + (i + 1) + " letters.");
+    }
+    assertEquals(Constants.ALPHABET_SIZE + 1, node.getChildCount());
+    assertEquals(other, node.nextChildIndex(Constants.ALPHABET_SIZE));
+    for (int i = 0; i < Constants.ALPHABET_SIZE - 2; i++) {
+      node.setChild(i, null);
+    }
+    assertEquals("sparse", node.layoutName(), "Removing letters should still downgrade.");
+    assertEquals(Constants.ALPHABET_SIZE - 2, node.nextChildIndex(0));
+    TrieNode copy = node.copy();
+    node.setChild(other, null);
+    assertNull(node.getChild(other));
+    assertTrue(copy.getChild(other) != null, "The copy should keep its own other letters.");
+    assertEquals(-1, node.nextChildIndex(Constants.ALPHABET_SIZE));
   }
 }
@@ -0,0 +1,100 @@
+package autocomplete;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class VersionedDictionaryTest {
+
+  private ExecutorService executor;
+
+  @BeforeEach
+  void setUp() {
+    executor = Executors.newSingleThreadExecutor();
+  }
+
+  @AfterEach
+  void tearDown() {
+    executor.shutdownNow();
+  }
+
+  @Test
+  void testReloadPublishesNewVersion(@TempDir Path dir) throws IOException {
+    Path dictionary = dir.resolve("small.txt");
+    Files.write(dictionary, Arrays.asList("alpha", "beta"), StandardCharsets.UTF_8);
+    VersionedDictionary dict = new VersionedDictionary(Constants.TEST_DICTIONARY);
+    VersionedDictionary.Snapshot pinned = dict.snapshot();
+
+    VersionedDictionary.Snapshot reloaded = dict.reload(dictionary.toString(), executor).join();
+
+    assertEquals(1, pinned.version());
+    assertEquals(2, reloaded.version());
+    assertEquals(2, dict.version());
+    assertTrue(dict.search("alpha"));
+    assertFalse(dict.search("agrivoltaics"));
+    assertTrue(pinned.search("agrivoltaics"), "A pinned snapshot should keep answering from its version.");
+    assertFalse(pinned.search("alpha"));
+  }
+
+  @Test
+  void testDeltaCopiesOnlyChangedPaths(@TempDir Path dir) throws IOException {
+    Path dictionary = dir.resolve("small.txt");
+    Files.write(dictionary, Arrays.asList("car 5", "cart 3", "dog 1"), StandardCharsets.UTF_8);
+    Path delta = dir.resolve("delta.txt");
+    Files.write(delta, Arrays.asList("-cart", "+care 9"), StandardCharsets.UTF_8);
+    VersionedDictionary dict = new VersionedDictionary(dictionary.toString());
+    VersionedDictionary.Snapshot before = dict.snapshot();
+
+    VersionedDictionary.Snapshot after = dict.applyDelta(delta.toString(), executor).join();
+
+    assertEquals(List.of("car", "cart"), before.getWordsWithPrefix("ca"));
+    assertEquals(List.of("car", "care"), after.getWordsWithPrefix("ca"));
+    assertEquals(List.of("care", "car"), dict.getTopCompletions("ca", 2));
+    assertEquals(List.of("dog"), dict.getWordsWithPrefix("d"));
+  }
+
+  @Test
+  void testFailedUpdateKeepsCurrentVersion(@TempDir Path dir) throws IOException {
+    Path delta = dir.resolve("delta.txt");
+    Files.write(delta, Arrays.asList("+fine", "bad line"), StandardCharsets.UTF_8);
+    VersionedDictionary dict = new VersionedDictionary(Constants.TEST_DICTIONARY);
+
+    assertThrows(CompletionException.class, () -> dict.applyDelta(delta.toString(), executor).join());
+    assertThrows(CompletionException.class, () -> dict.reload("nonexistent_dictionary.txt", executor).join());
+
+    assertEquals(1, dict.version());
+    assertFalse(dict.search("fine"));
+    assertTrue(dict.search("agrivoltaics"));
+  }
+
+  @Test
+  void testQueriesDuringUpdates(@TempDir Path dir) throws Exception {
+    Path delta = dir.resolve("delta.txt");
+    Files.write(delta, Arrays.asList("+zzz", "-zzz"), StandardCharsets.UTF_8);
+    VersionedDictionary dict = new VersionedDictionary(Constants.TEST_DICTIONARY);
+
+    for (int i = 0; i < 200; i++) {
+      dict.applyDelta(delta.toString(), executor);
+    }
+    while (dict.version() < 201) {
+      assertTrue(dict.search("agrivoltaics"));
+      assertEquals(List.of("agrivoltaics"), dict.getWordsWithPrefix("a"));
+    }
+    assertFalse(dict.search("zzz"));
+  }
+}